@@ -0,0 +1,123 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS
+ * OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.github.drinkjava2.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.github.drinkjava2.jdialects.DDLCreateUtils;
+import com.github.drinkjava2.jdialects.Dialect;
+import com.github.drinkjava2.jdialects.model.TableModel;
+
+/**
+ * Benchmark of DDL generation on a generated schema, each table has 30 columns
+ * of common types, a primary key, an index, a unique constraint and a foreign
+ * key to previous table
+ *
+ * @author Yong Zhu
+ * @since 5.0.13
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DDLBenchmark {
+
+	/** No MySQL8Dialect, it does not support the NVARCHAR columns of schema */
+	@Param({ "Oracle12cDialect", "SQLServer2012Dialect", "PostgreSQL95Dialect", "H2Dialect" })
+	public String dialect;
+
+	@Param({ "10", "200" })
+	public int tableCount;
+
+	private Dialect d;
+	private TableModel[] tables;
+
+	@Setup
+	public void setup() {
+		d = SqlCorpus.dialect(dialect);
+		tables = buildSchema(tableCount, 30);
+	}
+
+	@Benchmark
+	public String[] toCreateDDL() {
+		return DDLCreateUtils.toCreateDDL(d, tables);
+	}
+
+	@Benchmark
+	public void toCreateDDLStreaming(final Blackhole bh) {
+		d.toCreateDDL(new Consumer<String>() {
+			@Override
+			public void accept(String ddl) {
+				bh.consume(ddl);
+			}
+		}, tables);
+	}
+
+	@Benchmark
+	public String[] toDropAndCreateDDL() {
+		return d.toDropAndCreateDDL(tables);
+	}
+
+	/** Build tables, each table has given quantity of columns */
+	public static TableModel[] buildSchema(int tableCount, int columnCount) {
+		TableModel[] result = new TableModel[tableCount];
+		for (int t = 0; t < tableCount; t++) {
+			TableModel model = new TableModel("bench_table" + t);
+			model.column("id").LONG().pkey();
+			model.column("code").VARCHAR(32).notNull().singleUnique();
+			model.column("parent_id").LONG();
+			for (int c = 3; c < columnCount; c++) {
+				String name = "col" + c;
+				switch (c % 6) {
+				case 0:
+					model.column(name).VARCHAR(50 + c * 10);
+					break;
+				case 1:
+					model.column(name).DECIMAL(18, 2);
+					break;
+				case 2:
+					model.column(name).INTEGER();
+					break;
+				case 3:
+					model.column(name).TIMESTAMP();
+					break;
+				case 4:
+					model.column(name).BOOLEAN();
+					break;
+				default:
+					model.column(name).NVARCHAR(20 + c);
+				}
+			}
+			model.index("idx_bench" + t).columns("col3", "col4");
+			if (t > 0)
+				model.fkey("fk_bench" + t).columns("parent_id").refs("bench_table" + (t - 1), "id");
+			result[t] = model;
+		}
+		return result;
+	}
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS
+ * OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.github.drinkjava2.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.drinkjava2.benchmark.entity.Customer;
+import com.github.drinkjava2.benchmark.entity.OrderItem;
+import com.github.drinkjava2.jdialects.EntityModelRegistry;
+import com.github.drinkjava2.jdialects.TableModelUtilsOfEntity;
+import com.github.drinkjava2.jdialects.model.TableModel;
+
+/**
+ * Benchmark of entity class to TableModel, "cold" builds model by reflection
+ * each time, "cached" reads the global model cache
+ *
+ * @author Yong Zhu
+ * @since 5.0.13
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityModelBenchmark {
+
+	@Benchmark
+	public TableModel entity2ReadOnlyModelCold() {
+		EntityModelRegistry.invalidate(Customer.class);
+		return TableModelUtilsOfEntity.entity2ReadOnlyModel(Customer.class);
+	}
+
+	@Benchmark
+	public TableModel entity2ReadOnlyModelCached() {
+		return TableModelUtilsOfEntity.entity2ReadOnlyModel(OrderItem.class);
+	}
+}
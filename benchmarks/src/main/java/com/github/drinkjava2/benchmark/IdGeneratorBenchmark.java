@@ -0,0 +1,135 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS
+ * OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.github.drinkjava2.benchmark;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.drinkjava2.jdialects.id.SnowflakeCreator;
+import com.github.drinkjava2.jdialects.id.TimeStampIdGenerator;
+import com.github.drinkjava2.jdialects.id.UUID25Generator;
+import com.github.drinkjava2.jdialects.id.UUID32Generator;
+import com.github.drinkjava2.jdialects.id.UUIDAnyGenerator;
+import com.github.drinkjava2.jdialects.id.UUIDCreator;
+
+/**
+ * Multi-thread throughput benchmark of ID generators, runs on all available
+ * processors by default, use "-t 1", "-t 8", "-t 32" to compare scalability.
+ * Methods end with "Baseline" are former implementations of TimeStampIdGenerator
+ * and UUID generators, kept here for comparison
+ *
+ * @author Yong Zhu
+ * @since 5.0.13
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(Threads.MAX)
+@Fork(1)
+public class IdGeneratorBenchmark {
+	private static long count = 1;
+
+	private static final SecureRandom random = new SecureRandom();
+	private static final char[] ALPHABET = "0123456789abcdefghijklmnopqrstuvwxyz".toCharArray();
+
+	private final SnowflakeCreator snowflake = new SnowflakeCreator(5, 5, 1, 1);
+
+	private static synchronized long synchronizedTimeStampId() {
+		if (count > 999999)
+			count = 1;
+		return System.currentTimeMillis() * 1000000 + count++;
+	}
+
+	@Benchmark
+	public long timeStampSynchronizedBaseline() {
+		return synchronizedTimeStampId();
+	}
+
+	@Benchmark
+	public long timeStampNextId() {
+		return TimeStampIdGenerator.nextId();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(100)
+	public long[] timeStampNextIds100() {
+		return TimeStampIdGenerator.nextIds(100);
+	}
+
+	@Benchmark
+	public long snowflakeNextId() {
+		return snowflake.nextId();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(100)
+	public long[] snowflakeNextIds100() {
+		return snowflake.nextIds(100);
+	}
+
+	@Benchmark
+	public String uuid32Baseline() {
+		return UUID.randomUUID().toString().replace("-", "");
+	}
+
+	@Benchmark
+	public String uuid32() {
+		return UUID32Generator.getUUID32();
+	}
+
+	@Benchmark
+	public String uuid25Baseline() {
+		String s = new BigInteger(UUID.randomUUID().toString().replace("-", ""), 16).toString(36);
+		while (s.length() < 25)
+			s = s + ALPHABET[random.nextInt(32)]; // NOSONAR
+		return s;
+	}
+
+	@Benchmark
+	public String uuid25() {
+		return UUID25Generator.getUUID25();
+	}
+
+	@Benchmark
+	public String uuidAny36Baseline() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 36; i++)
+			sb.append(ALPHABET[random.nextInt(32)]);
+		return sb.toString();
+	}
+
+	@Benchmark
+	public String uuidAny36() {
+		return UUIDAnyGenerator.getAnyLengthRadix36UUID(36);
+	}
+
+	@Benchmark
+	public String timeOrderedUUID36() {
+		return UUIDCreator.timeOrderedUUID(true);
+	}
+}
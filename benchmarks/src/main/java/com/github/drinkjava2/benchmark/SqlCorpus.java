@@ -0,0 +1,84 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS
+ * OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.github.drinkjava2.benchmark;
+
+import com.github.drinkjava2.jdialects.Dialect;
+
+/**
+ * SQL corpus used by benchmarks, all functions used here are supported by
+ * MySQL8, Oracle12c, SQLServer2012, PostgreSQL95 and H2 dialects
+ *
+ * @author Yong Zhu
+ * @since 5.0.13
+ */
+public abstract class SqlCorpus {// NOSONAR
+
+	/** A typical list page query, no portable function */
+	public static final String SMALL = "select u.id, u.user_name, u.email, u.created_at from users u where u.status=? and u.dept_id=? order by u.created_at desc";
+
+	/** A typical list page query with some portable functions */
+	public static final String SMALL_WITH_FUNCTIONS = "select u.id, upper(u.user_name), concat(u.first_name, ' ', u.last_name) as full_name, coalesce(u.email, 'n/a') from users u where u.status=? and lower(u.email) like ? order by u.created_at desc";
+
+	/** A report query with nested functions and sub queries, about 2KB */
+	public static final String MEDIUM = "select o.id, o.order_no, concat(upper(trim(c.first_name)), ' ', upper(trim(c.last_name))) as customer_name, " //
+			+ "coalesce(c.email, c.phone, 'unknown') as contact, year(o.created_at) as order_year, month(o.created_at) as order_month, " //
+			+ "round(sum(i.quantity * i.unit_price), 2) as amount, count(distinct i.product_id) as product_qty, " //
+			+ "max(i.unit_price) as max_price, min(i.unit_price) as min_price, abs(o.discount) as discount, " //
+			+ "nullif(o.remark, '') as remark, substring(o.order_no, 1, 4) as order_prefix, " //
+			+ "length(trim(o.address)) as address_length, floor(sqrt(abs(o.weight))) as weight_level, " //
+			+ "(select count(*) from order_log l where l.order_id=o.id and l.status in ('PAID', 'SHIPPED')) as log_qty, " //
+			+ "(select max(p.paid_at) from payment p where p.order_id=o.id and p.amount > 0) as last_paid " //
+			+ "from orders o inner join customer c on o.customer_id=c.id " //
+			+ "inner join order_item i on i.order_id=o.id " //
+			+ "left join product p on p.id=i.product_id " //
+			+ "where o.status in (?, ?, ?) and o.created_at >= ? and o.created_at < ? " //
+			+ "and upper(c.country) = upper(?) and (lower(c.email) like ? or c.phone like ?) " //
+			+ "and o.id not in (select r.order_id from refund r where r.status='DONE' and year(r.created_at)=?) " //
+			+ "group by o.id, o.order_no, c.first_name, c.last_name, c.email, c.phone, o.created_at, o.discount, o.remark, o.address, o.weight " //
+			+ "having round(sum(i.quantity * i.unit_price), 2) > ? " //
+			+ "order by o.created_at desc, o.id";
+
+	/** A huge report query, about 20KB, union of many MEDIUM like queries */
+	public static final String HUGE = buildHugeSql(10);
+
+	private static String buildHugeSql(int parts) {
+		StringBuilder sb = new StringBuilder("select t.* from (");
+		for (int i = 0; i < parts; i++) {
+			if (i > 0)
+				sb.append(" union all ");
+			String body = MEDIUM.substring(0, MEDIUM.lastIndexOf(" order by "));
+			sb.append(body.replace("o.remark, '')", "o.remark, 'part" + i + "')"));
+		}
+		return sb.append(") t order by t.order_year, t.order_month").toString();
+	}
+
+	/** Return SQL by size name: plain (no function), small, medium or huge */
+	public static String sql(String size) {
+		if ("plain".equals(size))
+			return SMALL;
+		if ("small".equals(size))
+			return SMALL_WITH_FUNCTIONS;
+		if ("medium".equals(size))
+			return MEDIUM;
+		if ("huge".equals(size))
+			return HUGE;
+		throw new IllegalArgumentException("Unknown SQL size: " + size);
+	}
+
+	/** Return dialect by its name, for example "MySQL8Dialect" */
+	public static Dialect dialect(String name) {
+		for (Dialect d : Dialect.dialects)
+			if (d.getName().equals(name))
+				return d;
+		throw new IllegalArgumentException("Unknown dialect: " + name);
+	}
+}
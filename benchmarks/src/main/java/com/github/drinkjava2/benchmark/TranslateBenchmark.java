@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS
+ * OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.github.drinkjava2.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.drinkjava2.jdialects.Dialect;
+import com.github.drinkjava2.jdialects.DialectFunctionTranslator;
+
+/**
+ * Benchmark of SQL function translation, "translateWithoutCache" measures the
+ * translator itself, "trans" and "paginAndTrans" measure the public API which
+ * use translation cache
+ *
+ * @author Yong Zhu
+ * @since 5.0.13
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TranslateBenchmark {
+
+	@Param({ "MySQL8Dialect", "Oracle12cDialect", "SQLServer2012Dialect", "PostgreSQL95Dialect", "H2Dialect" })
+	public String dialect;
+
+	@Param({ "plain", "small", "medium", "huge" })
+	public String size;
+
+	private Dialect d;
+	private String sql;
+
+	@Setup
+	public void setup() {
+		d = SqlCorpus.dialect(dialect);
+		sql = SqlCorpus.sql(size);
+	}
+
+	@Benchmark
+	public String translateWithoutCache() {
+		return DialectFunctionTranslator.instance.doTranslateWithoutCache(d, sql);
+	}
+
+	@Benchmark
+	public String trans() {
+		return d.trans(sql);
+	}
+
+	@Benchmark
+	public String paginAndTrans() {
+		return d.paginAndTrans(7, 20, sql);
+	}
+}
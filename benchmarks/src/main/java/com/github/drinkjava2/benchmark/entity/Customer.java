@@ -0,0 +1,161 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS
+ * OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.github.drinkjava2.benchmark.entity;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+import com.github.drinkjava2.jdialects.annotation.jpa.Column;
+import com.github.drinkjava2.jdialects.annotation.jpa.Id;
+import com.github.drinkjava2.jdialects.annotation.jpa.Index;
+import com.github.drinkjava2.jdialects.annotation.jpa.Table;
+import com.github.drinkjava2.jdialects.annotation.jpa.Transient;
+import com.github.drinkjava2.jdialects.annotation.jpa.UniqueConstraint;
+
+/**
+ * Entity used by EntityModelBenchmark
+ *
+ * @author Yong Zhu
+ * @since 5.0.13
+ */
+@Table(name = "customer", indexes = { @Index(name = "idx_cust_name", columnList = "first_name,last_name") }, //
+		uniqueConstraints = { @UniqueConstraint(name = "uk_cust_email", columnNames = { "email" }) })
+public class Customer {
+	@Id
+	@Column(length = 32)
+	private String id;
+
+	@Column(name = "first_name", length = 50, nullable = false)
+	private String firstName;
+
+	@Column(name = "last_name", length = 50, nullable = false)
+	private String lastName;
+
+	@Column(length = 120)
+	private String email;
+
+	@Column(length = 30)
+	private String phone;
+
+	@Column(length = 2)
+	private String country;
+
+	@Column(precision = 18, scale = 2)
+	private BigDecimal credit;
+
+	private Integer level;
+
+	private Boolean active;
+
+	private Date createdAt;
+
+	private Date updatedAt;
+
+	@Transient
+	private String displayName;
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getFirstName() {
+		return firstName;
+	}
+
+	public void setFirstName(String firstName) {
+		this.firstName = firstName;
+	}
+
+	public String getLastName() {
+		return lastName;
+	}
+
+	public void setLastName(String lastName) {
+		this.lastName = lastName;
+	}
+
+	public String getEmail() {
+		return email;
+	}
+
+	public void setEmail(String email) {
+		this.email = email;
+	}
+
+	public String getPhone() {
+		return phone;
+	}
+
+	public void setPhone(String phone) {
+		this.phone = phone;
+	}
+
+	public String getCountry() {
+		return country;
+	}
+
+	public void setCountry(String country) {
+		this.country = country;
+	}
+
+	public BigDecimal getCredit() {
+		return credit;
+	}
+
+	public void setCredit(BigDecimal credit) {
+		this.credit = credit;
+	}
+
+	public Integer getLevel() {
+		return level;
+	}
+
+	public void setLevel(Integer level) {
+		this.level = level;
+	}
+
+	public Boolean getActive() {
+		return active;
+	}
+
+	public void setActive(Boolean active) {
+		this.active = active;
+	}
+
+	public Date getCreatedAt() {
+		return createdAt;
+	}
+
+	public void setCreatedAt(Date createdAt) {
+		this.createdAt = createdAt;
+	}
+
+	public Date getUpdatedAt() {
+		return updatedAt;
+	}
+
+	public void setUpdatedAt(Date updatedAt) {
+		this.updatedAt = updatedAt;
+	}
+
+	public String getDisplayName() {
+		return displayName;
+	}
+
+	public void setDisplayName(String displayName) {
+		this.displayName = displayName;
+	}
+}
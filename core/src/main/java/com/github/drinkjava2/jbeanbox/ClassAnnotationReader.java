@@ -0,0 +1,261 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS
+ * OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.github.drinkjava2.jbeanbox;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read super class name and class level runtime visible annotations from class
+ * file bytes without loading the class, only constant pool and class
+ * attributes are parsed, fields and methods are skipped.
+ *
+ * @author Yong Zhu
+ * @since 5.0.13
+ */
+class ClassAnnotationReader {// NOSONAR
+	/** Returned if class file can not be parsed, caller should load the class */
+	static final ClassInfo UNREADABLE = new ClassInfo(null, new String[0]);
+
+	static final String[] NO_ANNOTATION = new String[0];
+
+	/** Super class name and class level annotation descriptors of a class file */
+	static class ClassInfo {
+		/** Super class name like "com.foo.Base", null if it's java.lang.Object */
+		final String superName;
+
+		/** Annotation descriptors like "Ljavax/persistence/Entity;" */
+		final String[] annotations;
+
+		ClassInfo(String superName, String[] annotations) {
+			this.superName = superName;
+			this.annotations = annotations;
+		}
+	}
+
+	private static final String RUNTIME_VISIBLE_ANNOTATIONS = "RuntimeVisibleAnnotations";
+
+	private final byte[] b;
+	private int pos;
+
+	/** Offset of each constant pool item */
+	private int[] items;
+
+	private ClassAnnotationReader(byte[] bytes) {
+		this.b = bytes;
+	}
+
+	/**
+	 * Return super class name and descriptors (like
+	 * "Ljavax/persistence/Entity;") of class level runtime visible annotations,
+	 * or UNREADABLE
+	 */
+	static ClassInfo readClassInfo(InputStream in) throws IOException {
+		return readClassInfo(readAll(in));
+	}
+
+	static ClassInfo readClassInfo(byte[] bytes) {
+		try {
+			return new ClassAnnotationReader(bytes).read();
+		} catch (RuntimeException e) {// NOSONAR broken class file
+			return UNREADABLE;
+		} catch (IOException e) {// NOSONAR broken class file
+			return UNREADABLE;
+		}
+	}
+
+	/** Return annotation descriptor of a annotation class name */
+	static String descriptor(String annotationClassName) {
+		return "L" + annotationClassName.replace('.', '/') + ";";
+	}
+
+	private ClassInfo read() throws IOException {
+		if (u4() != 0xCAFEBABE)
+			return UNREADABLE;
+		pos += 4; // minor, major version
+		int count = u2();
+		items = new int[count];
+		boolean hasAnnotations = false;
+		for (int i = 1; i < count; i++) {
+			items[i] = pos;
+			int tag = b[pos++];
+			switch (tag) {
+			case 1: // Utf8
+				int len = u2();
+				if (!hasAnnotations && len == RUNTIME_VISIBLE_ANNOTATIONS.length()
+						&& RUNTIME_VISIBLE_ANNOTATIONS.equals(utf8(i)))
+					hasAnnotations = true;
+				pos += len;
+				break;
+			case 3: // Integer
+			case 4: // Float
+			case 9: // Fieldref
+			case 10: // Methodref
+			case 11: // InterfaceMethodref
+			case 12: // NameAndType
+			case 17: // Dynamic
+			case 18: // InvokeDynamic
+				pos += 4;
+				break;
+			case 5: // Long
+			case 6: // Double
+				pos += 8;
+				i++;
+				break;
+			case 7: // Class
+			case 8: // String
+			case 16: // MethodType
+			case 19: // Module
+			case 20: // Package
+				pos += 2;
+				break;
+			case 15: // MethodHandle
+				pos += 3;
+				break;
+			default:
+				return UNREADABLE;
+			}
+		}
+		pos += 4; // access flags, this class
+		int superIndex = u2();
+		String superName = null;
+		if (superIndex != 0) {
+			superName = utf8(u2At(items[superIndex] + 1)).replace('/', '.');
+			if ("java.lang.Object".equals(superName))
+				superName = null;
+		}
+		if (!hasAnnotations)
+			return new ClassInfo(superName, NO_ANNOTATION);
+		int interfaces = u2();
+		pos += 2 * interfaces;
+		skipMembers(); // fields
+		skipMembers(); // methods
+		int attrCount = u2();
+		for (int i = 0; i < attrCount; i++) {
+			String name = utf8(u2());
+			int len = u4();
+			if (RUNTIME_VISIBLE_ANNOTATIONS.equals(name)) {
+				int num = u2();
+				String[] result = new String[num];
+				for (int j = 0; j < num; j++) {
+					result[j] = utf8(u2());
+					skipPairs();
+				}
+				return new ClassInfo(superName, result);
+			}
+			pos += len;
+		}
+		return new ClassInfo(superName, NO_ANNOTATION);
+	}
+
+	private void skipMembers() {
+		int count = u2();
+		for (int i = 0; i < count; i++) {
+			pos += 6; // access flags, name, descriptor
+			int attrCount = u2();
+			for (int j = 0; j < attrCount; j++) {
+				pos += 2;
+				int len = u4();
+				pos += len;
+			}
+		}
+	}
+
+	/** Skip element value pairs of an annotation */
+	private void skipPairs() {
+		int pairs = u2();
+		for (int i = 0; i < pairs; i++) {
+			pos += 2;
+			skipElementValue();
+		}
+	}
+
+	private void skipElementValue() {
+		int tag = b[pos++];
+		switch (tag) {
+		case 'e':
+			pos += 4;
+			break;
+		case '@':
+			pos += 2;
+			skipPairs();
+			break;
+		case '[':
+			int num = u2();
+			for (int i = 0; i < num; i++)
+				skipElementValue();
+			break;
+		default: // B C D F I J S Z s c
+			pos += 2;
+		}
+	}
+
+	private String utf8(int index) throws IOException {
+		int offset = items[index];
+		if (b[offset] != 1)
+			throw new IOException("Not a Utf8 constant");
+		int len = ((b[offset + 1] & 0xFF) << 8) | (b[offset + 2] & 0xFF);
+		return new DataInputStream(new ByteArrayInputStream(b, offset + 1, len + 2)).readUTF();
+	}
+
+	private int u2() {
+		int result = u2At(pos);
+		pos += 2;
+		return result;
+	}
+
+	private int u2At(int offset) {
+		return ((b[offset] & 0xFF) << 8) | (b[offset + 1] & 0xFF);
+	}
+
+	private int u4() {
+		int result = ((b[pos] & 0xFF) << 24) | ((b[pos + 1] & 0xFF) << 16) | ((b[pos + 2] & 0xFF) << 8)
+				| (b[pos + 3] & 0xFF);
+		pos += 4;
+		return result;
+	}
+
+	private static byte[] readAll(InputStream in) throws IOException {
+		byte[] buf = new byte[4096];
+		int len = 0;
+		int n;
+		while ((n = in.read(buf, len, buf.length - len)) >= 0) {
+			len += n;
+			if (len == buf.length) {
+				byte[] bigger = new byte[buf.length * 2];
+				System.arraycopy(buf, 0, bigger, 0, len);
+				buf = bigger;
+			}
+		}
+		byte[] result = new byte[len];
+		System.arraycopy(buf, 0, result, 0, len);
+		return result;
+	}
+
+	/** Return true if annotations include any of given descriptors */
+	static boolean containsAny(String[] annotations, List<String> descriptors) {
+		for (String anno : annotations)
+			if (descriptors.contains(anno))
+				return true;
+		return false;
+	}
+
+	/** Return descriptors of annotation class names */
+	static List<String> descriptors(String... annotationClassNames) {
+		List<String> result = new ArrayList<String>();
+		for (String name : annotationClassNames)
+			result.add(descriptor(name));
+		return result;
+	}
+}
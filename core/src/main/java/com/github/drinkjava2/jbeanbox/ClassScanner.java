@@ -13,21 +13,38 @@ import java.io.File;
 import java.io.FileFilter;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.annotation.Annotation;
+import java.lang.annotation.Inherited;
 import java.net.URL;
 import java.net.URLDecoder;
 import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.jar.JarEntry;
-import java.util.jar.JarInputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.github.drinkjava2.jbeanbox.ClassAnnotationReader.ClassInfo;
 
 /**
  * A util class used to scan all classes in some packages, include all child
  * folders and jars insdie of packages' path.
  * 
+ * Class names are found by listing directories and jar entries (by ZipFile,
+ * only central directory is read), classes are loaded only when needed.
+ * scanByAnno and scanEntities read class level annotations directly from class
+ * files in parallel, so only matched classes are loaded, &#064;Inherited
+ * annotations are found by reading super class files. Annotations read from
+ * jars are cached by jar path, last modified time and length, see
+ * setJarIndexCacheEnabled.
+ * 
  * @author: cent
  * @email: 292462859@qq.com
  * @date: 2019/1/8.
@@ -42,6 +59,19 @@ public enum ClassScanner {
 		http, https, file, jar;
 	}
 
+	/** Entity annotations of JPA and jDialects, see scanEntities */
+	public static final String[] ENTITY_ANNOTATIONS = new String[] { "javax.persistence.Entity",
+			"javax.persistence.Table", "com.github.drinkjava2.jdialects.annotation.jpa.Entity",
+			"com.github.drinkjava2.jdialects.annotation.jpa.Table" };
+
+	/** Class files read in one parallel task */
+	private static final int PARALLEL_THRESHOLD = 64;
+
+	/** Annotations read from jars, key is jar path */
+	private static final ConcurrentHashMap<String, JarIndex> jarIndexCache = new ConcurrentHashMap<String, JarIndex>();
+
+	private static volatile boolean jarIndexCacheEnabled = true;
+
 	/**
 	 * Find all classes in packages 扫描一或多个包下的所有Class，包含接口类
 	 *
@@ -49,15 +79,26 @@ public enum ClassScanner {
 	 * @return
 	 */
 	public static List<Class> scanPackages(String... scanBasePackages) {
-		List<Class> classList = new LinkedList<Class>();
-		if (scanBasePackages.length == 0) {
-			return classList;
-		}
-		for (String pkg : scanBasePackages) {
-			if (pkg != null && pkg.length() != 0)
-				classList.addAll(ClassScanner.scanOnePackage(pkg));
+		return loadClasses(scanClassNames(scanBasePackages));
+	}
+
+	/**
+	 * Find all class names in packages without loading classes
+	 * 扫描一或多个包下的所有类名，不加载类
+	 *
+	 * @param scanBasePackages
+	 * @return class names
+	 */
+	public static List<String> scanClassNames(String... scanBasePackages) {
+		List<String> result = new ArrayList<String>();
+		List<ZipFile> jars = new ArrayList<ZipFile>();
+		try {
+			for (ClassFile classFile : findClassFiles(jars, scanBasePackages))
+				result.add(classFile.className);
+		} finally {
+			closeAll(jars);
 		}
-		return classList;
+		return result;
 	}
 
 	/**
@@ -68,12 +109,63 @@ public enum ClassScanner {
 	 * @return
 	 */
 	public static List<Class> scanByAnno(Class<? extends Annotation> anno, String... scanBasePackages) {
-		List<Class> classList = scanPackages(scanBasePackages);
-		List<Class> result = new ArrayList<Class>();
-		for (Class clz : classList) {
-			Annotation clzAnno = clz.getAnnotation(anno);
-			if (clzAnno != null)
-				result.add(clz);
+		return loadClasses(scanClassNamesByAnno(new String[] { anno.getName() }, scanBasePackages));
+	}
+
+	/**
+	 * Find classes annotated by any of &#064;Entity or &#064;Table (JPA's or
+	 * jDialects', jDialects' &#064;Table is inherited by sub classes) in
+	 * packages, only these classes are loaded
+	 * 扫描包下的实体类，只加载匹配的类
+	 *
+	 * @param scanBasePackages
+	 * @return entity classes
+	 */
+	public static List<Class> scanEntities(String... scanBasePackages) {
+		return loadClasses(scanClassNamesByAnno(ENTITY_ANNOTATIONS, scanBasePackages));
+	}
+
+	/**
+	 * Find names of classes annotated by any of given runtime retention
+	 * annotations in packages, class files are read in parallel and classes are
+	 * not loaded 扫描包下带有任一注解的类名，不加载类. <br/>
+	 * 
+	 * For &#064;Inherited annotations, super classes are searched by reading their
+	 * class files (from scanned class files or by class loader resource), a class
+	 * is loaded only if one of its super class files can not be read.
+	 *
+	 * @param annotationClassNames
+	 *            annotation class names, for example "javax.persistence.Entity"
+	 * @param scanBasePackages
+	 * @return class names
+	 */
+	public static List<String> scanClassNamesByAnno(String[] annotationClassNames, String... scanBasePackages) {
+		List<String> descriptors = ClassAnnotationReader.descriptors(annotationClassNames);
+		List<String> inherited = ClassAnnotationReader.descriptors(inheritedAnnotations(annotationClassNames));
+		List<String> result = new ArrayList<String>();
+		List<ZipFile> jars = new ArrayList<ZipFile>();
+		try {
+			List<ClassFile> classFiles = findClassFiles(jars, scanBasePackages);
+			ClassInfo[] infos = readClassInfos(classFiles);
+			Map<String, ClassInfo> infoMap = new HashMap<String, ClassInfo>();
+			for (int i = 0; i < infos.length; i++)
+				infoMap.put(classFiles.get(i).className, infos[i]);
+			Map<String, Boolean> inheritedMatch = new HashMap<String, Boolean>();
+			for (int i = 0; i < infos.length; i++) {
+				String className = classFiles.get(i).className;
+				if (infos[i] == ClassAnnotationReader.UNREADABLE) {
+					if (isAnnotatedByLoading(className, annotationClassNames))
+						result.add(className);
+				} else if (ClassAnnotationReader.containsAny(infos[i].annotations, descriptors))
+					result.add(className);
+				else if (!inherited.isEmpty()) {
+					Boolean matched = isSuperAnnotated(infos[i].superName, inherited, infoMap, inheritedMatch);
+					if (matched == null ? isAnnotatedByLoading(className, annotationClassNames) : matched)
+						result.add(className);
+				}
+			}
+		} finally {
+			closeAll(jars);
 		}
 		return result;
 	}
@@ -87,46 +179,64 @@ public enum ClassScanner {
 	 * @return
 	 */
 	public static List<Class> scanByName(String nameSimpleReg, String... scanBasePackages) {
-		List<Class> classList = scanPackages(scanBasePackages);
-		List<Class> result = new ArrayList<Class>();
-		for (Class clz : classList)
-			if (NameMatchUtil.nameMatch(nameSimpleReg, clz.getName()))
-				result.add(clz);
-		return result;
+		List<String> names = new ArrayList<String>();
+		for (String className : scanClassNames(scanBasePackages))
+			if (NameMatchUtil.nameMatch(nameSimpleReg, className))
+				names.add(className);
+		return loadClasses(names);
 	}
 
 	/**
-	 * find all classes in one package 扫描某个包下所有Class类
-	 *
-	 * @param pkg
-	 * @return Class
+	 * Enable or disable jar index cache, if disabled, jar files are read at each
+	 * scan, default is enabled
 	 */
-	private static List<Class> scanOnePackage(String pkg) {
-		List<Class> classList = new LinkedList<Class>();
-		try {
-			// 包名转化为路径名
-			String pathName = package2Path(pkg);
-			// 获取路径下URL
-			Enumeration<URL> urls = Thread.currentThread().getContextClassLoader().getResources(pathName);
-			// 循环扫描路径
-			classList = scanUrls(pkg, urls);
-		} catch (IOException e) {
-			System.err.println("Warning: Can not scan package：" + pkg);
-		}
+	public static void setJarIndexCacheEnabled(boolean enabled) {
+		jarIndexCacheEnabled = enabled;
+		if (!enabled)
+			jarIndexCache.clear();
+	}
 
-		return classList;
+	public static boolean isJarIndexCacheEnabled() {
+		return jarIndexCacheEnabled;
+	}
+
+	/** Clear jar index cache */
+	public static void clearJarIndexCache() {
+		jarIndexCache.clear();
 	}
 
 	/**
-	 * find all classes in urls 扫描多个Url路径，找出符合包名的Class类
+	 * find all class files in packages 找出多个包下所有Class文件, opened jars are
+	 * added into jars, caller should close them
+	 */
+	private static List<ClassFile> findClassFiles(List<ZipFile> jars, String... scanBasePackages) {
+		List<ClassFile> classFiles = new ArrayList<ClassFile>();
+		for (String pkg : scanBasePackages) {
+			if (pkg == null || pkg.length() == 0)
+				continue;
+			try {
+				// 包名转化为路径名
+				String pathName = package2Path(pkg);
+				// 获取路径下URL
+				Enumeration<URL> urls = Thread.currentThread().getContextClassLoader().getResources(pathName);
+				// 循环扫描路径
+				scanUrls(pkg, urls, classFiles, jars);
+			} catch (IOException e) {
+				System.err.println("Warning: Can not scan package：" + pkg);
+			}
+		}
+		return classFiles;
+	}
+
+	/**
+	 * find all class files in urls 扫描多个Url路径，找出符合包名的Class文件
 	 *
 	 * @param pkg
 	 * @param urls
-	 * @return Class
 	 * @throws IOException
 	 */
-	private static List<Class> scanUrls(String pkg, Enumeration<URL> urls) throws IOException {
-		List<Class> classList = new LinkedList<Class>();
+	private static void scanUrls(String pkg, Enumeration<URL> urls, List<ClassFile> classFiles, List<ZipFile> jars)
+			throws IOException {
 		while (urls.hasMoreElements()) {
 			URL url = urls.nextElement();
 			// 获取协议
@@ -135,15 +245,14 @@ public enum ClassScanner {
 			if (ProtocolTypes.file.name().equals(protocol)) {
 				// 文件
 				String path = URLDecoder.decode(url.getFile(), "UTF-8");
-				classList.addAll(recursiveScan4Path(pkg, path));
+				recursiveScan4Path(pkg, path, classFiles);
 
 			} else if (ProtocolTypes.jar.name().equals(protocol)) {
 				// jar包
 				String jarPath = getJarPathFormUrl(url);
-				classList.addAll(recursiveScan4Jar(pkg, jarPath));
+				scan4Jar(pkg, jarPath, classFiles, jars);
 			}
 		}
-		return classList;
 	}
 
 	/**
@@ -167,14 +276,11 @@ public enum ClassScanner {
 	 *
 	 * @param pkg
 	 * @param filePath
-	 * @return Class列表
 	 */
-	private static List<Class> recursiveScan4Path(String pkg, String filePath) {
-		List<Class> classList = new LinkedList<Class>();
-
+	private static void recursiveScan4Path(String pkg, String filePath, List<ClassFile> classFiles) {
 		File file = new File(filePath);
 		if (!file.exists() || !file.isDirectory()) {
-			return classList;
+			return;
 		}
 
 		// 处理类文件
@@ -186,16 +292,7 @@ public enum ClassScanner {
 		for (File child : classes) {
 			String className = classFile2SimpleClass(
 					new StringBuilder().append(pkg).append(".").append(child.getName()).toString());
-
-			try {
-				Class clz = Thread.currentThread().getContextClassLoader().loadClass(className);
-				classList.add(clz);
-			} catch (ClassNotFoundException e) {
-				System.err.println("Warning: Can not load class:" + className);
-			} catch (LinkageError e) {
-				System.err.println("Warning: Can not load class:" + className);
-			}
-
+			classFiles.add(new ClassFile(className, child, null, null));
 		}
 
 		// 处理目录
@@ -209,51 +306,252 @@ public enum ClassScanner {
 		for (File child : dirs) {
 			String childPackageName = new StringBuilder().append(pkg).append(".").append(child.getName()).toString();
 			String childPath = new StringBuilder().append(filePath).append("/").append(child.getName()).toString();
-			classList.addAll(recursiveScan4Path(childPackageName, childPath));
+			recursiveScan4Path(childPackageName, childPath, classFiles);
 		}
-
-		return classList;
 	}
 
 	/**
-	 * Recursive scan 4 jar 递归扫描Jar文件内的Class类
+	 * Scan class entries of jar 扫描Jar文件内的Class文件, only jar's central
+	 * directory is read, class files are read later by random access
 	 *
 	 * @param pkg
 	 * @param jarPath
-	 * @return Class列表
 	 * @throws IOException
 	 */
-	private static List<Class> recursiveScan4Jar(String pkg, String jarPath) throws IOException {
-		List<Class> classList = new LinkedList<Class>();
-
-		JarInputStream jin = new JarInputStream(new FileInputStream(jarPath));
-		JarEntry entry = jin.getNextJarEntry();
-		while (entry != null) {
+	private static void scan4Jar(String pkg, String jarPath, List<ClassFile> classFiles, List<ZipFile> jars)
+			throws IOException {
+		ZipFile zip = new ZipFile(jarPath);
+		jars.add(zip);
+		JarIndex index = getJarIndex(jarPath);
+		String prefix = package2Path(pkg) + "/";
+		Enumeration<? extends ZipEntry> entries = zip.entries();
+		while (entries.hasMoreElements()) {
+			ZipEntry entry = entries.nextElement();
 			String name = entry.getName();
-			entry = jin.getNextJarEntry();
+			if (!name.startsWith(prefix) || !isClass(name)) {
+				continue;
+			}
+			if (isAnonymousInnerClass(name)) {
+				// 是匿名内部类，跳过不作处理
+				continue;
+			}
+			String className = classFile2SimpleClass(path2Package(name));
+			classFiles.add(new ClassFile(className, null, zip, entry, index));
+		}
+	}
+
+	/** Return cached jar index if jar not changed, otherwise a new index */
+	private static JarIndex getJarIndex(String jarPath) {
+		File file = new File(jarPath);
+		long lastModified = file.lastModified();
+		long length = file.length();
+		if (!jarIndexCacheEnabled)
+			return new JarIndex(lastModified, length);
+		JarIndex index = jarIndexCache.get(jarPath);
+		if (index == null || index.lastModified != lastModified || index.length != length) {
+			index = new JarIndex(lastModified, length);
+			jarIndexCache.put(jarPath, index);
+		}
+		return index;
+	}
 
-			if (!name.contains(package2Path(pkg))) {
+	/** Read super class names and class level annotations of class files in parallel */
+	private static ClassInfo[] readClassInfos(final List<ClassFile> classFiles) {
+		final ClassInfo[] result = new ClassInfo[classFiles.size()];
+		if (classFiles.isEmpty())
+			return result;
+		ForkJoinPool.commonPool().invoke(new ReadAnnotationsTask(classFiles, result, 0, classFiles.size()));
+		return result;
+	}
+
+	/** Return names of annotations which are &#064;Inherited, annotation classes are loaded */
+	private static String[] inheritedAnnotations(String[] annotationClassNames) {
+		List<String> result = new ArrayList<String>();
+		for (String name : annotationClassNames) {
+			Class clz;
+			try {
+				clz = Class.forName(name, false, Thread.currentThread().getContextClassLoader());
+			} catch (ClassNotFoundException e) {// NOSONAR no class annotated by it can be loaded
+				continue;
+			} catch (LinkageError e) {// NOSONAR
 				continue;
 			}
-			if (isClass(name)) {
-				if (isAnonymousInnerClass(name)) {
-					// 是匿名内部类，跳过不作处理
-					continue;
-				}
+			if (clz.isAnnotationPresent(Inherited.class))
+				result.add(name);
+		}
+		return result.toArray(new String[result.size()]);
+	}
+
+	/**
+	 * Return true if a class in super class chain (start from superName) is
+	 * annotated by any of inherited annotation descriptors, return null if a super
+	 * class file can not be read. Super classes not scanned are read by class
+	 * loader resource and put into infoMap, results are cached in matched
+	 */
+	private static Boolean isSuperAnnotated(String superName, List<String> inherited, Map<String, ClassInfo> infoMap,
+			Map<String, Boolean> matched) {
+		if (superName == null || superName.startsWith("java."))
+			return false;
+		if (matched.containsKey(superName))
+			return matched.get(superName);
+		ClassInfo info = infoMap.get(superName);
+		if (info == null) {
+			info = readClassInfo(superName);
+			infoMap.put(superName, info);
+		}
+		Boolean result;
+		if (info == ClassAnnotationReader.UNREADABLE)
+			result = null;
+		else if (ClassAnnotationReader.containsAny(info.annotations, inherited))
+			result = true;
+		else
+			result = isSuperAnnotated(info.superName, inherited, infoMap, matched);
+		matched.put(superName, result);
+		return result;
+	}
+
+	/** Read class file of a class by class loader resource without loading class */
+	private static ClassInfo readClassInfo(String className) {
+		InputStream in = Thread.currentThread().getContextClassLoader()
+				.getResourceAsStream(package2Path(className) + ".class");
+		if (in == null)
+			return ClassAnnotationReader.UNREADABLE;
+		try {
+			try {
+				return ClassAnnotationReader.readClassInfo(in);
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			return ClassAnnotationReader.UNREADABLE;
+		}
+	}
+
+	/**
+	 * Load class to check annotations (include inherited annotations), used if
+	 * class file can not be parsed
+	 */
+	private static boolean isAnnotatedByLoading(String className, String[] annotationClassNames) {
+		Class clz = loadClass(className);
+		if (clz != null)
+			for (Annotation anno : clz.getAnnotations())
+				for (String name : annotationClassNames)
+					if (anno.annotationType().getName().equals(name))
+						return true;
+		return false;
+	}
+
+	private static List<Class> loadClasses(List<String> classNames) {
+		List<Class> classList = new LinkedList<Class>();
+		for (String className : classNames) {
+			Class clz = loadClass(className);
+			if (clz != null)
+				classList.add(clz);
+		}
+		return classList;
+	}
+
+	private static Class loadClass(String className) {
+		try {
+			return Thread.currentThread().getContextClassLoader().loadClass(className);
+		} catch (ClassNotFoundException e) {
+			System.err.println("Warning: Can not load class:" + className);
+		} catch (LinkageError e) {
+			System.err.println("Warning: Can not load class:" + className);
+		}
+		return null;
+	}
+
+	private static void closeAll(List<ZipFile> jars) {
+		for (ZipFile zip : jars)
+			try {
+				zip.close();
+			} catch (IOException e) {// NOSONAR
+			}
+	}
+
+	/** A class file in a directory or a jar */
+	private static class ClassFile {
+		final String className;
+		final File file;
+		final ZipFile zip;
+		final ZipEntry entry;
+		final JarIndex index;
 
-				String className = classFile2SimpleClass(path2Package(name));
+		ClassFile(String className, File file, ZipFile zip, ZipEntry entry) {
+			this(className, file, zip, entry, null);
+		}
+
+		ClassFile(String className, File file, ZipFile zip, ZipEntry entry, JarIndex index) {
+			this.className = className;
+			this.file = file;
+			this.zip = zip;
+			this.entry = entry;
+			this.index = index;
+		}
+
+		/** Return super class name and class level annotation descriptors, from jar index if cached */
+		ClassInfo readClassInfo() {
+			if (index != null) {
+				ClassInfo cached = index.classInfos.get(entry.getName());
+				if (cached != null)
+					return cached;
+			}
+			ClassInfo result;
+			try {
+				InputStream in = file != null ? new FileInputStream(file) : zip.getInputStream(entry);
 				try {
-					Class clz = Thread.currentThread().getContextClassLoader().loadClass(className);
-					classList.add(clz);
-				} catch (ClassNotFoundException e) {
-					System.err.println("Warning: Can not load class:" + className);
-				} catch (LinkageError e) {
-					System.err.println("Warning: Can not load class:" + className);
+					result = ClassAnnotationReader.readClassInfo(in);
+				} finally {
+					in.close();
 				}
+			} catch (IOException e) {
+				return ClassAnnotationReader.UNREADABLE;
 			}
+			if (index != null)
+				index.classInfos.put(entry.getName(), result);
+			return result;
 		}
+	}
 
-		return classList;
+	/** Super class names and class level annotations of classes in a jar, key is entry name */
+	private static class JarIndex {
+		final long lastModified;
+		final long length;
+		final ConcurrentHashMap<String, ClassInfo> classInfos = new ConcurrentHashMap<String, ClassInfo>();
+
+		JarIndex(long lastModified, long length) {
+			this.lastModified = lastModified;
+			this.length = length;
+		}
+	}
+
+	/** Read annotations of class files from start to end (exclusive) */
+	private static class ReadAnnotationsTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final List<ClassFile> classFiles;
+		private final ClassInfo[] result;
+		private final int start;
+		private final int end;
+
+		ReadAnnotationsTask(List<ClassFile> classFiles, ClassInfo[] result, int start, int end) {
+			this.classFiles = classFiles;
+			this.result = result;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start <= PARALLEL_THRESHOLD) {
+				for (int i = start; i < end; i++)
+					result[i] = classFiles.get(i).readClassInfo();
+				return;
+			}
+			int middle = (start + end) >>> 1;
+			invokeAll(new ReadAnnotationsTask(classFiles, result, start, middle),
+					new ReadAnnotationsTask(classFiles, result, middle, end));
+		}
 	}
 
 	// ===== Inside used static tool methods =====
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS
+ * OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.github.drinkjava2.jdialects;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A small thread-safe cache with a size limit. When the limit is reached the
+ * whole cache is cleared and starts to fill again, this keeps reads lock-free
+ * and is good enough for caches which usually hold a few hundred hot keys
+ * (SQL templates, compiled plans...).
+ *
+ * @author Yong Zhu
+ * @since 5.0.13
+ */
+public class BoundedCache<K, V> {
+	private final ConcurrentHashMap<K, V> map;
+	private final int maxSize;
+
+	public BoundedCache(int maxSize) {
+		if (maxSize <= 0)
+			throw new DialectException("Cache maxSize should be greater than 0");
+		this.maxSize = maxSize;
+		this.map = new ConcurrentHashMap<K, V>(Math.min(maxSize, 256));
+	}
+
+	/** Return cached value or null if not found */
+	public V get(K key) {
+		return map.get(key);
+	}
+
+	/** Put a value into cache, if cache is full, clear it first */
+	public void put(K key, V value) {
+		if (map.size() >= maxSize)
+			map.clear();
+		map.put(key, value);
+	}
+
+	public void remove(K key) {
+		map.remove(key);
+	}
+
+	public void clear() {
+		map.clear();
+	}
+
+	public int size() {
+		return map.size();
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+}
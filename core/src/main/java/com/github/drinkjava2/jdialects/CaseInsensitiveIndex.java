@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS
+ * OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.github.drinkjava2.jdialects;
+
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * An immutable, case insensitive open addressing hash table. Keys can be looked
+ * up by a range of characters of any CharSequence (for example a word inside a
+ * SQL), characters are folded to upper case one by one, so no need create a
+ * String or upper case String for lookup.
+ *
+ * @author Yong Zhu
+ * @since 5.0.13
+ */
+public class CaseInsensitiveIndex<V> {
+	private final String[] keys;
+	private final Object[] values;
+	private final int mask;
+	private final int size;
+
+	/** Build index from given map, if keys only differ in case, the last one wins */
+	public CaseInsensitiveIndex(Map<String, V> map) {
+		int capacity = 16;
+		while (capacity < map.size() * 2)
+			capacity <<= 1;
+		this.keys = new String[capacity];
+		this.values = new Object[capacity];
+		this.mask = capacity - 1;
+		int count = 0;
+		for (Entry<String, V> entry : map.entrySet()) {
+			String key = entry.getKey();
+			if (key == null)
+				continue;
+			int i = hash(key, 0, key.length()) & mask;
+			while (keys[i] != null && !matches(keys[i], key, 0, key.length()))
+				i = (i + 1) & mask;
+			if (keys[i] == null)
+				count++;
+			keys[i] = key;
+			values[i] = entry.getValue();
+		}
+		this.size = count;
+	}
+
+	/** Return value of key from start (inclusive) to end (exclusive) of given text, or null */
+	@SuppressWarnings("unchecked")
+	public V get(CharSequence text, int start, int end) {
+		int i = hash(text, start, end) & mask;
+		String key;
+		while ((key = keys[i]) != null) {
+			if (matches(key, text, start, end))
+				return (V) values[i];
+			i = (i + 1) & mask;
+		}
+		return null;
+	}
+
+	public V get(CharSequence key) {
+		return get(key, 0, key.length());
+	}
+
+	/** Check if key from start (inclusive) to end (exclusive) of given text exist */
+	public boolean containsKey(CharSequence text, int start, int end) {
+		int i = hash(text, start, end) & mask;
+		String key;
+		while ((key = keys[i]) != null) {
+			if (matches(key, text, start, end))
+				return true;
+			i = (i + 1) & mask;
+		}
+		return false;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	private static boolean matches(String key, CharSequence text, int start, int end) {
+		if (key.length() != end - start)
+			return false;
+		for (int i = start; i < end; i++) {
+			char a = key.charAt(i - start);
+			char b = text.charAt(i);
+			if (a != b && Character.toUpperCase(a) != Character.toUpperCase(b))
+				return false;
+		}
+		return true;
+	}
+
+	private static int hash(CharSequence text, int start, int end) {
+		int h = 0;
+		for (int i = start; i < end; i++)
+			h = 31 * h + Character.toUpperCase(text.charAt(i));
+		return h ^ (h >>> 16);
+	}
+}
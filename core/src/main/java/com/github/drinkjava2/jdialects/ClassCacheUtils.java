@@ -14,6 +14,9 @@ package com.github.drinkjava2.jdialects;
 import java.beans.BeanInfo;
 import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -24,12 +27,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.github.drinkjava2.jdialects.springsrc.utils.ReflectionUtils;
 
 /**
  * ClassCacheUtils is utility class to cache some info of classes read and write
- * method
+ * method. From 5.0.13 bean info is cached by ClassValue (no global lock, and
+ * cached info does not stop a class be unloaded), and bean fields are read and
+ * written by pre-compiled MethodHandles instead of Method.invoke
  * 
  * @author Yong Zhu (Yong9981@gmail.com)
  * @since 1.0.0
@@ -38,9 +44,25 @@ public abstract class ClassCacheUtils {// NOSONAR
 	// To check if a class exist, if exist, cache it to avoid check again
 	protected static ConcurrentHashMap<String, Class<?>> classExistCache = new ConcurrentHashMap<String, Class<?>>();
 	protected static Map<Class<?>, Map<String, Object>> uniqueMethodCache = new ConcurrentHashMap<Class<?>, Map<String, Object>>();
+
+	/** Only be filled by cacheReadWriteMethodsAndBoxField method, use getClassReadMethods instead */
+	@Deprecated
 	protected static Map<Class<?>, Map<String, Method>> classReadMethods = new ConcurrentHashMap<Class<?>, Map<String, Method>>();
+
+	/** Only be filled by cacheReadWriteMethodsAndBoxField method, use getClassWriteMethods instead */
+	@Deprecated
 	protected static Map<Class<?>, Map<String, Method>> classWriteMethods = new ConcurrentHashMap<Class<?>, Map<String, Method>>();
- 
+
+	private static final MethodType READ_TYPE = MethodType.methodType(Object.class, Object.class);
+	private static final MethodType WRITE_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+	/** Bean info of classes, computed at first use of each class, without lock */
+	private static final ClassValue<BeanFields> beanFieldsCache = new ClassValue<BeanFields>() {
+		@Override
+		protected BeanFields computeValue(Class<?> clazz) {
+			return new BeanFields(clazz);
+		}
+	};
 
 	/** * Check class if exist, if exit return it, otherwise return null */
 	public static Class<?> checkClassExist(String className) {
@@ -77,18 +99,19 @@ public abstract class ClassCacheUtils {// NOSONAR
 		if (clazz == null || StrUtils.isEmpty(uniqueMethodName))
 			return null;
 		Map<String, Object> methodMap = uniqueMethodCache.get(clazz);
-		if (methodMap != null && !methodMap.isEmpty()) {
-			Object result = methodMap.get(uniqueMethodName);
-			if (result != null) {
-				if (Object.class.equals(result))
-					return null;
-				else
-					return (Method) result;
-			}
-		}
 		if (methodMap == null) {
-			methodMap = new HashMap<String, Object>();
-			uniqueMethodCache.put(clazz, methodMap);
+			methodMap = new ConcurrentHashMap<String, Object>();
+			Map<String, Object> old = ((ConcurrentMap<Class<?>, Map<String, Object>>) uniqueMethodCache)
+					.putIfAbsent(clazz, methodMap);
+			if (old != null)
+				methodMap = old;
+		}
+		Object result = methodMap.get(uniqueMethodName);
+		if (result != null) {
+			if (Object.class.equals(result))
+				return null;
+			else
+				return (Method) result;
 		}
 		Method[] methods = clazz.getMethods();
 		for (Method method : methods)
@@ -114,44 +137,19 @@ public abstract class ClassCacheUtils {// NOSONAR
 		return result;
 	}
 
-	public static synchronized void cacheReadWriteMethodsAndBoxField(Class<?> clazz) {
-		BeanInfo beanInfo = null;
-		PropertyDescriptor[] pds = null;
-		try {
-			beanInfo = Introspector.getBeanInfo(clazz);
-			pds = beanInfo.getPropertyDescriptors();
-		} catch (Exception e) {
-			DialectException.throwEX("Class '" + clazz + "' can not get bean info", e);
-		}
-
-		Map<String, Method> readMethods = new HashMap<String, Method>();
-		Map<String, Method> writeMethods = new HashMap<String, Method>();
-		for (PropertyDescriptor pd : pds) {
-			String fieldName = pd.getName();
-			if ("class".equals(fieldName) || "simpleName".equals(fieldName) || "canonicalName".equals(fieldName)
-					|| "box".equals(fieldName))
-				continue;
-			Method readMtd = pd.getReadMethod();
-			readMethods.put(fieldName, readMtd);
-			Method writeMtd = pd.getWriteMethod();
-			if (writeMtd == null) {
-				writeMtd = ReflectionUtils.findMethod(clazz, "set" + StrUtils.toUpperCaseFirstOne(fieldName),
-						readMtd.getReturnType());
-			}
-			writeMethods.put(fieldName, writeMtd);
-		}
-		classReadMethods.put(clazz, sortMap(readMethods));
-		classWriteMethods.put(clazz, sortMap(writeMethods));
+	/**
+	 * Cache read and write methods of class into classReadMethods and
+	 * classWriteMethods, only kept for compatibility, no need call it
+	 */
+	public static void cacheReadWriteMethodsAndBoxField(Class<?> clazz) {
+		BeanFields beanFields = beanFieldsCache.get(clazz);
+		classReadMethods.put(clazz, beanFields.readMethods);
+		classWriteMethods.put(clazz, beanFields.writeMethods);
 	}
 
 	/** Return cached class read methods to avoid each time use reflect */
 	public static Map<String, Method> getClassReadMethods(Class<?> clazz) {
-		Map<String, Method> readMethods = classReadMethods.get(clazz);
-		if (readMethods == null) {
-			cacheReadWriteMethodsAndBoxField(clazz);
-			return classReadMethods.get(clazz);
-		} else
-			return readMethods;
+		return beanFieldsCache.get(clazz).readMethods;
 	}
 
 	/** Return cached class field read method to avoid each time use reflect */
@@ -161,12 +159,7 @@ public abstract class ClassCacheUtils {// NOSONAR
 
 	/** Return cached class write methods to avoid each time use reflect */
 	public static Map<String, Method> getClassWriteMethods(Class<?> clazz) {
-		Map<String, Method> writeMethods = classWriteMethods.get(clazz);
-		if (writeMethods == null) {
-			cacheReadWriteMethodsAndBoxField(clazz);
-			return classWriteMethods.get(clazz);
-		} else
-			return writeMethods;
+		return beanFieldsCache.get(clazz).writeMethods;
 	}
 
 	/** Return cached class field write method to avoid each time use reflect */
@@ -174,31 +167,31 @@ public abstract class ClassCacheUtils {// NOSONAR
 		return getClassWriteMethods(clazz).get(fieldName);
 	}
 
+	/** Return cached field accessors of class, key is field name, sorted by field name */
+	public static Map<String, FieldAccessor> getClassFieldAccessors(Class<?> clazz) {
+		return beanFieldsCache.get(clazz).accessors;
+	}
+
+	/** Return cached field accessor of class, if not found return null */
+	public static FieldAccessor getClassFieldAccessor(Class<?> clazz, String fieldName) {
+		return beanFieldsCache.get(clazz).accessors.get(fieldName);
+	}
+
 	/** Read value from entityBean field */
 	public static Object readValueFromBeanField(Object entityBean, String fieldName) {
-		Method readMethod = ClassCacheUtils.getClassFieldReadMethod(entityBean.getClass(), fieldName);
-		if (readMethod == null) {
+		FieldAccessor accessor = getClassFieldAccessor(entityBean.getClass(), fieldName);
+		if (accessor == null || !accessor.isReadable())
 			throw new DialectException(
 					"No mapping found for field '" + fieldName + "' in '" + entityBean.getClass() + "'");
-		} else
-			try {
-				return readMethod.invoke(entityBean);
-			} catch (Exception e) {
-				throw new DialectException(e);
-			}
+		return accessor.read(entityBean);
 	}
 
 	/** write value to entityBean field */
 	public static void writeValueToBeanField(Object entityBean, String fieldName, Object value) {
-		Method writeMethod = ClassCacheUtils.getClassFieldWriteMethod(entityBean.getClass(), fieldName);
-		if (writeMethod == null) {
+		FieldAccessor accessor = getClassFieldAccessor(entityBean.getClass(), fieldName);
+		if (accessor == null || !accessor.isWritable())
 			throw new DialectException("Can not find Java bean read method '" + fieldName + "'");
-		} else
-			try {
-				writeMethod.invoke(entityBean, value);
-			} catch (Exception e) {
-				throw new DialectException("FieldName '" + fieldName + "' can not write with value '" + value + "'", e);
-			}
+		accessor.write(entityBean, value);
 	}
 
 	/**
@@ -217,18 +210,143 @@ public abstract class ClassCacheUtils {// NOSONAR
 	 * Shallow copy source bean's field to target bean's same name field
 	 */
 	public static void copyBean(Object from, Object to) {
-	    Map<String, Method> read=getClassReadMethods(from.getClass());
-	    Map<String, Method> write=getClassWriteMethods(to.getClass());
-	    for (Entry<String, Method> r : read.entrySet()) {
-            String field=r.getKey();
-            if(write.containsKey(field)){
-                try {
-                    Object value=readValueFromBeanField(from, field);
-                    writeValueToBeanField(to, field, value);
-                } catch (Exception e) {
-                }
-            }
-        } 
+		Map<String, FieldAccessor> read = getClassFieldAccessors(from.getClass());
+		Map<String, FieldAccessor> write = getClassFieldAccessors(to.getClass());
+		for (FieldAccessor r : read.values()) {
+			FieldAccessor w = write.get(r.fieldName);
+			if (w != null && r.isReadable() && w.isWritable()) {
+				try {
+					w.write(to, r.read(from));
+				} catch (Exception e) {// NOSONAR
+				}
+			}
+		}
+	}
+
+	/** Read and write methods and field accessors of one class */
+	private static class BeanFields {
+		final Map<String, Method> readMethods;
+		final Map<String, Method> writeMethods;
+		final Map<String, FieldAccessor> accessors;
+
+		BeanFields(Class<?> clazz) {
+			BeanInfo beanInfo = null;
+			PropertyDescriptor[] pds = null;
+			try {
+				beanInfo = Introspector.getBeanInfo(clazz);
+				pds = beanInfo.getPropertyDescriptors();
+			} catch (Exception e) {
+				DialectException.throwEX("Class '" + clazz + "' can not get bean info", e);
+			}
+
+			Map<String, Method> reads = new HashMap<String, Method>();
+			Map<String, Method> writes = new HashMap<String, Method>();
+			for (PropertyDescriptor pd : pds) {// NOSONAR
+				String fieldName = pd.getName();
+				if ("class".equals(fieldName) || "simpleName".equals(fieldName) || "canonicalName".equals(fieldName)
+						|| "box".equals(fieldName))
+					continue;
+				Method readMtd = pd.getReadMethod();
+				reads.put(fieldName, readMtd);
+				Method writeMtd = pd.getWriteMethod();
+				if (writeMtd == null) {
+					writeMtd = ReflectionUtils.findMethod(clazz, "set" + StrUtils.toUpperCaseFirstOne(fieldName),
+							readMtd.getReturnType());
+				}
+				writes.put(fieldName, writeMtd);
+			}
+			readMethods = sortMap(reads);
+			writeMethods = sortMap(writes);
+			Map<String, FieldAccessor> accessorMap = new LinkedHashMap<String, FieldAccessor>();
+			for (Entry<String, Method> entry : readMethods.entrySet())
+				accessorMap.put(entry.getKey(),
+						new FieldAccessor(entry.getKey(), entry.getValue(), writeMethods.get(entry.getKey())));
+			accessors = Collections.unmodifiableMap(accessorMap);
+		}
+	}
+
+	/**
+	 * Read and write one field of a Java bean by pre-compiled MethodHandles, if
+	 * a getter or setter can not be accessed by MethodHandle, use reflect
+	 */
+	public static class FieldAccessor {
+		private final String fieldName;
+		private final Method readMethod;
+		private final Method writeMethod;
+		private final MethodHandle getter;
+		private final MethodHandle setter;
+
+		FieldAccessor(String fieldName, Method readMethod, Method writeMethod) {
+			this.fieldName = fieldName;
+			this.readMethod = readMethod;
+			this.writeMethod = writeMethod;
+			this.getter = toMethodHandle(readMethod, READ_TYPE);
+			this.setter = toMethodHandle(writeMethod, WRITE_TYPE);
+		}
+
+		private static MethodHandle toMethodHandle(Method method, MethodType type) {
+			if (method == null)
+				return null;
+			try {
+				return MethodHandles.publicLookup().unreflect(method).asType(type);
+			} catch (Exception e) {// for example public method of a non-public class
+				DialectException.eatException(e);
+			}
+			try {
+				method.setAccessible(true);
+				return MethodHandles.lookup().unreflect(method).asType(type);
+			} catch (Exception e) {
+				DialectException.eatException(e);
+				return null;
+			}
+		}
+
+		public boolean isReadable() {
+			return readMethod != null;
+		}
+
+		public boolean isWritable() {
+			return writeMethod != null;
+		}
+
+		/** Read value from bean */
+		public Object read(Object bean) {
+			try {
+				if (getter != null)
+					return (Object) getter.invokeExact(bean);
+				return readMethod.invoke(bean);
+			} catch (Error e) {
+				throw e;
+			} catch (Throwable e) {// NOSONAR
+				throw new DialectException(e);
+			}
+		}
+
+		/** Write value to bean */
+		public void write(Object bean, Object value) {
+			try {
+				if (setter != null)
+					setter.invokeExact(bean, value);
+				else
+					writeMethod.invoke(bean, value);
+			} catch (Error e) {
+				throw e;
+			} catch (Throwable e) {// NOSONAR
+				throw new DialectException("FieldName '" + fieldName + "' can not write with value '" + value + "'", e);
+			}
+		}
+
+		public String getFieldName() {
+			return fieldName;
+		}
+
+		public Method getReadMethod() {
+			return readMethod;
+		}
+
+		public Method getWriteMethod() {
+			return writeMethod;
+		}
 	}
 
 }
@@ -0,0 +1,245 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS
+ * OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.github.drinkjava2.jdialects;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A function template (see DialectFunctionUtils.render) compiled into literal
+ * segments and slots, the placeholder kind and join style are resolved at
+ * compile time, so render a function is only an append loop. Compiled
+ * templates are shared by all dialects which use same template String.
+ *
+ * @author Yong Zhu
+ * @since 5.0.13
+ */
+public class CompiledFunctionTemplate {
+	/** Slot of function name, only used by "*" template */
+	private static final int NAME_SLOT = -1;
+
+	/** Slot of all parameters joined by separator */
+	private static final int PARAMS_SLOT = -2;
+
+	/** Pre-compiled "N=" templates up to this parameters quantity */
+	private static final int MAX_COMPILED_ARITY = 9;
+
+	private static final String[][] PARAMS_TAGS = new String[][] { { "$Params", ", " }, { "$Compact_Params", "," },
+			{ "$Lined_Params", "||" }, { "$Add_Params", "+" }, { "$IN_Params", " in " },
+			{ "$Pattern_Params", "%pattern" }, { "$Startswith_Params", "%startswith" }, { "$NVL_Params", null } };
+
+	private static final ConcurrentHashMap<String, CompiledFunctionTemplate> compiledTemplates = new ConcurrentHashMap<String, CompiledFunctionTemplate>();
+
+	/** The original template */
+	private final String template;
+
+	/** If is "N=" format template */
+	private final boolean arityTemplate;
+
+	/** Segments of non "N=" format template */
+	private final Segments params;
+
+	/** Parameter separator of non "N=" format template, null if is $NVL_Params */
+	private final String separator;
+
+	/** Segments of "N=" format template, index is parameters quantity */
+	private final Segments[] arities;
+
+	private CompiledFunctionTemplate(String template) {
+		this.template = template;
+		String useTemplate = "*".equals(template) ? "$NAME($Params)" : template;
+		this.arityTemplate = useTemplate.length() > 1 && useTemplate.charAt(1) == '=';
+		if (arityTemplate) {
+			params = null;
+			separator = null;
+			arities = new Segments[MAX_COMPILED_ARITY + 1];
+			for (int i = 0; i <= MAX_COMPILED_ARITY; i++)
+				arities[i] = compileArity(useTemplate, i);
+		} else {
+			arities = null;
+			String[] tag = null;
+			for (String[] paramsTag : PARAMS_TAGS)
+				if (useTemplate.indexOf(paramsTag[0]) >= 0) {
+					tag = paramsTag;
+					break;
+				}
+			if (tag == null) {
+				params = null;
+				separator = null;
+			} else {
+				params = compileParams(useTemplate, tag[0]);
+				separator = tag[1];
+			}
+		}
+	}
+
+	/** Return a shared compiled template of given template String */
+	public static CompiledFunctionTemplate compile(String template) {
+		CompiledFunctionTemplate result = compiledTemplates.get(template);
+		if (result == null) {
+			result = new CompiledFunctionTemplate(template);
+			CompiledFunctionTemplate old = compiledTemplates.putIfAbsent(template, result);
+			if (old != null)
+				result = old;
+		}
+		return result;
+	}
+
+	public String getTemplate() {
+		return template;
+	}
+
+	/**
+	 * Render function into out, function name is from nameStart to nameEnd of
+	 * nameSrc, parameter i is from bounds[2*i] to bounds[2*i+1] of argSrc
+	 */
+	protected void render(StringBuilder out, Dialect d, CharSequence nameSrc, int nameStart, int nameEnd, // NOSONAR
+			CharSequence argSrc, int[] bounds, int argCount) {
+		if (!arityTemplate) {
+			if (params == null)
+				DialectException.throwEX("jDialect found a template bug error, please submit this bug");
+			if (separator == null && argCount < 2)
+				DialectException.throwEX("Nvl function require at least 2 parameters");
+			params.render(out, this, nameSrc, nameStart, nameEnd, argSrc, bounds, argCount);
+			return;
+		}
+		Segments segments = argCount <= MAX_COMPILED_ARITY ? arities[argCount] : compileArity(template, argCount);
+		if (segments == null)
+			DialectException.throwEX("Dialect " + d + "'s function \"" + nameSrc.subSequence(nameStart, nameEnd)
+					+ "\" only support " + allowedParameterQTY(template) + " parameters");
+		segments.render(out, this, nameSrc, nameStart, nameEnd, argSrc, bounds, argCount);// NOSONAR
+	}
+
+	/** Append all parameters joined by separator, or nested nvl functions */
+	private void appendParams(StringBuilder out, CharSequence argSrc, int[] bounds, int argCount) {
+		if (separator == null) {
+			for (int i = 0; i < argCount - 1; i++)
+				out.append("nvl(").append(argSrc, bounds[2 * i], bounds[2 * i + 1]).append(", ");
+			out.append(argSrc, bounds[2 * argCount - 2], bounds[2 * argCount - 1]);
+			for (int i = 0; i < argCount - 1; i++)
+				out.append(')');
+			return;
+		}
+		for (int i = 0; i < argCount; i++) {
+			if (i > 0)
+				out.append(separator);
+			out.append(argSrc, bounds[2 * i], bounds[2 * i + 1]);
+		}
+	}
+
+	/** Compile "xxx($Params)" like template, all tag occurrences are replaced */
+	private static Segments compileParams(String template, String tag) {
+		List<String> literals = new ArrayList<String>();
+		List<Integer> slots = new ArrayList<Integer>();
+		int start = 0;
+		if (template.startsWith("$NAME(")) {// "*" template
+			literals.add("");
+			slots.add(NAME_SLOT);
+			start = 5;
+		}
+		int pos = template.indexOf(tag, start);
+		while (pos >= 0) {
+			literals.add(template.substring(start, pos));
+			slots.add(PARAMS_SLOT);
+			start = pos + tag.length();
+			pos = template.indexOf(tag, start);
+		}
+		literals.add(template.substring(start));
+		return new Segments(literals, slots);
+	}
+
+	/**
+	 * Compile the "N=" part of template for given parameters quantity, return null
+	 * if not supported
+	 */
+	private static Segments compileArity(String template, int argCount) {
+		String searchStr = Integer.toString(argCount) + "=";
+		if (template.indexOf(searchStr) < 0)
+			return null;
+		String part = StrUtils.substringBetween(template + "|", searchStr, "|");
+		List<String> literals = new ArrayList<String>();
+		List<Integer> slots = new ArrayList<Integer>();
+		int start = 0;
+		int pos = 0;
+		while (pos < part.length()) {
+			int arg = argCount == 0 ? -1 : argAt(part, pos, argCount);
+			if (arg < 0) {
+				pos++;
+				continue;
+			}
+			literals.add(part.substring(start, pos));
+			slots.add(arg);
+			pos += 2 + Integer.toString(arg + 1).length();
+			start = pos;
+		}
+		literals.add(part.substring(start));
+		return new Segments(literals, slots);
+	}
+
+	/**
+	 * If "$Pn" at pos, return smallest matched n-1 (same as replace $P1, $P2...
+	 * one by one), otherwise return -1
+	 */
+	private static int argAt(String part, int pos, int argCount) {
+		if (!part.startsWith("$P", pos))
+			return -1;
+		for (int i = 1; i <= argCount; i++)
+			if (part.startsWith(Integer.toString(i), pos + 2))
+				return i - 1;
+		return -1;
+	}
+
+	private static String allowedParameterQTY(String template) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 5; i++) {
+			if (template.indexOf(Integer.toString(i) + "=") >= 0)
+				sb.append(Integer.toString(i)).append(" or ");
+		}
+		if (sb.length() > 0)
+			sb.setLength(sb.length() - 4);
+		return sb.toString();
+	}
+
+	/**
+	 * Literal segments and slots, render result is: literals[0] + slot[0] +
+	 * literals[1] + slot[1] ... + literals[n]
+	 */
+	private static class Segments {
+		final String[] literals;
+		final int[] slots;
+
+		Segments(List<String> literalList, List<Integer> slotList) {
+			literals = new String[literalList.size()];
+			for (int i = 0; i < literals.length; i++)
+				literals[i] = literalList.get(i).intern();
+			slots = new int[slotList.size()];
+			for (int i = 0; i < slots.length; i++)
+				slots[i] = slotList.get(i);
+		}
+
+		void render(StringBuilder out, CompiledFunctionTemplate owner, CharSequence nameSrc, int nameStart, // NOSONAR
+				int nameEnd, CharSequence argSrc, int[] bounds, int argCount) {
+			for (int i = 0; i < slots.length; i++) {
+				out.append(literals[i]);
+				int slot = slots[i];
+				if (slot >= 0)
+					out.append(argSrc, bounds[2 * slot], bounds[2 * slot + 1]);
+				else if (slot == NAME_SLOT)
+					out.append(nameSrc, nameStart, nameEnd);
+				else
+					owner.appendParams(out, argSrc, bounds, argCount);
+			}
+			out.append(literals[slots.length]);
+		}
+	}
+}
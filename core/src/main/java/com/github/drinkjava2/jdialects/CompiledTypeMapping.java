@@ -0,0 +1,234 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS
+ * OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.github.drinkjava2.jdialects;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.drinkjava2.jdialects.model.ColumnModel;
+
+/**
+ * A type mapping template (see Dialect.typeMappings) compiled into a range
+ * table, for example "varchar($l)<255|lvarchar($l)<32739|varchar($l)" is
+ * compiled to 3 segments with length limits 255, 32739 and no limit, each
+ * segment is split into literal texts and $l/$p/$s placeholders, so translate
+ * a column type is a limit check and an append loop.
+ *
+ * Each dialect keeps compiled templates by Type ordinal and a small cache of
+ * translated DDL types keyed by (Type, length, precision, scale). If a
+ * template in typeMappings is changed, it's re-compiled and the cache is
+ * cleared at next translation.
+ *
+ * @author Yong Zhu
+ * @since 5.0.13
+ */
+public class CompiledTypeMapping {
+	/** Limit of segment without "<", matches any length */
+	private static final int NO_LIMIT = -1;
+
+	/** Limit of segment with an invalid "<" number */
+	private static final int BAD_LIMIT = -2;
+
+	/** The original template */
+	private final String template;
+
+	/** False if template is empty or "N/A" */
+	private final boolean supported;
+
+	/** The result if template has no placeholder and no range, otherwise null */
+	private final String constant;
+
+	/** Length limit of each segment, NO_LIMIT or BAD_LIMIT */
+	private final int[] limits;
+
+	private final Segment[] segments;
+
+	private CompiledTypeMapping(String template) {
+		this.template = template;
+		this.supported = !(StrUtils.isEmpty(template) || "N/A".equals(template) || "n/a".equals(template));
+		if (!supported) {
+			constant = null;
+			limits = null;
+			segments = null;
+		} else if (template.indexOf('|') >= 0) {
+			// format example: varchar($l)<255|lvarchar($l)<32739|varchar($l)
+			String[] typeTempls = StrUtils.split("|", template);
+			limits = new int[typeTempls.length];
+			segments = new Segment[typeTempls.length];
+			for (int i = 0; i < typeTempls.length; i++) {
+				String templ = typeTempls[i];
+				if (templ.indexOf('<') >= 0) {// varchar($l)<255
+					String[] limitType = StrUtils.split("<", templ);
+					limits[i] = parseLimit(limitType);
+					segments[i] = new Segment(limitType[0]);
+				} else {// varchar($l)
+					limits[i] = NO_LIMIT;
+					segments[i] = new Segment(templ);
+				}
+			}
+			constant = null;
+		} else {
+			limits = new int[] { NO_LIMIT };
+			segments = new Segment[] { new Segment(template) };
+			constant = segments[0].holders.length == 0 ? template : null;
+		}
+	}
+
+	private static int parseLimit(String[] limitType) {
+		if (limitType.length < 2)
+			return BAD_LIMIT;
+		try {
+			return Math.max(Integer.parseInt(limitType[1]), 0); // 0 matches nothing
+		} catch (NumberFormatException e) {// NOSONAR
+			return BAD_LIMIT;
+		}
+	}
+
+	/** Compile type mapping templates of all dialects */
+	protected static void compileTypeMappings() {
+		for (Dialect d : Dialect.dialects)
+			for (Type type : Type.values())
+				getCompiled(d, type);
+	}
+
+	/**
+	 * Return compiled template of type in dialect, if the template in dialect's
+	 * typeMappings be changed, re-compile it and clear translated DDL types
+	 */
+	protected static CompiledTypeMapping getCompiled(Dialect d, Type type) {
+		String template = d.typeMappings.get(type);
+		CompiledTypeMapping compiled = d.compiledTypeMappings.get(type.ordinal());
+		if (compiled == null || compiled.template != template) {// NOSONAR identity is enough
+			compiled = new CompiledTypeMapping(template);
+			d.compiledTypeMappings.set(type.ordinal(), compiled);
+			d.ddlTypeCache.clear();
+		}
+		return compiled;
+	}
+
+	/** Translate column to dialect's DDL type, see Dialect.translateToDDLType */
+	protected static String translate(Dialect d, ColumnModel col) {
+		Type type = col.getColumnType();
+		CompiledTypeMapping compiled = getCompiled(d, type);
+		if (!compiled.supported)
+			DialectException.throwEX("Type \"" + type + "\" is not supported by dialect \"" + d + "\"");
+		if (compiled.constant != null)
+			return compiled.constant;
+		Key key = new Key(type, col.getLength(), col.getPrecision(), col.getScale());
+		String result = d.ddlTypeCache.get(key);
+		if (result == null) {
+			result = compiled.render(d, key);
+			// do not cache result of a template which is re-compiled meanwhile
+			if (d.compiledTypeMappings.get(type.ordinal()) == compiled) {
+				d.ddlTypeCache.put(key, result);
+				if (d.compiledTypeMappings.get(type.ordinal()) != compiled)
+					d.ddlTypeCache.remove(key);
+			}
+		}
+		return result;
+	}
+
+	private String render(Dialect d, Key key) {
+		for (int i = 0; i < segments.length; i++) {
+			int limit = limits[i];
+			if (limit == BAD_LIMIT)
+				DialectException.throwEX("Type \"" + key.type + "\" of dialect \"" + d
+						+ "\" has an invalid length limit in template:" + template);
+			if (limit == NO_LIMIT || (key.length != null && key.length > 0 && key.length <= limit))
+				return segments[i].render(key);
+		}
+		return (String) DialectException
+				.throwEX("Type \"" + key.type + "\" is not supported by dialect \"" + d + "\" of template:" + template);
+	}
+
+	public String getTemplate() {
+		return template;
+	}
+
+	/** Literal texts and $l/$p/$s placeholders of one template segment */
+	private static class Segment {
+		/** Literal texts, one more than holders */
+		private final String[] texts;
+
+		/** Placeholder letters, 'l', 'p' or 's' */
+		private final char[] holders;
+
+		Segment(String templ) {
+			List<String> textList = new ArrayList<String>();
+			StringBuilder holderList = new StringBuilder();
+			int start = 0;
+			int pos = 0;
+			while ((pos = templ.indexOf('$', pos)) >= 0 && pos + 1 < templ.length()) {
+				char c = templ.charAt(pos + 1);
+				if (c == 'l' || c == 'p' || c == 's') {
+					textList.add(templ.substring(start, pos));
+					holderList.append(c);
+					start = pos + 2;
+					pos = start;
+				} else
+					pos++;
+			}
+			textList.add(templ.substring(start));
+			texts = textList.toArray(new String[textList.size()]);
+			holders = holderList.toString().toCharArray();
+		}
+
+		String render(Key key) {
+			if (holders.length == 0)
+				return texts[0];
+			StringBuilder sb = new StringBuilder(texts[0]);
+			for (int i = 0; i < holders.length; i++) {
+				char c = holders[i];
+				sb.append(c == 'l' ? key.length : c == 'p' ? key.precision : key.scale);
+				sb.append(texts[i + 1]);
+			}
+			return sb.toString();
+		}
+	}
+
+	/** Cache key of translated DDL type */
+	protected static final class Key {
+		final Type type;
+		final Integer length;
+		final Integer precision;
+		final Integer scale;
+
+		Key(Type type, Integer length, Integer precision, Integer scale) {
+			this.type = type;
+			this.length = length;
+			this.precision = precision;
+			this.scale = scale;
+		}
+
+		@Override
+		public int hashCode() {
+			int h = type.hashCode();
+			h = 31 * h + (length == null ? 0 : length);
+			h = 31 * h + (precision == null ? 0 : precision);
+			return 31 * h + (scale == null ? 0 : scale);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof Key))
+				return false;
+			Key k = (Key) obj;
+			return type == k.type && same(length, k.length) && same(precision, k.precision) && same(scale, k.scale);
+		}
+
+		private static boolean same(Integer a, Integer b) {
+			return a == null ? b == null : a.equals(b);
+		}
+	}
+}
@@ -0,0 +1,403 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS
+ * OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.github.drinkjava2.jdialects;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.github.drinkjava2.jdialects.annotation.jpa.GenerationType;
+import com.github.drinkjava2.jdialects.model.ColumnModel;
+import com.github.drinkjava2.jdialects.model.FKeyModel;
+import com.github.drinkjava2.jdialects.model.IndexModel;
+import com.github.drinkjava2.jdialects.model.TableModel;
+import com.github.drinkjava2.jdialects.model.UniqueModel;
+import com.github.drinkjava2.jlogs.Log;
+import com.github.drinkjava2.jlogs.LogFactory;
+
+/**
+ * Compare two TableModel sets (for example old tables read by
+ * TableModelUtils.db2Models(con, dialect, true) and new tables built from
+ * entities) and transfer the differences to alter DDL String array. Tables, columns, indexes, uniques
+ * and foreign keys are hash indexed by their names (quotes removed, case
+ * insensitive), so the time is linear to schema size. <br/>
+ *
+ * Output order: drop foreign keys, drop indexes and uniques, drop columns, drop
+ * tables, create tables, add columns, modify columns, create indexes and
+ * uniques, add foreign keys. A changed index, unique or foreign key is dropped
+ * and re-created. Indexes and uniques are compared together and also matched by
+ * columns, because database may name them differently or read an unique
+ * constraint back as an unique index. Primary keys, comments and id generators
+ * are not compared.
+ *
+ * @author Yong Zhu
+ * @since 5.0.13
+ */
+public class DDLAlterUtils {// NOSONAR
+	private static final Log logger = LogFactory.getLog(DDLAlterUtils.class);
+
+	/** Alter DDL lists, each list is one step of output order */
+	private static class AlterDDL {
+		final List<String> dropFKeys = new ArrayList<String>();
+		final List<String> dropIndexes = new ArrayList<String>();
+		final List<String> dropColumns = new ArrayList<String>();
+		final List<String> dropTables = new ArrayList<String>();
+		final List<String> createTables = new ArrayList<String>();
+		final List<String> addColumns = new ArrayList<String>();
+		final List<String> modifyColumns = new ArrayList<String>();
+		final List<String> createIndexes = new ArrayList<String>();
+		final List<String> addFKeys = new ArrayList<String>();
+
+		String[] toArray() {
+			List<String> result = new ArrayList<String>();
+			result.addAll(dropFKeys);
+			result.addAll(dropIndexes);
+			result.addAll(dropColumns);
+			result.addAll(dropTables);
+			result.addAll(createTables);
+			result.addAll(addColumns);
+			result.addAll(modifyColumns);
+			result.addAll(createIndexes);
+			result.addAll(addFKeys);
+			return result.toArray(new String[result.size()]);
+		}
+	}
+
+	/**
+	 * Compare old and new tables, return alter DDL String array which change old
+	 * tables to new tables, return an empty array if no difference
+	 */
+	public static String[] toAlterDDL(Dialect dialect, TableModel[] oldTables, TableModel[] newTables) {
+		DialectException.assureNotNull(oldTables, "oldTables can not be null");
+		DialectException.assureNotNull(newTables, "newTables can not be null");
+		Map<String, TableModel> oldMap = indexTables(oldTables);
+		Map<String, TableModel> newMap = indexTables(newTables);
+		boolean fkeySupported = !DDLFeatures.NOT_SUPPORT.equals(dialect.ddlFeatures.addForeignKeyConstraintString);
+		AlterDDL ddl = new AlterDDL();
+
+		for (TableModel o : oldTables) {
+			if (newMap.containsKey(normalize(o.getTableName())))
+				continue;
+			if (fkeySupported && DDLFeatures.isValidDDLTemplate(dialect.ddlFeatures.dropForeignKeyString))
+				for (FKeyModel fkey : o.getFkeyConstraints())
+					if (fkey.getDdl())
+						ddl.dropFKeys.add(dialect.dropFKeyDDL(o.getTableName(), DDLCreateUtils.fkeyName(fkey)));
+			ddl.dropTables.add(dialect.dropTableDDL(o.getTableName()));
+		}
+
+		for (TableModel n : newTables) {
+			TableModel o = oldMap.get(normalize(n.getTableName()));
+			if (o == null) {
+				List<Object> objectResultList = new ArrayList<Object>();
+				DDLCreateUtils.transferTableToObjectList(dialect, n, objectResultList);
+				for (Object strOrObj : objectResultList)
+					if (strOrObj instanceof String && !StrUtils.isEmpty(strOrObj))
+						ddl.createTables.add((String) strOrObj);
+				if (fkeySupported)
+					for (FKeyModel fkey : n.getFkeyConstraints())
+						if (fkey.getDdl())
+							ddl.addFKeys.add(DDLCreateUtils.fkeyDDL(dialect, fkey));
+			} else {
+				compareColumns(dialect, o, n, ddl);
+				compareIndexes(dialect, o, n, ddl);
+				if (fkeySupported)
+					compareFKeys(dialect, o, n, ddl);
+			}
+		}
+
+		String[] result = ddl.toArray();
+		if (Dialect.getGlobalAllowShowSql())
+			logger.info("Alter DDL:\r" + StrUtils.arrayToString(result, "\r"));
+		return result;
+	}
+
+	private static void compareColumns(Dialect dialect, TableModel o, TableModel n, AlterDDL ddl) {
+		Map<String, ColumnModel> oldCols = new HashMap<String, ColumnModel>();
+		for (ColumnModel col : o.getColumns())
+			if (!col.getTransientable())
+				oldCols.put(normalize(col.getColumnName()), col);
+		Map<String, ColumnModel> newCols = new HashMap<String, ColumnModel>();
+		for (ColumnModel col : n.getColumns())
+			if (!col.getTransientable())
+				newCols.put(normalize(col.getColumnName()), col);
+
+		for (ColumnModel col : o.getColumns())
+			if (!col.getTransientable() && !newCols.containsKey(normalize(col.getColumnName())))
+				ddl.dropColumns.add(DDLDropUtils.toDropColumnDDL(dialect, col)[0]);
+
+		for (ColumnModel col : n.getColumns()) {
+			if (col.getTransientable())
+				continue;
+			ColumnModel old = oldCols.get(normalize(col.getColumnName()));
+			if (old == null)
+				ddl.addColumns.add(DDLCreateUtils.toAddColumnDDL(dialect, col)[0]);
+			else if (isColumnChanged(dialect, old, col)) {
+				if (DDLFeatures.NOT_SUPPORT.equals(dialect.ddlFeatures.modifyColumnString))
+					DialectException.throwEX("Dialect \"" + dialect + "\" does not support modify column, on column \""
+							+ col.getColumnName() + "\" at table \"" + n.getTableName() + "\"");
+				ddl.modifyColumns.add(DDLCreateUtils.toModifyColumnDDL(dialect, col)[0]);
+			}
+		}
+	}
+
+	/**
+	 * Return true if column definition, type, identity, default value, nullable
+	 * (not compared on primary key column), check or tail changed
+	 */
+	private static boolean isColumnChanged(Dialect dialect, ColumnModel old, ColumnModel col) {
+		if (!sameText(old.getColumnDefinition(), col.getColumnDefinition()))
+			return true;
+		boolean identity = GenerationType.IDENTITY.equals(col.getIdGenerationType());
+		if (identity != GenerationType.IDENTITY.equals(old.getIdGenerationType()))
+			return true;
+		if (StrUtils.isEmpty(col.getColumnDefinition())) {
+			if (col.getColumnType() == null || old.getColumnType() == null)
+				return col.getColumnType() != old.getColumnType();
+			String oldType;
+			try {
+				oldType = dialect.translateToDDLType(old);
+			} catch (DialectException e) {
+				return true; // old type not supported by this dialect, so it must be changed
+			}
+			if (!sameText(oldType, dialect.translateToDDLType(col)))
+				return true;
+			if (!identity && !sameText(old.getDefaultValue(), col.getDefaultValue()))
+				return true;
+			boolean pkey = old.getPkey() || col.getPkey(); // primary key columns are always not null
+			if (!identity && !pkey && !old.getNullable().equals(col.getNullable()))
+				return true;
+		}
+		return !sameText(old.getCheck(), col.getCheck()) || !sameText(old.getTail(), col.getTail());
+	}
+
+	/** An index or an unique constraint of a table */
+	private static class Key {
+		final TableModel table;
+		final Object model;
+		final String name;
+		final boolean unique;
+		final String[] columns;
+
+		Key(TableModel table, IndexModel index) {
+			this.table = table;
+			this.model = index;
+			this.name = DDLCreateUtils.indexName(table, index);
+			this.unique = Boolean.TRUE.equals(index.getUnique());
+			this.columns = index.getColumnList();
+		}
+
+		Key(TableModel table, UniqueModel unique) {
+			this.table = table;
+			this.model = unique;
+			this.name = DDLCreateUtils.uniqueName(table, unique);
+			this.unique = true;
+			this.columns = unique.getColumnList();
+		}
+
+		/** Unique flag and columns, used to match keys whose names are different */
+		String signature() {
+			StringBuilder sb = new StringBuilder(unique ? "u" : "i");
+			if (columns != null)
+				for (String col : columns)
+					sb.append(',').append(normalize(col));
+			return sb.toString();
+		}
+	}
+
+	private static List<Key> keysOf(TableModel table) {
+		List<Key> keys = new ArrayList<Key>();
+		for (IndexModel index : table.getIndexConsts())
+			keys.add(new Key(table, index));
+		for (UniqueModel unique : table.getUniqueConsts())
+			keys.add(new Key(table, unique));
+		return keys;
+	}
+
+	/**
+	 * Compare indexes and uniques together, an unique constraint may be read back
+	 * from database as an unique index. Keys are matched by name first, unmatched
+	 * keys then matched by unique flag and columns because database may name them
+	 * differently. An unmatched old index on the columns of an old foreign key is
+	 * not dropped, it is created by database (for example MySQL) for the foreign
+	 * key.
+	 */
+	private static void compareIndexes(Dialect dialect, TableModel o, TableModel n, AlterDDL ddl) {
+		List<Key> oldKeys = keysOf(o);
+		List<Key> newKeys = keysOf(n);
+		Map<String, Key> oldByName = new HashMap<String, Key>();
+		for (Key key : oldKeys)
+			oldByName.put(normalize(key.name), key);
+
+		Map<Key, Key> matched = new IdentityHashMap<Key, Key>(); // new -> old
+		Set<Key> usedOld = Collections.newSetFromMap(new IdentityHashMap<Key, Boolean>());
+		for (Key key : newKeys) {
+			Key old = oldByName.get(normalize(key.name));
+			if (old != null) {
+				matched.put(key, old);
+				usedOld.add(old);
+			}
+		}
+		Map<String, List<Key>> oldBySignature = new HashMap<String, List<Key>>();
+		for (Key key : oldKeys)
+			if (!usedOld.contains(key)) {
+				List<Key> list = oldBySignature.get(key.signature());
+				if (list == null) {
+					list = new ArrayList<Key>();
+					oldBySignature.put(key.signature(), list);
+				}
+				list.add(key);
+			}
+		for (Key key : newKeys)
+			if (!matched.containsKey(key)) {
+				List<Key> list = oldBySignature.get(key.signature());
+				if (list != null && !list.isEmpty()) {
+					Key old = list.remove(0);
+					matched.put(key, old);
+					usedOld.add(old);
+				}
+			}
+
+		for (Key old : oldKeys)
+			if (!usedOld.contains(old) && !isFKeyIndex(o, old))
+				ddl.dropIndexes.add(dropKeyDDL(dialect, old, n.getTableName()));
+		for (Key key : newKeys) {
+			Key old = matched.get(key);
+			if (old != null && !isKeyChanged(dialect, old, key))
+				continue;
+			if (old != null)
+				ddl.dropIndexes.add(dropKeyDDL(dialect, old, n.getTableName()));
+			if (key.model instanceof IndexModel)
+				ddl.createIndexes.add(DDLCreateUtils.indexDDL(dialect, n, (IndexModel) key.model));
+			else
+				ddl.createIndexes.add(DDLCreateUtils.uniqueDDL(dialect, n, (UniqueModel) key.model));
+		}
+	}
+
+	private static boolean isKeyChanged(Dialect dialect, Key old, Key key) {
+		if (old.unique != key.unique || !sameNames(old.columns, key.columns))
+			return true;
+		if (old.model instanceof UniqueModel && key.model instanceof UniqueModel)
+			return DDLCreateUtils.isUniqueIndex(dialect, old.table, (UniqueModel) old.model) != DDLCreateUtils
+					.isUniqueIndex(dialect, key.table, (UniqueModel) key.model);
+		return false;
+	}
+
+	/** Return true if key is a not unique index on columns of a foreign key */
+	private static boolean isFKeyIndex(TableModel o, Key key) {
+		if (key.unique || key.columns == null)
+			return false;
+		for (FKeyModel fkey : o.getFkeyConstraints()) {
+			List<String> columns = fkey.getColumnNames();
+			if (sameNames(key.columns, columns.toArray(new String[columns.size()])))
+				return true;
+		}
+		return false;
+	}
+
+	private static String dropKeyDDL(Dialect dialect, Key old, String tableName) {
+		if (old.model instanceof IndexModel)
+			return dialect.dropIndexDDL(tableName, old.name);
+		return dropUniqueDDL(dialect, old.table, (UniqueModel) old.model, tableName, old.name);
+	}
+
+	/** Build drop DDL of an unique constraint created by DDLCreateUtils.uniqueDDL */
+	private static String dropUniqueDDL(Dialect dialect, TableModel o, UniqueModel unique, String tableName,
+			String uniqueName) {
+		if (DDLCreateUtils.isUniqueIndex(dialect, o, unique))
+			return dialect.dropIndexDDL(tableName, uniqueName);
+		if (dialect.isMySqlFamily() || dialect.isFamily("MariaDB"))
+			return "alter table " + tableName + " drop index " + uniqueName;
+		return "alter table " + tableName + " drop constraint " + uniqueName;
+	}
+
+	private static void compareFKeys(Dialect dialect, TableModel o, TableModel n, AlterDDL ddl) {
+		Map<String, FKeyModel> oldFKeys = new HashMap<String, FKeyModel>();
+		for (FKeyModel fkey : o.getFkeyConstraints())
+			if (fkey.getDdl())
+				oldFKeys.put(normalize(DDLCreateUtils.fkeyName(fkey)), fkey);
+		Map<String, FKeyModel> newFKeys = new HashMap<String, FKeyModel>();
+		for (FKeyModel fkey : n.getFkeyConstraints())
+			if (fkey.getDdl())
+				newFKeys.put(normalize(DDLCreateUtils.fkeyName(fkey)), fkey);
+
+		for (FKeyModel fkey : o.getFkeyConstraints()) {
+			if (!fkey.getDdl())
+				continue;
+			String name = DDLCreateUtils.fkeyName(fkey);
+			FKeyModel newFKey = newFKeys.get(normalize(name));
+			if (newFKey == null || isFKeyChanged(fkey, newFKey))
+				ddl.dropFKeys.add(dialect.dropFKeyDDL(n.getTableName(), name));
+		}
+		for (FKeyModel fkey : n.getFkeyConstraints()) {
+			if (!fkey.getDdl())
+				continue;
+			FKeyModel oldFKey = oldFKeys.get(normalize(DDLCreateUtils.fkeyName(fkey)));
+			if (oldFKey == null || isFKeyChanged(oldFKey, fkey))
+				ddl.addFKeys.add(DDLCreateUtils.fkeyDDL(dialect, fkey));
+		}
+	}
+
+	/**
+	 * Return true if columns or referenced table changed, if one side only
+	 * referenced table (means reference its primary key), referenced columns are
+	 * not compared
+	 */
+	private static boolean isFKeyChanged(FKeyModel old, FKeyModel fkey) {
+		List<String> oldColumns = old.getColumnNames();
+		List<String> columns = fkey.getColumnNames();
+		if (!sameNames(oldColumns.toArray(new String[oldColumns.size()]), columns.toArray(new String[columns.size()])))
+			return true;
+		String[] oldRefs = old.getRefTableAndColumns();
+		String[] refs = fkey.getRefTableAndColumns();
+		if (oldRefs == null || refs == null || oldRefs.length == 0 || refs.length == 0)
+			return oldRefs != refs;
+		if (!normalize(oldRefs[0]).equals(normalize(refs[0])))
+			return true;
+		return oldRefs.length > 1 && refs.length > 1 && !sameNames(oldRefs, refs);
+	}
+
+	private static Map<String, TableModel> indexTables(TableModel[] tables) {
+		Map<String, TableModel> result = new HashMap<String, TableModel>();
+		for (TableModel table : tables)
+			result.put(normalize(table.getTableName()), table);
+		return result;
+	}
+
+	/** Return name without quotes and in lower case, null return empty String */
+	private static String normalize(String name) {
+		if (name == null)
+			return "";
+		return StrUtils.clearQuote(name).trim().toLowerCase();
+	}
+
+	private static boolean sameNames(String[] names1, String[] names2) {
+		if (names1 == null || names2 == null)
+			return names1 == names2;
+		if (names1.length != names2.length)
+			return false;
+		for (int i = 0; i < names1.length; i++)
+			if (!normalize(names1[i]).equals(normalize(names2[i])))
+				return false;
+		return true;
+	}
+
+	/** Compare trimmed Strings ignore case, null equals to empty */
+	private static boolean sameText(String s1, String s2) {
+		String a = s1 == null ? "" : s1.trim();
+		String b = s2 == null ? "" : s2.trim();
+		return a.equalsIgnoreCase(b);
+	}
+}
@@ -11,10 +11,17 @@
  */
 package com.github.drinkjava2.jdialects;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
 
 import com.github.drinkjava2.jdialects.annotation.jpa.GenerationType;
 import com.github.drinkjava2.jdialects.id.AutoIdGenerator;
@@ -80,11 +87,111 @@ public class DDLCreateUtils {// NOSONAR
 	 * formatted DDL, use DDLFormatter.format(DDLs) method to format it
 	 */
 	public static String[] toCreateDDL(Dialect dialect, TableModel... tables) {
-		// Store mixed DDL String, TableGen Object, SequenceGen Object ...
-		List<Object> objectResultList = new ArrayList<Object>();
+		final List<String> stringResultList = new ArrayList<String>();
+		transferTablesToDDL(dialect, null, new Consumer<String>() {
+			@Override
+			public void accept(String ddl) {
+				stringResultList.add(ddl);
+			}
+		}, tables);
+		String[] result = stringResultList.toArray(new String[stringResultList.size()]);
+		if (Dialect.getGlobalAllowShowSql())
+			logger.info("Create DDL:\r" + StrUtils.arrayToString(result, "\r"));
+		return result;
+	}
+
+	/**
+	 * Transfer tables to create DDL and send them to consumer one by one, the
+	 * order is same as toCreateDDL method: tables (with their comments, indexes
+	 * and uniques), then sequences and table generators, then foreign keys. DDL is
+	 * built in current thread, to build a big schema in parallel use the method
+	 * with a ForkJoinPool parameter
+	 */
+	public static void toCreateDDL(Dialect dialect, Consumer<String> consumer, TableModel... tables) {
+		toCreateDDL(dialect, null, consumer, tables);
+	}
+
+	/**
+	 * Same as toCreateDDL(dialect, consumer, tables) but for a big schema build per
+	 * table DDL in parallel on given fork-join pool (for example
+	 * ForkJoinPool.commonPool()), consumer is still called in current thread and
+	 * in table order. If pool is null, build them in current thread
+	 */
+	public static void toCreateDDL(Dialect dialect, ForkJoinPool pool, final Consumer<String> consumer,
+			TableModel... tables) {
+		DialectException.assureNotNull(consumer, "DDL consumer can not be null");
+		if (!Dialect.getGlobalAllowShowSql()) {
+			transferTablesToDDL(dialect, pool, consumer, tables);
+			return;
+		}
+		transferTablesToDDL(dialect, pool, new Consumer<String>() {
+			@Override
+			public void accept(String ddl) {
+				logger.info("Create DDL: " + ddl);
+				consumer.accept(ddl);
+			}
+		}, tables);
+	}
+
+	/**
+	 * Transfer tables to create DDL and write them to writer, each DDL followed by
+	 * given delimiter, for example ";\n". Writer will not be flushed or closed
+	 */
+	public static void toCreateDDL(Dialect dialect, Writer writer, String delimiter, TableModel... tables) {
+		DialectException.assureNotNull(writer, "DDL writer can not be null");
+		toCreateDDL(dialect, new WriterConsumer(writer, delimiter), tables);
+	}
 
-		for (TableModel table : tables)
-			transferTableToObjectList(dialect, table, objectResultList);
+	/**
+	 * Transfer tables to DDL and send to consumer, tables' mixed DDL String,
+	 * TableGen Object, SequenceGen Object ... lists are built by TableFragment
+	 * tasks, and be consumed in table order
+	 */
+	private static void transferTablesToDDL(Dialect dialect, ForkJoinPool pool, Consumer<String> consumer,
+			TableModel... tables) {
+		List<TableIdGenerator> tbGeneratorList = new ArrayList<TableIdGenerator>();
+		List<SequenceIdGenerator> sequenceList = new ArrayList<SequenceIdGenerator>();
+		List<FKeyModel> fKeyConstraintList = new ArrayList<FKeyModel>();
+
+		int window = 0; // how many tables be built ahead, 0 means build in current thread
+		if (pool != null && pool.getParallelism() > 1 && tables.length >= PARALLEL_THRESHOLD)
+			window = pool.getParallelism() * 4;
+		ArrayDeque<TableFragment> running = new ArrayDeque<TableFragment>();
+		int next = 0;
+		try {
+			for (TableModel table : tables) {
+				TableFragment fragment;
+				if (window == 0) {
+					fragment = new TableFragment(dialect, table);
+					fragment.compute();
+				} else {
+					while (next < tables.length && running.size() < window) {
+						TableFragment task = new TableFragment(dialect, tables[next++]);
+						pool.execute(task);
+						running.add(task);
+					}
+					fragment = running.poll();
+					fragment.join();
+				}
+				if (fragment.error != null)
+					throw fragment.error;
+				for (Object strOrObj : fragment.objectResultList) {
+					if (!StrUtils.isEmpty(strOrObj)) {
+						if (strOrObj instanceof String)
+							consumer.accept((String) strOrObj);
+						else if (strOrObj instanceof TableIdGenerator)
+							tbGeneratorList.add((TableIdGenerator) strOrObj);
+						else if (strOrObj instanceof SequenceIdGenerator)
+							sequenceList.add((SequenceIdGenerator) strOrObj);
+						else if (strOrObj instanceof FKeyModel)
+							fKeyConstraintList.add((FKeyModel) strOrObj);
+					}
+				}
+			}
+		} finally {
+			for (TableFragment fragment : running)
+				fragment.cancel(false);
+		}
 
 		boolean hasAutoIdGenerator = false;
 		for (TableModel table : tables) {
@@ -100,24 +207,6 @@ public class DDLCreateUtils {// NOSONAR
 				}
 		}
 
-		List<String> stringResultList = new ArrayList<String>();
-		List<TableIdGenerator> tbGeneratorList = new ArrayList<TableIdGenerator>();
-		List<SequenceIdGenerator> sequenceList = new ArrayList<SequenceIdGenerator>();
-		List<FKeyModel> fKeyConstraintList = new ArrayList<FKeyModel>();
-
-		for (Object strOrObj : objectResultList) {
-			if (!StrUtils.isEmpty(strOrObj)) {
-				if (strOrObj instanceof String)
-					stringResultList.add((String) strOrObj);
-				else if (strOrObj instanceof TableIdGenerator)
-					tbGeneratorList.add((TableIdGenerator) strOrObj);
-				else if (strOrObj instanceof SequenceIdGenerator)
-					sequenceList.add((SequenceIdGenerator) strOrObj);
-				else if (strOrObj instanceof FKeyModel)
-					fKeyConstraintList.add((FKeyModel) strOrObj);
-			}
-		}
-
 		if (hasAutoIdGenerator) {
 			IdGenerator realIdGen = AutoIdGenerator.INSTANCE.getSequenceOrTableIdGenerator(dialect);
 			if (realIdGen instanceof TableIdGenerator)
@@ -128,13 +217,60 @@ public class DDLCreateUtils {// NOSONAR
 				throw new DialectException("Unknow exception happen for realIdGen, please report this bug");
 		}
 
-		buildSequenceDDL(dialect, stringResultList, sequenceList);
-		buildTableGeneratorDDL(dialect, stringResultList, tbGeneratorList);
-		outputFKeyConstraintDDL(dialect, stringResultList, fKeyConstraintList);
-		String[] result = stringResultList.toArray(new String[stringResultList.size()]);
-		if (Dialect.getGlobalAllowShowSql())
-			logger.info("Create DDL:\r" + StrUtils.arrayToString(result, "\r"));
-		return result;
+		buildSequenceDDL(dialect, consumer, sequenceList);
+		buildTableGeneratorDDL(dialect, consumer, tbGeneratorList);
+		outputFKeyConstraintDDL(dialect, consumer, fKeyConstraintList);
+	}
+
+	/** Tables less than this quantity are always built in current thread */
+	private static final int PARALLEL_THRESHOLD = 8;
+
+	/**
+	 * Build one table's mixed DDL String, TableGen Object, SequenceGen Object ...
+	 * list, RuntimeException is kept and re-thrown by the consumer thread as is
+	 */
+	private static class TableFragment extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final transient Dialect dialect;
+		private final transient TableModel table;
+		private final transient List<Object> objectResultList = new ArrayList<Object>();
+		private transient RuntimeException error;
+
+		TableFragment(Dialect dialect, TableModel table) {
+			this.dialect = dialect;
+			this.table = table;
+		}
+
+		@Override
+		protected void compute() {
+			try {
+				transferTableToObjectList(dialect, table, objectResultList);
+			} catch (RuntimeException e) {
+				error = e;
+			}
+		}
+	}
+
+	/** Write DDL and delimiter to a Writer, IOException be wrapped as DialectException */
+	private static class WriterConsumer implements Consumer<String> {
+		private final Writer writer;
+		private final String delimiter;
+
+		WriterConsumer(Writer writer, String delimiter) {
+			this.writer = writer;
+			this.delimiter = delimiter;
+		}
+
+		@Override
+		public void accept(String ddl) {
+			try {
+				writer.write(ddl);
+				if (delimiter != null)
+					writer.write(delimiter);
+			} catch (IOException e) {
+				throw new DialectException("Fail to write DDL: " + ddl, e);
+			}
+		}
 	}
 
 	/**
@@ -145,7 +281,7 @@ public class DDLCreateUtils {// NOSONAR
 	 * @param t
 	 * @param objectResultList
 	 */
-	private static void transferTableToObjectList(Dialect dialect, TableModel t, List<Object> objectResultList) {
+	protected static void transferTableToObjectList(Dialect dialect, TableModel t, List<Object> objectResultList) {
 		DDLFeatures features = dialect.ddlFeatures;
 
 		StringBuilder buf = new StringBuilder();
@@ -358,9 +494,9 @@ public class DDLCreateUtils {// NOSONAR
 			notRepeatedSeq.add(seq);
 	}
 
-	private static void buildSequenceDDL(Dialect dialect, List<String> stringList,
+	private static void buildSequenceDDL(Dialect dialect, Consumer<String> consumer,
 			List<SequenceIdGenerator> sequenceList) {
-		Set<SequenceIdGenerator> notRepeatedSequences = new HashSet<SequenceIdGenerator>();
+		Set<SequenceIdGenerator> notRepeatedSequences = new LinkedHashSet<SequenceIdGenerator>();
 		for (SequenceIdGenerator seq : sequenceList)
 			checkAndInsertToNotRepeatSeq(notRepeatedSequences, seq);
 
@@ -376,7 +512,7 @@ public class DDLCreateUtils {// NOSONAR
 						seq.getSequenceName());
 				pooledSequence = StrUtils.replace(pooledSequence, "11", "" + seq.getInitialValue());
 				pooledSequence = StrUtils.replace(pooledSequence, "33", "" + seq.getAllocationSize());
-				stringList.add(pooledSequence);
+				consumer.accept(pooledSequence);
 			} else {
 				if (seq.getInitialValue() >= 2 || seq.getAllocationSize() >= 2)
 					DialectException.throwEX("Dialect \"" + dialect
@@ -384,7 +520,7 @@ public class DDLCreateUtils {// NOSONAR
 							+ seq.getName() + "\", try set initialValue and allocationSize to 1 to fix");
 				// "create sequence _SEQ"
 				String simepleSeq = StrUtils.replace(features.createSequenceStrings, "_SEQ", seq.getSequenceName());
-				stringList.add(simepleSeq);
+				consumer.accept(simepleSeq);
 			}
 		}
 
@@ -426,7 +562,7 @@ public class DDLCreateUtils {// NOSONAR
 	private static final ColumnModel VARCHAR100 = new ColumnModel("VARCHAR100").VARCHAR(100);
 	private static final ColumnModel BINGINT = new ColumnModel("BINGINT").BIGINT();
 
-	private static void buildTableGeneratorDDL(Dialect dialect, List<String> stringList,
+	private static void buildTableGeneratorDDL(Dialect dialect, Consumer<String> consumer,
 			List<TableIdGenerator> tbGeneratorList) {
 		Set<TableIdGenerator> notRepeatedTab = new HashSet<TableIdGenerator>();
 
@@ -445,19 +581,19 @@ public class DDLCreateUtils {// NOSONAR
 					String s = dialect.ddlFeatures.createTableString + " " + tableName + " (";
 					s += tg.getPkColumnName() + " " + dialect.translateToDDLType(VARCHAR100) + ",";
 					s += tg.getValueColumnName() + " " + dialect.translateToDDLType(BINGINT) + " )";
-					stringList.add(s);
+					consumer.accept(s);
 					tableExisted.add(tableName);
 					columnExisted.add(tableAndPKColumn);
 					columnExisted.add(tableAndValColumn);
 				} else {
 					if (!columnExisted.contains(tableAndPKColumn)) {
-						stringList.add("alter table " + tableName + " " + dialect.ddlFeatures.addColumnString + " "
+						consumer.accept("alter table " + tableName + " " + dialect.ddlFeatures.addColumnString + " "
 								+ tg.getPkColumnName() + " " + dialect.translateToDDLType(VARCHAR100) + " "
 								+ dialect.ddlFeatures.addColumnSuffixString);
 						columnExisted.add(tableAndPKColumn);
 					}
 					if (!columnExisted.contains(tableAndValColumn)) {
-						stringList.add("alter table " + tableName + " " + dialect.ddlFeatures.addColumnString + " "
+						consumer.accept("alter table " + tableName + " " + dialect.ddlFeatures.addColumnString + " "
 								+ tg.getValueColumnName() + " " + dialect.translateToDDLType(VARCHAR100) + " "
 								+ dialect.ddlFeatures.addColumnSuffixString);
 						columnExisted.add(tableAndValColumn);
@@ -466,7 +602,8 @@ public class DDLCreateUtils {// NOSONAR
 			}
 	}
 
-	private static void outputFKeyConstraintDDL(Dialect dialect, List<String> stringList, List<FKeyModel> trueList) {
+	private static void outputFKeyConstraintDDL(Dialect dialect, Consumer<String> consumer,
+			List<FKeyModel> trueList) {
 		if (DDLFeatures.NOT_SUPPORT.equals(dialect.ddlFeatures.addForeignKeyConstraintString)) {
 			logger.warn("Dialect \"" + dialect + "\" does not support foreign key setting, settings be ignored");
 			return;
@@ -474,83 +611,116 @@ public class DDLCreateUtils {// NOSONAR
 		for (FKeyModel t : trueList) {
 			if (!t.getDdl())
 				continue; // if ddl is false, skip
-			/*
-			 * ADD CONSTRAINT _FKEYNAME FOREIGN KEY _FKEYNAME (_FK1, _FK2) REFERENCES
-			 * _REFTABLE (_REF1, _REF2)
-			 */
-			String constName = t.getFkeyName();
-			if (StrUtils.isEmpty(constName))
-				constName = "fk_" + t.getTableName().toLowerCase() + "_"
-						+ StrUtils.replace(StrUtils.listToString(t.getColumnNames()), ",", "_");
-			constName = StrUtils.clearQuote(constName);
-			String[] refTableAndColumns = t.getRefTableAndColumns();
-			DialectException.assureNotNull(refTableAndColumns);
-			String fkeyTemplate;
-			if (refTableAndColumns.length == 1)
-				fkeyTemplate = dialect.ddlFeatures.addFKeyRefPkeyString;
-			else
-				fkeyTemplate = dialect.ddlFeatures.addForeignKeyConstraintString;
-
-			fkeyTemplate = StrUtils.replace(fkeyTemplate, "_FK1, _FK2", StrUtils.listToString(t.getColumnNames()));
-			fkeyTemplate = StrUtils.replace(fkeyTemplate, "_REF1, _REF2",
-					StrUtils.arrayToStringButSkipFirst(t.getRefTableAndColumns()));
-			fkeyTemplate = StrUtils.replace(fkeyTemplate, "_REFTABLE", t.getRefTableAndColumns()[0]);
-			fkeyTemplate = StrUtils.replace(fkeyTemplate, "_FKEYNAME", constName);
-			String tail = StrUtils.isEmpty(t.getFkeyTail()) ? "" : " " + t.getFkeyTail();
-			stringList.add("alter table " + t.getTableName() + " " + fkeyTemplate + tail);
+			consumer.accept(fkeyDDL(dialect, t));
 		}
 	}
 
+	/** Return foreign key constraint name, if not set, return a generated name */
+	protected static String fkeyName(FKeyModel t) {
+		String constName = t.getFkeyName();
+		if (StrUtils.isEmpty(constName))
+			constName = "fk_" + t.getTableName().toLowerCase() + "_"
+					+ StrUtils.replace(StrUtils.listToString(t.getColumnNames()), ",", "_");
+		return StrUtils.clearQuote(constName);
+	}
+
+	/** Build add foreign key constraint DDL of given foreign key */
+	protected static String fkeyDDL(Dialect dialect, FKeyModel t) {
+		/*
+		 * ADD CONSTRAINT _FKEYNAME FOREIGN KEY _FKEYNAME (_FK1, _FK2) REFERENCES
+		 * _REFTABLE (_REF1, _REF2)
+		 */
+		String constName = fkeyName(t);
+		String[] refTableAndColumns = t.getRefTableAndColumns();
+		DialectException.assureNotNull(refTableAndColumns);
+		String fkeyTemplate;
+		if (refTableAndColumns.length == 1)
+			fkeyTemplate = dialect.ddlFeatures.addFKeyRefPkeyString;
+		else
+			fkeyTemplate = dialect.ddlFeatures.addForeignKeyConstraintString;
+
+		fkeyTemplate = StrUtils.replace(fkeyTemplate, "_FK1, _FK2", StrUtils.listToString(t.getColumnNames()));
+		fkeyTemplate = StrUtils.replace(fkeyTemplate, "_REF1, _REF2",
+				StrUtils.arrayToStringButSkipFirst(t.getRefTableAndColumns()));
+		fkeyTemplate = StrUtils.replace(fkeyTemplate, "_REFTABLE", t.getRefTableAndColumns()[0]);
+		fkeyTemplate = StrUtils.replace(fkeyTemplate, "_FKEYNAME", constName);
+		String tail = StrUtils.isEmpty(t.getFkeyTail()) ? "" : " " + t.getFkeyTail();
+		return "alter table " + t.getTableName() + " " + fkeyTemplate + tail;
+	}
+
 	private static void buildIndexDLL(Dialect dialect, List<Object> objectResultList, TableModel t) {
 		List<IndexModel> l = t.getIndexConsts();
 		if (l == null || l.isEmpty())
 			return;
+		for (IndexModel index : l)
+			objectResultList.add(indexDDL(dialect, t, index));
+	}
+
+	/** Return index name, if not set, return a generated name */
+	protected static String indexName(TableModel t, IndexModel index) {
+		String indexname = index.getName();
+		if (StrUtils.isEmpty(indexname))
+			indexname = "IX_" + t.getTableName() + "_" + StrUtils.arrayToString(index.getColumnList(), "_");
+		return indexname;
+	}
+
+	/** Build create index DDL of given index of table */
+	protected static String indexDDL(Dialect dialect, TableModel t, IndexModel index) {
 		String template;
 		if (Dialect.Teradata14Dialect.equals(dialect))
 			template = "create $ifUnique index $indexName ($indexValues) on " + t.getTableName();
 		else
 			template = "create $ifUnique index $indexName on " + t.getTableName() + " ($indexValues)";
-		for (IndexModel index : l) {
-			String indexname = index.getName();
-			if (StrUtils.isEmpty(indexname))
-				indexname = "IX_" + t.getTableName() + "_" + StrUtils.arrayToString(index.getColumnList(), "_");
-			String ifUnique = index.getUnique() ? "unique" : "";
-			String result = StrUtils.replace(template, "$ifUnique", ifUnique);
-			result = StrUtils.replace(result, "$indexName", indexname);
-			result = StrUtils.replace(result, "$indexValues", StrUtils.arrayToString(index.getColumnList()));
-			objectResultList.add(result);
-		}
+		String ifUnique = index.getUnique() ? "unique" : "";
+		String result = StrUtils.replace(template, "$ifUnique", ifUnique);
+		result = StrUtils.replace(result, "$indexName", indexName(t, index));
+		result = StrUtils.replace(result, "$indexValues", StrUtils.arrayToString(index.getColumnList()));
+		return result;
 	}
 
 	private static void buildUniqueDLL(Dialect dialect, List<Object> objectResultList, TableModel t) {
 		List<UniqueModel> l = t.getUniqueConsts();
 		if (l == null || l.isEmpty())
 			return;
+		for (UniqueModel unique : l)
+			objectResultList.add(uniqueDDL(dialect, t, unique));
+	}
+
+	/** Return unique constraint name, if not set, return a generated name */
+	protected static String uniqueName(TableModel t, UniqueModel unique) {
+		String uniqueName = unique.getName();
+		if (StrUtils.isEmpty(uniqueName))
+			uniqueName = "UK_" + t.getTableName() + "_" + StrUtils.arrayToString(unique.getColumnList(), "_");
+		return uniqueName;
+	}
+
+	/**
+	 * Return true if unique constraint is created as an unique index, DB2 and
+	 * Derby do not allow nullable columns in unique constraint
+	 */
+	protected static boolean isUniqueIndex(Dialect dialect, TableModel t, UniqueModel unique) {
 		String dialectName = "" + dialect;
-		for (UniqueModel unique : l) {
-			boolean nullable = false;
-			String[] columns = unique.getColumnList();
-			for (String colNames : columns) {
-				ColumnModel vc = t.getColumnByColName(colNames);
-				if (vc != null && vc.getNullable())
-					nullable = true;
-			}
-			String uniqueName = unique.getName();
-			if (StrUtils.isEmpty(uniqueName))
-				uniqueName = "UK_" + t.getTableName() + "_" + StrUtils.arrayToString(unique.getColumnList(), "_");
-
-			String template = "alter table $TABLE add constraint $UKNAME unique ($COLUMNS)";
-			if ((StrUtils.startsWithIgnoreCase(dialectName, "DB2")// DB2 and
-																	// DERBY
-					|| StrUtils.startsWithIgnoreCase(dialectName, "DERBY")) && nullable)
-				template = "create unique index $UKNAME on $TABLE ($COLUMNS)";
-			else if (StrUtils.startsWithIgnoreCase(dialectName, "Informix"))
-				template = "alter table $TABLE add constraint unique ($COLUMNS) constraint $UKNAME";
-			String result = StrUtils.replace(template, "$TABLE", t.getTableName());
-			result = StrUtils.replace(result, "$UKNAME", uniqueName);
-			result = StrUtils.replace(result, "$COLUMNS", StrUtils.arrayToString(unique.getColumnList()));
-			objectResultList.add(result);
+		if (!StrUtils.startsWithIgnoreCase(dialectName, "DB2") && !StrUtils.startsWithIgnoreCase(dialectName, "DERBY"))
+			return false;
+		for (String colNames : unique.getColumnList()) {
+			ColumnModel vc = t.getColumnByColName(colNames);
+			if (vc != null && vc.getNullable())
+				return true;
 		}
+		return false;
+	}
+
+	/** Build create unique constraint DDL of given unique constraint of table */
+	protected static String uniqueDDL(Dialect dialect, TableModel t, UniqueModel unique) {
+		String template = "alter table $TABLE add constraint $UKNAME unique ($COLUMNS)";
+		if (isUniqueIndex(dialect, t, unique))// DB2 and DERBY
+			template = "create unique index $UKNAME on $TABLE ($COLUMNS)";
+		else if (StrUtils.startsWithIgnoreCase("" + dialect, "Informix"))
+			template = "alter table $TABLE add constraint unique ($COLUMNS) constraint $UKNAME";
+		String result = StrUtils.replace(template, "$TABLE", t.getTableName());
+		result = StrUtils.replace(result, "$UKNAME", uniqueName(t, unique));
+		result = StrUtils.replace(result, "$COLUMNS", StrUtils.arrayToString(unique.getColumnList()));
+		return result;
 	}
 
 }
@@ -15,6 +15,7 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import com.github.drinkjava2.jdialects.annotation.jpa.GenerationType;
 import com.github.drinkjava2.jdialects.id.AutoIdGenerator;
@@ -58,42 +59,62 @@ public class DDLDropUtils {
      * Transfer tables to drop DDL and without format it
      */
     public static String[] toDropDDL(Dialect dialect, TableModel... tables) {
-        // resultList store mixed drop DDL + drop Ojbects
-        List<Object> objectResultList = new ArrayList<Object>();
+        final List<String> stringResultList = new ArrayList<String>();
+        transferTablesToDropDDL(dialect, new Consumer<String>() {
+            @Override
+            public void accept(String ddl) {
+                stringResultList.add(ddl);
+            }
+        }, tables);
+        String[] result = stringResultList.toArray(new String[stringResultList.size()]);
+        if (Dialect.getGlobalAllowShowSql())
+            logger.info("Drop DDL:\r" + StrUtils.arrayToString(result, "\r"));
+        return result;
+    }
 
-        for (TableModel table : tables)
-            transferTableToObjectList(dialect, table, objectResultList);
+    /**
+     * Transfer tables to drop DDL and send them to consumer one by one, the order
+     * is same as toDropDDL method: drop foreign keys, table generators and
+     * sequences first, then drop tables one by one. Only the small foreign key
+     * and generator DDL list is built ahead, drop table DDL is built and sent per
+     * table
+     */
+    public static void toDropDDL(Dialect dialect, final Consumer<String> consumer, TableModel... tables) {
+        DialectException.assureNotNull(consumer, "DDL consumer can not be null");
+        if (!Dialect.getGlobalAllowShowSql()) {
+            transferTablesToDropDDL(dialect, consumer, tables);
+            return;
+        }
+        transferTablesToDropDDL(dialect, new Consumer<String>() {
+            @Override
+            public void accept(String ddl) {
+                logger.info("Drop DDL: " + ddl);
+                consumer.accept(ddl);
+            }
+        }, tables);
+    }
 
+    private static void transferTablesToDropDDL(Dialect dialect, Consumer<String> consumer, TableModel... tables) {
         boolean hasAutoIdGenerator = false;
+        List<TableIdGenerator> tbGeneratorList = new ArrayList<TableIdGenerator>();
+        List<SequenceIdGenerator> sequenceList = new ArrayList<SequenceIdGenerator>();
+        List<FKeyModel> fKeyConstraintList = new ArrayList<FKeyModel>();
         for (TableModel table : tables) {
+            checkTableNames(dialect, table);
             for (ColumnModel column : table.getColumns())
                 if (GenerationType.AUTO.equals(column.getIdGenerationType())) {
                     hasAutoIdGenerator = true;
                     break;
                 }
-            for (IdGenerator idGens : table.getIdGenerators())
-                if (hasAutoIdGenerator || idGens.dependOnAutoIdGenerator()) {
+            for (IdGenerator idGen : table.getIdGenerators()) {
+                if (idGen.dependOnAutoIdGenerator())
                     hasAutoIdGenerator = true;
-                    break;
-                }
-        }
-
-        List<String> stringResultList = new ArrayList<String>();
-        List<TableIdGenerator> tbGeneratorList = new ArrayList<TableIdGenerator>();
-        List<SequenceIdGenerator> sequenceList = new ArrayList<SequenceIdGenerator>();
-        List<FKeyModel> fKeyConstraintList = new ArrayList<FKeyModel>();
-
-        for (Object strOrObj : objectResultList) {
-            if (!StrUtils.isEmpty(strOrObj)) {
-                if (strOrObj instanceof String)
-                    stringResultList.add((String) strOrObj);
-                else if (strOrObj instanceof TableIdGenerator)
-                    tbGeneratorList.add((TableIdGenerator) strOrObj);
-                else if (strOrObj instanceof SequenceIdGenerator)
-                    sequenceList.add((SequenceIdGenerator) strOrObj);
-                else if (strOrObj instanceof FKeyModel)
-                    fKeyConstraintList.add((FKeyModel) strOrObj);
+                if (idGen instanceof TableIdGenerator)
+                    tbGeneratorList.add((TableIdGenerator) idGen);
+                else if (idGen instanceof SequenceIdGenerator)
+                    sequenceList.add((SequenceIdGenerator) idGen);
             }
+            fKeyConstraintList.addAll(table.getFkeyConstraints());
         }
 
         if (hasAutoIdGenerator) {
@@ -106,22 +127,23 @@ public class DDLDropUtils {
                 throw new DialectException("Unknow exception happen for realIdGen, please report this bug");
         }
 
-        buildDropSequenceDDL(dialect, stringResultList, sequenceList);
-        buildDropTableGeneratorDDL(dialect, stringResultList, tbGeneratorList);
-        outputDropFKeyConstraintDDL(dialect, stringResultList, fKeyConstraintList);
-
-        String[] result = stringResultList.toArray(new String[stringResultList.size()]);
-        if (Dialect.getGlobalAllowShowSql())
-            logger.info("Drop DDL:\r" + StrUtils.arrayToString(result, "\r"));
-        return result;
+        // each build method inserts its DDL at head, so they are before drop tables
+        List<String> headList = new ArrayList<String>();
+        buildDropSequenceDDL(dialect, headList, sequenceList);
+        buildDropTableGeneratorDDL(dialect, headList, tbGeneratorList);
+        outputDropFKeyConstraintDDL(dialect, headList, fKeyConstraintList);
+        for (String ddl : headList)
+            consumer.accept(ddl);
 
+        for (TableModel table : tables)
+            consumer.accept(dialect.dropTableDDL(table.getTableName()));
     }
 
     /**
-     * Transfer table to a mixed DDL String or TableGen Object list
+     * Check reserved words of table name, index, unique, foreign key and column
+     * names
      */
-    private static void transferTableToObjectList(Dialect dialect, TableModel t, List<Object> objectResultList) {
-        StringBuilder buf = new StringBuilder();
+    private static void checkTableNames(Dialect dialect, TableModel t) {
         String tableName = t.getTableName();
         List<ColumnModel> columns = t.getColumns();
 
@@ -146,18 +168,6 @@ public class DDLDropUtils {
         for (ColumnModel col : columns)
             if (!col.getTransientable())
                 dialect.checkNotEmptyReservedWords(col.getColumnName(), "Column name", tableName);
-
-        // idGenerator
-        for (IdGenerator idGen : t.getIdGenerators())
-            objectResultList.add(idGen);
-
-        // Foreign key
-        for (FKeyModel fkey : t.getFkeyConstraints())
-            objectResultList.add(fkey);
-
-        // drop table
-        buf.append(dialect.dropTableDDL(tableName));
-        objectResultList.add(buf.toString());
     }
 
     private static void buildDropSequenceDDL(Dialect dialect, List<String> stringResultList, List<SequenceIdGenerator> sequenceList) {
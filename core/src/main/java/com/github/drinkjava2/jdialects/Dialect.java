@@ -20,10 +20,13 @@ import com.github.drinkjava2.jlogs.Log;
 import com.github.drinkjava2.jlogs.LogFactory;
 
 import javax.sql.DataSource;
+import java.io.Writer;
 import java.sql.Connection;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
 
 /**
  * jDialects is a small Java tool collect all databases' dialect, most data are
@@ -179,6 +182,9 @@ public class Dialect {
 	private static final String PAGESIZE = "$PAGESIZE";
 	private static final String TOTAL_ROWS = "$TOTAL_ROWS";
 	private static final String DISTINCT_TAG = "($DISTINCT)";
+	private static final int PAGIN_PLAN_CACHE_SIZE = 1000;
+	private static final int TRANS_CACHE_SIZE = 1000;
+	private static final int DDL_TYPE_CACHE_SIZE = 1000;
 	public String sqlTemplate;
 	public String topLimitTemplate;
 	public String name;
@@ -186,6 +192,28 @@ public class Dialect {
 	public Map<String, String> functions = new HashMap<String, String>();
 	public DDLFeatures ddlFeatures = new DDLFeatures();// NOSONAR
 
+	/** Cache compiled pagination plans, key is SQL text */
+	protected final BoundedCache<String, DialectPaginationPlan> paginPlanCache = new BoundedCache<String, DialectPaginationPlan>(
+			PAGIN_PLAN_CACHE_SIZE);
+
+	/** Cache translated SQL, key is SQL text, managed by DialectFunctionTranslator */
+	protected final BoundedCache<String, String> transCache = new BoundedCache<String, String>(TRANS_CACHE_SIZE);
+	protected volatile int transCacheVersion = 0;
+
+	/** Compiled function templates, managed by DialectFunctionUtils */
+	protected volatile DialectFunctionUtils.CompiledFunctions compiledFunctions;
+
+	/** Compiled type mapping templates, index is Type ordinal, managed by CompiledTypeMapping */
+	protected final AtomicReferenceArray<CompiledTypeMapping> compiledTypeMappings = new AtomicReferenceArray<CompiledTypeMapping>(
+			Type.values().length);
+
+	/** Cache translated DDL types, managed by CompiledTypeMapping */
+	protected final BoundedCache<CompiledTypeMapping.Key, String> ddlTypeCache = new BoundedCache<CompiledTypeMapping.Key, String>(
+			DDL_TYPE_CACHE_SIZE);
+
+	/** Reserved words databases mask, managed by ReservedDBWords */
+	protected volatile ReservedDBWords.DialectMask reservedWordsMask;
+
     static {//Initialize all dialects templates at one time
         DialectTypeMappingTemplate.initTypeMappingTemplates();
         DialectFunctionTemplate.initFunctionTemplates();
@@ -194,6 +222,8 @@ public class Dialect {
         
         //=================Manual register extra functions in templates ================
         DialectFunctionTemplate.initExtraFunctionTemplates();
+        DialectFunctionUtils.compileFunctionTemplates();
+        CompiledTypeMapping.compileTypeMappings();
 
         //=================Manual fix special bugs in DDL ========================
         H2Dialect.ddlFeatures.supportsIdentityColumns = false; //H2 from 2.x Identity column has problem 
@@ -284,44 +314,11 @@ public class Dialect {
 
 	/**
 	 * Transfer columnModel to a real dialect's DDL definition String, lengths is
-	 * optional for some types
-	 */
-	public String translateToDDLType(ColumnModel col) {// NOSONAR
-		Type type = col.getColumnType();
-		String value = this.typeMappings.get(type);
-		if (StrUtils.isEmpty(value) || "N/A".equals(value) || "n/a".equals(value))
-			DialectException.throwEX("Type \"" + type + "\" is not supported by dialect \"" + this + "\"");
-
-		if (value.contains("|")) {
-			// format example: varchar($l)<255|lvarchar($l)<32739|varchar($l)
-			String[] typeTempls = StrUtils.split("|", value);
-			for (String templ : typeTempls) {
-				if (templ.contains("<")) {// varchar($l)<255
-					String[] limitType = StrUtils.split("<", templ);
-					if (col.getLength() > 0 && col.getLength() <= Integer.parseInt(limitType[1]))// NOSONAR
-						return replacePlaceHolders(type, limitType[0], col);
-				} else {// varchar($l)
-					return replacePlaceHolders(type, templ, col);
-				}
-			}
-			return (String) DialectException
-					.throwEX("Type \"" + type + "\" is not supported by dialect \"" + this + "\" of template:" + value);
-		} else if (value.contains("$"))
-			return replacePlaceHolders(type, value, col);
-		else
-			return value;
-	}
-
-	/**
-	 * inside function
+	 * optional for some types. Templates are pre-compiled and results are cached,
+	 * see CompiledTypeMapping
 	 */
-	private String replacePlaceHolders(Type type, String value, ColumnModel col) {
-		String newValue = StrUtils.replace(value, "$l", String.valueOf(col.getLength()));
-		if (newValue.contains("$p"))
-			newValue = StrUtils.replace(newValue, "$p", String.valueOf(col.getPrecision()));
-		if (newValue.contains("$s"))
-			newValue = StrUtils.replace(newValue, "$s", String.valueOf(col.getScale()));
-		return newValue;
+	public String translateToDDLType(ColumnModel col) {
+		return CompiledTypeMapping.translate(this, col);
 	}
 
 	/**
@@ -346,6 +343,8 @@ public class Dialect {
 	}
 
 	public String trans(String... sql) {
+		if (sql.length == 1)
+			return DialectFunctionTranslator.instance.doTranslate(this, sql[0]);
 		StringBuilder sb = new StringBuilder();
 		for (String str : sql)
 			sb.append(str);
@@ -353,28 +352,62 @@ public class Dialect {
 	}
 
 	public String pagin(int pageNumber, int pageSize, String sql) {// NOSONAR
-		String result = null;
-		DialectException.assureNotNull(sql, "sql string can not be null");
-		String trimedSql = sql.trim();
-		DialectException.assureNotEmpty(trimedSql, "sql string can not be empty");
-
-		if (!StrUtils.startsWithIgnoreCase(trimedSql, "select ")&&!StrUtils.startsWithIgnoreCase(trimedSql, "select\n"))
-			return (String) DialectException.throwEX("SQL should start with \"select \".");
-		String body = trimedSql.substring(7).trim();
-		DialectException.assureNotEmpty(body, "SQL body can not be empty");
-
+		DialectPaginationPlan plan = getPaginationPlan(sql);
 		int skipRows = (pageNumber - 1) * pageSize;
-		int skipRowsPlus1 = skipRows + 1;
 		int totalRows = pageNumber * pageSize;
-		int totalRowsPlus1 = totalRows + 1;
+		boolean topLimit = globalEnableTopLimitPagin && skipRows == 0;
+		String useTemplate = choosePaginTemplate(plan, topLimit);
+		String result = plan.getCompiledTemplate(useTemplate, topLimit).render(skipRows, pageSize, totalRows);
+		if (getGlobalAllowShowSql())
+			logger.info("Paginated sql: " + result);
+		return result;
+	}
+
+	/**
+	 * Build a bind mode pagination SQL, skip rows, page size and total rows are
+	 * not inlined but use "?" placeholders, so one query has only one SQL text for
+	 * all pages, use returned PaginBindSql to get SQL and bind parameters. Note
+	 * bind mode always use normal pagination template, top limit template is not
+	 * used even for first page.
+	 */
+	public PaginBindSql paginBind(String sql) {
+		DialectPaginationPlan plan = getPaginationPlan(sql);
+		String useTemplate = choosePaginTemplate(plan, false);
+		PaginBindSql result = plan.getCompiledTemplate(useTemplate, false).getBindSql();
+		if (getGlobalAllowShowSql())
+			logger.info("Paginated bind sql: " + result.getSql());
+		return result;
+	}
+
+	/** Translate a SQL and build bind mode pagination SQL, see paginBind method */
+	public PaginBindSql paginAndTransBind(String... sql) {
+		return paginBind(trans(sql));
+	}
+
+	/**
+	 * Return cached pagination plan of given SQL, if not found, build and cache
+	 * it, SQL is validated when plan be built
+	 */
+	protected DialectPaginationPlan getPaginationPlan(String sql) {
+		DialectException.assureNotNull(sql, "sql string can not be null");
+		DialectPaginationPlan plan = paginPlanCache.get(sql);
+		if (plan == null) {
+			plan = new DialectPaginationPlan(sql);
+			paginPlanCache.put(sql, plan);
+		}
+		return plan;
+	}
+
+	/** Choose top limit or normal pagination template for given plan */
+	private String choosePaginTemplate(DialectPaginationPlan plan, boolean topLimit) {
 		String useTemplate;
-		if (globalEnableTopLimitPagin && skipRows == 0) {
+		if (topLimit) {
 			useTemplate = topLimitTemplate;
-			if (SQLServer2012Dialect.equals(this) && !StrUtils.containsIgnoreCase(trimedSql, "order by "))
+			if (SQLServer2012Dialect.equals(this) && !plan.hasOrderBy)
 				useTemplate = SQLServer2005Dialect.topLimitTemplate;
 		} else {
 			useTemplate = sqlTemplate;
-			if (SQLServer2012Dialect.equals(this) && !StrUtils.containsIgnoreCase(trimedSql, "order by "))
+			if (SQLServer2012Dialect.equals(this) && !plan.hasOrderBy)
 				useTemplate = SQLServer2005Dialect.sqlTemplate;
 		}
 
@@ -385,31 +418,7 @@ public class Dialect {
 								+ aTopLimitSqlExample(this.topLimitTemplate) + "\"");
 			return (String) DialectException.throwEX("Dialect \"" + this + "\" does not support physical pagination");
 		}
-
-		if (useTemplate.contains(DISTINCT_TAG)) {
-			// if distinct template use non-distinct sql, delete distinct tag
-			if (!StrUtils.startsWithIgnoreCase(body, "distinct "))
-				useTemplate = StrUtils.replace(useTemplate, DISTINCT_TAG, "");
-			else {
-				// if distinct template use distinct sql, use it
-				useTemplate = StrUtils.replace(useTemplate, DISTINCT_TAG, "distinct");
-				body = body.substring(9);
-			}
-		}
-
-		// if have $XXX tag, replaced by real values
-		result = StrUtils.replaceIgnoreCase(useTemplate, SKIP_ROWS, String.valueOf(skipRows));
-		result = StrUtils.replaceIgnoreCase(result, PAGESIZE, String.valueOf(pageSize));
-		result = StrUtils.replaceIgnoreCase(result, TOTAL_ROWS, String.valueOf(totalRows));
-
-		// now insert the customer's real full SQL here
-		result = StrUtils.replace(result, "$SQL", trimedSql);
-
-		// or only insert the body without "select "
-		result = StrUtils.replace(result, "$BODY", body);
-		if (getGlobalAllowShowSql())
-			logger.info("Paginated sql: " + result);
-		return result;
+		return useTemplate;
 	}
 
 	@Override
@@ -561,6 +570,38 @@ public class Dialect {
 		return StrUtils.joinStringArray(drop, create);
 	}
 
+	/**
+	 * Transfer tables to create DDL and send them to consumer one by one, see
+	 * DDLCreateUtils.toCreateDDL(dialect, consumer, tables)
+	 */
+	public void toCreateDDL(Consumer<String> consumer, TableModel... tables) {
+		DDLCreateUtils.toCreateDDL(this, consumer, tables);
+	}
+
+	/**
+	 * Transfer tables to create DDL and write them to writer, each DDL followed by
+	 * given delimiter, for example ";\n"
+	 */
+	public void toCreateDDL(Writer writer, String delimiter, TableModel... tables) {
+		DDLCreateUtils.toCreateDDL(this, writer, delimiter, tables);
+	}
+
+	/**
+	 * Transfer tables to drop and create DDL and send them to consumer one by one
+	 */
+	public void toDropAndCreateDDL(Consumer<String> consumer, TableModel... tables) {
+		DDLDropUtils.toDropDDL(this, consumer, tables);
+		DDLCreateUtils.toCreateDDL(this, consumer, tables);
+	}
+
+	/**
+	 * Compare old and new tables, return alter DDL String array which change old
+	 * tables to new tables, see DDLAlterUtils.toAlterDDL
+	 */
+	public String[] toAlterDDL(TableModel[] oldTables, TableModel[] newTables) {
+		return DDLAlterUtils.toAlterDDL(this, oldTables, newTables);
+	}
+
 	/**
 	 * Build a "drop table xxxx " like DDL String according this dialect
 	 */
@@ -591,6 +632,18 @@ public class Dialect {
 					"Dialect \"" + this + "\" does not support drop foreign key, on foreign key \"" + fkeyName + "\"");
 	}
 
+	/**
+	 * Build a "drop index indexName" like DDL String according this dialect
+	 */
+	public String dropIndexDDL(String tableName, String indexName) {
+		if (isMySqlFamily() || isFamily("MariaDB") || isSQLServerFamily() || isFamily("Teradata"))
+			return "drop index " + indexName + " on " + tableName;
+		else if (isSybaseFamily())
+			return "drop index " + tableName + "." + indexName;
+		else
+			return "drop index " + indexName;
+	}
+
 	/**
 	 * Return next ID by given IdGenerator and NormalJdbcStyle instance
 	 */
@@ -636,6 +689,7 @@ public class Dialect {
 	/** Note! this is a global method to set globalSqlFunctionPrefix */
 	public static void setGlobalSqlFunctionPrefix(String sqlFunctionPrefix) {
 		Dialect.globalSqlFunctionPrefix = sqlFunctionPrefix;
+		DialectFunctionTranslator.instance.clearCache();
 	}
 
 	public static Boolean getGlobalEnableTopLimitPagin() {
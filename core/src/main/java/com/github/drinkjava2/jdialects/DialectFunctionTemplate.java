@@ -47,6 +47,7 @@ public class DialectFunctionTemplate {
                 }
             }
         }
+        DialectFunctionTranslator.instance.clearCache();
     }
 
     public static void registerFunction(String function, String template, Dialect... dialects) {
@@ -57,6 +58,7 @@ public class DialectFunctionTemplate {
                     dialect.functions.put(function, template);
             }
         }
+        DialectFunctionTranslator.instance.clearCache();
     }
 
     protected static void initFunctionTemplates() {
@@ -11,10 +11,11 @@
  */
 package com.github.drinkjava2.jdialects;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 import com.github.drinkjava2.jlogs.Log;
 import com.github.drinkjava2.jlogs.LogFactory;
@@ -34,6 +35,11 @@ public class DialectFunctionTranslator {
 
 	public static final DialectFunctionTranslator instance = new DialectFunctionTranslator();
 	private Map<String, Integer> functionMap = new HashMap<String, Integer>();
+	private volatile FunctionNameIndex functionNameIndex;
+	private final AtomicInteger cacheVersion = new AtomicInteger();
+	private final LongAdder cacheHitCount = new LongAdder();
+	private final LongAdder cacheMissCount = new LongAdder();
+	private final LongAdder bypassCount = new LongAdder();
 
 	/**
 	 * Register functions names need translated, values is percentage of dialects
@@ -227,61 +233,45 @@ public class DialectFunctionTranslator {
 
 	public void setFunctionMap(Map<String, Integer> functionMap) {
 		this.functionMap = functionMap;
+		clearCache();
 	}
 
 	/**
-	 * DialectSqlItem type can be: <br/>
-	 * S:String, F:function, U:Unknow(need correct), ",":","
-	 * 
-	 * @author Yong Zhu
-	 * @since 1.7.0
+	 * Clear translation caches of all dialects, should call this method if
+	 * manually changed function templates of dialects
 	 */
-	static class DialectSqlItem {
-		public char type;// NOSONAR
-		public Object value;// NOSONAR
-
-		DialectSqlItem[] subItems;
-
-		void setTypeAndValue(char type, Object value) {
-			this.type = type;
-			this.value = value;
-		}
+	public void clearCache() {
+		cacheVersion.incrementAndGet();
+	}
 
-		/**
-		 * Only for debug purpose, show detail info of DialectSqlItem
-		 */
-		String getDebugInfo(int include) {
-			String result = "\r";
-			for (int i = 0; i < include; i++) {
-				result += "     ";//NOSONAR
-			}
-			result += type + " ";
-			if (value != null)
-				result += value;
-			if (subItems != null) {
-				for (DialectSqlItem Item : subItems) {
-					result += Item.getDebugInfo(include + 1);// NOSONAR
-				}
-			}
-			return result;
-		}
+	/** Return current cache version, it changes when function templates changed */
+	protected int getCacheVersion() {
+		return cacheVersion.get();
+	}
 
+	/** Return how many times translated SQL be found in cache */
+	public long getCacheHitCount() {
+		return cacheHitCount.sum();
 	}
 
-	static class SearchResult {
-		DialectSqlItem item;
-		int leftStart;
-		int leftEnd;
+	/** Return how many times translated SQL not found in cache */
+	public long getCacheMissCount() {
+		return cacheMissCount.sum();
+	}
 
-		SearchResult(DialectSqlItem item, int leftStart, int leftEnd) {
-			this.item = item;
-			this.leftStart = leftStart;
-			this.leftEnd = leftEnd;
-		}
+	/**
+	 * Return how many times SQL be proved no need translate by fast scan and
+	 * directly returned, it's part of cache miss count
+	 */
+	public long getBypassCount() {
+		return bypassCount.sum();
 	}
 
-	static class ParamPosition {
-		int position = 0;
+	/** Reset cache hit, miss and bypass counters */
+	public void resetCacheStatistics() {
+		cacheHitCount.reset();
+		cacheMissCount.reset();
+		bypassCount.reset();
 	}
 
 	/**
@@ -292,219 +282,388 @@ public class DialectFunctionTranslator {
 		if (StrUtils.isEmpty(sql))
 			return sql;
 		// if prefix not empty and SQL not include prefix, directly return
-		if (!StrUtils.isEmpty(Dialect.getGlobalSqlFunctionPrefix())
-				&& !StrUtils.containsIgnoreCase(sql, Dialect.getGlobalSqlFunctionPrefix()))
+		String prefix = Dialect.getGlobalSqlFunctionPrefix();
+		if (!StrUtils.isEmpty(prefix) && !StrUtils.containsIgnoreCase(sql, prefix))
 			return sql;
-		char[] chars = (" " + sql + " ").toCharArray();
-		DialectSqlItem[] items = seperateCharsToItems(chars, 1, chars.length - 2);
-		for (DialectSqlItem item : items) {
-			correctType(item);
+		FunctionNameIndex index = getFunctionNameIndex();
+		int version = cacheVersion.get();
+		if (d.transCacheVersion != version) {
+			d.transCache.clear();
+			d.transCacheVersion = version;
+		}
+		String result = d.transCache.get(sql);
+		if (result != null)
+			cacheHitCount.increment();
+		else {
+			cacheMissCount.increment();
+			result = translate(d, sql, prefix, index);
+			// do not cache result translated by old templates if clearCache called meanwhile
+			if (cacheVersion.get() == version) {
+				d.transCache.put(sql, result);
+				if (cacheVersion.get() != version)
+					d.transCache.remove(sql);
+			}
 		}
-		String result = join(d, true, null, items);
 		if (Dialect.getGlobalAllowShowSql())
 			logger.info("Translated sql: " + result);
 		return result;
 	}
 
-	/** Separate chars to Items list */
-	DialectSqlItem[] seperateCharsToItems(char[] chars, int start, int end) {
-		List<DialectSqlItem> items = new ArrayList<DialectSqlItem>();
-		SearchResult result = findFirstResult(chars, start, end);
-		while (result != null) {
-			items.add(result.item);
-			result = findFirstResult(chars, result.leftStart, result.leftEnd);
-		}
-		return items.toArray(new DialectSqlItem[items.size()]);
+	/**
+	 * Same as doTranslate method but do not use translation cache, usually used
+	 * for SQL only be translated once, or for performance test
+	 */
+	public String doTranslateWithoutCache(Dialect d, String sql) {
+		if (StrUtils.isEmpty(sql))
+			return sql;
+		String prefix = Dialect.getGlobalSqlFunctionPrefix();
+		if (!StrUtils.isEmpty(prefix) && !StrUtils.containsIgnoreCase(sql, prefix))
+			return sql;
+		return translate(d, sql, prefix, getFunctionNameIndex());
 	}
 
-	/** if is U type, use this method to correct type */
-	void correctType(DialectSqlItem item) {//NOSONAR
-		if (item.type == 'U') {// correct Unknown type to other type
-			String valueStr = (String) item.value;
-			String valueUpcase = valueStr.toUpperCase();
-			// check is function
-			String funPrefix = Dialect.getGlobalSqlFunctionPrefix();
-			if (!StrUtils.isEmpty(valueUpcase)) {
-				if (!StrUtils.isEmpty(funPrefix) && StrUtils.startsWithIgnoreCase(valueUpcase, funPrefix)
-						&& functionMap.containsKey(valueUpcase.substring(funPrefix.length()))) {
-					item.type = 'F';
-					item.value = valueStr.substring(funPrefix.length());
-				}
+	private String translate(Dialect d, String sql, String prefix, FunctionNameIndex index) {
+		String usePrefix = StrUtils.isEmpty(prefix) ? null : prefix;
+		if (needTranslate(sql, usePrefix, index))
+			return new Translation(d, sql, usePrefix, index).translate();
+		bypassCount.increment();
+		return sql;
+	}
 
-				if ((StrUtils.isEmpty(funPrefix) && functionMap.containsKey(valueUpcase))) {
-					item.type = 'F';
-					item.value = valueStr;
-				}
+	/**
+	 * Scan SQL once to check if it includes any function name need translate, if
+	 * not found, SQL can be directly used. This scan is conservative, words in
+	 * quoted strings or comments are also checked, only cause a full translation.
+	 */
+	protected static boolean needTranslate(String sql, String prefix, FunctionNameIndex index) {
+		int length = sql.length();
+		int i = 0;
+		while (i < length) {
+			if (!isLetterNumber(sql.charAt(i))) {
+				i++;
+				continue;
+			}
+			int start = i;
+			while (i < length && isLetterNumber(sql.charAt(i)))
+				i++;
+			if (prefix == null) {
+				// without prefix, a function name not followed by "(" is kept as is
+				if (i < length && sql.charAt(i) == '(' && index.contains(sql, start, i))
+					return true;
+			} else {
+				// with prefix, a prefixed function name is always translated, stop at "--" comment
+				int end = start + 1;
+				while (end < i && !(sql.charAt(end) == '-' && sql.charAt(end - 1) == '-'))
+					end++;
+				if (end < i)
+					end--;
+				if (end - start > prefix.length() && sql.regionMatches(true, start, prefix, 0, prefix.length())
+						&& index.contains(sql, start + prefix.length(), end))
+					return true;
 			}
-			if (item.type == 'U')// still not found
-				if (",".equals(valueStr))
-					// is Long able?
-					item.setTypeAndValue(',', valueStr);
-				else
-					item.setTypeAndValue('S', valueStr);
 		}
-		if (item.subItems != null)
-			for (DialectSqlItem t : item.subItems)
-				correctType(t);
+		return false;
 	}
 
 	/**
-	 * Find first item and store left start and left end position in SearchResult
+	 * Return the function name index, if functionMap be changed (for example new
+	 * function registered), rebuild it and clear translation caches
 	 */
-	SearchResult findFirstResult(char[] chars, int start, int end) {//NOSONAR
-		if (start > end)
-			return null;
-		boolean letters = false;
-		StringBuilder sb = new StringBuilder();
-		for (int i = start; i <= end; i++) {
-			if (!letters) {// no letters found
-
-				if (chars[i] == ' ') {
-					DialectSqlItem item = new DialectSqlItem();
-					item.type = 'S';
-					item.value = " ";
-					return new SearchResult(item, i + 1, end);
-				}
+	protected FunctionNameIndex getFunctionNameIndex() {
+		FunctionNameIndex index = functionNameIndex;
+		if (index == null || !index.isBuiltFrom(functionMap)) {
+			index = new FunctionNameIndex(functionMap);
+			functionNameIndex = index;
+			clearCache();
+		}
+		return index;
+	}
 
-				if (chars[i] == '?') {
-					DialectSqlItem item = new DialectSqlItem();
-					item.type = 'S';
-					item.value = "?";
-					return new SearchResult(item, i + 1, end);
-				}
+	/**
+	 * Function names index built from functionMap, lookup a name by a range of SQL
+	 * characters, ignore case and no need create a String
+	 */
+	protected static class FunctionNameIndex {
+		private final Map<String, Integer> sourceMap;
+		private final int sourceSize;
+		private final CaseInsensitiveIndex<Integer> names;
+
+		protected FunctionNameIndex(Map<String, Integer> functionMap) {
+			this.sourceMap = functionMap;
+			this.sourceSize = functionMap.size();
+			this.names = new CaseInsensitiveIndex<Integer>(functionMap);
+		}
 
-				if (chars[i] == '\'') {
-					for (int j = i + 1; j <= end; j++) {
-						if (chars[j] == '\'' && chars[j - 1] != '\\') {
-							DialectSqlItem item = new DialectSqlItem();
-							item.type = 'S';
-							item.value = sb.insert(0, '\'').append('\'').toString();
-							return new SearchResult(item, j + 1, end);
-						} else
-							sb.append(chars[j]);
-					}
-					throw new DialectException("Miss right ' charactor in SQL.");
-				} else if (chars[i] == '(') {
-					int count = 1;
-					boolean inString = false;
-					for (int j = i + 1; j <= end; j++) {
-						if (!inString) {
-							if (chars[j] == '(')
-								count++;
-							else if (chars[j] == ')') {
-								count--;
-								if (count == 0) {
-									DialectSqlItem[] subItems = seperateCharsToItems(chars, i + 1, j - 1);
-									DialectSqlItem item = new DialectSqlItem();
-									item.type = '(';
-									item.subItems = subItems;
-									return new SearchResult(item, j + 1, end);
-								}
-							} else if (chars[j] == '\'') {
-								inString = true;
-							}
-						} else {
-							if (chars[j] == '\'' && chars[j - 1] != '\\') {
-								inString = false;
-							}
-						}
-					}
-					throw new DialectException("Miss right ) charactor in SQL.");
-				} else if (chars[i] > ' ') {
-					letters = true;
-					sb.append(chars[i]);
-				}
-			} else {// letters found
-				if (chars[i] == '?' || chars[i] == '\'' || chars[i] == '(' || chars[i] <= ' '
-						|| isLetterNumber(chars[i]) != isLetterNumber(chars[i - 1])) {
-					DialectSqlItem item = new DialectSqlItem();
-					item.type = 'U';
-					item.value = sb.toString();
-					return new SearchResult(item, i, end);
-				} else {
-					sb.append(chars[i]);
-				}
-			}
+		protected boolean isBuiltFrom(Map<String, Integer> functionMap) {
+			return sourceMap == functionMap && sourceSize == functionMap.size();
+		}
+
+		/** Check if characters of sql from start (inclusive) to end (exclusive) is a function name */
+		protected boolean contains(CharSequence sql, int start, int end) {
+			return start < end && names.containsKey(sql, start, end);
 		}
-		if (sb.length() > 0) {
-			DialectSqlItem item = new DialectSqlItem();
-			item.type = 'U';
-			item.value = sb.toString();
-			return new SearchResult(item, end + 1, end);
-		} else
-			return null;
 	}
 
 	/**
-	 * Join items list into one String, if function is null, join as String,
-	 * otherwise treat as function parameters
+	 * One translation of a SQL, it's a single-pass, index based lexer, plain text
+	 * runs are directly appended to output, function parameters are rendered into
+	 * output first and then be replaced by the rendered native function
 	 */
-	String join(Dialect d, boolean isTopLevel, DialectSqlItem function, DialectSqlItem[] items) {//NOSONAR
-		int pos = 0;
-		for (DialectSqlItem item : items) {
-			if (item.subItems != null) {
-				String value;
-				if (pos > 0 && items[pos - 1] != null && items[pos - 1].type == 'F')
-					// join as parameters
-					value = join(d, false, items[pos - 1], item.subItems);
-				else
-					value = join(d, false, null, item.subItems); // join as
-																	// string
-				item.type = 'S';
-				item.value = value;
-				item.subItems = null;
+	private static class Translation {
+		private final Dialect dialect;
+		private final String sql;
+		private final String prefix;
+		private final FunctionNameIndex index;
+		private final StringBuilder out;
+		private final StringBuilder scratch = new StringBuilder();
+		private final int length;
+		private int pos;
+
+		Translation(Dialect dialect, String sql, String prefix, FunctionNameIndex index) {
+			this.dialect = dialect;
+			this.sql = sql;
+			this.prefix = prefix;
+			this.index = index;
+			this.length = sql.length();
+			this.out = new StringBuilder(length + 16);
+		}
+
+		String translate() {
+			parseSequence(false, null);
+			return out.toString();
+		}
+
+		/**
+		 * Parse items until end of SQL, or until the ")" if is nested, if commas not
+		 * null, top level comma items are not appended but their positions be recorded
+		 */
+		private void parseSequence(boolean nested, IntList commas) {// NOSONAR
+			while (pos < length) {
+				char c = sql.charAt(pos);
+				if (c == ')') {
+					if (nested)
+						return;
+					out.append(c);
+					pos++;
+				} else if (c <= ' ' || c == '?') {
+					out.append(c);
+					pos++;
+				} else if (c == '\'') {
+					appendQuoted('\'', true);
+				} else if (c == '"' || c == '`') {
+					appendQuoted(c, false);
+				} else if (isCommentStart(pos)) {
+					appendComment();
+				} else if (c == '(') {
+					out.append('(');
+					pos++;
+					parseSequence(true, null);
+					closeParenthesis();
+					out.append(')');
+				} else
+					parseToken(commas);
 			}
+		}
+
+		/** Parse a word or symbol token, it may be a function name or a comma */
+		private void parseToken(IntList commas) {
+			int start = pos;
+			boolean letter = isLetterNumber(sql.charAt(pos++));
+			while (pos < length) {
+				char c = sql.charAt(pos);
+				if (c <= ' ' || c == '?' || c == '\'' || c == '(' || c == ')' || c == '"' || c == '`'
+						|| isLetterNumber(c) != letter || isCommentStart(pos))
+					break;
+				pos++;
+			}
+			if (commas != null && pos - start == 1 && sql.charAt(start) == ',') {
+				commas.add(out.length());
+				return;
+			}
+			int nameStart = letter ? functionNameStart(start, pos) : -1;
+			if (nameStart < 0)
+				out.append(sql, start, pos);
+			else if (pos < length && sql.charAt(pos) == '(')
+				renderFunction(nameStart, pos);
+			else
+				out.append(sql, nameStart, pos); // function name without "(", only delete the prefix
+		}
+
+		/** If token is a function name, return start position of name without prefix, otherwise -1 */
+		private int functionNameStart(int start, int end) {
+			int nameStart = start;
+			if (prefix != null) {
+				if (end - start < prefix.length() || !sql.regionMatches(true, start, prefix, 0, prefix.length()))
+					return -1;
+				nameStart += prefix.length();
+			}
+			return index.contains(sql, nameStart, end) ? nameStart : -1;
+		}
+
+		/**
+		 * Render a function call, pos is at "(", parameters are rendered into output
+		 * first, then replaced by native function
+		 */
+		private void renderFunction(int nameStart, int nameEnd) {
+			pos++;
+			int base = out.length();
+			IntList commas = new IntList();
+			parseSequence(true, commas);
+			closeParenthesis();
+
+			int end = out.length();
+			int argCount = isBlank(out, commas.size == 0 ? base : commas.values[commas.size - 1], end) ? commas.size
+					: commas.size + 1;
+			int[] bounds = new int[argCount * 2];
+			int argStart = base;
+			for (int i = 0; i < argCount; i++) {
+				bounds[2 * i] = argStart;
+				bounds[2 * i + 1] = i < commas.size ? commas.values[i] : end;
+				argStart = bounds[2 * i + 1];
+			}
+			scratch.setLength(0);
+			DialectFunctionUtils.render(scratch, dialect, sql, nameStart, nameEnd, out, bounds, argCount);
+			out.setLength(base);
+			out.append(scratch);
+		}
+
+		private void closeParenthesis() {
+			if (pos >= length)
+				throw new DialectException("Miss right ) charactor in SQL.");
 			pos++;
-		} // now there is no subItems
+		}
+
+		/** Append a quoted string or identifier, pos is at the open quote */
+		private void appendQuoted(char quote, boolean backslashEscape) {
+			int start = pos;
+			for (int j = pos + 1; j < length; j++)
+				if (sql.charAt(j) == quote && !(backslashEscape && sql.charAt(j - 1) == '\\')) {
+					pos = j + 1;
+					out.append(sql, start, pos);
+					return;
+				}
+			throw new DialectException("Miss right " + quote + " charactor in SQL.");
+		}
 
-		if (function != null) {
-			List<String> l = new ArrayList<String>();
-			for (DialectSqlItem item : items) {
-				if (item.type != '0')
-					l.add((String) item.value);
+		private boolean isCommentStart(int i) {
+			if (i + 1 >= length)
+				return false;
+			char c = sql.charAt(i);
+			char next = sql.charAt(i + 1);
+			return (c == '-' && next == '-') || (c == '/' && next == '*');
+		}
+
+		/** Append a line comment until end of line (inclusive), or a block comment */
+		private void appendComment() {
+			int start = pos;
+			int end;
+			if (sql.charAt(pos) == '-') {
+				end = sql.indexOf('\n', pos + 2);
+				end = end < 0 ? length : end + 1;
+			} else {
+				end = sql.indexOf("*/", pos + 2);
+				if (end < 0)
+					throw new DialectException("Miss right */ charactor in SQL.");
+				end += 2;
 			}
-			return renderFunction(d, function, l.toArray(new String[l.size()]));
+			pos = end;
+			out.append(sql, start, end);
+		}
+
+		private static boolean isBlank(CharSequence cs, int start, int end) {
+			for (int i = start; i < end; i++)
+				if (cs.charAt(i) > ' ')
+					return false;
+			return true;
+		}
+	}
+
+	/** A tiny growable int array */
+	private static class IntList {
+		int[] values = new int[4];
+		int size;
+
+		void add(int value) {
+			if (size == values.length)
+				values = Arrays.copyOf(values, size * 2);
+			values[size++] = value;
 		}
+	}
 
-		StringBuilder sb = new StringBuilder();
-		if (!isTopLevel)
-			sb.append("(");
-		for (DialectSqlItem item : items)
-			if (item.type != '0') {
-				sb.append(item.value);
+	/**
+	 * Item of the old tree based translator, no longer used by translation
+	 * 
+	 * @deprecated translation is done by a single-pass lexer now, will be removed
+	 *             in next release
+	 */
+	@Deprecated
+	static class DialectSqlItem {
+		public char type;// NOSONAR
+		public Object value;// NOSONAR
+
+		DialectSqlItem[] subItems;
+
+		void setTypeAndValue(char type, Object value) {
+			this.type = type;
+			this.value = value;
+		}
+
+		/**
+		 * Only for debug purpose, show detail info of DialectSqlItem
+		 */
+		String getDebugInfo(int include) {
+			String result = "\r";
+			for (int i = 0; i < include; i++) {
+				result += "     ";//NOSONAR
+			}
+			result += type + " ";
+			if (value != null)
+				result += value;
+			if (subItems != null) {
+				for (DialectSqlItem Item : subItems) {
+					result += Item.getDebugInfo(include + 1);// NOSONAR
+				}
 			}
-		if (!isTopLevel)
-			sb.append(")");
-		return sb.toString();
+			return result;
+		}
+
 	}
 
-	private static String renderFunction(Dialect d, DialectSqlItem function, String... params) {
-		function.type = '0';
-		List<String> l = new ArrayList<String>();
-		String current = "";
-		for (String param : params) {
-			if (",".equals(param)) {
-				l.add(current);
-				current = "";
-			} else
-				current += param;// NOSONAR
+	/**
+	 * @deprecated translation is done by a single-pass lexer now, will be removed
+	 *             in next release
+	 */
+	@Deprecated
+	static class SearchResult {
+		DialectSqlItem item;
+		int leftStart;
+		int leftEnd;
+
+		SearchResult(DialectSqlItem item, int leftStart, int leftEnd) {
+			this.item = item;
+			this.leftStart = leftStart;
+			this.leftEnd = leftEnd;
 		}
-		String lastValue = current.trim();
-		if (lastValue.length() > 0)
-			l.add(current);
-		return DialectFunctionUtils.render(d, (String) function.value, l.toArray(new String[l.size()]));
 	}
 
+	/**
+	 * @deprecated DialectSqlItem is no longer used by translation, will be removed
+	 *             in next release
+	 */
+	@Deprecated
 	public static void deleteItem(DialectSqlItem item) {
 		if (item != null)
 			item.type = '0';
 	}
 
+	/**
+	 * @deprecated DialectSqlItem is no longer used by translation, will be removed
+	 *             in next release
+	 */
+	@Deprecated
 	public static void deleteItem(DialectSqlItem lastItem, DialectSqlItem nextItem) {
-		if (lastItem != null)
-			lastItem.type = '0';
-		if (nextItem != null)
-			nextItem.type = '0';
+		deleteItem(lastItem);
+		deleteItem(nextItem);
 	}
 
 	// ==================String Utils below======================
@@ -11,6 +11,10 @@
  */
 package com.github.drinkjava2.jdialects;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
 /**
  * Dialect function Utils, detail see render method
  * 
@@ -47,69 +51,70 @@ public class DialectFunctionUtils {// NOSONAR
 	 * @return A SQL function piece
 	 */
 	protected static String render(Dialect d, String functionName, String... args) {
-		String template = d.functions.get(functionName.toLowerCase());
-		DialectException.assureNotEmpty(template, "Dialect \"" + d + "\" does not support \"" + functionName
-				+ "\" function, a full list of supported functions of this dialect can see \"DatabaseDialects.xls\"");
-		if ("*".equals(template))
-			template = functionName + "($Params)";
-		char c = template.charAt(1);
-		if (c != '=') {
-			if (template.indexOf("$Params") >= 0) {
-				return StrUtils.replace(template, "$Params", StrUtils.arrayToString(args, ", "));
-			}
-			if (template.indexOf("$Compact_Params") >= 0) {
-				return StrUtils.replace(template, "$Compact_Params", StrUtils.arrayToString(args, ","));
-			}
-			if (template.indexOf("$Lined_Params") >= 0) {
-				return StrUtils.replace(template, "$Lined_Params", StrUtils.arrayToString(args, "||"));
-			}
-			if (template.indexOf("$Add_Params") >= 0) {
-				return StrUtils.replace(template, "$Add_Params", StrUtils.arrayToString(args, "+"));
-			}
-			if (template.indexOf("$IN_Params") >= 0) {
-				return StrUtils.replace(template, "$IN_Params", StrUtils.arrayToString(args, " in "));
-			}
-			if (template.indexOf("$Pattern_Params") >= 0) {
-				return StrUtils.replace(template, "$Pattern_Params", StrUtils.arrayToString(args, "%pattern"));
-			}
-			if (template.indexOf("$Startswith_Params") >= 0) {
-				return StrUtils.replace(template, "$Startswith_Params", StrUtils.arrayToString(args, "%startswith"));
-			}
-			if (template.indexOf("$NVL_Params") >= 0) {
-				if (args == null || args.length < 2)
-					DialectException.throwEX("Nvl function require at least 2 parameters");
-				else {
-					String s = "nvl(" + args[args.length - 2] + ", " + args[args.length - 1] + ")";
-					for (int i = args.length - 3; i > -1; i--)
-						s = "nvl(" + args[i] + ", " + s + ")";
-					return StrUtils.replace(template, "$NVL_Params", s);
-				}
-			}
-			return (String) DialectException.throwEX("jDialect found a template bug error, please submit this bug");
-		} else {
-			int argsCount = 0;
-			if (args != null)
-				argsCount = args.length;
-			String searchStr = Integer.toString(argsCount) + "=";
-			if (template.indexOf(searchStr) < 0)
-				DialectException.throwEX("Dialect " + d + "'s function \"" + functionName + "\" only support "
-						+ allowedParameterQTY(template) + " parameters");
-			String result = StrUtils.substringBetween(template + "|", searchStr, "|");
-			for (int i = 0; args != null && i < args.length; i++) {
-				result = StrUtils.replace(result, "$P" + (i + 1), "" + args[i]);
-			}
-			return result;
+		int argCount = args == null ? 0 : args.length;
+		int[] bounds = new int[argCount * 2];
+		StringBuilder argSrc = new StringBuilder();
+		for (int i = 0; i < argCount; i++) {
+			bounds[2 * i] = argSrc.length();
+			argSrc.append(args[i]);// NOSONAR
+			bounds[2 * i + 1] = argSrc.length();
 		}
+		StringBuilder out = new StringBuilder(functionName.length() + argSrc.length() + 16);
+		render(out, d, functionName, 0, functionName.length(), argSrc, bounds, argCount);
+		return out.toString();
+	}
+
+	/**
+	 * Render function into out by compiled template, function name is from
+	 * nameStart to nameEnd of nameSrc, parameter i is from bounds[2*i] to
+	 * bounds[2*i+1] of argSrc
+	 */
+	protected static void render(StringBuilder out, Dialect d, CharSequence nameSrc, int nameStart, int nameEnd, // NOSONAR
+			CharSequence argSrc, int[] bounds, int argCount) {
+		CompiledFunctionTemplate template = getCompiledFunctions(d).get(nameSrc, nameStart, nameEnd);
+		if (template == null)
+			DialectException.throwEX("Dialect \"" + d + "\" does not support \"" + nameSrc.subSequence(nameStart, nameEnd)
+					+ "\" function, a full list of supported functions of this dialect can see \"DatabaseDialects.xls\"");
+		template.render(out, d, nameSrc, nameStart, nameEnd, argSrc, bounds, argCount);// NOSONAR
+	}
+
+	/** Compile function templates of all dialects */
+	protected static void compileFunctionTemplates() {
+		for (Dialect d : Dialect.dialects)
+			getCompiledFunctions(d);
 	}
 
-	private static String allowedParameterQTY(String template) {
-		StringBuilder sb = new StringBuilder();
-		for (int i = 0; i < 5; i++) {
-			if (template.indexOf(Integer.toString(i) + "=") >= 0)
-				sb.append(Integer.toString(i)).append(" or ");
+	/**
+	 * Return compiled function templates of dialect, if dialect's functions be
+	 * changed, re-compile them
+	 */
+	protected static CaseInsensitiveIndex<CompiledFunctionTemplate> getCompiledFunctions(Dialect d) {
+		CompiledFunctions compiled = d.compiledFunctions;
+		int version = DialectFunctionTranslator.instance.getCacheVersion();
+		if (compiled == null || compiled.source != d.functions || compiled.sourceSize != d.functions.size()
+				|| compiled.version != version) {
+			compiled = new CompiledFunctions(d.functions, version);
+			d.compiledFunctions = compiled;
+		}
+		return compiled.templates;
+	}
+
+	/** Compiled function templates of one dialect, key is function name */
+	protected static class CompiledFunctions {
+		private final Map<String, String> source;
+		private final int sourceSize;
+		private final int version;
+		private final CaseInsensitiveIndex<CompiledFunctionTemplate> templates;
+
+		CompiledFunctions(Map<String, String> functions, int version) {
+			this.source = functions;
+			this.sourceSize = functions.size();
+			this.version = version;
+			Map<String, CompiledFunctionTemplate> map = new HashMap<String, CompiledFunctionTemplate>();
+			for (Entry<String, String> entry : functions.entrySet())
+				if (!StrUtils.isEmpty(entry.getValue()))
+					map.put(entry.getKey(), CompiledFunctionTemplate.compile(entry.getValue()));
+			this.templates = new CaseInsensitiveIndex<CompiledFunctionTemplate>(map);
 		}
-		if (sb.length() > 0)
-			sb.setLength(sb.length() - 4);
-		return sb.toString();
 	}
 }
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS
+ * OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.github.drinkjava2.jdialects;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A compiled pagination plan of one SQL for one dialect. The first pagin call
+ * of a SQL splits the pagination template into literal segments (with $SQL and
+ * $BODY already filled) and typed number slots ($SKIP_ROWS, $PAGESIZE,
+ * $TOTAL_ROWS), later calls only need render the numbers into one presized
+ * StringBuilder.
+ *
+ * @author Yong Zhu
+ * @since 5.0.13
+ */
+public class DialectPaginationPlan {
+	protected static final int SKIP_ROWS = 0;
+	protected static final int PAGESIZE = 1;
+	protected static final int TOTAL_ROWS = 2;
+	private static final String[] SLOT_TAGS = new String[] { "$SKIP_ROWS", "$PAGESIZE", "$TOTAL_ROWS" };
+	private static final String DISTINCT_TAG = "($DISTINCT)";
+
+	/** The trimmed SQL */
+	protected final String trimedSql;
+
+	/** The SQL without "select " */
+	protected final String body;
+
+	/** If SQL include "order by ", SQLServer2012 need it to choose template */
+	protected final boolean hasOrderBy;
+
+	/** Compiled top limit template, compiled at first use */
+	protected volatile CompiledTemplate topLimitPlan;
+
+	/** Compiled normal pagination template, compiled at first use */
+	protected volatile CompiledTemplate sqlPlan;
+
+	/** Build a plan by given SQL, if SQL is not a valid select SQL, throw exception */
+	protected DialectPaginationPlan(String sql) {
+		DialectException.assureNotNull(sql, "sql string can not be null");
+		String trimed = sql.trim();
+		DialectException.assureNotEmpty(trimed, "sql string can not be empty");
+		if (!StrUtils.startsWithIgnoreCase(trimed, "select ") && !StrUtils.startsWithIgnoreCase(trimed, "select\n"))
+			DialectException.throwEX("SQL should start with \"select \".");
+		String bodyStr = trimed.substring(7).trim();
+		DialectException.assureNotEmpty(bodyStr, "SQL body can not be empty");
+		this.trimedSql = trimed;
+		this.body = bodyStr;
+		this.hasOrderBy = StrUtils.containsIgnoreCase(trimed, "order by ");
+	}
+
+	/**
+	 * Return the compiled template for given template String, if template changed
+	 * (for example user set a new sqlTemplate on dialect), re-compile it
+	 */
+	protected CompiledTemplate getCompiledTemplate(String template, boolean topLimit) {
+		CompiledTemplate compiled = topLimit ? topLimitPlan : sqlPlan;
+		if (compiled != null && compiled.template == template)// NOSONAR
+			return compiled;
+		compiled = new CompiledTemplate(template, trimedSql, body);
+		if (topLimit)
+			topLimitPlan = compiled;
+		else
+			sqlPlan = compiled;
+		return compiled;
+	}
+
+	/**
+	 * A pagination template split into literal segments and number slots, render
+	 * result is: literals[0] + slot[0] + literals[1] + slot[1] ... + literals[n]
+	 */
+	protected static class CompiledTemplate {
+		protected final String template;
+		protected final String[] literals;
+		protected final int[] slots;
+		protected final int literalLength;
+
+		/** How many number slots are before the inserted SQL, if no SQL inserted, it's slots quantity */
+		protected final int slotsBeforeSql;
+
+		/** Bind mode SQL of this template, built at first use */
+		protected volatile PaginBindSql bindSql;
+
+		protected CompiledTemplate(String template, String trimedSql, String body) {
+			this.template = template;
+			String useTemplate = template;
+			String useBody = body;
+			if (useTemplate.contains(DISTINCT_TAG)) {
+				// if distinct template use non-distinct sql, delete distinct tag
+				if (!StrUtils.startsWithIgnoreCase(useBody, "distinct "))
+					useTemplate = StrUtils.replace(useTemplate, DISTINCT_TAG, "");
+				else {
+					// if distinct template use distinct sql, use it
+					useTemplate = StrUtils.replace(useTemplate, DISTINCT_TAG, "distinct");
+					useBody = useBody.substring(9);
+				}
+			}
+
+			List<String> literalList = new ArrayList<String>();
+			List<Integer> slotList = new ArrayList<Integer>();
+			int start = 0;
+			int pos = 0;
+			int sqlLiteralIndex = -1;
+			while (pos < useTemplate.length()) {
+				int slot = slotAt(useTemplate, pos);
+				if (slot < 0) {
+					pos++;
+					continue;
+				}
+				String literal = useTemplate.substring(start, pos);
+				if (sqlLiteralIndex < 0 && hasSqlTag(literal))
+					sqlLiteralIndex = literalList.size();
+				literalList.add(fillSql(literal, trimedSql, useBody));
+				slotList.add(slot);
+				pos += SLOT_TAGS[slot].length();
+				start = pos;
+			}
+			String lastLiteral = useTemplate.substring(start);
+			if (sqlLiteralIndex < 0 && hasSqlTag(lastLiteral))
+				sqlLiteralIndex = literalList.size();
+			literalList.add(fillSql(lastLiteral, trimedSql, useBody));
+
+			this.literals = literalList.toArray(new String[literalList.size()]);
+			this.slots = new int[slotList.size()];
+			int length = 0;
+			for (int i = 0; i < slots.length; i++)
+				slots[i] = slotList.get(i);
+			for (String literal : literals)
+				length += literal.length();
+			this.literalLength = length;
+			this.slotsBeforeSql = sqlLiteralIndex < 0 ? slots.length : sqlLiteralIndex;
+		}
+
+		private static boolean hasSqlTag(String literal) {
+			return literal.contains("$SQL") || literal.contains("$BODY");
+		}
+
+		/** Return slot type if template has a slot tag at given position, or -1 */
+		private static int slotAt(String template, int pos) {
+			if (template.charAt(pos) != '$')
+				return -1;
+			for (int i = 0; i < SLOT_TAGS.length; i++)
+				if (template.regionMatches(true, pos, SLOT_TAGS[i], 0, SLOT_TAGS[i].length()))
+					return i;
+			return -1;
+		}
+
+		/** Insert customer's full SQL or only body without "select " */
+		private static String fillSql(String literal, String trimedSql, String body) {
+			String result = StrUtils.replace(literal, "$SQL", trimedSql);
+			return StrUtils.replace(result, "$BODY", body);
+		}
+
+		/** Render the template with real numbers */
+		protected String render(int skipRows, int pageSize, int totalRows) {
+			StringBuilder sb = new StringBuilder(literalLength + slots.length * 11);
+			for (int i = 0; i < slots.length; i++) {
+				sb.append(literals[i]);
+				switch (slots[i]) {
+				case SKIP_ROWS:
+					sb.append(skipRows);
+					break;
+				case PAGESIZE:
+					sb.append(pageSize);
+					break;
+				default:
+					sb.append(totalRows);
+				}
+			}
+			sb.append(literals[slots.length]);
+			return sb.toString();
+		}
+
+		/** Return the bind mode SQL, number slots are rendered as "?" */
+		protected PaginBindSql getBindSql() {
+			PaginBindSql result = bindSql;
+			if (result == null) {
+				StringBuilder sb = new StringBuilder(literalLength + slots.length);
+				for (int i = 0; i < slots.length; i++)
+					sb.append(literals[i]).append('?');
+				sb.append(literals[slots.length]);
+				result = new PaginBindSql(sb.toString(), slots.clone(), slotsBeforeSql);
+				bindSql = result;
+			}
+			return result;
+		}
+	}
+}
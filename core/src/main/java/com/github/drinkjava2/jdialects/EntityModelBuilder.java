@@ -0,0 +1,38 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS
+ * OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.github.drinkjava2.jdialects;
+
+import com.github.drinkjava2.jdialects.model.TableModel;
+
+/**
+ * Build TableModel of one entity class without reflection. Implementations
+ * are generated at compile time by the jdialects-processor annotation
+ * processor and registered in
+ * "META-INF/services/com.github.drinkjava2.jdialects.EntityModelBuilder",
+ * TableModelUtilsOfEntity use them before reading entity annotations by
+ * reflection.
+ *
+ * @author Yong Zhu
+ * @since 5.0.13
+ */
+public interface EntityModelBuilder {
+
+	/** Return the entity class this builder for */
+	public Class<?> entityClass();
+
+	/**
+	 * Build a new TableModel, the result should be same as built from entity
+	 * annotations by reflection, and entity's "config(TableModel)" method should
+	 * be called already
+	 */
+	public TableModel build();
+}
@@ -0,0 +1,444 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS
+ * OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.github.drinkjava2.jdialects;
+
+import java.beans.Introspector;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.github.drinkjava2.jdialects.model.TableModel;
+import com.github.drinkjava2.jdialects.springsrc.utils.ReflectionUtils;
+
+/**
+ * EntityModelRegistry caches TableModels of entity classes and the reverse
+ * index from table name to entity class.
+ *
+ * Models are stored by ClassValue, and entity classes are only weakly
+ * referenced by the registry, so a redeployed ClassLoader and its entity
+ * classes can be garbage collected, their entries are dropped and counted as
+ * evictions. Entries of a ClassLoader can also be dropped explicitly by
+ * invalidate(ClassLoader).
+ *
+ * The registry is unbounded by default, setMaxSize() makes it evict least
+ * recently used models built from entity classes, models bound by
+ * TableModelUtils.bindGlobalModel() are never evicted by size.
+ *
+ * @author Yong Zhu
+ * @since 5.0.13
+ */
+public abstract class EntityModelRegistry {// NOSONAR
+
+	/** Model slot stored on the entity class itself */
+	private static final class Slot {
+		volatile TableModel model;
+		volatile boolean bound;
+		long lastUsed;// NOSONAR approximate LRU, racy updates are acceptable
+	}
+
+	/** Weak reference of an entity class which has a model in registry */
+	private static final class ClassRef extends WeakReference<Class<?>> {
+		private final int hash;
+		volatile String tableKey;
+
+		ClassRef(Class<?> entityClass, ReferenceQueue<Class<?>> queue) {
+			super(entityClass, queue);
+			this.hash = System.identityHashCode(entityClass);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (o == this)
+				return true;
+			if (!(o instanceof ClassRef))
+				return false;
+			Class<?> c = get();
+			return c != null && c == ((ClassRef) o).get();
+		}
+	}
+
+	private static final ClassValue<Slot> SLOTS = new ClassValue<Slot>() {
+		@Override
+		protected Slot computeValue(Class<?> type) {
+			return new Slot();
+		}
+	};
+
+	/** All entity classes have a model, key and value are same ClassRef */
+	private static final ConcurrentHashMap<ClassRef, ClassRef> entries = new ConcurrentHashMap<ClassRef, ClassRef>();
+
+	/** Lower case table name to entity class */
+	private static final ConcurrentHashMap<String, ClassRef> tables = new ConcurrentHashMap<String, ClassRef>();
+
+	private static final ReferenceQueue<Class<?>> collected = new ReferenceQueue<Class<?>>();
+
+	private static volatile int maxSize = Integer.MAX_VALUE;
+
+	private static final LongAdder hitCount = new LongAdder();
+	private static final LongAdder missCount = new LongAdder();
+	private static final LongAdder evictionCount = new LongAdder();
+
+	/** Return cached TableModel of entity class, or null if not cached */
+	public static TableModel get(Class<?> entityClass) {
+		if (entityClass == null)
+			return null;
+		Slot slot = SLOTS.get(entityClass);
+		TableModel model = slot.model;
+		if (model == null) {
+			missCount.increment();
+			return null;
+		}
+		slot.lastUsed = System.nanoTime();
+		hitCount.increment();
+		return model;
+	}
+
+	/**
+	 * Cache a TableModel built for entity class, it may be evicted if registry
+	 * size exceeds max size, return old model or null
+	 */
+	public static TableModel put(Class<?> entityClass, TableModel model) {
+		return put(entityClass, model, false);
+	}
+
+	/**
+	 * Bind a TableModel to entity class, it will not be evicted by size, return
+	 * old model or null
+	 */
+	public static TableModel bind(Class<?> entityClass, TableModel model) {
+		return put(entityClass, model, true);
+	}
+
+	private static TableModel put(Class<?> entityClass, TableModel model, boolean bound) {
+		DialectException.assureNotNull(entityClass, "Entity class can not be null");
+		DialectException.assureNotNull(model, "TableModel can not be null");
+		expungeCollected();
+		Slot slot = SLOTS.get(entityClass);
+		TableModel old;
+		synchronized (slot) {
+			old = slot.model;
+			slot.model = model;
+			slot.bound = bound;
+			slot.lastUsed = System.nanoTime();
+		}
+		ClassRef ref = new ClassRef(entityClass, collected);
+		ClassRef existed = entries.putIfAbsent(ref, ref);
+		if (existed != null)
+			ref = existed;
+		indexTableName(ref, model);
+		if (entries.size() > maxSize)
+			evictBySize();
+		return old;
+	}
+
+	private static void indexTableName(ClassRef ref, TableModel model) {
+		String oldKey = ref.tableKey;
+		String newKey = model.getTableName() == null ? null : model.getTableName().toLowerCase();
+		if (oldKey != null && !oldKey.equals(newKey))
+			tables.remove(oldKey, ref);
+		ref.tableKey = newKey;
+		if (newKey != null)
+			tables.put(newKey, ref);
+	}
+
+	/**
+	 * Return entity class of table name (case insensitive), only entity classes
+	 * have a model in registry can be found, return null if not found
+	 */
+	public static Class<?> tableNameToEntityClass(String tableName) {
+		if (tableName == null)
+			return null;
+		ClassRef ref = tables.get(tableName.toLowerCase());
+		if (ref == null)
+			return null;
+		Class<?> entityClass = ref.get();
+		if (entityClass == null)
+			return null;
+		TableModel model = SLOTS.get(entityClass).model;
+		if (model == null || !tableName.equalsIgnoreCase(model.getTableName()))
+			return null;
+		return entityClass;
+	}
+
+	/** Remove model of entity class, return removed model or null */
+	public static TableModel invalidate(Class<?> entityClass) {
+		if (entityClass == null)
+			return null;
+		ClassRef ref = entries.remove(new ClassRef(entityClass, null));
+		if (ref != null)
+			removeIndex(ref);
+		return clearSlot(entityClass);
+	}
+
+	/**
+	 * Remove models of all entity classes loaded by given ClassLoader and clear
+	 * reflection and BeanInfo caches, usually called when an application or plugin be
+	 * undeployed, return how many models removed
+	 */
+	public static int invalidate(ClassLoader classLoader) {
+		int removed = 0;
+		for (ClassRef ref : entries.keySet()) {
+			Class<?> entityClass = ref.get();
+			if (entityClass != null && entityClass.getClassLoader() == classLoader && entries.remove(ref) != null) {
+				removeIndex(ref);
+				clearSlot(entityClass);
+				removed++;
+			}
+		}
+		ReflectionUtils.clearCache();
+		Introspector.flushCaches();
+		return removed;
+	}
+
+	/** Remove all models */
+	public static void clear() {
+		for (ClassRef ref : entries.keySet())
+			if (entries.remove(ref) != null) {
+				removeIndex(ref);
+				Class<?> entityClass = ref.get();
+				if (entityClass != null)
+					clearSlot(entityClass);
+			}
+	}
+
+	private static TableModel clearSlot(Class<?> entityClass) {
+		Slot slot = SLOTS.get(entityClass);
+		synchronized (slot) {
+			TableModel old = slot.model;
+			slot.model = null;
+			slot.bound = false;
+			return old;
+		}
+	}
+
+	private static void removeIndex(ClassRef ref) {
+		String key = ref.tableKey;
+		if (key != null)
+			tables.remove(key, ref);
+	}
+
+	/** Drop entries of entity classes which have been garbage collected */
+	private static void expungeCollected() {
+		Reference<? extends Class<?>> r;
+		while ((r = collected.poll()) != null) {
+			ClassRef ref = (ClassRef) r;
+			if (entries.remove(ref) != null) {
+				removeIndex(ref);
+				evictionCount.increment();
+			}
+		}
+	}
+
+	/** Evict least recently used models until size not exceed max size */
+	private static void evictBySize() {
+		while (entries.size() > maxSize) {
+			ClassRef eldest = null;
+			long eldestUsed = Long.MAX_VALUE;
+			for (ClassRef ref : entries.keySet()) {
+				Class<?> entityClass = ref.get();
+				if (entityClass == null)
+					continue;
+				Slot slot = SLOTS.get(entityClass);
+				if (!slot.bound && slot.lastUsed < eldestUsed) {
+					eldest = ref;
+					eldestUsed = slot.lastUsed;
+				}
+			}
+			if (eldest == null)
+				return; // all are bound models
+			Class<?> entityClass = eldest.get();
+			if (entries.remove(eldest) != null) {
+				removeIndex(eldest);
+				if (entityClass != null)
+					clearSlot(entityClass);
+				evictionCount.increment();
+			}
+		}
+	}
+
+	/** Return quantity of cached models */
+	public static int size() {
+		expungeCollected();
+		return entries.size();
+	}
+
+	/** Return max quantity of models built from entity classes to cache */
+	public static int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Set max quantity of models to cache, least recently used models built from
+	 * entity classes are evicted when exceed, default is Integer.MAX_VALUE
+	 */
+	public static void setMaxSize(int maxSize) {
+		if (maxSize <= 0)
+			throw new DialectException("Max size of EntityModelRegistry should be positive");
+		EntityModelRegistry.maxSize = maxSize;
+		expungeCollected();
+		if (entries.size() > maxSize)
+			evictBySize();
+	}
+
+	/** Return how many times model found in registry */
+	public static long getHitCount() {
+		return hitCount.sum();
+	}
+
+	/** Return how many times model not found in registry */
+	public static long getMissCount() {
+		return missCount.sum();
+	}
+
+	/**
+	 * Return how many models evicted by size or because their entity classes
+	 * were garbage collected, explicit invalidation is not counted
+	 */
+	public static long getEvictionCount() {
+		expungeCollected();
+		return evictionCount.sum();
+	}
+
+	/** Reset hit, miss and eviction counters */
+	public static void resetStatistics() {
+		hitCount.reset();
+		missCount.reset();
+		evictionCount.reset();
+	}
+
+	/** Return a snapshot of cached entity classes and their models */
+	static Map<Class<?>, TableModel> snapshot() {
+		expungeCollected();
+		Map<Class<?>, TableModel> result = new HashMap<Class<?>, TableModel>();
+		for (ClassRef ref : entries.keySet()) {
+			Class<?> entityClass = ref.get();
+			if (entityClass != null) {
+				TableModel model = SLOTS.get(entityClass).model;
+				if (model != null)
+					result.put(entityClass, model);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * A Map view of registry, for compatibility of
+	 * TableModelUtilsOfEntity.globalTableModelCache
+	 */
+	static final class ModelMapView extends AbstractMap<Class<?>, TableModel> {
+		@Override
+		public TableModel get(Object key) {
+			return key instanceof Class ? EntityModelRegistry.get((Class<?>) key) : null;
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return key instanceof Class && SLOTS.get((Class<?>) key).model != null;
+		}
+
+		@Override
+		public TableModel put(Class<?> key, TableModel value) {
+			return EntityModelRegistry.bind(key, value);
+		}
+
+		@Override
+		public TableModel remove(Object key) {
+			return key instanceof Class ? invalidate((Class<?>) key) : null;
+		}
+
+		@Override
+		public int size() {
+			return EntityModelRegistry.size();
+		}
+
+		@Override
+		public void clear() {
+			EntityModelRegistry.clear();
+		}
+
+		@Override
+		public Set<Entry<Class<?>, TableModel>> entrySet() {
+			final Map<Class<?>, TableModel> snapshot = snapshot();
+			return new AbstractSet<Entry<Class<?>, TableModel>>() {
+				@Override
+				public Iterator<Entry<Class<?>, TableModel>> iterator() {
+					final Iterator<Entry<Class<?>, TableModel>> it = snapshot.entrySet().iterator();
+					return new Iterator<Entry<Class<?>, TableModel>>() {
+						private Class<?> last;
+
+						@Override
+						public boolean hasNext() {
+							return it.hasNext();
+						}
+
+						@Override
+						public Entry<Class<?>, TableModel> next() {
+							Entry<Class<?>, TableModel> e = it.next();
+							last = e.getKey();
+							return e;
+						}
+
+						@Override
+						public void remove() {
+							DialectException.assureNotNull(last, "next() not called");
+							invalidate(last);
+							last = null;
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return snapshot.size();
+				}
+			};
+		}
+	}
+
+	/**
+	 * A Map view of table name index, for compatibility of
+	 * TableModelUtilsOfEntity.globalTableToEntityCache
+	 */
+	static final class TableMapView extends AbstractMap<String, Class<?>> {
+		@Override
+		public Class<?> get(Object key) {
+			return key instanceof String ? tableNameToEntityClass((String) key) : null;
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return get(key) != null;
+		}
+
+		@Override
+		public Set<Entry<String, Class<?>>> entrySet() {
+			Map<String, Class<?>> result = new HashMap<String, Class<?>>();
+			for (Entry<Class<?>, TableModel> e : snapshot().entrySet())
+				if (e.getValue().getTableName() != null)
+					result.put(e.getValue().getTableName().toLowerCase(), e.getKey());
+			return result.entrySet();
+		}
+	}
+}
@@ -15,22 +15,148 @@
  */
 package com.github.drinkjava2.jdialects;
 
+import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 import javax.sql.DataSource;
 
 /**
  * A tiny pure JDBC tool to access database
  * 
+ * Prepared statements of qryOneObject, qryFirstColumn, executeUpdate and
+ * executeBatch on a Connection are cached per connection (LRU) only after
+ * statement cache of this connection enabled by
+ * setStatementCacheSize(Connection, int), usually for a long living connection
+ * not got from a pool, use statement cache of pool or JDBC driver for others.
+ * Each connection's cache has its own lock, a cached statement is taken out of
+ * cache while it's used, so one statement is never used by 2 threads.
+ * Statements of execute (may be DDL) and DataSource methods (connection closed
+ * after each call) are not cached. Parameters are bound by typed setters chosen
+ * by parameter class. <br/>
+ * 
+ * A cache holds its connection, call clearStatementCache(Connection) before
+ * close the connection to release the cache, caches of closed connections
+ * forgot to be cleared are removed when caches of new connections are added.
  *
  * @author Yong Zhu
  * @version 1.0.0
  */
 public abstract class JdbcUtil {//NOSONAR 
 
+    /** Caches of closed connections are removed when cached connections reach this quantity */
+    private static final int MIN_PURGE_THRESHOLD = 16;
+
+    private static volatile int statementCacheSize = 32;
+
+    private static volatile int batchSize = 500;
+
+    /** Cached statements of each connection */
+    private static final ConcurrentHashMap<Connection, StatementCache> statementCaches = new ConcurrentHashMap<Connection, StatementCache>();
+
+    private static final AtomicInteger purgeThreshold = new AtomicInteger(MIN_PURGE_THRESHOLD);
+
+    private static final LongAdder prepareCount = new LongAdder();
+    private static final LongAdder statementCacheHitCount = new LongAdder();
+    private static final LongAdder executeCount = new LongAdder();
+    private static final LongAdder executeNanos = new LongAdder();
+    private static final LongAdder batchRowCount = new LongAdder();
+
+    private static final Map<Class<?>, Binder> binders = new IdentityHashMap<Class<?>, Binder>();
+
+    static {
+        binders.put(String.class, new Binder() {
+            @Override
+            void bind(PreparedStatement pst, int index, Object value) throws SQLException {
+                pst.setString(index, (String) value);
+            }
+        });
+        binders.put(Integer.class, new Binder() {
+            @Override
+            void bind(PreparedStatement pst, int index, Object value) throws SQLException {
+                pst.setInt(index, (Integer) value);
+            }
+        });
+        binders.put(Long.class, new Binder() {
+            @Override
+            void bind(PreparedStatement pst, int index, Object value) throws SQLException {
+                pst.setLong(index, (Long) value);
+            }
+        });
+        binders.put(Short.class, new Binder() {
+            @Override
+            void bind(PreparedStatement pst, int index, Object value) throws SQLException {
+                pst.setShort(index, (Short) value);
+            }
+        });
+        binders.put(Byte.class, new Binder() {
+            @Override
+            void bind(PreparedStatement pst, int index, Object value) throws SQLException {
+                pst.setByte(index, (Byte) value);
+            }
+        });
+        binders.put(Boolean.class, new Binder() {
+            @Override
+            void bind(PreparedStatement pst, int index, Object value) throws SQLException {
+                pst.setBoolean(index, (Boolean) value);
+            }
+        });
+        binders.put(Double.class, new Binder() {
+            @Override
+            void bind(PreparedStatement pst, int index, Object value) throws SQLException {
+                pst.setDouble(index, (Double) value);
+            }
+        });
+        binders.put(Float.class, new Binder() {
+            @Override
+            void bind(PreparedStatement pst, int index, Object value) throws SQLException {
+                pst.setFloat(index, (Float) value);
+            }
+        });
+        binders.put(BigDecimal.class, new Binder() {
+            @Override
+            void bind(PreparedStatement pst, int index, Object value) throws SQLException {
+                pst.setBigDecimal(index, (BigDecimal) value);
+            }
+        });
+        binders.put(byte[].class, new Binder() {
+            @Override
+            void bind(PreparedStatement pst, int index, Object value) throws SQLException {
+                pst.setBytes(index, (byte[]) value);
+            }
+        });
+        binders.put(Timestamp.class, new Binder() {
+            @Override
+            void bind(PreparedStatement pst, int index, Object value) throws SQLException {
+                pst.setTimestamp(index, (Timestamp) value);
+            }
+        });
+        binders.put(java.sql.Date.class, new Binder() {
+            @Override
+            void bind(PreparedStatement pst, int index, Object value) throws SQLException {
+                pst.setDate(index, (java.sql.Date) value);
+            }
+        });
+        binders.put(java.sql.Time.class, new Binder() {
+            @Override
+            void bind(PreparedStatement pst, int index, Object value) throws SQLException {
+                pst.setTime(index, (java.sql.Time) value);
+            }
+        });
+    }
+
     /**
      * Return sql query result object in first row first column
      * @param Connection
@@ -40,25 +166,51 @@ public abstract class JdbcUtil {//NOSONAR
      */
     @SuppressWarnings("unchecked")
     public static <T> T qryOneObject(Connection conneciton, String sql, Object... params) {
+        PreparedStatement pst = null;
+        boolean ok = false;
         ResultSet rs = null;
-        try (PreparedStatement pst = conneciton.prepareStatement(sql)) {
-            int i = 1;
-            for (Object obj : params)
-                pst.setObject(i++, obj);
+        long start = System.nanoTime();
+        try {
+            pst = borrowStatement(conneciton, sql);
+            bindParams(pst, params);
             rs = pst.executeQuery();
-            if (rs.next())
-                return (T) rs.getObject(1);
-            else
-                return null;
+            T result = rs.next() ? (T) rs.getObject(1) : null;
+            ok = true;
+            return result;
         } catch (SQLException e) {
             throw new RuntimeException(e);
         } finally {
-            if (rs != null)
-                try {
-                    rs.close();
-                } catch (SQLException e) {
-                    //eat exception
-                }
+            closeResultSet(rs);
+            returnStatement(conneciton, sql, pst, ok, start);
+        }
+    }
+
+    /**
+     * Return sql query result objects in first column of all rows
+     * @param Connection
+     * @param sql
+     * @param params
+     * @return objects in first column
+     */
+    public static List<Object> qryFirstColumn(Connection conneciton, String sql, Object... params) {
+        PreparedStatement pst = null;
+        boolean ok = false;
+        ResultSet rs = null;
+        long start = System.nanoTime();
+        try {
+            pst = borrowStatement(conneciton, sql);
+            bindParams(pst, params);
+            rs = pst.executeQuery();
+            List<Object> result = new ArrayList<Object>();
+            while (rs.next())
+                result.add(rs.getObject(1));
+            ok = true;
+            return result;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        } finally {
+            closeResultSet(rs);
+            returnStatement(conneciton, sql, pst, ok, start);
         }
     }
 
@@ -70,14 +222,94 @@ public abstract class JdbcUtil {//NOSONAR
      * @return rows quantity be affected
      */
     public static int execute(Connection connection, String sql, Object... params) {
+        long start = System.nanoTime();
         try (PreparedStatement pst = connection.prepareStatement(sql)) {
-            int i = 1;
-            for (Object obj : params)
-                pst.setObject(i++, obj);
+            prepareCount.increment();
+            bindParams(pst, params);
             pst.execute();
             return 1;
         } catch (SQLException e) {
             throw new RuntimeException(e);
+        } finally {
+            recordExecute(start);
+        }
+    }
+
+    /**
+     * Execute a insert, update or delete sql, return real rows quantity be affected
+     * @param connection
+     * @param sql
+     * @param params
+     * @return rows quantity be affected
+     */
+    public static int executeUpdate(Connection connection, String sql, Object... params) {
+        PreparedStatement pst = null;
+        boolean ok = false;
+        long start = System.nanoTime();
+        try {
+            pst = borrowStatement(connection, sql);
+            bindParams(pst, params);
+            int result = pst.executeUpdate();
+            ok = true;
+            return result;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        } finally {
+            returnStatement(connection, sql, pst, ok, start);
+        }
+    }
+
+    /**
+     * Execute a insert, update or delete sql for each parameters array by JDBC
+     * batch, each batchSize (see setBatchSize) rows are sent as one batch
+     * @param connection
+     * @param sql
+     * @param paramsList parameters of each row
+     * @return rows quantity be affected of each row, same as Statement.executeBatch
+     */
+    public static int[] executeBatch(Connection connection, String sql, List<Object[]> paramsList) {
+        return executeBatch(connection, sql, paramsList, batchSize);
+    }
+
+    /**
+     * Execute a insert, update or delete sql for each parameters array by JDBC
+     * batch, each chunkSize rows are sent as one batch
+     * @param connection
+     * @param sql
+     * @param paramsList parameters of each row
+     * @param chunkSize max rows of one batch
+     * @return rows quantity be affected of each row, same as Statement.executeBatch
+     */
+    public static int[] executeBatch(Connection connection, String sql, List<Object[]> paramsList, int chunkSize) {
+        if (chunkSize < 1)
+            throw new DialectException("Batch chunkSize should be greater than 0");
+        int[] result = new int[paramsList.size()];
+        if (paramsList.isEmpty())
+            return result;
+        PreparedStatement pst = null;
+        boolean ok = false;
+        long start = System.nanoTime();
+        try {
+            pst = borrowStatement(connection, sql);
+            int done = 0;
+            int inBatch = 0;
+            for (Object[] params : paramsList) {
+                bindParams(pst, params);
+                pst.addBatch();
+                if (++inBatch == chunkSize || done + inBatch == result.length) {
+                    int[] counts = pst.executeBatch();
+                    System.arraycopy(counts, 0, result, done, Math.min(counts.length, inBatch));
+                    done += inBatch;
+                    inBatch = 0;
+                }
+            }
+            batchRowCount.add(result.length);
+            ok = true;
+            return result;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        } finally {
+            returnStatement(connection, sql, pst, ok, start);
         }
     }
 
@@ -91,11 +323,11 @@ public abstract class JdbcUtil {//NOSONAR
     @SuppressWarnings("unchecked")
     public static <T> T qryOneObject(DataSource dataSource, String sql, Object... params) {
         ResultSet rs = null;
+        long start = System.nanoTime();
         try (Connection con = dataSource.getConnection(); //
                 PreparedStatement pst = con.prepareStatement(sql);) {
-            int i = 1;
-            for (Object obj : params)
-                pst.setObject(i++, obj);
+            prepareCount.increment();
+            bindParams(pst, params);
             rs = pst.executeQuery();// NOSONAR
             if (rs.next())
                 return (T) rs.getObject(1);
@@ -104,12 +336,8 @@ public abstract class JdbcUtil {//NOSONAR
         } catch (SQLException e) {
             throw new RuntimeException(e);
         } finally {
-            if (rs != null)
-                try {
-                    rs.close();
-                } catch (SQLException e) {
-                    //eat exception
-                }
+            closeResultSet(rs);
+            recordExecute(start);
         }
     }
 
@@ -121,16 +349,291 @@ public abstract class JdbcUtil {//NOSONAR
      * @return rows quantity be affected
      */
     public static int execute(DataSource dataSource, String sql, Object... params) {
+        long start = System.nanoTime();
         try (Connection con = dataSource.getConnection(); //
                 PreparedStatement pst = con.prepareStatement(sql);) {
-            int i = 1;
-            for (Object obj : params)
-                pst.setObject(i++, obj);
+            prepareCount.increment();
+            bindParams(pst, params);
             pst.execute();
             return 1;
         } catch (SQLException e) {
             throw new RuntimeException(e);
+        } finally {
+            recordExecute(start);
+        }
+    }
+
+    // ============== statement cache, binders and statistics ==============
+
+    /**
+     * Set max cached prepared statements of each connection, it limits the size
+     * set by setStatementCacheSize(Connection, int), 0 means disable statement
+     * cache and close all cached statements, default is 32
+     */
+    public static void setStatementCacheSize(int size) {
+        if (size < 0)
+            throw new DialectException("Statement cache size can not be negative");
+        statementCacheSize = size;
+        if (size == 0)
+            clearStatementCache();
+    }
+
+    public static int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    /**
+     * Enable statement cache of a connection and set its max cached prepared
+     * statements, 0 means disable statement cache of this connection and close
+     * its cached statements. If statement cache disabled by
+     * setStatementCacheSize(0), no statement is cached
+     */
+    public static void setStatementCacheSize(Connection connection, int size) {
+        if (size < 0)
+            throw new DialectException("Statement cache size can not be negative");
+        if (size == 0) {
+            clearStatementCache(connection);
+            return;
+        }
+        StatementCache cache = getOrCreateCache(connection);
+        List<PreparedStatement> toClose = new ArrayList<PreparedStatement>();
+        synchronized (cache) {
+            cache.maxSize = size;
+            cache.evict(size, toClose);
+        }
+        closeStatements(toClose);
+    }
+
+    /** Set default max rows of one JDBC batch of executeBatch, default is 500 */
+    public static void setBatchSize(int size) {
+        if (size < 1)
+            throw new DialectException("Batch size should be greater than 0");
+        batchSize = size;
+    }
+
+    public static int getBatchSize() {
+        return batchSize;
+    }
+
+    /** Close and remove all cached statements */
+    public static void clearStatementCache() {
+        for (Connection con : statementCaches.keySet())
+            clearStatementCache(con);
+    }
+
+    /**
+     * Close and remove cached statements of a connection, call it before close a
+     * connection if want release statements immediately
+     */
+    public static void clearStatementCache(Connection connection) {
+        StatementCache cache = statementCaches.remove(connection);
+        if (cache != null)
+            closeStatements(cache.detach());
+    }
+
+    /** Return quantity of statements prepared */
+    public static long getPrepareCount() {
+        return prepareCount.sum();
+    }
+
+    /** Return quantity of statements got from statement cache */
+    public static long getStatementCacheHitCount() {
+        return statementCacheHitCount.sum();
+    }
+
+    /** Return quantity of SQL executions, a executeBatch call counted as 1 */
+    public static long getExecuteCount() {
+        return executeCount.sum();
+    }
+
+    /** Return total execution time in nanoseconds, include prepare and bind time */
+    public static long getExecuteNanos() {
+        return executeNanos.sum();
+    }
+
+    /** Return total rows executed by executeBatch */
+    public static long getBatchRowCount() {
+        return batchRowCount.sum();
+    }
+
+    public static void resetStatistics() {
+        prepareCount.reset();
+        statementCacheHitCount.reset();
+        executeCount.reset();
+        executeNanos.reset();
+        batchRowCount.reset();
+    }
+
+    private static void bindParams(PreparedStatement pst, Object[] params) throws SQLException {
+        int i = 1;
+        for (Object obj : params) {
+            Binder binder = obj == null ? null : binders.get(obj.getClass());
+            if (binder == null)
+                pst.setObject(i++, obj);
+            else
+                binder.bind(pst, i++, obj);
+        }
+    }
+
+    /** Take a statement out of connection's cache, or prepare a new one */
+    private static PreparedStatement borrowStatement(Connection con, String sql) throws SQLException {
+        StatementCache cache = statementCacheSize > 0 ? statementCaches.get(con) : null;
+        if (cache != null) {
+            PreparedStatement pst;
+            synchronized (cache) {
+                pst = cache.statements.remove(sql);
+            }
+            if (pst != null) {
+                if (!isClosed(pst)) {
+                    statementCacheHitCount.increment();
+                    return pst;
+                }
+            }
+        }
+        prepareCount.increment();
+        return con.prepareStatement(sql);
+    }
+
+    /**
+     * Put statement back to connection's cache, if execution failed or statement
+     * cache is full or disabled, close statement
+     */
+    private static void returnStatement(Connection con, String sql, PreparedStatement pst, boolean ok, long start) {
+        recordExecute(start);
+        if (pst == null)
+            return;
+        int size = statementCacheSize;
+        if (!ok || size == 0) {
+            closeStatement(pst);
+            return;
+        }
+        try {
+            pst.clearParameters();
+        } catch (SQLException e) {
+            closeStatement(pst);
+            return;
+        }
+        StatementCache cache = statementCaches.get(con);
+        if (cache == null) {
+            closeStatement(pst);
+            return;
         }
+        List<PreparedStatement> toClose = new ArrayList<PreparedStatement>();
+        synchronized (cache) {
+            int max = Math.min(cache.maxSize, size);
+            if (cache.removed || max == 0 || cache.statements.containsKey(sql))
+                toClose.add(pst); // cache cleared, disabled, or another same statement returned already
+            else {
+                cache.statements.put(sql, pst);
+                cache.evict(max, toClose);
+            }
+        }
+        closeStatements(toClose);
+    }
+
+    private static StatementCache getOrCreateCache(Connection con) {
+        StatementCache cache = statementCaches.get(con);
+        if (cache != null)
+            return cache;
+        cache = new StatementCache();
+        StatementCache old = statementCaches.putIfAbsent(con, cache);
+        if (old != null)
+            return old;
+        if (statementCaches.size() >= purgeThreshold.get())
+            purgeClosedConnections();
+        return cache;
+    }
+
+    /** Remove caches of closed connections, next purge happens when cached connections doubled */
+    private static void purgeClosedConnections() {
+        for (Map.Entry<Connection, StatementCache> entry : statementCaches.entrySet()) {
+            boolean closed;
+            try {
+                closed = entry.getKey().isClosed();
+            } catch (SQLException e) {
+                closed = true;
+            }
+            if (closed && statementCaches.remove(entry.getKey(), entry.getValue()))
+                closeStatements(entry.getValue().detach());
+        }
+        purgeThreshold.set(Math.max(MIN_PURGE_THRESHOLD, statementCaches.size() * 2));
+    }
+
+    /** Return quantity of connections have statement cache, for test */
+    static int getStatementCacheConnectionCount() {
+        return statementCaches.size();
+    }
+
+    private static boolean isClosed(PreparedStatement pst) {
+        try {
+            return pst.isClosed();
+        } catch (SQLException e) {
+            return true;
+        } catch (AbstractMethodError e) {// NOSONAR old JDBC driver
+            return false;
+        }
+    }
+
+    private static void recordExecute(long start) {
+        executeCount.increment();
+        executeNanos.add(System.nanoTime() - start);
+    }
+
+    private static void closeResultSet(ResultSet rs) {
+        if (rs != null)
+            try {
+                rs.close();
+            } catch (SQLException e) {
+                //eat exception
+            }
+    }
+
+    private static void closeStatement(PreparedStatement pst) {
+        try {
+            pst.close();
+        } catch (SQLException e) {
+            //eat exception
+        }
+    }
+
+    private static void closeStatements(List<PreparedStatement> statements) {
+        for (PreparedStatement pst : statements)
+            closeStatement(pst);
+    }
+
+    /** Cached statements of one connection, guarded by itself */
+    private static class StatementCache {
+        /** Key is SQL, access ordered */
+        final LinkedHashMap<String, PreparedStatement> statements = new LinkedHashMap<String, PreparedStatement>(16,
+                0.75f, true);
+
+        /** Max size set by setStatementCacheSize(Connection, int) */
+        int maxSize;
+
+        /** True if removed from statementCaches, statements returned later should be closed */
+        boolean removed;
+
+        /** Move least recently used statements to toClose until size not greater than max */
+        void evict(int max, List<PreparedStatement> toClose) {
+            Iterator<PreparedStatement> it = statements.values().iterator();
+            while (statements.size() > max) {
+                toClose.add(it.next());
+                it.remove();
+            }
+        }
+
+        /** Mark removed and return all statements, caller should close them */
+        synchronized List<PreparedStatement> detach() {
+            removed = true;
+            List<PreparedStatement> result = new ArrayList<PreparedStatement>(statements.values());
+            statements.clear();
+            return result;
+        }
+    }
+
+    /** Bind a parameter by typed setter */
+    private abstract static class Binder {
+        abstract void bind(PreparedStatement pst, int index, Object value) throws SQLException;
     }
 
 }
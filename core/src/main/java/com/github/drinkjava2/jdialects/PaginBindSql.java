@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS
+ * OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.github.drinkjava2.jdialects;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Result of Dialect.paginBind method, it holds a pagination SQL which use "?"
+ * placeholders instead of real skip rows, page size and total rows numbers, so
+ * one query has only one SQL text for all pages, and can be cached by
+ * database's or connection pool's PreparedStatement cache. <br/>
+ *
+ * Usage: <br/>
+ * PaginBindSql p = dialect.paginBind("select * from users where age>?");<br/>
+ * PreparedStatement ps = con.prepareStatement(p.getSql());<br/>
+ * p.bind(ps, pageNumber, pageSize, 18);<br/>
+ *
+ * Note: some databases (for example Informix) do not allow use "?" in their
+ * pagination clause, for these databases use Dialect.pagin method instead.
+ *
+ * @author Yong Zhu
+ * @since 5.0.13
+ */
+public class PaginBindSql {
+	private final String sql;
+
+	/** The pagination parameter types in order, see DialectPaginationPlan */
+	private final int[] slots;
+
+	/** How many pagination parameters are before the SQL's own parameters */
+	private final int slotsBeforeSql;
+
+	protected PaginBindSql(String sql, int[] slots, int slotsBeforeSql) {
+		this.sql = sql;
+		this.slots = slots;
+		this.slotsBeforeSql = slotsBeforeSql;
+	}
+
+	/** Return the pagination SQL with "?" placeholders */
+	public String getSql() {
+		return sql;
+	}
+
+	/** Return how many pagination parameters in SQL */
+	public int getPaginParamCount() {
+		return slots.length;
+	}
+
+	/** Return pagination parameters only, in the order of they be used in SQL */
+	public Object[] getPaginParams(int pageNumber, int pageSize) {
+		Object[] result = new Object[slots.length];
+		for (int i = 0; i < slots.length; i++)
+			result[i] = slotValue(slots[i], pageNumber, pageSize);
+		return result;
+	}
+
+	/**
+	 * Return all parameters of SQL, pagination parameters be merged with the
+	 * original SQL's own parameters at right positions
+	 */
+	public Object[] getParams(int pageNumber, int pageSize, Object... sqlParams) {
+		int sqlParamCount = sqlParams == null ? 0 : sqlParams.length;
+		Object[] result = new Object[slots.length + sqlParamCount];
+		int index = 0;
+		for (int i = 0; i < slotsBeforeSql; i++)
+			result[index++] = slotValue(slots[i], pageNumber, pageSize);
+		for (int i = 0; i < sqlParamCount; i++)
+			result[index++] = sqlParams[i];// NOSONAR
+		for (int i = slotsBeforeSql; i < slots.length; i++)
+			result[index++] = slotValue(slots[i], pageNumber, pageSize);
+		return result;
+	}
+
+	/**
+	 * Bind pagination parameters and SQL's own parameters to a PreparedStatement
+	 * which prepared by getSql() method
+	 */
+	public void bind(PreparedStatement ps, int pageNumber, int pageSize, Object... sqlParams) {
+		int sqlParamCount = sqlParams == null ? 0 : sqlParams.length;
+		int index = 1;
+		try {
+			for (int i = 0; i < slotsBeforeSql; i++)
+				ps.setInt(index++, slotValue(slots[i], pageNumber, pageSize));
+			for (int i = 0; i < sqlParamCount; i++)
+				ps.setObject(index++, sqlParams[i]);// NOSONAR
+			for (int i = slotsBeforeSql; i < slots.length; i++)
+				ps.setInt(index++, slotValue(slots[i], pageNumber, pageSize));
+		} catch (SQLException e) {
+			throw new DialectException("Fail to bind parameter " + index + " of SQL: " + sql, e);
+		}
+	}
+
+	private static int slotValue(int slot, int pageNumber, int pageSize) {
+		switch (slot) {
+		case DialectPaginationPlan.SKIP_ROWS:
+			return (pageNumber - 1) * pageSize;
+		case DialectPaginationPlan.PAGESIZE:
+			return pageSize;
+		default:
+			return pageNumber * pageSize;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return sql;
+	}
+}
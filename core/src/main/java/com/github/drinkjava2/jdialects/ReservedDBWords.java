@@ -11,8 +11,11 @@
  */
 package com.github.drinkjava2.jdialects;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 
 /**
  * Collect reserved words of all databases, keywords not included
@@ -283,19 +286,41 @@ public class ReservedDBWords {
 			"SQLCODE", "SQLSTATE", "START", "SUM", "TABLE", "THEN", "TIME", "TIMESTAMP", "TO", "TRAILING", "TRIGGER",
 			"TRIM", "UNION", "UNIQUE", "UPDATE", "UPPER", "USER", "USING", "VALUE", "VALUES", "VARCHAR", "VARIABLE",
 			"VARYING", "VIEW", "WHEN", "WHERE", "WHILE", "WITH", "YEAR" };
-	private static final Map<String, String> RESERVED_WORDS = new HashMap<String, String>();
+	/** Database names in RESERV_WD, index is the bit of database in masks */
+	private static final List<String> DATABASES = new ArrayList<String>();
+
+	/** Bit of ANSI-SQL, a ANSI-SQL reserved word is reserved for all dialects */
+	private static long ansiMask = 0;
+
+	/** Case insensitive index of all reserved words, no need upper case word to look up */
+	private static final CaseInsensitiveIndex<ReservedWord> RESERVED_WORDS;
 
 	private ReservedDBWords() {
 		// hide default constructor
 	}
 
 	static {
+		Map<String, String> words = new HashMap<String, String>();
 		String db = null;
 		for (String word : RESERV_WD)
-			if (word.startsWith("#"))
+			if (word.startsWith("#")) {
 				db = word.substring(1);
-			else
-				addWord(word, db);
+				if (!DATABASES.contains(db))
+					DATABASES.add(db);
+			} else
+				addWord(words, word, db);
+		for (int i = 0; i < DATABASES.size(); i++)
+			if (DATABASES.get(i).toUpperCase().contains("ANSI"))
+				ansiMask |= 1L << i;
+
+		Map<String, ReservedWord> index = new HashMap<String, ReservedWord>();
+		for (Entry<String, String> entry : words.entrySet()) {
+			long mask = 0;
+			for (String database : entry.getValue().split("/"))
+				mask |= 1L << DATABASES.indexOf(database);
+			index.put(entry.getKey(), new ReservedWord(entry.getValue(), mask));
+		}
+		RESERVED_WORDS = new CaseInsensitiveIndex<ReservedWord>(index);
 	}
 
 	/**
@@ -304,38 +329,79 @@ public class ReservedDBWords {
 	 * @return false:not reserved word. true:reserved by dialect or ANSI-SQL
 	 */
 	public static boolean isReservedWord(Dialect dialect, String word) {
-		if (!isReservedWord(word))
+		if (StrUtils.isEmpty(word))
 			return false;
-		String fitDatabases = RESERVED_WORDS.get(word.toUpperCase()).toUpperCase();
-		if (fitDatabases.contains("ANSI"))
-			return true;
-		String dia = dialect.toString().replace("Dialect", "").toUpperCase();
-		if (dia.length() >= 4)
-			dia = dia.substring(0, 4);// only compare first 4 letters
-		return (fitDatabases.contains(dia));
+		ReservedWord reserved = RESERVED_WORDS.get(word);
+		if (reserved == null)
+			return false;
+		return (reserved.mask & (ansiMask | getDialectMask(dialect))) != 0;
 	}
 
 	/**
 	 * Check if is a reserved word of any database
 	 */
 	public static boolean isReservedWord(String word) {
-		return !StrUtils.isEmpty(word) && RESERVED_WORDS.containsKey(word.toUpperCase());
+		return !StrUtils.isEmpty(word) && RESERVED_WORDS.containsKey(word, 0, word.length());
 	}
 
 	/**
 	 * Return database name of given reserved word
 	 */
 	public static String reservedForDB(String word) {
-		return RESERVED_WORDS.get(word.toUpperCase());
+		ReservedWord reserved = RESERVED_WORDS.get(word);
+		return reserved == null ? null : reserved.databases;
 	}
 
-	private static void addWord(String word, String databaseName) {
-		String value = RESERVED_WORDS.get(word.toUpperCase());
+	/**
+	 * Return databases mask of dialect, a database belongs to dialect if its name
+	 * includes first 4 letters of dialect name (without "Dialect"). The mask is
+	 * cached in dialect, re-calculated if dialect's name changed
+	 */
+	protected static long getDialectMask(Dialect dialect) {
+		DialectMask cached = dialect.reservedWordsMask;
+		String name = dialect.toString();
+		if (cached != null && cached.name == name)// NOSONAR
+			return cached.mask;
+		String dia = name.replace("Dialect", "").toUpperCase();
+		if (dia.length() >= 4)
+			dia = dia.substring(0, 4);// only compare first 4 letters
+		long mask = 0;
+		for (int i = 0; i < DATABASES.size(); i++)
+			if (DATABASES.get(i).toUpperCase().contains(dia))
+				mask |= 1L << i;
+		dialect.reservedWordsMask = new DialectMask(name, mask);
+		return mask;
+	}
+
+	private static void addWord(Map<String, String> words, String word, String databaseName) {
+		String value = words.get(word.toUpperCase());
 		if (value == null || value.length() == 0)
-			RESERVED_WORDS.put(word.toUpperCase(), databaseName);
+			words.put(word.toUpperCase(), databaseName);
 		else {
 			if (value.indexOf(databaseName) < 0)
-				RESERVED_WORDS.put(word.toUpperCase(), value + "/" + databaseName);
+				words.put(word.toUpperCase(), value + "/" + databaseName);
+		}
+	}
+
+	/** A reserved word's databases and databases mask */
+	private static class ReservedWord {
+		final String databases;
+		final long mask;
+
+		ReservedWord(String databases, long mask) {
+			this.databases = databases;
+			this.mask = mask;
+		}
+	}
+
+	/** Databases mask of a dialect, see getDialectMask method */
+	protected static class DialectMask {
+		final String name;
+		final long mask;
+
+		DialectMask(String name, long mask) {
+			this.name = name;
+			this.mask = mask;
 		}
 	}
 
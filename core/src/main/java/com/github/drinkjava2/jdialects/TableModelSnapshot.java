@@ -0,0 +1,688 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS
+ * OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.github.drinkjava2.jdialects;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import com.github.drinkjava2.jdialects.annotation.jpa.GenerationType;
+import com.github.drinkjava2.jdialects.id.IdGenerator;
+import com.github.drinkjava2.jdialects.id.IdentityIdGenerator;
+import com.github.drinkjava2.jdialects.id.SequenceIdGenerator;
+import com.github.drinkjava2.jdialects.id.SortedUUIDGenerator;
+import com.github.drinkjava2.jdialects.id.TableIdGenerator;
+import com.github.drinkjava2.jdialects.id.TimeOrderedUUIDGenerator;
+import com.github.drinkjava2.jdialects.id.UUIDAnyGenerator;
+import com.github.drinkjava2.jdialects.model.ColumnModel;
+import com.github.drinkjava2.jdialects.model.FKeyModel;
+import com.github.drinkjava2.jdialects.model.IndexModel;
+import com.github.drinkjava2.jdialects.model.TableModel;
+import com.github.drinkjava2.jdialects.model.UniqueModel;
+
+/**
+ * A compact binary snapshot of TableModels (columns, foreign keys, indexes,
+ * unique constraints and IdGenerators), used to skip reflective model building
+ * at application startup. A snapshot is written once and read back through a
+ * memory mapped file, it is only accepted when its fingerprint equals the
+ * expected one, usually fingerprint(entityClasses) or a schema version String.
+ *
+ * File format: magic, format version, fingerprint, body length, body CRC32,
+ * body. Strings in body are pooled, a repeated String is stored as a reference.
+ *
+ * @author Yong Zhu
+ * @since 5.0.13
+ */
+public abstract class TableModelSnapshot {// NOSONAR
+	private static final int MAGIC = 0x4A444D53; // "JDMS"
+
+	/** Change it if snapshot format changed, old snapshot files will be ignored */
+	private static final int FORMAT_VERSION = 2;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static final byte GEN_SEQUENCE = 1;
+	private static final byte GEN_TABLE = 2;
+	private static final byte GEN_SORTED_UUID = 3;
+	private static final byte GEN_UUID_ANY = 4;
+	private static final byte GEN_IDENTITY = 5;
+	private static final byte GEN_SHARED = 6;
+	private static final byte GEN_TIME_ORDERED_UUID = 7;
+
+	private static final byte CONVERTER_NULL = 0;
+	private static final byte CONVERTER_CLASS = 1;
+	private static final byte CONVERTER_NAME = 2;
+
+	/** Classes build models from entity classes, a new jDialects version may build models differently */
+	private static final Class<?>[] MODEL_BUILDER_CLASSES = { TableModelUtilsOfEntity.class, TypeUtils.class,
+			TableModelSnapshot.class };
+
+	/**
+	 * Return a fingerprint of entity classes, it changes if any byte code of these
+	 * classes or their super classes changed, or global NamingConversion changed,
+	 * or jDialects version (or its model building classes) changed
+	 */
+	public static String fingerprint(Class<?>... entityClasses) {
+		MessageDigest md;
+		try {
+			md = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new DialectException(e);
+		}
+		md.update(("jDialects snapshot " + FORMAT_VERSION).getBytes(UTF8));
+		Package pkg = TableModelSnapshot.class.getPackage();
+		md.update(("|" + (pkg == null ? "" : pkg.getImplementationVersion())).getBytes(UTF8));
+		for (Class<?> c : MODEL_BUILDER_CLASSES)
+			md.update(classBytes(c));
+		NamingConversion naming = Dialect.getGlobalNamingConversion();
+		md.update(("|" + (naming == null ? "" : naming.getClass().getName())).getBytes(UTF8));
+		for (Class<?> entityClass : entityClasses)
+			for (Class<?> c = entityClass; c != null && c != Object.class; c = c.getSuperclass()) {
+				md.update(("|" + c.getName() + "|").getBytes(UTF8));
+				md.update(classBytes(c));
+			}
+		StringBuilder sb = new StringBuilder();
+		for (byte b : md.digest())
+			sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		return sb.toString();
+	}
+
+	/** Read the .class file content of given class, return empty array if not found */
+	private static byte[] classBytes(Class<?> clazz) {
+		String name = clazz.getName();
+		InputStream in = clazz.getResourceAsStream(name.substring(name.lastIndexOf('.') + 1) + ".class");
+		if (in == null)
+			return new byte[0];
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buf = new byte[4096];
+			int len;
+			while ((len = in.read(buf)) > 0)
+				out.write(buf, 0, len);
+			return out.toByteArray();
+		} catch (IOException e) {
+			throw new DialectException(e);
+		} finally {
+			try {
+				in.close();
+			} catch (IOException e) {
+				DialectException.eatException(e);
+			}
+		}
+	}
+
+	/**
+	 * Write TableModels into snapshot file with given fingerprint, the file is
+	 * written into a temp file first then moved to target, so a reader never see
+	 * a half written snapshot. Only built-in IdGenerators can be saved, others
+	 * cause a DialectException
+	 */
+	public static void write(File file, String fingerprint, TableModel... models) {
+		DialectException.assureNotNull(file, "Snapshot file can not be null");
+		DialectException.assureNotNull(fingerprint, "Snapshot fingerprint can not be null");
+		Out body = new Out();
+		body.writeVarInt(models.length);
+		for (TableModel model : models)
+			writeTable(body, model);
+		byte[] bodyBytes = body.toByteArray();
+		CRC32 crc = new CRC32();
+		crc.update(bodyBytes, 0, bodyBytes.length);
+		byte[] fp = fingerprint.getBytes(UTF8);
+		ByteBuffer head = ByteBuffer.allocate(20 + fp.length);
+		head.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(fp.length).put(fp);
+		head.putInt(bodyBytes.length).putInt((int) crc.getValue());
+
+		File dir = file.getAbsoluteFile().getParentFile();
+		if (!dir.exists() && !dir.mkdirs())
+			throw new DialectException("Can not create folder " + dir);
+		File temp = null;
+		try {
+			temp = File.createTempFile(file.getName(), ".tmp", dir);
+			FileOutputStream out = new FileOutputStream(temp);
+			try {
+				out.write(head.array());
+				out.write(bodyBytes);
+				out.getFD().sync();
+			} finally {
+				out.close();
+			}
+			try {
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			temp = null;
+		} catch (IOException e) {
+			throw new DialectException(e);
+		} finally {
+			if (temp != null && !temp.delete())
+				temp.deleteOnExit();
+		}
+	}
+
+	/**
+	 * Read read-only TableModels from snapshot file, return null if file not exist,
+	 * or its format version or fingerprint does not match, or it is corrupted, in
+	 * these cases caller should build models again and write a new snapshot
+	 */
+	public static TableModel[] read(File file, String fingerprint) {
+		return read(file, fingerprint, new HashMap<String, Class<?>>());
+	}
+
+	private static TableModel[] read(File file, String fingerprint, Map<String, Class<?>> knownClasses) {
+		DialectException.assureNotNull(fingerprint, "Snapshot fingerprint can not be null");
+		if (file == null || !file.isFile())
+			return null;
+		ByteBuffer bodyBuf;
+		int bodyCrc;
+		try {
+			FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+			try {
+				// check header by plain read, body is only mapped if header matches, so a
+				// snapshot to be replaced is not mapped (a mapped file can not be replaced on Windows)
+				long size = channel.size();
+				ByteBuffer head = readFully(channel, 12);
+				if (head == null || head.getInt() != MAGIC || head.getInt() != FORMAT_VERSION)
+					return null;
+				int fpLength = head.getInt();
+				if (fpLength < 0 || fpLength > size - 20)
+					return null;
+				ByteBuffer fp = readFully(channel, fpLength + 8);
+				if (fp == null || !fingerprint.equals(new String(fp.array(), 0, fpLength, UTF8)))
+					return null;
+				fp.position(fpLength);
+				int bodyLength = fp.getInt();
+				bodyCrc = fp.getInt();
+				long bodyStart = channel.position();
+				if (bodyLength != size - bodyStart)
+					return null;
+				// decode from mapped file directly, no copy
+				bodyBuf = channel.map(FileChannel.MapMode.READ_ONLY, bodyStart, bodyLength);
+			} finally {
+				channel.close();
+			}
+		} catch (IOException e) {
+			throw new DialectException(e);
+		}
+		try {
+			CRC32 crc = new CRC32();
+			crc.update(bodyBuf.duplicate());
+			if ((int) crc.getValue() != bodyCrc)
+				return null;
+			In body = new In(bodyBuf, knownClasses);
+			TableModel[] models = new TableModel[body.readVarInt()];
+			for (int i = 0; i < models.length; i++) {
+				models[i] = readTable(body);
+				if (models[i] == null)
+					return null;
+			}
+			return models;
+		} catch (RuntimeException e) {// NOSONAR corrupted, for example buffer underflow, negative size or enum not found
+			return null;
+		}
+	}
+
+	/** Read given count of bytes from channel, return null if reached end of file */
+	private static ByteBuffer readFully(FileChannel channel, int count) throws IOException {
+		ByteBuffer buf = ByteBuffer.allocate(count);
+		while (buf.hasRemaining())
+			if (channel.read(buf) < 0)
+				return null;
+		buf.flip();
+		return buf;
+	}
+
+	/**
+	 * Return read-only TableModels of entity classes, load them from snapshot file
+	 * if it matches fingerprint(entityClasses), otherwise build them from entity
+	 * classes and write a new snapshot file. Loaded models are also put into the
+	 * global model cache, so later entity2ReadOnlyModel calls use them directly
+	 */
+	public static TableModel[] entity2ReadOnlyModels(File file, Class<?>... entityClasses) {
+		String fingerprint = fingerprint(entityClasses);
+		Map<String, Class<?>> knownClasses = new HashMap<String, Class<?>>();
+		for (Class<?> clazz : entityClasses)
+			knownClasses.put(clazz.getName(), clazz);
+		TableModel[] models = read(file, fingerprint, knownClasses);
+		if (models == null || models.length != entityClasses.length) {
+			models = TableModelUtilsOfEntity.entity2ReadOnlyModel(entityClasses);
+			write(file, fingerprint, models);
+			return models;
+		}
+		for (int i = 0; i < models.length; i++) {
+			TableModel cached = EntityModelRegistry.get(entityClasses[i]);
+			if (cached != null)
+				models[i] = cached;
+			else
+				EntityModelRegistry.put(entityClasses[i], models[i]);
+		}
+		return models;
+	}
+
+	private static void writeTable(Out out, TableModel model) {
+		out.writeStr(model.getTableName());
+		out.writeStr(model.getCheck());
+		out.writeStr(model.getComment());
+		out.writeStr(model.getEngineTail());
+		out.writeStr(model.getTableTail());
+		out.writeStr(model.getEntityClass() == null ? null : model.getEntityClass().getName());
+
+		List<ColumnModel> columns = model.getColumns();
+		out.writeVarInt(columns.size());
+		for (ColumnModel col : columns)
+			writeColumn(out, model, col);
+
+		List<IdGenerator> idGenerators = model.getIdGenerators();
+		out.writeVarInt(idGenerators.size());
+		for (IdGenerator gen : idGenerators)
+			writeIdGenerator(out, model, gen);
+
+		List<FKeyModel> fkeys = model.getFkeyConstraints();
+		out.writeVarInt(fkeys.size());
+		for (FKeyModel fkey : fkeys) {
+			out.writeStr(fkey.getFkeyName());
+			out.writeStr(fkey.getTableName());
+			List<String> columnNames = fkey.getColumnNames();
+			out.writeStrs(columnNames == null ? null : columnNames.toArray(new String[columnNames.size()]));
+			out.writeStrs(fkey.getRefTableAndColumns());
+			out.writeStr(fkey.getFkeyTail());
+			out.writeBool(fkey.getDdl());
+		}
+
+		List<IndexModel> indexes = model.getIndexConsts();
+		out.writeVarInt(indexes.size());
+		for (IndexModel index : indexes) {
+			out.writeStr(index.getName());
+			out.writeStrs(index.getColumnList());
+			out.writeBool(index.getUnique());
+		}
+
+		List<UniqueModel> uniques = model.getUniqueConsts();
+		out.writeVarInt(uniques.size());
+		for (UniqueModel unique : uniques) {
+			out.writeStr(unique.getName());
+			out.writeStrs(unique.getColumnList());
+		}
+	}
+
+	private static void writeColumn(Out out, TableModel model, ColumnModel col) {
+		out.writeStr(col.getColumnName());
+		out.writeStr(col.getColumnType() == null ? null : col.getColumnType().name());
+		out.writeStr(col.getColumnDefinition());
+		out.writeBool(col.getPkey());
+		out.writeBool(col.getNullable());
+		out.writeStr(col.getCheck());
+		out.writeStr(col.getDefaultValue());
+		out.writeStr(col.getTail());
+		out.writeStr(col.getComment());
+		out.writeStr(col.getIdGenerationType() == null ? null : col.getIdGenerationType().name());
+		out.writeStr(col.getIdGeneratorName());
+		Object converter = col.getConverterClassOrName();
+		if (converter == null)
+			out.writeByte(CONVERTER_NULL);
+		else if (converter instanceof Class) {
+			out.writeByte(CONVERTER_CLASS);
+			out.writeStr(((Class<?>) converter).getName());
+		} else if (converter instanceof String) {
+			out.writeByte(CONVERTER_NAME);
+			out.writeStr((String) converter);
+		} else
+			throw new DialectException("Column '" + col.getColumnName() + "' of table '" + model.getTableName()
+					+ "' has a converter can not be saved in snapshot: " + converter);
+		out.writeStr(col.getEntityField());
+		out.writeInteger(col.getLength());
+		out.writeInteger(col.getPrecision());
+		out.writeInteger(col.getScale());
+		out.writeBool(col.getInsertable());
+		out.writeBool(col.getUpdatable());
+		out.writeBool(col.getTransientable());
+		out.writeStrs(col.getShardTable());
+		out.writeStrs(col.getShardDatabase());
+		out.writeBool(col.isCreateTimestamp());
+		out.writeBool(col.isUpdateTimestamp());
+		out.writeBool(col.isCreatedBy());
+		out.writeBool(col.isLastModifiedBy());
+	}
+
+	private static void writeIdGenerator(Out out, TableModel model, IdGenerator gen) {
+		Class<?> genClass = gen.getClass();
+		if (genClass == SequenceIdGenerator.class) {
+			SequenceIdGenerator seq = (SequenceIdGenerator) gen;
+			out.writeByte(GEN_SEQUENCE);
+			out.writeStr(seq.getName());
+			out.writeStr(seq.getSequenceName());
+			out.writeInteger(seq.getInitialValue());
+			out.writeInteger(seq.getAllocationSize());
+			out.writeBool(seq.getPooled());
+		} else if (genClass == TableIdGenerator.class) {
+			TableIdGenerator tab = (TableIdGenerator) gen;
+			out.writeByte(GEN_TABLE);
+			out.writeStr(tab.getName());
+			out.writeStr(tab.getTable());
+			out.writeStr(tab.getPkColumnName());
+			out.writeStr(tab.getValueColumnName());
+			out.writeStr(tab.getPkColumnValue());
+			out.writeInteger(tab.getInitialValue());
+			out.writeInteger(tab.getAllocationSize());
+			out.writeBool(tab.getPooled());
+		} else if (genClass == SortedUUIDGenerator.class) {
+			SortedUUIDGenerator sorted = (SortedUUIDGenerator) gen;
+			out.writeByte(GEN_SORTED_UUID);
+			out.writeStr(sorted.getName());
+			out.writeVarInt(sorted.getSortedLength());
+			out.writeVarInt(sorted.getUuidLength());
+		} else if (genClass == UUIDAnyGenerator.class) {
+			UUIDAnyGenerator any = (UUIDAnyGenerator) gen;
+			out.writeByte(GEN_UUID_ANY);
+			out.writeStr(any.getIdGenName());
+			out.writeInteger(any.getLength());
+		} else if (genClass == TimeOrderedUUIDGenerator.class) {
+			TimeOrderedUUIDGenerator timeOrdered = (TimeOrderedUUIDGenerator) gen;
+			out.writeByte(GEN_TIME_ORDERED_UUID);
+			out.writeStr(timeOrdered.getIdGenName());
+			out.writeInteger(timeOrdered.getLength());
+		} else if (genClass == IdentityIdGenerator.class) {
+			IdentityIdGenerator identity = (IdentityIdGenerator) gen;
+			out.writeByte(GEN_IDENTITY);
+			out.writeStr(identity.getTable());
+			out.writeStr(identity.getColumn());
+		} else if (gen.getGenerationType() != null && !GenerationType.IDENTITY.equals(gen.getGenerationType())
+				&& gen == model.getIdGenerator(gen.getGenerationType())) {
+			out.writeByte(GEN_SHARED);
+			out.writeStr(gen.getGenerationType().name());
+		} else
+			throw new DialectException("IdGenerator '" + gen.getIdGenName() + "' of table '" + model.getTableName()
+					+ "' can not be saved in snapshot, its type is " + genClass.getName());
+	}
+
+	/**
+	 * Read a TableModel, return null if a class or IdGenerator it refers not found
+	 */
+	private static TableModel readTable(In in) {
+		TableModel model = new TableModel();
+		model.setTableName(in.readStr());
+		model.setCheck(in.readStr());
+		model.setComment(in.readStr());
+		model.setEngineTail(in.readStr());
+		model.setTableTail(in.readStr());
+		String entityClassName = in.readStr();
+		if (entityClassName != null) {
+			Class<?> entityClass = in.loadClass(entityClassName);
+			if (entityClass == null)
+				return null;
+			model.setEntityClass(entityClass);
+		}
+
+		for (int i = in.readVarInt(); i > 0; i--) {
+			ColumnModel col = readColumn(in);
+			if (col == null)
+				return null;
+			model.addColumn(col);
+		}
+
+		for (int i = in.readVarInt(); i > 0; i--) {
+			IdGenerator gen = readIdGenerator(in, model);
+			if (gen == null)
+				return null;
+			model.getIdGenerators().add(gen);
+		}
+
+		for (int i = in.readVarInt(); i > 0; i--) {
+			FKeyModel fkey = new FKeyModel();
+			fkey.setFkeyName(in.readStr());
+			fkey.setTableName(in.readStr());
+			String[] columnNames = in.readStrs();
+			if (columnNames != null)
+				fkey.setColumnNames(ArrayUtils.strArrayToList(columnNames));
+			fkey.setRefTableAndColumns(in.readStrs());
+			fkey.setFkeyTail(in.readStr());
+			fkey.setDdl(in.readBool());
+			fkey.setTableModel(model);
+			model.getFkeyConstraints().add(fkey);
+		}
+
+		for (int i = in.readVarInt(); i > 0; i--) {
+			IndexModel index = new IndexModel();
+			index.setName(in.readStr());
+			index.setColumnList(in.readStrs());
+			index.setUnique(in.readBool());
+			index.setTableModel(model);
+			model.getIndexConsts().add(index);
+		}
+
+		for (int i = in.readVarInt(); i > 0; i--) {
+			UniqueModel unique = new UniqueModel();
+			unique.setName(in.readStr());
+			unique.setColumnList(in.readStrs());
+			unique.setTableModel(model);
+			model.getUniqueConsts().add(unique);
+		}
+		model.setReadOnly(true);
+		return model;
+	}
+
+	/** Read a ColumnModel, return null if its converter class not found */
+	private static ColumnModel readColumn(In in) {
+		ColumnModel col = new ColumnModel(in.readStr());
+		String columnType = in.readStr();
+		col.setColumnType(columnType == null ? null : Type.valueOf(columnType));
+		col.setColumnDefinition(in.readStr());
+		col.setPkey(in.readBool());
+		col.setNullable(in.readBool());
+		col.setCheck(in.readStr());
+		col.setDefaultValue(in.readStr());
+		col.setTail(in.readStr());
+		col.setComment(in.readStr());
+		String generationType = in.readStr();
+		col.setIdGenerationType(generationType == null ? null : GenerationType.valueOf(generationType));
+		col.setIdGeneratorName(in.readStr());
+		byte converterTag = in.readByte();
+		if (converterTag == CONVERTER_CLASS) {
+			Class<?> converter = in.loadClass(in.readStr());
+			if (converter == null)
+				return null;
+			col.setConverterClassOrName(converter);
+		} else if (converterTag == CONVERTER_NAME)
+			col.setConverterClassOrName(in.readStr());
+		col.setEntityField(in.readStr());
+		col.setLength(in.readInteger());
+		col.setPrecision(in.readInteger());
+		col.setScale(in.readInteger());
+		col.setInsertable(in.readBool());
+		col.setUpdatable(in.readBool());
+		col.setTransientable(in.readBool());
+		col.setShardTable(in.readStrs());
+		col.setShardDatabase(in.readStrs());
+		col.setCreateTimestamp(Boolean.TRUE.equals(in.readBool()));
+		col.setUpdateTimestamp(Boolean.TRUE.equals(in.readBool()));
+		col.setCreatedBy(Boolean.TRUE.equals(in.readBool()));
+		col.setLastModifiedBy(Boolean.TRUE.equals(in.readBool()));
+		return col;
+	}
+
+	private static IdGenerator readIdGenerator(In in, TableModel model) {
+		byte kind = in.readByte();
+		switch (kind) {
+		case GEN_SEQUENCE:
+			return new SequenceIdGenerator(in.readStr(), in.readStr(), in.readInteger(), in.readInteger(),
+					in.readBool());
+		case GEN_TABLE:
+			return new TableIdGenerator(in.readStr(), in.readStr(), in.readStr(), in.readStr(), in.readStr(),
+					in.readInteger(), in.readInteger(), in.readBool());
+		case GEN_SORTED_UUID:
+			return new SortedUUIDGenerator(in.readStr(), in.readVarInt(), in.readVarInt());
+		case GEN_UUID_ANY:
+			return new UUIDAnyGenerator(in.readStr(), in.readInteger());
+		case GEN_TIME_ORDERED_UUID:
+			return new TimeOrderedUUIDGenerator(in.readStr(), in.readInteger());
+		case GEN_IDENTITY:
+			return new IdentityIdGenerator(in.readStr(), in.readStr());
+		case GEN_SHARED:
+			return model.getIdGenerator(GenerationType.valueOf(in.readStr()));
+		default:
+			return null;
+		}
+	}
+
+	/** Snapshot body writer */
+	private static class Out extends ByteArrayOutputStream {
+		private final Map<String, Integer> pool = new HashMap<String, Integer>();
+
+		void writeByte(int b) {
+			write(b);
+		}
+
+		void writeVarInt(int value) {
+			while ((value & ~0x7F) != 0) {
+				write((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			write(value);
+		}
+
+		/** 0 is null, 1 is a new String, n (n>=2) is the (n-2)th pooled String */
+		void writeStr(String s) {
+			if (s == null) {
+				writeVarInt(0);
+				return;
+			}
+			Integer index = pool.get(s);
+			if (index != null) {
+				writeVarInt(index + 2);
+				return;
+			}
+			pool.put(s, pool.size());
+			byte[] bytes = s.getBytes(UTF8);
+			writeVarInt(1);
+			writeVarInt(bytes.length);
+			write(bytes, 0, bytes.length);
+		}
+
+		/** 0 is null, otherwise length+1 and Strings */
+		void writeStrs(String[] strs) {
+			if (strs == null) {
+				writeVarInt(0);
+				return;
+			}
+			writeVarInt(strs.length + 1);
+			for (String s : strs)
+				writeStr(s);
+		}
+
+		/** 0 is null, 1 is false, 2 is true */
+		void writeBool(Boolean b) {
+			write(b == null ? 0 : (b ? 2 : 1));
+		}
+
+		void writeInteger(Integer i) {
+			if (i == null) {
+				write(0);
+				return;
+			}
+			write(1);
+			int v = i;
+			write(v >>> 24);
+			write(v >>> 16);
+			write(v >>> 8);
+			write(v);
+		}
+	}
+
+	/** Snapshot body reader */
+	private static class In {
+		private final ByteBuffer buf;
+		private final List<String> pool = new ArrayList<String>();
+		private final Map<String, Class<?>> knownClasses;
+
+		In(ByteBuffer buf, Map<String, Class<?>> knownClasses) {
+			this.buf = buf;
+			this.knownClasses = knownClasses;
+		}
+
+		byte readByte() {
+			return buf.get();
+		}
+
+		int readVarInt() {
+			int result = 0;
+			for (int shift = 0; shift < 35; shift += 7) {
+				byte b = buf.get();
+				result |= (b & 0x7F) << shift;
+				if ((b & 0x80) == 0)
+					return result;
+			}
+			throw new BufferUnderflowException();
+		}
+
+		String readStr() {
+			int tag = readVarInt();
+			if (tag == 0)
+				return null;
+			if (tag > 1) {
+				if (tag - 2 >= pool.size())
+					throw new BufferUnderflowException();
+				return pool.get(tag - 2);
+			}
+			byte[] bytes = new byte[readVarInt()];
+			buf.get(bytes);
+			String s = new String(bytes, UTF8);
+			pool.add(s);
+			return s;
+		}
+
+		String[] readStrs() {
+			int length = readVarInt();
+			if (length == 0)
+				return null;// NOSONAR
+			String[] result = new String[length - 1];
+			for (int i = 0; i < result.length; i++)
+				result[i] = readStr();
+			return result;
+		}
+
+		Boolean readBool() {
+			byte b = buf.get();
+			if (b == 0)
+				return null;// NOSONAR
+			return b == 2;
+		}
+
+		Integer readInteger() {
+			if (buf.get() == 0)
+				return null;
+			return buf.getInt();
+		}
+
+		Class<?> loadClass(String className) {
+			Class<?> result = knownClasses.get(className);
+			return result != null ? result : ClassCacheUtils.checkClassExist(className);
+		}
+	}
+}
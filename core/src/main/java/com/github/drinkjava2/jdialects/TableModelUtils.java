@@ -76,6 +76,15 @@ public abstract class TableModelUtils {// NOSONAR
         return TableModelUtilsOfEntity.entity2ReadOnlyModel(entityClasses);
     }
 
+    /**
+     * Convert entity classes to read-only TableModel instances, load them from
+     * snapshot file if entity classes not changed, otherwise build them and write
+     * a new snapshot file, see TableModelSnapshot
+     */
+    public static TableModel[] entity2ReadOnlyModels(File snapshotFile, Class<?>... entityClasses) {
+        return TableModelSnapshot.entity2ReadOnlyModels(snapshotFile, entityClasses);
+    }
+
     /**
      * Convert database metaData to TableModels, note: <br/>
      * 1)This method does not close connection, do not forgot close it later <br/>
@@ -85,6 +94,33 @@ public abstract class TableModelUtils {// NOSONAR
         return TableModelUtilsOfDb.db2Models(con, dialect);
     }
 
+    /**
+     * Convert database meta data to TableModels, if database does not support
+     * load keys of all tables at once, load them table by table on given quantity
+     * of connections in parallel, connections are got from and returned to
+     * DataSource
+     */
+    public static TableModel[] db2Models(DataSource ds, Dialect dialect, int connections) {
+        return TableModelUtilsOfDb.db2Models(ds, dialect, connections);
+    }
+
+    /**
+     * Same as db2Models(Connection, Dialect), if withIndexes is true, also read
+     * unique constraints and indexes, for example to compare with entity models by
+     * DDLAlterUtils
+     */
+    public static TableModel[] db2Models(Connection con, Dialect dialect, boolean withIndexes) {
+        return TableModelUtilsOfDb.db2Models(con, dialect, withIndexes);
+    }
+
+    /**
+     * Same as db2Models(DataSource, Dialect, int), if withIndexes is true, also
+     * read unique constraints and indexes
+     */
+    public static TableModel[] db2Models(DataSource ds, Dialect dialect, int connections, boolean withIndexes) {
+        return TableModelUtilsOfDb.db2Models(ds, dialect, connections, withIndexes);
+    }
+
     /**
      * Read database structure and write them to Java entity class source code
      *
@@ -193,7 +229,7 @@ public abstract class TableModelUtils {// NOSONAR
      * This method bind a tableModel to a entity class, this is a global setting
      */
     public static void bindGlobalModel(Class<?> entityClass, TableModel tableModel) {
-        TableModelUtilsOfEntity.globalTableModelCache.put(entityClass, tableModel);
+        EntityModelRegistry.bind(entityClass, tableModel);
     }
 
     /** Export entity to excel in csv files    
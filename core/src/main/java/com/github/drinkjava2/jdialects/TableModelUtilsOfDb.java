@@ -13,15 +13,32 @@ package com.github.drinkjava2.jdialects;
 
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
-import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.sql.DataSource;
 
 import com.github.drinkjava2.jdialects.model.ColumnModel;
 import com.github.drinkjava2.jdialects.model.FKeyModel;
+import com.github.drinkjava2.jdialects.model.IndexModel;
 import com.github.drinkjava2.jdialects.model.TableModel;
+import com.github.drinkjava2.jdialects.model.UniqueModel;
+import com.github.drinkjava2.jlogs.Log;
+import com.github.drinkjava2.jlogs.LogFactory;
 
 /**
  * The tool to convert database structure(meta data) to TableModels
@@ -30,136 +47,683 @@ import com.github.drinkjava2.jdialects.model.TableModel;
  * @since 1.0.6
  */
 public abstract class TableModelUtilsOfDb {// NOSONAR
+    private static final Log logger = LogFactory.getLog(TableModelUtilsOfDb.class);
     private static final String TABLE_NAME = "TABLE_NAME";
 
     /**
      * Convert JDBC connected database structure to TableModels, note: <br/>
      * 1)This method does not close connection <br/>
-     * 2)This method does not support sequence, foreign keys, primary keys..., but
-     * will improve later.
+     * 2)This method does not support sequence, check constraints..., but will
+     * improve later. <br/>
+     * 
+     * Columns, primary keys and foreign keys of all tables are loaded by one
+     * catalog wide meta data call (or one dialect special query) for each kind,
+     * if database does not support it, load them table by table. Indexes and
+     * unique constraints are not loaded, see db2Models(con, dialect, true)
      */
-    public static TableModel[] db2Models(Connection con, Dialect dialect) {// NOSONAR
-        List<TableModel> tableModels = new ArrayList<TableModel>();
-        SQLException sqlException = null;
-        ResultSet rs = null;
-        PreparedStatement pst = null;
+    public static TableModel[] db2Models(Connection con, Dialect dialect) {
+        return db2Models(con, dialect, false);
+    }
 
+    /**
+     * Same as db2Models(Connection, Dialect), if withIndexes is true, also load
+     * unique constraints and indexes, for example to compare with entity models by
+     * DDLAlterUtils. Unique constraints and indexes of all tables are loaded by
+     * one dialect special query for each if dialect supported, otherwise indexes
+     * are loaded table by table by getIndexInfo. Indexes of primary key and unique
+     * constraints are not included.
+     */
+    public static TableModel[] db2Models(Connection con, Dialect dialect, boolean withIndexes) {
         try{
+            Map<String, TableModel> tables = loadTables(con, dialect);
+            List<String> notLoaded = loadKeys(con, dialect, tables);
             DatabaseMetaData meta = con.getMetaData();
             String catalog = con.getCatalog();
-            // get Tables
-            rs = meta.getTables(catalog, dialect.isOracleFamily() ? meta.getUserName() : null, null, new String[]{"TABLE"});
+            for (String tableName : notLoaded)
+                loadKeysOfTable(meta, catalog, tableName, tables);
+            if(withIndexes){
+                loadUniques(con, dialect, tables);
+                if(!loadIndexes(con, dialect, tables)){
+                    String schema = dialect.isOracleFamily() ? meta.getUserName() : null;
+                    for (String tableName : tables.keySet())
+                        loadIndexesOfTable(meta, catalog, schema, tableName, tables);
+                }
+            }
+            return tables.values().toArray(new TableModel[tables.size()]);
+        }catch (SQLException e){
+            throw new DialectException(e);
+        }
+    }
+
+    /**
+     * Same as db2Models(Connection, Dialect), but spread the table by table meta
+     * data calls (primary keys and foreign keys if database does not support load
+     * them of all tables at once) on given quantity of connections got from
+     * DataSource, and run them in parallel
+     */
+    public static TableModel[] db2Models(DataSource ds, Dialect dialect, int connections) {
+        return db2Models(ds, dialect, connections, false);
+    }
+
+    /**
+     * Same as db2Models(Connection, Dialect, withIndexes), but spread the table by
+     * table meta data calls (indexes if dialect has no index query, and primary
+     * keys and foreign keys if database does not support load them of all tables
+     * at once) on given quantity of connections got from DataSource, and run them
+     * in parallel
+     */
+    public static TableModel[] db2Models(DataSource ds, Dialect dialect, int connections, boolean withIndexes) {
+        DialectException.assureNotNull(ds, "DataSource can not be null");
+        Connection con = null;
+        try{
+            con = ds.getConnection();
+            Map<String, TableModel> tables = loadTables(con, dialect);
+            List<String> notLoaded = loadKeys(con, dialect, tables);
+            boolean indexesNotLoaded = false;
+            if(withIndexes){
+                loadUniques(con, dialect, tables);
+                indexesNotLoaded = !loadIndexes(con, dialect, tables);
+            }
+            DatabaseMetaData meta = con.getMetaData();
+            String schema = dialect.isOracleFamily() ? meta.getUserName() : null;
+            List<String> indexTables = indexesNotLoaded ? new ArrayList<String>(tables.keySet()) : new ArrayList<String>();
+            int threads = Math.min(Math.max(connections, 1), Math.max(notLoaded.size(), indexTables.size()));
+            if(threads <= 1){
+                String catalog = con.getCatalog();
+                for (String tableName : notLoaded)
+                    loadKeysOfTable(meta, catalog, tableName, tables);
+                for (String tableName : indexTables)
+                    loadIndexesOfTable(meta, catalog, schema, tableName, tables);
+            }else
+                loadInParallel(ds, threads, schema, new HashSet<String>(notLoaded), new HashSet<String>(indexTables), tables);
+            return tables.values().toArray(new TableModel[tables.size()]);
+        }catch (SQLException e){
+            throw new DialectException(e);
+        }finally{
+            if(con != null)
+                try{
+                    con.close();
+                }catch (SQLException e){// NOSONAR
+                }
+        }
+    }
+
+    /**
+     * Load tables and their columns, return a map, key is table name in database,
+     * value is TableModel
+     */
+    private static Map<String, TableModel> loadTables(Connection con, Dialect dialect) throws SQLException {
+        Map<String, TableModel> tables = new LinkedHashMap<String, TableModel>();
+        DatabaseMetaData meta = con.getMetaData();
+        String catalog = con.getCatalog();
+        String schema = dialect.isOracleFamily() ? meta.getUserName() : null;
+        // get Tables
+        ResultSet rs = meta.getTables(catalog, schema, null, new String[]{"TABLE"});
+        try{
             while (rs.next()){
                 String tableName = rs.getString(TABLE_NAME);
+                if("INFORMATION_SCHEMA".equalsIgnoreCase(rs.getString("TABLE_SCHEM")))
+                    continue; // some databases (for example H2 2.x) list system tables as tables
                 if(!StrUtils.isEmpty(tableName)){
+                    String modelName = tableName;
                     if(ReservedDBWords.isReservedWord(dialect, tableName))
-                        tableName = dialect.ddlFeatures.openQuote + tableName + dialect.ddlFeatures.openQuote;
-                    TableModel model = new TableModel(tableName);
-                    tableModels.add(model);
+                        modelName = dialect.ddlFeatures.openQuote + tableName + dialect.ddlFeatures.openQuote;
+                    TableModel model = new TableModel(modelName);
+                    tables.put(tableName, model);
                     String comment = rs.getString("REMARKS");
                     if(!StrUtils.isEmpty(comment))
                         model.setComment(comment);
                 }
             }
+        }finally{
             rs.close();
+        }
 
-            // Build Columns
-            for (TableModel model : tableModels){
-                String tableName = model.getTableName();
-                rs = meta.getColumns(catalog, null, tableName, null); // detail see meta.getC alt + /
-                while (rs.next()){// NOSONAR
-                    String colName = rs.getString("COLUMN_NAME");
-                    if(ReservedDBWords.isReservedWord(dialect, colName))
-                        colName = dialect.ddlFeatures.openQuote + colName + dialect.ddlFeatures.openQuote;
-                    ColumnModel col = new ColumnModel(colName);
-                    model.addColumn(col);
-
-                    int javaSqlType = rs.getInt("DATA_TYPE");
-                    try{
-                        col.setColumnType(TypeUtils.javaSqlTypeToDialectType(javaSqlType));
-                    }catch (Exception e1){
-                        throw new DialectException("jDialect does not supported java.sql.types value " + javaSqlType, e1);
-                    }
+        // Build Columns, all tables at once
+        try{
+            rs = meta.getColumns(catalog, schema, null, null);
+        }catch (SQLException e){
+            rs = null; // not support null table name pattern, load table by table
+        }
+        if(rs != null){
+            try{
+                readColumns(rs, dialect, tables);
+            }finally{
+                rs.close();
+            }
+        }else
+            for (String tableName : tables.keySet()){
+                rs = meta.getColumns(catalog, null, tableName, null);
+                try{
+                    readColumns(rs, dialect, tables);
+                }finally{
+                    rs.close();
+                }
+            }
+        return tables;
+    }
 
-                    col.setLength(rs.getInt("CHAR_OCTET_LENGTH"));
-                    col.setPrecision(rs.getInt("COLUMN_SIZE"));
-                    col.setScale(rs.getInt("DECIMAL_DIGITS"));
-                    col.setNullable(rs.getInt("NULLABLE") > 0);
-                    col.setDefaultValue(rs.getString("COLUMN_DEF"));
-                    col.setComment(rs.getString("REMARKS"));
-
-                    try{
-                        if(((Boolean) (true)).equals(rs.getBoolean("IS_AUTOINCREMENT")))
-                            col.identityId();
-                    }catch (Exception e){
-                    }
+    private static void readColumns(ResultSet rs, Dialect dialect, Map<String, TableModel> tables) throws SQLException {
+        while (rs.next()){// NOSONAR
+            TableModel model = tables.get(rs.getString(TABLE_NAME));
+            if(model == null)
+                continue; // not a loaded table, for example a view
+            String colName = rs.getString("COLUMN_NAME");
+            if(ReservedDBWords.isReservedWord(dialect, colName))
+                colName = dialect.ddlFeatures.openQuote + colName + dialect.ddlFeatures.openQuote;
+            ColumnModel col = new ColumnModel(colName);
+            model.addColumn(col);
 
-                    try{
-                        if("YES".equalsIgnoreCase(rs.getString("IS_AUTOINCREMENT")))
-                            col.identityId();
-                    }catch (Exception e){
-                    }
-                }
-                rs.close();
+            int javaSqlType = rs.getInt("DATA_TYPE");
+            try{
+                col.setColumnType(TypeUtils.javaSqlTypeToDialectType(javaSqlType));
+            }catch (Exception e1){
+                throw new DialectException("jDialect does not supported java.sql.types value " + javaSqlType, e1);
             }
 
-            // Get Primary Keys for each model
-            for (TableModel model : tableModels){
-                rs = meta.getPrimaryKeys(catalog, null, model.getTableName());
-                while (rs.next()){
-                    model.getColumnByColName(rs.getString("COLUMN_NAME")).setPkey(true);
-                }
-                rs.close();
+            col.setLength(rs.getInt("CHAR_OCTET_LENGTH"));
+            col.setPrecision(rs.getInt("COLUMN_SIZE"));
+            col.setScale(rs.getInt("DECIMAL_DIGITS"));
+            col.setNullable(rs.getInt("NULLABLE") > 0);
+            col.setDefaultValue(rs.getString("COLUMN_DEF"));
+            col.setComment(rs.getString("REMARKS"));
+
+            try{
+                if(((Boolean) (true)).equals(rs.getBoolean("IS_AUTOINCREMENT")))
+                    col.identityId();
+            }catch (Exception e){
             }
-            // Get Foreign Keys for each model
-            for (TableModel model : tableModels){
-                ResultSet foreignKeyResultSet = meta.getImportedKeys(catalog, null, model.getTableName());
-                while (foreignKeyResultSet.next()){
-                    String fkname = foreignKeyResultSet.getString("FK_NAME");
-                    int keyseq = foreignKeyResultSet.getInt("KEY_SEQ");
-                    String fkColumnName = foreignKeyResultSet.getString("FKCOLUMN_NAME");
-                    String pkTablenName = foreignKeyResultSet.getString("PKTABLE_NAME");
-                    String pkColumnName = foreignKeyResultSet.getString("PKCOLUMN_NAME");
-                    FKeyModel fkeyModel = model.getFkey(fkname);
-
-                    if(keyseq == 1){
-                        model.fkey(fkname).columns(fkColumnName).refs(pkTablenName, pkColumnName);
-                    }else{
-                        fkeyModel.getColumnNames().add(fkColumnName);
-                        String[] newRefs = ArrayUtils.appendStrArray(fkeyModel.getRefTableAndColumns(), pkColumnName);
-                        fkeyModel.setRefTableAndColumns(newRefs);
-                    }
+
+            try{
+                if("YES".equalsIgnoreCase(rs.getString("IS_AUTOINCREMENT")))
+                    col.identityId();
+            }catch (Exception e){
+            }
+        }
+    }
+
+    /**
+     * Load primary keys and foreign keys of all tables at once, by dialect
+     * special query or catalog wide meta data calls, return table names which
+     * are not loaded
+     */
+    private static List<String> loadKeys(Connection con, Dialect dialect, Map<String, TableModel> tables) {
+        List<String> all = new ArrayList<String>(tables.keySet());
+        if(tables.isEmpty())
+            return all;
+        String[] queries = keyQueries(dialect);
+        try{
+            if(queries != null){
+                Statement st = con.createStatement();
+                try{
+                    ResultSet rs = st.executeQuery(queries[0]);
+                    readPrimaryKeys(rs, tables);
+                    rs.close();
+                    rs = st.executeQuery(queries[1]);
+                    readForeignKeys(rs, tables);
+                    rs.close();
+                }finally{
+                    st.close();
                 }
+                return new ArrayList<String>();
             }
 
+            DatabaseMetaData meta = con.getMetaData();
+            String catalog = con.getCatalog();
+            String schema = dialect.isOracleFamily() ? meta.getUserName() : null;
+            ResultSet rs = meta.getPrimaryKeys(catalog, schema, null);
+            boolean found;
+            try{
+                found = readPrimaryKeys(rs, tables);
+            }finally{
+                rs.close();
+            }
+            if(!found)
+                return all; // null table name maybe not supported, can not tell from no primary key
+            rs = meta.getImportedKeys(catalog, schema, null);
+            try{
+                readForeignKeys(rs, tables);
+            }finally{
+                rs.close();
+            }
+            return new ArrayList<String>();
         }catch (SQLException e){
-            e.printStackTrace();
-            sqlException = e;
+            logger.warn("Load keys of all tables failed, load them table by table, cause: " + e.getMessage());
+            clearKeys(tables);
+            return all;
+        }
+    }
+
+    /** Load primary keys and foreign keys of one table */
+    private static void loadKeysOfTable(DatabaseMetaData meta, String catalog, String tableName,
+            Map<String, TableModel> tables) throws SQLException {
+        ResultSet rs = meta.getPrimaryKeys(catalog, null, tableName);
+        try{
+            readPrimaryKeys(rs, tables);
+        }finally{
+            rs.close();
+        }
+        rs = meta.getImportedKeys(catalog, null, tableName);
+        try{
+            readForeignKeys(rs, tables);
         }finally{
-            if(pst != null)
+            rs.close();
+        }
+    }
+
+    /**
+     * Load primary keys and foreign keys of tables in keysNotLoaded, and indexes
+     * of tables in indexesNotLoaded, table by table, tables are spread on threads,
+     * each thread use its own connection
+     */
+    private static void loadInParallel(final DataSource ds, int threads, final String schema,
+            final Set<String> keysNotLoaded, final Set<String> indexesNotLoaded, final Map<String, TableModel> tables) {
+        List<String> tableNames = new ArrayList<String>(tables.keySet());
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try{
+            List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (int i = 0; i < threads; i++){
+                final List<String> part = new ArrayList<String>();
+                for (int j = i; j < tableNames.size(); j += threads)
+                    part.add(tableNames.get(j));
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws SQLException {
+                        Connection con = ds.getConnection();
+                        try{
+                            DatabaseMetaData meta = con.getMetaData();
+                            String catalog = con.getCatalog();
+                            for (String tableName : part){
+                                if(keysNotLoaded.contains(tableName))
+                                    loadKeysOfTable(meta, catalog, tableName, tables);
+                                if(indexesNotLoaded.contains(tableName))
+                                    loadIndexesOfTable(meta, catalog, schema, tableName, tables);
+                            }
+                        }finally{
+                            con.close();
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures)
+                future.get();
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new DialectException(e);
+        }catch (ExecutionException e){
+            throw new DialectException(e.getCause());
+        }finally{
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Load unique constraints of all tables by dialect special query, if dialect
+     * not supported or query failed, unique constraints are not loaded, and their
+     * indexes will be loaded as unique indexes
+     */
+    private static void loadUniques(Connection con, Dialect dialect, Map<String, TableModel> tables) {
+        String query = uniqueQuery(dialect);
+        if(query == null || tables.isEmpty())
+            return;
+        try{
+            Statement st = con.createStatement();
+            try{
+                ResultSet rs = st.executeQuery(query);
                 try{
-                    pst.close();
-                }catch (SQLException e1){
-                    if(sqlException != null)
-                        sqlException.setNextException(e1);
-                    else
-                        sqlException = e1;
+                    readUniques(rs, tables);
+                }finally{
+                    rs.close();
                 }
+            }finally{
+                st.close();
+            }
+        }catch (SQLException e){
+            logger.warn("Load unique constraints by query failed, load them as unique indexes, cause: " + e.getMessage());
+            for (TableModel model : tables.values())
+                model.getUniqueConsts().clear();
+        }
+    }
+
+    /** Read "CONSTRAINT_NAME", "TABLE_NAME", "COLUMN_NAME" rows ordered by column position */
+    private static void readUniques(ResultSet rs, Map<String, TableModel> tables) throws SQLException {
+        UniqueModel last = null;
+        String lastTable = null;
+        while (rs.next()){
+            String tableName = rs.getString(TABLE_NAME);
+            TableModel model = tables.get(tableName);
+            if(model == null)
+                continue;
+            String name = rs.getString("CONSTRAINT_NAME");
+            String colName = rs.getString("COLUMN_NAME");
+            if(last != null && tableName.equals(lastTable) && name.equals(last.getName()))
+                last.setColumnList(ArrayUtils.appendStrArray(last.getColumnList(), colName));
+            else{
+                last = model.unique(name).columns(colName);
+                lastTable = tableName;
+            }
+        }
+    }
+
+    /**
+     * Load indexes of all tables by one dialect special query, return false if
+     * dialect not supported or query failed, then caller should load indexes table
+     * by table
+     */
+    private static boolean loadIndexes(Connection con, Dialect dialect, Map<String, TableModel> tables) {
+        String query = indexQuery(dialect);
+        if(query == null)
+            return false;
+        if(tables.isEmpty())
+            return true;
+        Map<String, Map<String, IndexRows>> indexes = new LinkedHashMap<String, Map<String, IndexRows>>();
+        try{
+            Statement st = con.createStatement();
             try{
-                if(rs != null)
+                ResultSet rs = st.executeQuery(query);
+                try{
+                    readIndexRows(rs, false, tables, indexes);
+                }finally{
                     rs.close();
-            }catch (SQLException e2){
-                if(sqlException != null)
-                    sqlException.setNextException(e2);
-                else
-                    sqlException = e2;
+                }
+            }finally{
+                st.close();
+            }
+        }catch (SQLException e){
+            logger.warn("Load indexes by query failed, load them table by table, cause: " + e.getMessage());
+            return false;
+        }
+        for (Entry<String, Map<String, IndexRows>> entry : indexes.entrySet())
+            addIndexes(tables.get(entry.getKey()), entry.getValue());
+        return true;
+    }
+
+    /**
+     * Load indexes of one table by getIndexInfo, index of primary key or of a
+     * loaded unique constraint (same name or same columns) is not included
+     */
+    private static void loadIndexesOfTable(DatabaseMetaData meta, String catalog, String schema, String tableName,
+            Map<String, TableModel> tables) throws SQLException {
+        Map<String, Map<String, IndexRows>> indexes = new LinkedHashMap<String, Map<String, IndexRows>>();
+        ResultSet rs = meta.getIndexInfo(catalog, schema, tableName, false, true);
+        try{
+            readIndexRows(rs, true, tables, indexes);
+        }finally{
+            rs.close();
+        }
+        Map<String, IndexRows> tableIndexes = indexes.get(tableName);
+        if(tableIndexes != null)
+            addIndexes(tables.get(tableName), tableIndexes);
+    }
+
+    /** Columns of an index being read, in ORDINAL_POSITION order */
+    private static class IndexRows {
+        final boolean unique;
+        final List<String> columns = new ArrayList<String>();
+
+        IndexRows(boolean unique) {
+            this.unique = unique;
+        }
+    }
+
+    /**
+     * Read "TABLE_NAME", "INDEX_NAME", "NON_UNIQUE", "COLUMN_NAME",
+     * "ORDINAL_POSITION" (and "TYPE" if hasType) rows into indexes map, key is
+     * table name, value is index rows by index name
+     */
+    private static void readIndexRows(ResultSet rs, boolean hasType, Map<String, TableModel> tables,
+            Map<String, Map<String, IndexRows>> indexes) throws SQLException {
+        while (rs.next()){
+            String tableName = rs.getString(TABLE_NAME);
+            if(!tables.containsKey(tableName))
+                continue;
+            String name = rs.getString("INDEX_NAME");
+            String colName = rs.getString("COLUMN_NAME");
+            if(name == null || colName == null || (hasType && rs.getShort("TYPE") == DatabaseMetaData.tableIndexStatistic))
+                continue; // statistic or expression index
+            Map<String, IndexRows> tableIndexes = indexes.get(tableName);
+            if(tableIndexes == null){
+                tableIndexes = new LinkedHashMap<String, IndexRows>();
+                indexes.put(tableName, tableIndexes);
+            }
+            IndexRows index = tableIndexes.get(name);
+            if(index == null){
+                index = new IndexRows(!rs.getBoolean("NON_UNIQUE"));
+                tableIndexes.put(name, index);
+            }
+            int pos = rs.getInt("ORDINAL_POSITION");
+            if(pos > 0 && pos <= index.columns.size())
+                index.columns.add(pos - 1, colName);
+            else
+                index.columns.add(colName);
+        }
+    }
+
+    /** Add indexes to model, index of primary key or of a loaded unique constraint is not included */
+    private static void addIndexes(TableModel model, Map<String, IndexRows> indexes) {
+        List<String> pkeyCols = new ArrayList<String>();
+        for (ColumnModel col : model.getPKeyColumns())
+            pkeyCols.add(col.getColumnName());
+        for (Entry<String, IndexRows> entry : indexes.entrySet()){
+            IndexRows rows = entry.getValue();
+            IndexModel index = new IndexModel(entry.getKey());
+            index.setUnique(rows.unique);
+            index.setColumnList(rows.columns.toArray(new String[rows.columns.size()]));
+            if(rows.unique && (sameColumns(rows.columns, pkeyCols) || isUniqueConstraintIndex(model, index)))
+                continue;
+            model.getIndexConsts().add(index);
+            index.setTableModel(model);
+        }
+    }
+
+    private static boolean isUniqueConstraintIndex(TableModel model, IndexModel index) {
+        for (UniqueModel unique : model.getUniqueConsts())
+            if(index.getName().equalsIgnoreCase(unique.getName())
+                    || sameColumns(Arrays.asList(index.getColumnList()), Arrays.asList(unique.getColumnList())))
+                return true;
+        return false;
+    }
+
+    /** Compare column names ignore quotes, case and order */
+    private static boolean sameColumns(List<String> cols1, List<String> cols2) {
+        if(cols1.isEmpty() || cols1.size() != cols2.size())
+            return false;
+        Set<String> set = new HashSet<String>();
+        for (String col : cols1)
+            set.add(StrUtils.clearQuote(col).toLowerCase());
+        for (String col : cols2)
+            if(!set.contains(StrUtils.clearQuote(col).toLowerCase()))
+                return false;
+        return true;
+    }
+
+    /** Read "TABLE_NAME", "COLUMN_NAME" rows, return true if found any primary key */
+    private static boolean readPrimaryKeys(ResultSet rs, Map<String, TableModel> tables) throws SQLException {
+        boolean found = false;
+        while (rs.next()){
+            TableModel model = tables.get(rs.getString(TABLE_NAME));
+            if(model == null)
+                continue;
+            ColumnModel col = model.getColumnByColName(rs.getString("COLUMN_NAME"));
+            if(col != null){
+                col.setPkey(true);
+                found = true;
             }
         }
-        if(sqlException != null)
-            throw new DialectException(sqlException);
-        return tableModels.toArray(new TableModel[tableModels.size()]);
+        return found;
+    }
+
+    /**
+     * Read "FKTABLE_NAME", "FK_NAME", "KEY_SEQ", "FKCOLUMN_NAME",
+     * "PKTABLE_NAME", "PKCOLUMN_NAME" rows
+     */
+    private static void readForeignKeys(ResultSet rs, Map<String, TableModel> tables) throws SQLException {
+        while (rs.next()){
+            TableModel model = tables.get(rs.getString("FKTABLE_NAME"));
+            if(model == null)
+                continue;
+            String fkname = rs.getString("FK_NAME");
+            int keyseq = rs.getInt("KEY_SEQ");
+            String fkColumnName = rs.getString("FKCOLUMN_NAME");
+            String pkTablenName = rs.getString("PKTABLE_NAME");
+            String pkColumnName = rs.getString("PKCOLUMN_NAME");
+            FKeyModel fkeyModel = model.getFkey(fkname);
+
+            if(keyseq == 1){
+                model.fkey(fkname).columns(fkColumnName).refs(pkTablenName, pkColumnName);
+            }else{
+                fkeyModel.getColumnNames().add(fkColumnName);
+                String[] newRefs = ArrayUtils.appendStrArray(fkeyModel.getRefTableAndColumns(), pkColumnName);
+                fkeyModel.setRefTableAndColumns(newRefs);
+            }
+        }
+    }
+
+    /** Clear partly loaded primary keys and foreign keys */
+    private static void clearKeys(Map<String, TableModel> tables) {
+        for (TableModel model : tables.values()){
+            for (ColumnModel col : model.getColumns())
+                col.setPkey(false);
+            model.getFkeyConstraints().clear();
+        }
+    }
+
+    /**
+     * Return primary keys and foreign keys queries of all tables for databases
+     * whose JDBC driver does not support null table name in getPrimaryKeys and
+     * getImportedKeys, return null for other databases
+     */
+    private static String[] keyQueries(Dialect dialect) {
+        if(dialect.isOracleFamily())
+            return ORACLE_KEY_QUERIES;
+        if(dialect.isSQLServerFamily())
+            return SQLSERVER_KEY_QUERIES;
+        if(dialect.isMySqlFamily() || dialect.isFamily("MariaDB"))
+            return MYSQL_KEY_QUERIES;
+        if(dialect.isH2Family())
+            return H2_KEY_QUERIES;
+        return null;
+    }
+
+    /**
+     * Return unique constraints query of all tables, columns are
+     * "CONSTRAINT_NAME", "TABLE_NAME" and "COLUMN_NAME", return null if dialect
+     * not supported
+     */
+    private static String uniqueQuery(Dialect dialect) {
+        if(dialect.isOracleFamily())
+            return ORACLE_UNIQUE_QUERY;
+        String schema;
+        if(dialect.isMySqlFamily() || dialect.isFamily("MariaDB"))
+            schema = "database()";
+        else if(dialect.isPostgresFamily())
+            schema = "current_schema()";
+        else if(dialect.isSQLServerFamily())
+            schema = "schema_name()";
+        else if(dialect.isH2Family())
+            schema = "current_schema";
+        else
+            return null;
+        return "select tc.CONSTRAINT_NAME as CONSTRAINT_NAME, tc.TABLE_NAME as TABLE_NAME, kcu.COLUMN_NAME as COLUMN_NAME" //
+                + " from INFORMATION_SCHEMA.TABLE_CONSTRAINTS tc join INFORMATION_SCHEMA.KEY_COLUMN_USAGE kcu" //
+                + " on kcu.CONSTRAINT_SCHEMA=tc.CONSTRAINT_SCHEMA and kcu.CONSTRAINT_NAME=tc.CONSTRAINT_NAME and kcu.TABLE_NAME=tc.TABLE_NAME" //
+                + " where tc.CONSTRAINT_TYPE='UNIQUE' and tc.TABLE_SCHEMA=" + schema //
+                + " order by tc.TABLE_NAME, tc.CONSTRAINT_NAME, kcu.ORDINAL_POSITION";
+    }
+
+    /**
+     * Return indexes query of all tables, columns are "TABLE_NAME", "INDEX_NAME",
+     * "NON_UNIQUE", "COLUMN_NAME" and "ORDINAL_POSITION", return null if dialect
+     * not supported
+     */
+    private static String indexQuery(Dialect dialect) {
+        if(dialect.isOracleFamily())
+            return ORACLE_INDEX_QUERY;
+        if(dialect.isSQLServerFamily())
+            return SQLSERVER_INDEX_QUERY;
+        if(dialect.isMySqlFamily() || dialect.isFamily("MariaDB"))
+            return MYSQL_INDEX_QUERY;
+        if(dialect.isH2Family())
+            return H2_INDEX_QUERY;
+        return null;
     }
 
+    private static final String ORACLE_INDEX_QUERY = "select i.table_name as TABLE_NAME, i.index_name as INDEX_NAME," //
+            + " case when i.uniqueness='UNIQUE' then 0 else 1 end as NON_UNIQUE, c.column_name as COLUMN_NAME," //
+            + " c.column_position as ORDINAL_POSITION from user_indexes i join user_ind_columns c on c.index_name=i.index_name" //
+            + " where i.index_type not like 'LOB%' order by i.table_name, i.index_name, c.column_position";
+
+    private static final String SQLSERVER_INDEX_QUERY = "select t.name as TABLE_NAME, i.name as INDEX_NAME," //
+            + " case when i.is_unique=1 then 0 else 1 end as NON_UNIQUE, c.name as COLUMN_NAME, ic.key_ordinal as ORDINAL_POSITION" //
+            + " from sys.indexes i join sys.tables t on t.object_id=i.object_id" //
+            + " join sys.index_columns ic on ic.object_id=i.object_id and ic.index_id=i.index_id" //
+            + " join sys.columns c on c.object_id=ic.object_id and c.column_id=ic.column_id" //
+            + " where i.type>0 and i.is_primary_key=0 and ic.is_included_column=0 and t.schema_id=schema_id()" //
+            + " order by t.name, i.name, ic.key_ordinal";
+
+    private static final String MYSQL_INDEX_QUERY = "select TABLE_NAME, INDEX_NAME, NON_UNIQUE, COLUMN_NAME," //
+            + " SEQ_IN_INDEX as ORDINAL_POSITION from information_schema.STATISTICS" //
+            + " where TABLE_SCHEMA=database() and INDEX_NAME<>'PRIMARY' order by TABLE_NAME, INDEX_NAME, SEQ_IN_INDEX";
+
+    private static final String H2_INDEX_QUERY = "select ic.TABLE_NAME as TABLE_NAME, ic.INDEX_NAME as INDEX_NAME," //
+            + " case when i.INDEX_TYPE_NAME='UNIQUE INDEX' then 0 else 1 end as NON_UNIQUE, ic.COLUMN_NAME as COLUMN_NAME," //
+            + " ic.ORDINAL_POSITION as ORDINAL_POSITION from INFORMATION_SCHEMA.INDEXES i join INFORMATION_SCHEMA.INDEX_COLUMNS ic" //
+            + " on ic.INDEX_SCHEMA=i.INDEX_SCHEMA and ic.INDEX_NAME=i.INDEX_NAME" //
+            + " where i.TABLE_SCHEMA=current_schema and i.INDEX_TYPE_NAME<>'PRIMARY KEY'" //
+            + " order by ic.TABLE_NAME, ic.INDEX_NAME, ic.ORDINAL_POSITION";
+
+    private static final String ORACLE_UNIQUE_QUERY = "select c.constraint_name as CONSTRAINT_NAME, c.table_name as TABLE_NAME," //
+            + " cc.column_name as COLUMN_NAME from user_constraints c join user_cons_columns cc on cc.constraint_name=c.constraint_name" //
+            + " where c.constraint_type='U' order by c.table_name, c.constraint_name, cc.position";
+
+    private static final String[] ORACLE_KEY_QUERIES = new String[]{ //
+            "select c.table_name as TABLE_NAME, cc.column_name as COLUMN_NAME from user_constraints c" //
+                    + " join user_cons_columns cc on cc.constraint_name=c.constraint_name" //
+                    + " where c.constraint_type='P' order by c.table_name, cc.position", //
+            "select c.constraint_name as FK_NAME, c.table_name as FKTABLE_NAME, cc.column_name as FKCOLUMN_NAME," //
+                    + " cc.position as KEY_SEQ, r.table_name as PKTABLE_NAME, rc.column_name as PKCOLUMN_NAME" //
+                    + " from user_constraints c join user_cons_columns cc on cc.constraint_name=c.constraint_name" //
+                    + " join all_constraints r on r.owner=c.r_owner and r.constraint_name=c.r_constraint_name" //
+                    + " join all_cons_columns rc on rc.owner=r.owner and rc.constraint_name=r.constraint_name and rc.position=cc.position" //
+                    + " where c.constraint_type='R' order by c.table_name, c.constraint_name, cc.position"};
+
+    private static final String[] SQLSERVER_KEY_QUERIES = new String[]{ //
+            "select kcu.TABLE_NAME, kcu.COLUMN_NAME from INFORMATION_SCHEMA.TABLE_CONSTRAINTS tc" //
+                    + " join INFORMATION_SCHEMA.KEY_COLUMN_USAGE kcu on kcu.CONSTRAINT_SCHEMA=tc.CONSTRAINT_SCHEMA" //
+                    + " and kcu.CONSTRAINT_NAME=tc.CONSTRAINT_NAME and kcu.TABLE_NAME=tc.TABLE_NAME" //
+                    + " where tc.CONSTRAINT_TYPE='PRIMARY KEY' order by kcu.TABLE_NAME, kcu.ORDINAL_POSITION", //
+            "select fk.name as FK_NAME, object_name(fkc.parent_object_id) as FKTABLE_NAME, pc.name as FKCOLUMN_NAME," //
+                    + " fkc.constraint_column_id as KEY_SEQ, object_name(fkc.referenced_object_id) as PKTABLE_NAME," //
+                    + " rc.name as PKCOLUMN_NAME from sys.foreign_keys fk" //
+                    + " join sys.foreign_key_columns fkc on fkc.constraint_object_id=fk.object_id" //
+                    + " join sys.columns pc on pc.object_id=fkc.parent_object_id and pc.column_id=fkc.parent_column_id" //
+                    + " join sys.columns rc on rc.object_id=fkc.referenced_object_id and rc.column_id=fkc.referenced_column_id" //
+                    + " order by FKTABLE_NAME, FK_NAME, KEY_SEQ"};
+
+    private static final String[] MYSQL_KEY_QUERIES = new String[]{ //
+            "select TABLE_NAME, COLUMN_NAME from information_schema.KEY_COLUMN_USAGE" //
+                    + " where TABLE_SCHEMA=database() and CONSTRAINT_NAME='PRIMARY' order by TABLE_NAME, ORDINAL_POSITION", //
+            "select CONSTRAINT_NAME as FK_NAME, TABLE_NAME as FKTABLE_NAME, COLUMN_NAME as FKCOLUMN_NAME," //
+                    + " ORDINAL_POSITION as KEY_SEQ, REFERENCED_TABLE_NAME as PKTABLE_NAME, REFERENCED_COLUMN_NAME as PKCOLUMN_NAME" //
+                    + " from information_schema.KEY_COLUMN_USAGE where TABLE_SCHEMA=database() and REFERENCED_TABLE_NAME is not null" //
+                    + " order by TABLE_NAME, CONSTRAINT_NAME, ORDINAL_POSITION"};
+
+    private static final String[] H2_KEY_QUERIES = new String[]{ //
+            "select kcu.TABLE_NAME as TABLE_NAME, kcu.COLUMN_NAME as COLUMN_NAME from INFORMATION_SCHEMA.TABLE_CONSTRAINTS tc" //
+                    + " join INFORMATION_SCHEMA.KEY_COLUMN_USAGE kcu on kcu.CONSTRAINT_SCHEMA=tc.CONSTRAINT_SCHEMA" //
+                    + " and kcu.CONSTRAINT_NAME=tc.CONSTRAINT_NAME" //
+                    + " where tc.CONSTRAINT_TYPE='PRIMARY KEY' and tc.TABLE_SCHEMA=current_schema" //
+                    + " order by kcu.TABLE_NAME, kcu.ORDINAL_POSITION", //
+            "select kcu.CONSTRAINT_NAME as FK_NAME, kcu.TABLE_NAME as FKTABLE_NAME, kcu.COLUMN_NAME as FKCOLUMN_NAME," //
+                    + " kcu.ORDINAL_POSITION as KEY_SEQ, pk.TABLE_NAME as PKTABLE_NAME, pk.COLUMN_NAME as PKCOLUMN_NAME" //
+                    + " from INFORMATION_SCHEMA.REFERENTIAL_CONSTRAINTS rc" //
+                    + " join INFORMATION_SCHEMA.KEY_COLUMN_USAGE kcu on kcu.CONSTRAINT_SCHEMA=rc.CONSTRAINT_SCHEMA" //
+                    + " and kcu.CONSTRAINT_NAME=rc.CONSTRAINT_NAME" //
+                    + " join INFORMATION_SCHEMA.KEY_COLUMN_USAGE pk on pk.CONSTRAINT_SCHEMA=rc.UNIQUE_CONSTRAINT_SCHEMA" //
+                    + " and pk.CONSTRAINT_NAME=rc.UNIQUE_CONSTRAINT_NAME and pk.ORDINAL_POSITION=kcu.POSITION_IN_UNIQUE_CONSTRAINT" //
+                    + " where rc.CONSTRAINT_SCHEMA=current_schema order by kcu.TABLE_NAME, kcu.CONSTRAINT_NAME, kcu.ORDINAL_POSITION"};
+
     public static void compareDB(Connection con1, Connection con2) {//compare 2 database
         doCompareDB(con1, con2, false);
     }
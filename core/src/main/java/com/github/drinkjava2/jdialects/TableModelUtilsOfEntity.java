@@ -15,14 +15,17 @@ import java.beans.BeanInfo;
 import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
 import java.lang.annotation.Annotation;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.WeakHashMap;
 
 import com.github.drinkjava2.jdialects.model.ColumnModel;
 import com.github.drinkjava2.jdialects.model.TableModel;
@@ -37,26 +40,44 @@ import com.github.drinkjava2.jdialects.springsrc.utils.ReflectionUtils;
 @SuppressWarnings("all")
 public abstract class TableModelUtilsOfEntity {// NOSONAR
 
-    public static Map<Class<?>, TableModel> globalTableModelCache = new ConcurrentHashMap<Class<?>, TableModel>();
+    /**
+     * A Map view of EntityModelRegistry, entries put by this map are bound models
+     * 
+     * @deprecated use EntityModelRegistry
+     */
+    @Deprecated
+    public static final Map<Class<?>, TableModel> globalTableModelCache = new EntityModelRegistry.ModelMapView();
 
-    public static Map<String, Class<?>> globalTableToEntityCache = new ConcurrentHashMap<String, Class<?>>();
+    /**
+     * A read-only Map view of table name index of EntityModelRegistry
+     * 
+     * @deprecated use EntityModelRegistry.tableNameToEntityClass()
+     */
+    @Deprecated
+    public static final Map<String, Class<?>> globalTableToEntityCache = new EntityModelRegistry.TableMapView();
+
+    /**
+     * EntityModelBuilders generated by jdialects-processor, key is ClassLoader.
+     * Builders refer entity classes, so the builder map is only weakly referenced
+     * here and strongly referenced by entity classes (see modelBuildersOfClass),
+     * it will not prevent a ClassLoader be garbage collected
+     */
+    private static final Map<ClassLoader, WeakReference<Map<Class<?>, EntityModelBuilder>>> generatedModelBuilders = new WeakHashMap<ClassLoader, WeakReference<Map<Class<?>, EntityModelBuilder>>>();
+
+    /** EntityModelBuilders of entity class's ClassLoader */
+    private static final ClassValue<Map<Class<?>, EntityModelBuilder>> modelBuildersOfClass = new ClassValue<Map<Class<?>, EntityModelBuilder>>() {
+        @Override
+        protected Map<Class<?>, EntityModelBuilder> computeValue(Class<?> type) {
+            return generatedModelBuilders(type.getClassLoader());
+        }
+    };
 
     /**
      * Convert tableName to entity class, note: before use this method
      * entity2Models() method should be called first to cache talbeModels in memory
      */
     public static Class<?> tableNameToEntityClass(String tableName) {
-        String lowCase = tableName.toLowerCase();
-        Class<?> result = globalTableToEntityCache.get(lowCase);
-        if (result != null)
-            return result;
-        for (Entry<Class<?>, TableModel> entry : globalTableModelCache.entrySet()) {
-            if (lowCase.equalsIgnoreCase(entry.getValue().getTableName())) {
-                globalTableToEntityCache.put(lowCase, entry.getKey());
-                return entry.getKey();
-            }
-        }
-        return null;
+        return EntityModelRegistry.tableNameToEntityClass(tableName);
     }
 
     private static boolean matchNameCheck(String annotationName, String cName) {
@@ -129,12 +150,12 @@ public abstract class TableModelUtilsOfEntity {// NOSONAR
      */
     public static TableModel entity2ReadOnlyModel(Class<?> entityClass) {
         DialectException.assureNotNull(entityClass, "Entity class can not be null");
-        TableModel model = globalTableModelCache.get(entityClass);
+        TableModel model = EntityModelRegistry.get(entityClass);
         if (model != null)
             return model;
         model = entity2ModelWithConfig(entityClass);
         model.setReadOnly(true);
-        globalTableModelCache.put(entityClass, model);
+        EntityModelRegistry.put(entityClass, model);
         return model;
     }
 
@@ -152,12 +173,12 @@ public abstract class TableModelUtilsOfEntity {// NOSONAR
      */
     public static TableModel entity2EditableModel(Class<?> entityClass) {
         DialectException.assureNotNull(entityClass, "Entity class can not be null");
-        TableModel model = globalTableModelCache.get(entityClass);
+        TableModel model = EntityModelRegistry.get(entityClass);
         if (model != null)
             return model.newCopy();
         model = entity2ModelWithConfig(entityClass);
         model.setReadOnly(true);
-        globalTableModelCache.put(entityClass, model);
+        EntityModelRegistry.put(entityClass, model);
         return model.newCopy();
     }
 
@@ -187,16 +208,7 @@ public abstract class TableModelUtilsOfEntity {// NOSONAR
         if (!StrUtils.isEmpty(tableMap.get("name")))
             tableName = (String) tableMap.get("name");
         
-        if (StrUtils.isEmpty(tableName)) {
-            if (Dialect.globalNamingConversion != null) //by namingConvention
-                tableName = Dialect.globalNamingConversion.getTableName(entityClass);
-            else
-                tableName = entityClass.getSimpleName();
-        }
-        
-        
-        
-        TableModel model = new TableModel(tableName); // Build the tableModel
+        TableModel model = new TableModel(tableNameOfEntity(entityClass, tableName)); // Build the tableModel
         model.setEntityClass(entityClass);
         if (!tableMap.isEmpty()) {
             // Index
@@ -296,15 +308,8 @@ public abstract class TableModelUtilsOfEntity {// NOSONAR
                     convertClassOrName = "EnumType." + convertMap.get("value"); // ORDINAL or String
             }
 
-            if (!getFirstEntityAnno(field, "Transient").isEmpty()
-                    || (convertClassOrName == null && !TypeUtils.canMapToDialectType(propertyClass))) {
-                ColumnModel col = new ColumnModel(entityfieldName);
-                col.setColumnType(TypeUtils.javaType2DialectType(propertyClass));
-                col.setTransientable(true);
-                col.setEntityField(entityfieldName);
-                col.setTableModel(model);
-                model.addColumn(col);
-            } else {
+            if (!addTransientColumn(model, entityfieldName, propertyClass, convertClassOrName,
+                    !getFirstEntityAnno(field, "Transient").isEmpty())) {
 
                 // @SequenceGenerator
                 Map<String, Object> map = getFirstEntityAnno(field, "SequenceGenerator");
@@ -329,10 +334,7 @@ public abstract class TableModelUtilsOfEntity {// NOSONAR
                 }
 
                 // @Version annotation
-                String columnName=entityfieldName;
-                if(Dialect.globalNamingConversion!=null)
-                    columnName=Dialect.globalNamingConversion.getColumnName(columnName);
-                ColumnModel col = new ColumnModel(columnName);
+                ColumnModel col = new ColumnModel(columnNameOfField(entityfieldName));
                 col.entityField(entityfieldName);
                 col.setConverterClassOrName(convertClassOrName);// @Convert's value
 
@@ -499,24 +501,98 @@ public abstract class TableModelUtilsOfEntity {// NOSONAR
         return model;
     }
 
+    /**
+     * Return the EntityModelBuilder generated by jdialects-processor for entity
+     * class, or null if not found
+     */
+    private static EntityModelBuilder generatedModelBuilder(Class<?> entityClass) {
+        if (entityClass.getClassLoader() == null)
+            return null;
+        return modelBuildersOfClass.get(entityClass).get(entityClass);
+    }
+
+    /** Load EntityModelBuilders by ServiceLoader once per ClassLoader */
+    private static Map<Class<?>, EntityModelBuilder> generatedModelBuilders(ClassLoader loader) {
+        synchronized (generatedModelBuilders) {
+            WeakReference<Map<Class<?>, EntityModelBuilder>> ref = generatedModelBuilders.get(loader);
+            Map<Class<?>, EntityModelBuilder> builders = ref == null ? null : ref.get();
+            if (builders != null)
+                return builders;
+            builders = new HashMap<Class<?>, EntityModelBuilder>();
+            Iterator<EntityModelBuilder> it = ServiceLoader.load(EntityModelBuilder.class, loader).iterator();
+            while (true)
+                try {
+                    if (!it.hasNext())
+                        break;
+                    EntityModelBuilder builder = it.next();
+                    builders.put(builder.entityClass(), builder);
+                } catch (ServiceConfigurationError e) {// NOSONAR a stale builder, use reflection for its entity
+                }
+            generatedModelBuilders.put(loader, new WeakReference<Map<Class<?>, EntityModelBuilder>>(builders));
+            return builders;
+        }
+    }
+
+    /**
+     * Return the table name of entity, if annotated table name is empty, use
+     * global NamingConversion or entity's simple class name
+     */
+    public static String tableNameOfEntity(Class<?> entityClass, String annotatedTableName) {
+        if (!StrUtils.isEmpty(annotatedTableName))
+            return annotatedTableName;
+        if (Dialect.globalNamingConversion != null) //by namingConvention
+            return Dialect.globalNamingConversion.getTableName(entityClass);
+        return entityClass.getSimpleName();
+    }
+
+    /** Return the column name of entity field by global NamingConversion */
+    public static String columnNameOfField(String entityField) {
+        if (Dialect.globalNamingConversion != null)
+            return Dialect.globalNamingConversion.getColumnName(entityField);
+        return entityField;
+    }
+
+    /**
+     * If entity field is marked as transient, or it can not map to a column
+     * type and has no converter, add a transient column for it and return true,
+     * otherwise return false
+     */
+    public static boolean addTransientColumn(TableModel model, String entityField, Class<?> propertyClass,
+            Object convertClassOrName, boolean transientAnnotation) {
+        if (!transientAnnotation && (convertClassOrName != null || TypeUtils.canMapToDialectType(propertyClass)))
+            return false;
+        ColumnModel col = new ColumnModel(entityField);
+        col.setColumnType(TypeUtils.javaType2DialectType(propertyClass));
+        col.setTransientable(true);
+        col.setEntityField(entityField);
+        col.setTableModel(model);
+        model.addColumn(col);
+        return true;
+    }
+
     /**
      * Convert entity class to a Editable TableModel instance , if this class has a
      * "config(TableModel tableModel)" method, will also call it
      */
     private static TableModel entity2ModelWithConfig(Class<?> entityClass) {
         TableModel model;
-        model = entity2ModelIgnoreConfigMethod(entityClass);
-        Method method = null;
-        try {
-            method = entityClass.getMethod("config", TableModel.class);
-        } catch (Exception e) {// NOSONAR
-        }
-        if (method != null)
+        EntityModelBuilder builder = generatedModelBuilder(entityClass);
+        if (builder != null)
+            model = builder.build();
+        else {
+            model = entity2ModelIgnoreConfigMethod(entityClass);
+            Method method = null;
             try {
-                method.invoke(null, model);
-            } catch (Exception e) {
-                throw new DialectException(e);
+                method = entityClass.getMethod("config", TableModel.class);
+            } catch (Exception e) {// NOSONAR
             }
+            if (method != null)
+                try {
+                    method.invoke(null, model);
+                } catch (Exception e) {
+                    throw new DialectException(e);
+                }
+        }
         if (model == null)
             throw new DialectException("Can not create TableModel for entityClass " + entityClass);
         TableModel.sortColumns(model.getColumns());
@@ -66,6 +66,16 @@ public class AutoIdGenerator implements IdGenerator {
 			return TABLE_AUTOID_INSTANCE.getNextID(con, dialect, dataType);
 	}
 
+	@Override
+	public Object[] getNextIDs(Connection con, Dialect dialect, Type dataType, int n) {
+		return getSequenceOrTableIdGenerator(dialect).getNextIDs(con, dialect, dataType, n);
+	}
+
+	@Override
+	public long[] getNextLongIDs(Connection con, Dialect dialect, Type dataType, int n) {
+		return getSequenceOrTableIdGenerator(dialect).getNextLongIDs(con, dialect, dataType, n);
+	}
+
 	/**
 	 * If dialect support sequence, return a SequenceIdGenerator, otherwise return a
 	 * TableIdGenerator
@@ -14,6 +14,7 @@ package com.github.drinkjava2.jdialects.id;
 import java.sql.Connection;
 
 import com.github.drinkjava2.jdialects.Dialect;
+import com.github.drinkjava2.jdialects.DialectException;
 import com.github.drinkjava2.jdialects.Type;
 import com.github.drinkjava2.jdialects.annotation.jpa.GenerationType;
 
@@ -39,6 +40,42 @@ public interface IdGenerator {// NOSONAR
 	 */
 	public Object getNextID(Connection con, Dialect dialect, Type dataType);
 
+	/**
+	 * Get n next IDs for bulk insert, default implementation calls getNextID n
+	 * times, ID generators which can reserve a range of IDs in one operation
+	 * override it
+	 * 
+	 * @param n
+	 *            quantity of IDs
+	 * @return n ids, same type as getNextID() returns
+	 */
+	public default Object[] getNextIDs(Connection con, Dialect dialect, Type dataType, int n) {
+		Object[] ids = new Object[n];
+		for (int i = 0; i < n; i++)
+			ids[i] = getNextID(con, dialect, dataType);
+		return ids;
+	}
+
+	/**
+	 * Get n next numeric IDs as primitive long values for bulk insert, default
+	 * implementation converts result of getNextIDs(), throw DialectException if
+	 * an ID is not a number
+	 * 
+	 * @param n
+	 *            quantity of IDs
+	 * @return n ids
+	 */
+	public default long[] getNextLongIDs(Connection con, Dialect dialect, Type dataType, int n) {
+		Object[] ids = getNextIDs(con, dialect, dataType, n);
+		long[] result = new long[n];
+		for (int i = 0; i < n; i++) {
+			if (!(ids[i] instanceof Number))
+				throw new DialectException("IdGenerator '" + getIdGenName() + "' generated a non-numeric ID: " + ids[i]);
+			result[i] = ((Number) ids[i]).longValue();
+		}
+		return result;
+	}
+
 	/** Return GenerationType */
 	public GenerationType getGenerationType();
 
@@ -12,6 +12,20 @@
 package com.github.drinkjava2.jdialects.id;
 
 import java.sql.Connection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.sql.DataSource;
 
 import com.github.drinkjava2.jdialects.Dialect;
 import com.github.drinkjava2.jdialects.DialectException;
@@ -23,7 +37,16 @@ import com.github.drinkjava2.jdialects.annotation.jpa.GenerationType;
 /**
  * The platform-independent SequenceGen model, similar like JPA
  * 
- * </pre>
+ * If pooled mode is on, sequence should be created as "start with initialValue
+ * increment by allocationSize" (see DDLCreateUtils), each nextval value v
+ * reserves a block of IDs from v to v + allocationSize - 1, IDs are handed out
+ * from memory by an atomic counter, only one thread goes to database when
+ * block used up. If a prefetch DataSource is set, next block is fetched by an
+ * Executor on a separate connection before current block used up. If the
+ * prefetch is not finished when current block used up, it's cancelled and next
+ * block is fetched on caller's connection, so callers never wait for the
+ * prefetch DataSource. A cancelled prefetch may already got its nextval value,
+ * that block is skipped, so IDs are contiguous only if no prefetch is used.
  * 
  * @author Yong Zhu
  * @since 1.0.0
@@ -53,6 +76,32 @@ public class SequenceIdGenerator implements IdGenerator {
 	 */
 	private Integer allocationSize = 1;
 
+	/** If true, use pooled mode, see class comment */
+	private Boolean pooled = false;
+
+	/** If not null, prefetch next block of pooled mode by this DataSource */
+	private DataSource prefetchDataSource;
+
+	/** Executor to run prefetch, if null use defaultPrefetchExecutor */
+	private Executor prefetchExecutor;
+
+	/** Created when first needed, its only thread exits when idle */
+	private final AtomicReference<Executor> defaultPrefetchExecutor = new AtomicReference<Executor>();
+
+	/** nextval SQL rendered for each dialect, key is dialect name */
+	private final ConcurrentHashMap<String, String> nextValSqlCache = new ConcurrentHashMap<String, String>();
+
+	/** Cache of batch nextval SQL per dialect, "" if dialect not supported */
+	private final ConcurrentHashMap<String, String> batchNextValSqlCache = new ConcurrentHashMap<String, String>();
+
+	/** Current reserved block of pooled mode */
+	private volatile Block block;
+
+	/** Next block being prefetched, or null */
+	private final AtomicReference<FutureTask<Block>> prefetched = new AtomicReference<FutureTask<Block>>();
+
+	private final Object blockLock = new Object();
+
 	public SequenceIdGenerator() {
 		// default constructor
 	}
@@ -64,12 +113,242 @@ public class SequenceIdGenerator implements IdGenerator {
 		this.allocationSize = allocationSize;
 	}
 
- 	@Override
+	public SequenceIdGenerator(String name, String sequenceName, Integer initialValue, Integer allocationSize,
+			Boolean pooled) {
+		this(name, sequenceName, initialValue, allocationSize);
+		this.pooled = pooled;
+	}
+
+	/**
+	 * Get the next Sequence Generator ID, if not pooled mode, each call get
+	 * nextval from database
+	 */
+	@Override
 	public Object getNextID(Connection con, Dialect dialect, Type dataType) {
-		DialectException.assureNotEmpty(sequenceName, "sequenceName can not be empty");
-		String sequenctSQL = dialect.ddlFeatures.getSequenceNextValString();
-		sequenctSQL = StrUtils.replace(sequenctSQL, "_SEQNAME", sequenceName);
-		return JdbcUtil.qryOneObject(con, sequenctSQL);
+		if (Boolean.TRUE.equals(pooled))
+			return getNextPooledID(con, dialect);
+		return JdbcUtil.qryOneObject(con, nextValSql(dialect));
+	}
+
+	/** Return nextval SQL of dialect, cached per dialect */
+	private String nextValSql(Dialect dialect) {
+		String sql = nextValSqlCache.get(dialect.toString());
+		if (sql == null) {
+			DialectException.assureNotEmpty(sequenceName, "sequenceName can not be empty");
+			sql = StrUtils.replace(dialect.ddlFeatures.getSequenceNextValString(), "_SEQNAME", sequenceName);
+			nextValSqlCache.put(dialect.toString(), sql);
+		}
+		return sql;
+	}
+
+	/**
+	 * Return SQL to get n nextval values in one query, n is its parameter, return
+	 * "" if dialect not supported
+	 */
+	private String batchNextValSql(Dialect dialect) {
+		String sql = batchNextValSqlCache.get(dialect.toString());
+		if (sql == null) {
+			DialectException.assureNotEmpty(sequenceName, "sequenceName can not be empty");
+			if (dialect.isOracleFamily())
+				sql = "select " + sequenceName + ".nextval from dual connect by level <= ?";
+			else if (dialect.isPostgresFamily())
+				sql = "select nextval('" + sequenceName + "') from generate_series(1, ?)";
+			else if (dialect.isH2Family())
+				sql = "select next value for " + sequenceName + " from system_range(1, ?)";
+			else
+				sql = "";
+			batchNextValSqlCache.put(dialect.toString(), sql);
+		}
+		return sql;
+	}
+
+	/**
+	 * Get n nextval values, by one query if dialect supported, otherwise one
+	 * query for each
+	 */
+	private Object[] nextVals(Connection con, Dialect dialect, int n) {
+		String sql = batchNextValSql(dialect);
+		if (sql.length() > 0) {
+			List<Object> values = JdbcUtil.qryFirstColumn(con, sql, n);
+			if (values.size() != n)
+				throw new DialectException(
+						"SequenceIdGenerator '" + name + "' expect " + n + " nextval values but got " + values.size());
+			return values.toArray();
+		}
+		String nextValSql = nextValSql(dialect);
+		Object[] values = new Object[n];
+		for (int i = 0; i < n; i++)
+			values[i] = JdbcUtil.qryOneObject(con, nextValSql);
+		return values;
+	}
+
+	/**
+	 * Get n IDs. If not pooled mode, get n nextval values by one query (Oracle,
+	 * Postgres and H2) or one query for each (other dialects); if pooled mode,
+	 * take IDs left in current block (and prefetched block) first, then fetch
+	 * all blocks needed for the rest by one query
+	 */
+	@Override
+	public Object[] getNextIDs(Connection con, Dialect dialect, Type dataType, int n) {
+		if (!Boolean.TRUE.equals(pooled))
+			return n == 0 ? new Object[0] : nextVals(con, dialect, n);
+		long[] ids = getNextLongIDs(con, dialect, dataType, n);
+		Object[] result = new Object[n];
+		for (int i = 0; i < n; i++)
+			result[i] = ids[i];
+		return result;
+	}
+
+	@Override
+	public long[] getNextLongIDs(Connection con, Dialect dialect, Type dataType, int n) {
+		if (!Boolean.TRUE.equals(pooled))
+			return IdGenerator.super.getNextLongIDs(con, dialect, dataType, n);
+		long[] ids = new long[n];
+		int filled = takeFromBlock(block, ids, 0, dialect);
+		if (filled < n)
+			synchronized (blockLock) {
+				filled = takeFromBlock(block, ids, filled, dialect);
+				if (filled < n) {
+					Block b = takePrefetched();
+					if (b != null) {
+						filled = takeFromBlock(b, ids, filled, dialect);
+						block = b; // publish after taken, other threads can not take IDs this call needs
+					}
+				}
+				if (filled < n) {
+					checkAllocationSize();
+					int rest = n - filled;
+					Object[] values = nextVals(con, dialect, (rest + allocationSize - 1) / allocationSize);
+					Block b = null;
+					for (Object value : values) {
+						b = newBlock(value);
+						filled = takeFromBlock(b, ids, filled, dialect);
+					}
+					block = b;
+				}
+			}
+		return ids;
+	}
+
+	/**
+	 * Take IDs from block to fill ids since given position, return new position.
+	 * If prefetchAt is taken, start prefetch
+	 */
+	private int takeFromBlock(Block b, long[] ids, int filled, Dialect dialect) {
+		if (b == null)
+			return filled;
+		long id = b.next.getAndAdd(ids.length - filled);
+		if (id <= b.prefetchAt && b.prefetchAt < id + ids.length - filled)
+			prefetch(dialect);
+		while (filled < ids.length && id <= b.max)
+			ids[filled++] = id++;
+		return filled;
+	}
+
+	/** Get next ID from reserved block, if block used up, reserve a new block */
+	private Object getNextPooledID(Connection con, Dialect dialect) {
+		Block b = block;
+		if (b != null) {
+			long id = b.next.getAndIncrement();
+			if (id <= b.max) {
+				if (id == b.prefetchAt)
+					prefetch(dialect);
+				return id;
+			}
+		}
+		synchronized (blockLock) {
+			b = block;
+			if (b != null) {// other thread may already reserved a new block
+				long id = b.next.getAndIncrement();
+				if (id <= b.max)
+					return id;
+			}
+			b = takePrefetched();
+			if (b == null)
+				b = newBlock(JdbcUtil.qryOneObject(con, nextValSql(dialect)));
+			long id = b.next.getAndIncrement();
+			block = b; // publish after taken, other threads can not use up a small block first
+			return id;
+		}
+	}
+
+	/** Start fetching next block on prefetch DataSource, if it is set */
+	private void prefetch(final Dialect dialect) {
+		final DataSource ds = prefetchDataSource;
+		if (ds == null)
+			return;
+		FutureTask<Block> task = new FutureTask<Block>(new Callable<Block>() {
+			@Override
+			public Block call() {
+				return newBlock(JdbcUtil.qryOneObject(ds, nextValSql(dialect)));
+			}
+		});
+		if (!prefetched.compareAndSet(null, task))
+			return;
+		Executor executor = prefetchExecutor;
+		(executor == null ? defaultPrefetchExecutor() : executor).execute(task);
+	}
+
+	/**
+	 * Return executor of this generator to run prefetch if no prefetchExecutor is
+	 * set, it has at most one daemon thread which exits after 10 seconds idle, so
+	 * a slow DataSource only delays prefetch of its own generator, and no thread
+	 * keeps the ClassLoader alive after the application stopped
+	 */
+	private Executor defaultPrefetchExecutor() {
+		Executor executor = defaultPrefetchExecutor.get();
+		if (executor == null) {
+			// an executor which lost the race never started a thread, no need to shut it down
+			defaultPrefetchExecutor.compareAndSet(null, new ThreadPoolExecutor(0, 1, 10, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+						@Override
+						public Thread newThread(Runnable r) {
+							Thread t = new Thread(r, "jDialects-sequence-prefetch");
+							t.setDaemon(true);
+							t.setContextClassLoader(null);
+							return t;
+						}
+					}));
+			executor = defaultPrefetchExecutor.get();
+		}
+		return executor;
+	}
+
+	/**
+	 * Return prefetched block, return null if no prefetch or prefetch failed. If
+	 * prefetch is still running, cancel it and return null, caller holds blockLock
+	 * and should not wait for the prefetch DataSource
+	 */
+	private Block takePrefetched() {
+		FutureTask<Block> task = prefetched.getAndSet(null);
+		if (task == null)
+			return null;
+		if (!task.isDone()) {
+			task.cancel(false);
+			return null;
+		}
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		} catch (ExecutionException e) {// NOSONAR fetch again on caller's connection
+			return null;
+		}
+	}
+
+	private void checkAllocationSize() {
+		if (allocationSize == null || allocationSize < 1)
+			throw new DialectException(
+					"SequenceIdGenerator '" + name + "' allocationSize should be greater than 0 in pooled mode");
+	}
+
+	private Block newBlock(Object nextVal) {
+		checkAllocationSize();
+		if (nextVal == null)
+			throw new DialectException("SequenceIdGenerator '" + name + "' got null nextval");
+		long first = ((Number) nextVal).longValue();
+		return new Block(first, first + allocationSize - 1);
 	}
 	 
 	@Override
@@ -84,7 +363,10 @@ public class SequenceIdGenerator implements IdGenerator {
 
 	@Override
 	public IdGenerator newCopy() {
-		return new SequenceIdGenerator(name,sequenceName,initialValue,allocationSize);
+		SequenceIdGenerator copy = new SequenceIdGenerator(name, sequenceName, initialValue, allocationSize, pooled);
+		copy.prefetchDataSource = prefetchDataSource;
+		copy.prefetchExecutor = prefetchExecutor;
+		return copy;
 	}
 	
 	@Override
@@ -107,6 +389,8 @@ public class SequenceIdGenerator implements IdGenerator {
 
 	public void setSequenceName(String sequenceName) {
 		this.sequenceName = sequenceName;
+		nextValSqlCache.clear();
+		batchNextValSqlCache.clear();
 	}
 
 	public Integer getInitialValue() {
@@ -125,4 +409,49 @@ public class SequenceIdGenerator implements IdGenerator {
 		this.allocationSize = allocationSize;
 	}
 
+	public Boolean getPooled() {
+		return pooled;
+	}
+
+	public void setPooled(Boolean pooled) {
+		this.pooled = pooled;
+	}
+
+	public DataSource getPrefetchDataSource() {
+		return prefetchDataSource;
+	}
+
+	/**
+	 * Set the DataSource to prefetch next block of pooled mode, when 80% of
+	 * current block used, next block is fetched on a separate connection from
+	 * this DataSource, null means fetch on caller's connection when block used up
+	 */
+	public void setPrefetchDataSource(DataSource prefetchDataSource) {
+		this.prefetchDataSource = prefetchDataSource;
+	}
+
+	public Executor getPrefetchExecutor() {
+		return prefetchExecutor;
+	}
+
+	/**
+	 * Set the Executor to run prefetch, if null use a daemon thread of this
+	 * generator which exits when idle
+	 */
+	public void setPrefetchExecutor(Executor prefetchExecutor) {
+		this.prefetchExecutor = prefetchExecutor;
+	}
+
+	/** A block of reserved IDs, from next to max (inclusive) */
+	private static class Block {
+		final AtomicLong next;
+		final long max;
+		final long prefetchAt;
+
+		Block(long first, long max) {
+			this.next = new AtomicLong(first);
+			this.max = max;
+			this.prefetchAt = first + (max - first + 1) * 4 / 5;
+		}
+	}
 }
@@ -23,6 +23,9 @@ import java.util.concurrent.atomic.AtomicLong;
  * 
  * Usage example: long id= new SnowflakeCreator(5L,5L, 18, 31).nextId(); <br/>
  * 
+ * This class is thread safe and lock free, see nextId() and nextIds() method
+ * <br/>
+ * 
  * P1 is datacenterIdBits, 1~9 bits<br/>
  * P2 is workerIdBits, 1~9 bits<br/>
  * P3 is real datacenterId, 0 to 511 <br/>
@@ -87,48 +90,87 @@ public class SnowflakeCreator {
 	private final long epoch = 1451606400000L;
 
 	/**
-	 * the unique and incrementing sequence number scoped in only one period/unit
-	 * (here is ONE millisecond). its value will be increased by 1 in the same
-	 * specified period and then reset to 0 for next period.
+	 * the time stamp (millisecond elapsed since epoch) last snowflake ID
+	 * generated and the sequence number in it, packed as "timestamp <<
+	 * sequenceBits | sequence", updated by CAS.
 	 * <p>
-	 * max: 2^12-1 range: [0,4095]
+	 * sequence is the unique and incrementing sequence number scoped in only one
+	 * period/unit (here is ONE millisecond), max: 2^12-1 range: [0,4095]. When
+	 * sequence overflows, packed value carries into next millisecond
 	 */
-	private long sequence = 0L;
+	private final AtomicLong lastState = new AtomicLong(0L);
 
-	/** the time stamp last snowflake ID generated */
-	private long lastTimestamp = -1L;
+	/**
+	 * how many milliseconds IDs can be ahead of system clock, caused by sequence
+	 * overflow or by clock moved backwards, 0 means wait next millisecond for
+	 * sequence overflow and refuse to generate id if clock moved backwards
+	 */
+	private final long maxBorrowMillis;
 
 	/**
 	 * generate an unique and incrementing id
 	 *
 	 * @return id
 	 */
-	public synchronized long nextId() {
-		long currTimestamp = timestampGen();
+	public long nextId() {
+		return toId(reserve(1));
+	}
 
-		if (currTimestamp < lastTimestamp) {
-			throw new IllegalStateException(
-					String.format("Clock moved backwards. Refusing to generate id for %d milliseconds",
-							lastTimestamp - currTimestamp));
+	/**
+	 * generate n unique and incrementing ids, at most 4096 ids are reserved by
+	 * one CAS operation
+	 *
+	 * @param n
+	 *            quantity of ids
+	 * @return ids
+	 */
+	public long[] nextIds(int n) {
+		if (n < 0)
+			throw new IllegalArgumentException("Quantity of ids can't be less than 0");
+		long[] ids = new long[n];
+		int i = 0;
+		while (i < n) {
+			int size = (int) Math.min(n - i, maxSequence + 1);
+			long first = reserve(size);
+			for (int j = 0; j < size; j++)
+				ids[i++] = toId(first + j);
 		}
+		return ids;
+	}
 
-		if (currTimestamp == lastTimestamp) {
-			sequence = (sequence + 1) & maxSequence;
-			if (sequence == 0) { // overflow: greater than max sequence
-				currTimestamp = waitNextMillis(currTimestamp);
+	/**
+	 * reserve n (at most maxSequence + 1) continuous packed "timestamp, sequence"
+	 * values
+	 * 
+	 * @return the first reserved value
+	 */
+	private long reserve(int n) {
+		while (true) {
+			long prev = lastState.get(); // read before clock, to not see a newer state
+			long currTimestamp = timestampGen() - epoch;
+			long lastTimestamp = prev >>> sequenceBits;
+			if (lastTimestamp - currTimestamp > maxBorrowMillis)
+				throw new IllegalStateException(
+						String.format("Clock moved backwards. Refusing to generate id for %d milliseconds",
+								lastTimestamp - currTimestamp));
+			long first = Math.max(prev + 1, currTimestamp << sequenceBits);
+			long last = first + n - 1;
+			long borrowed = (last >>> sequenceBits) - currTimestamp;
+			if (borrowed > maxBorrowMillis) { // overflow: wait clock catch up
+				waitNextMillis(epoch + currTimestamp + borrowed - maxBorrowMillis - 1);
+				continue;
 			}
-
-		} else { // reset to 0 for next period/millisecond
-			sequence = 0L;
+			if (lastState.compareAndSet(prev, last))
+				return first;
 		}
+	}
 
-		// track and memo the time stamp last snowflake ID generated
-		lastTimestamp = currTimestamp;
-
-		return ((currTimestamp - epoch) << timestampShift) | //
+	/** build id from packed "timestamp, sequence" value */
+	private long toId(long state) {
+		return ((state >>> sequenceBits) << timestampShift) | //
 				(datacenterId << datacenterIdShift) | //
 				(workerId << workerIdShift) | // new line for nice looking
-				sequence;
+				(state & maxSequence);
 	}
 
 	/**
@@ -138,6 +180,23 @@ public class SnowflakeCreator {
 	 *            machine or process number, value range: [0,31]
 	 */
 	public SnowflakeCreator(long datacenterIdBits, long workerIdBits, long datacenterId, long workerId) {
+		this(datacenterIdBits, workerIdBits, datacenterId, workerId, 0L);
+	}
+
+	/**
+	 * @param datacenterId
+	 *            data center number the process running on, value range: [0,31]
+	 * @param workerId
+	 *            machine or process number, value range: [0,31]
+	 * @param maxBorrowMillis
+	 *            how many milliseconds IDs can be ahead of system clock, if clock
+	 *            moved backwards not more than it, IDs continue from last time
+	 *            stamp instead of throwing IllegalStateException, and sequence
+	 *            overflow use next milliseconds instead of waiting, 0 means not
+	 *            borrow
+	 */
+	public SnowflakeCreator(long datacenterIdBits, long workerIdBits, long datacenterId, long workerId,
+			long maxBorrowMillis) {
 		this.datacenterIdBits = datacenterIdBits;
 		this.workerIdBits = workerIdBits;
 
@@ -152,9 +211,13 @@ public class SnowflakeCreator {
 			throw new IllegalArgumentException(
 					String.format("worker Id can't be greater than %d or less than 0", maxWorkerId));
 		}
+		if (maxBorrowMillis < 0) {
+			throw new IllegalArgumentException("maxBorrowMillis can't be less than 0");
+		}
 
 		this.datacenterId = datacenterId;
 		this.workerId = workerId;
+		this.maxBorrowMillis = maxBorrowMillis;
 	}
 
 	/**
@@ -170,15 +233,16 @@ public class SnowflakeCreator {
 	}
 
 	/**
-	 * running loop blocking until next millisecond
+	 * running loop blocking until clock passed given time stamp
 	 * 
-	 * @param currTimestamp
-	 *            current time stamp
+	 * @param timestamp
+	 *            time stamp in millisecond to wait pass
 	 * @return current time stamp in millisecond
 	 */
-	protected long waitNextMillis(long currTimestamp) {
+	protected long waitNextMillis(long timestamp) {
 		waitCount.incrementAndGet();
-		while (currTimestamp <= lastTimestamp) {
+		long currTimestamp = timestampGen();
+		while (currTimestamp <= timestamp) {
 			currTimestamp = timestampGen();
 		}
 		return currTimestamp;
@@ -200,7 +264,8 @@ public class SnowflakeCreator {
 	public String toString() {
 		return "Snowflake Settings [timestampBits=" + timestampBits + ", datacenterIdBits=" + datacenterIdBits
 				+ ", workerIdBits=" + workerIdBits + ", sequenceBits=" + sequenceBits + ", epoch=" + epoch
-				+ ", datacenterId=" + datacenterId + ", workerId=" + workerId + "]";
+				+ ", datacenterId=" + datacenterId + ", workerId=" + workerId + ", maxBorrowMillis=" + maxBorrowMillis
+				+ "]";
 	}
 
 	public long getEpoch() {
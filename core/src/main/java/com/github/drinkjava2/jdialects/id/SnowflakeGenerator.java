@@ -19,19 +19,58 @@ import com.github.drinkjava2.jdialects.Type;
 import com.github.drinkjava2.jdialects.annotation.jpa.GenerationType;
 
 /**
- * SnowflakeGenerator is a special generator, only mark this column is a
- * snowflake type column, but getNextID() method does not work, because
- * snowflake value should generated by outside program, it depends on real
- * machine setting, in jDialects there is a SnowflakeCreator tool for these
- * outside program to use
+ * SnowflakeGenerator is a special generator, mark this column is a snowflake
+ * type column. Snowflake value depends on real machine setting, so getNextID()
+ * method only works after a global SnowflakeCreator be set by
+ * setGlobalSnowflakeCreator() method, otherwise snowflake value should
+ * generated by outside program, in jDialects there is a SnowflakeCreator tool
+ * for these outside program to use
  */
 @SuppressWarnings("all")
 public class SnowflakeGenerator implements IdGenerator {
 	public final static SnowflakeGenerator INSTANCE = new SnowflakeGenerator();
 
+	private static volatile SnowflakeCreator globalSnowflakeCreator = null;
+
 	@Override
 	public Object getNextID(Connection con, Dialect dialect, Type dataType) {
-		throw new DialectException("Snowflake type column value should generated by outside program.");
+		SnowflakeCreator creator = globalSnowflakeCreator;
+		if (creator == null)
+			throw new DialectException(
+					"Snowflake type column value should generated by outside program, or set a global SnowflakeCreator by SnowflakeGenerator.setGlobalSnowflakeCreator() method.");
+		return creator.nextId();
+	}
+
+	@Override
+	public Object[] getNextIDs(Connection con, Dialect dialect, Type dataType, int n) {
+		long[] ids = getNextLongIDs(con, dialect, dataType, n);
+		Object[] result = new Object[n];
+		for (int i = 0; i < n; i++)
+			result[i] = ids[i];
+		return result;
+	}
+
+	/** Get n snowflake IDs by global SnowflakeCreator's nextIds() method */
+	@Override
+	public long[] getNextLongIDs(Connection con, Dialect dialect, Type dataType, int n) {
+		SnowflakeCreator creator = globalSnowflakeCreator;
+		if (creator == null)
+			throw new DialectException(
+					"Snowflake type column value should generated by outside program, or set a global SnowflakeCreator by SnowflakeGenerator.setGlobalSnowflakeCreator() method.");
+		return creator.nextIds(n);
+	}
+
+	public static SnowflakeCreator getGlobalSnowflakeCreator() {
+		return globalSnowflakeCreator;
+	}
+
+	/**
+	 * Set the SnowflakeCreator used by getNextID() method, it should be created by
+	 * real machine setting (datacenterId and workerId), set null to let snowflake
+	 * value generated by outside program
+	 */
+	public static void setGlobalSnowflakeCreator(SnowflakeCreator snowflakeCreator) {
+		globalSnowflakeCreator = snowflakeCreator;
 	}
 
 	@Override
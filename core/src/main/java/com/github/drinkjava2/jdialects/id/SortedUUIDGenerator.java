@@ -56,7 +56,20 @@ public class SortedUUIDGenerator implements IdGenerator {
 	
 	@Override
 	public Object getNextID(Connection con, Dialect dialect, Type dataType) {
-		String s = "" + AutoIdGenerator.INSTANCE.getNextID(con, dialect, dataType);
+		return sortedUUID(AutoIdGenerator.INSTANCE.getNextID(con, dialect, dataType));
+	}
+
+	/** Get n sorted UUIDs, sorted parts come from one batch of AutoIdGenerator */
+	@Override
+	public Object[] getNextIDs(Connection con, Dialect dialect, Type dataType, int n) {
+		Object[] ids = AutoIdGenerator.INSTANCE.getNextIDs(con, dialect, dataType, n);
+		for (int i = 0; i < n; i++)
+			ids[i] = sortedUUID(ids[i]);
+		return ids;
+	}
+
+	private String sortedUUID(Object autoId) {
+		String s = "" + autoId;
 		if (s.length() > (sortedLength - 1))
 			throw new DialectException("SortedLength should set bigger than auto generated ID length");
 		StringBuilder sb = new StringBuilder("1");
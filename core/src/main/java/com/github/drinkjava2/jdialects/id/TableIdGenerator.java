@@ -12,14 +12,32 @@
 package com.github.drinkjava2.jdialects.id;
 
 import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
 
 import com.github.drinkjava2.jdialects.Dialect;
+import com.github.drinkjava2.jdialects.DialectException;
 import com.github.drinkjava2.jdialects.JdbcUtil;
 import com.github.drinkjava2.jdialects.Type;
 import com.github.drinkjava2.jdialects.annotation.jpa.GenerationType;
 
 /**
- * The platform-independent table model
+ * The platform-independent table model. <br/>
+ * 
+ * If pooled mode is on, each instance reserves a block of allocationSize
+ * values in one transaction (the value column is increased by allocationSize,
+ * and all values after the old value till the new value belong to this
+ * instance), then hands out IDs from memory, only one thread goes to database
+ * when block used up. Blocks reserved by different instances or JVMs (pooled or
+ * not) never overlap.
+ * 
+ * A block must be committed before its IDs are handed out, otherwise a
+ * rollback of caller's transaction would let another JVM reserve same block
+ * again. So pooled mode reserves blocks on a separate connection of
+ * reserveDataSource if it's set, otherwise caller's connection must be in auto
+ * commit mode.
  * 
  * @author Yong Zhu
  * @since 1.0.2
@@ -63,6 +81,17 @@ public class TableIdGenerator implements IdGenerator {
 	 */
 	private Integer allocationSize = 50;
 
+	/** If true, use pooled mode, see class comment */
+	private Boolean pooled = false;
+
+	/** If not null, pooled mode reserves blocks on connections of this DataSource */
+	private DataSource reserveDataSource;
+
+	/** Current reserved block of pooled mode */
+	private volatile Block block;
+
+	private final Object blockLock = new Object();
+
 	public TableIdGenerator() {
 		super();
 	}
@@ -78,10 +107,18 @@ public class TableIdGenerator implements IdGenerator {
 		this.allocationSize = allocationSize;
 	}
 
+	public TableIdGenerator(String name, String table, String pkColumnName, String valueColumnName,
+			String pkColumnValue, Integer initialValue, Integer allocationSize, Boolean pooled) {
+		this(name, table, pkColumnName, valueColumnName, pkColumnValue, initialValue, allocationSize);
+		this.pooled = pooled;
+	}
+
 	@Override
 	public IdGenerator newCopy() {
-		return new TableIdGenerator(name, table, pkColumnName, valueColumnName, pkColumnValue, initialValue,
-				allocationSize);
+		TableIdGenerator copy = new TableIdGenerator(name, table, pkColumnName, valueColumnName, pkColumnValue,
+				initialValue, allocationSize, pooled);
+		copy.reserveDataSource = reserveDataSource;
+		return copy;
 	}
 
 	@Override
@@ -100,25 +137,225 @@ public class TableIdGenerator implements IdGenerator {
 	}
 
 	/**
-	 * Get the next Table Generator ID
+	 * Get the next Table Generator ID, if not pooled mode, each call increases
+	 * value by allocationSize and return the new value, statements run in caller's
+	 * connection mode
 	 */
 	@Override
 	public Object getNextID(Connection con, Dialect dialect, Type dataType) {
-		int countOfRec = ((Number) JdbcUtil // NOSONAR
-				.qryOneObject(con, "select count(*) from " + table + " where " + pkColumnName + "=?", pkColumnValue))
-						.intValue();
-		if (countOfRec == 0) {
-		    JdbcUtil.execute(con, "insert into " + table + "( " + pkColumnName + "," + valueColumnName + " )  values(?,?)",
-					pkColumnValue, initialValue);
-			return initialValue;
-		} else {
-		    JdbcUtil.execute(con, "update " + table + " set " + valueColumnName + "=" + valueColumnName + "+" + allocationSize
-					+ "  where " + pkColumnName + " =?", pkColumnValue);
-
-			int last = ((Number) JdbcUtil.qryOneObject(con, // NOSONAR
-					"select " + valueColumnName + " from " + table + " where " + pkColumnName + "=?", pkColumnValue))
-							.intValue();
-			return last;
+		if (Boolean.TRUE.equals(pooled))
+			return getNextPooledID(con);
+		return (int) reserveInCallerMode(con, allocationSize, 1).max;
+	}
+
+	/** Get next ID from reserved block, if block used up, reserve a new block */
+	private Object getNextPooledID(Connection con) {
+		Block b = block;
+		if (b != null) {
+			long id = b.next.getAndIncrement();
+			if (id <= b.max)
+				return (int) id;
+		}
+		synchronized (blockLock) {
+			b = block;
+			if (b != null) {// other thread may already reserved a new block
+				long id = b.next.getAndIncrement();
+				if (id <= b.max)
+					return (int) id;
+			}
+			b = reservePooledBlock(con, allocationSize, allocationSize);
+			long id = b.next.getAndIncrement();
+			block = b; // publish after taken, other threads can not use up a small block first
+			return (int) id;
+		}
+	}
+
+	@Override
+	public Object[] getNextIDs(Connection con, Dialect dialect, Type dataType, int n) {
+		long[] ids = getNextLongIDs(con, dialect, dataType, n);
+		Object[] result = new Object[n];
+		for (int i = 0; i < n; i++)
+			result[i] = (int) ids[i];
+		return result;
+	}
+
+	/**
+	 * Get n IDs by one block update. If not pooled mode, reserves a block of n
+	 * values; if pooled mode, take IDs left in current block first, then reserve
+	 * one block of multiple allocationSize for the rest
+	 */
+	@Override
+	public long[] getNextLongIDs(Connection con, Dialect dialect, Type dataType, int n) {
+		long[] ids = new long[n];
+		if (n == 0)
+			return ids;
+		if (!Boolean.TRUE.equals(pooled)) {
+			takeFromBlock(reserveBlock(con, n, n), ids, 0);
+			return ids;
+		}
+		int filled = takeFromBlock(block, ids, 0);
+		if (filled < n)
+			synchronized (blockLock) {
+				filled = takeFromBlock(block, ids, filled);
+				if (filled < n) {
+					checkAllocationSize();
+					int rest = n - filled;
+					int size = (rest + allocationSize - 1) / allocationSize * allocationSize;
+					Block b = reservePooledBlock(con, size, size);
+					takeFromBlock(b, ids, filled);
+					block = b; // publish after taken, other threads can not take IDs this call needs
+				}
+			}
+		return ids;
+	}
+
+	/** Take IDs from block to fill ids since given position, return new position */
+	private static int takeFromBlock(Block b, long[] ids, int filled) {
+		if (b == null)
+			return filled;
+		long id = b.next.getAndAdd(ids.length - filled);
+		while (filled < ids.length && id <= b.max)
+			ids[filled++] = id++;
+		return filled;
+	}
+
+	/**
+	 * Reserve a block for pooled mode in a committed transaction of its own, on a
+	 * connection of reserveDataSource if it's set, otherwise on caller's
+	 * connection which must be in auto commit mode
+	 */
+	private Block reservePooledBlock(Connection con, Integer size, int firstSize) {
+		checkAllocationSize();
+		DataSource ds = reserveDataSource;
+		if (ds == null) {
+			if (!getAutoCommit(con))
+				throw new DialectException("TableIdGenerator '" + name
+						+ "' pooled mode can not reserve block in caller's transaction, set a reserveDataSource or use an auto commit connection");
+			return reserveInOwnTransaction(con, size, firstSize);
+		}
+		try (Connection reserveCon = ds.getConnection()) {
+			return reserveInOwnTransaction(reserveCon, size, firstSize);
+		} catch (SQLException e) {
+			throw new DialectException("TableIdGenerator '" + name + "' can not get connection from reserveDataSource",
+					e);
+		}
+	}
+
+	/**
+	 * Reserve a block, if connection is in auto commit mode, reserve it in one
+	 * transaction and commit it at end, otherwise it's a part of current
+	 * transaction
+	 */
+	private Block reserveBlock(Connection con, Integer size, int firstSize) {
+		if (getAutoCommit(con))
+			return reserveInOwnTransaction(con, size, firstSize);
+		return doReserveBlock(con, size, firstSize);
+	}
+
+	/**
+	 * Reserve a block by single statements in caller's connection mode. If insert
+	 * the first record failed in auto commit mode, retry once
+	 */
+	private Block reserveInCallerMode(Connection con, Integer size, int firstSize) {
+		try {
+			return doReserveBlock(con, size, firstSize);
+		} catch (InsertFailedException e) {
+			if (!getAutoCommit(con))
+				throw e;
+			return doReserveBlock(con, size, firstSize);
+		}
+	}
+
+	/** Reserve a block in one transaction and commit it */
+	private Block reserveInOwnTransaction(Connection con, Integer size, int firstSize) {
+		boolean autoCommit = getAutoCommit(con);
+		try {
+			if (autoCommit)
+				con.setAutoCommit(false);
+		} catch (SQLException e) {
+			throw new DialectException("TableIdGenerator '" + name + "' can not start a transaction", e);
+		}
+		try {
+			Block b;
+			try {
+				b = doReserveBlock(con, size, firstSize);
+			} catch (InsertFailedException e) {
+				rollback(con);
+				b = doReserveBlock(con, size, firstSize);
+			}
+			con.commit();
+			return b;
+		} catch (SQLException e) {
+			rollback(con);
+			throw new DialectException("TableIdGenerator '" + name + "' can not commit transaction", e);
+		} catch (RuntimeException e) {
+			rollback(con);
+			throw e;
+		} finally {
+			if (autoCommit)
+				try {
+					con.setAutoCommit(true);
+				} catch (SQLException e) {
+					DialectException.eatException(e);
+				}
+		}
+	}
+
+	/**
+	 * Increase value by size, the update locks the record till transaction end,
+	 * so the value read back belongs to this block only. If no record, insert a
+	 * record as the first block of firstSize values start from initialValue
+	 */
+	private Block doReserveBlock(Connection con, Integer size, int firstSize) {
+		int updated = JdbcUtil.executeUpdate(con, "update " + table + " set " + valueColumnName + "=" + valueColumnName
+				+ "+" + size + "  where " + pkColumnName + " =?", pkColumnValue);
+		if (updated == 0) {
+			try {
+				JdbcUtil.execute(con,
+						"insert into " + table + "( " + pkColumnName + "," + valueColumnName + " )  values(?,?)",
+						pkColumnValue, initialValue + firstSize - 1);
+			} catch (RuntimeException e) {
+				throw new InsertFailedException(e);
+			}
+			return new Block(initialValue, initialValue + firstSize - 1L);
+		}
+		long last = ((Number) JdbcUtil.qryOneObject(con, // NOSONAR
+				"select " + valueColumnName + " from " + table + " where " + pkColumnName + "=?", pkColumnValue))
+						.longValue();
+		return new Block(size == null ? last : last - size + 1, last);
+	}
+
+	/**
+	 * Insert the first record failed after update found no record, maybe other JVM
+	 * inserted it at same time, then the update can be retried
+	 */
+	private static class InsertFailedException extends DialectException {
+		private static final long serialVersionUID = 1L;
+
+		InsertFailedException(Throwable cause) {
+			super(cause);
+		}
+	}
+
+	private void checkAllocationSize() {
+		if (allocationSize == null || allocationSize < 1)
+			throw new DialectException(
+					"TableIdGenerator '" + name + "' allocationSize should be greater than 0 in pooled mode");
+	}
+
+	private boolean getAutoCommit(Connection con) {
+		try {
+			return con.getAutoCommit();
+		} catch (SQLException e) {
+			throw new DialectException("TableIdGenerator '" + name + "' can not get auto commit mode", e);
+		}
+	}
+
+	private static void rollback(Connection con) {
+		try {
+			con.rollback();
+		} catch (SQLException e) {
+			DialectException.eatException(e);
 		}
 	}
 
@@ -178,4 +415,37 @@ public class TableIdGenerator implements IdGenerator {
 	public void setAllocationSize(Integer allocationSize) {
 		this.allocationSize = allocationSize;
 	}
+
+	public Boolean getPooled() {
+		return pooled;
+	}
+
+	public void setPooled(Boolean pooled) {
+		this.pooled = pooled;
+	}
+
+	public DataSource getReserveDataSource() {
+		return reserveDataSource;
+	}
+
+	/**
+	 * Set the DataSource to reserve blocks of pooled mode, each block is reserved
+	 * and committed on a separate connection from this DataSource, so caller's
+	 * connection can be in a transaction. If null, caller's connection must be in
+	 * auto commit mode in pooled mode
+	 */
+	public void setReserveDataSource(DataSource reserveDataSource) {
+		this.reserveDataSource = reserveDataSource;
+	}
+
+	/** A block of reserved IDs, from next to max (inclusive) */
+	private static class Block {
+		final AtomicLong next;
+		final long max;
+
+		Block(long first, long max) {
+			this.next = new AtomicLong(first);
+			this.max = max;
+		}
+	}
 }
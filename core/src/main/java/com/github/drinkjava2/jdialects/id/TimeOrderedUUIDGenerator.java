@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS
+ * OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.github.drinkjava2.jdialects.id;
+
+import java.sql.Connection;
+
+import com.github.drinkjava2.jdialects.Dialect;
+import com.github.drinkjava2.jdialects.DialectException;
+import com.github.drinkjava2.jdialects.Type;
+import com.github.drinkjava2.jdialects.annotation.jpa.GenerationType;
+
+/**
+ * Generate a time ordered UUID (UUID version 7) in 32 letters (no dash) or 36
+ * letters (with dash), values are increasing in one JVM, so new rows are
+ * inserted at end of B-tree index, for example:<br/>
+ * 0199f7a2c4e07000b3c94e1f5a2d8c61
+ * 
+ * @author Yong Zhu
+ * @since 5.0.13
+ */
+public class TimeOrderedUUIDGenerator implements IdGenerator {
+	private String name;
+	private Integer length = 32;
+
+	public TimeOrderedUUIDGenerator() {
+		// default constructor
+	}
+
+	/**
+	 * Build a TimeOrderedUUIDGenerator, length should be 32 or 36
+	 */
+	public TimeOrderedUUIDGenerator(String name, Integer length) {
+		if (length == null || (length != 32 && length != 36))
+			throw new DialectException("Length of TimeOrderedUUIDGenerator should be 32 or 36");
+		this.name = name;
+		this.length = length;
+	}
+
+	@Override
+	public GenerationType getGenerationType() {
+		return GenerationType.OTHER;
+	}
+
+	@Override
+	public String getIdGenName() {
+		return name;
+	}
+
+	@Override
+	public Object getNextID(Connection con, Dialect dialect, Type dataType) {
+		return UUIDCreator.timeOrderedUUID(length == 36);
+	}
+
+	@Override
+	public Boolean dependOnAutoIdGenerator() {
+		return false;
+	}
+
+	@Override
+	public IdGenerator newCopy() {
+		return new TimeOrderedUUIDGenerator(name, length);
+	}
+
+	public Integer getLength() {
+		return length;
+	}
+}
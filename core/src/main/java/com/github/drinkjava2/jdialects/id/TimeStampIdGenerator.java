@@ -12,14 +12,21 @@
 package com.github.drinkjava2.jdialects.id;
 
 import java.sql.Connection;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.github.drinkjava2.jdialects.Dialect;
+import com.github.drinkjava2.jdialects.DialectException;
 import com.github.drinkjava2.jdialects.Type;
 import com.github.drinkjava2.jdialects.annotation.jpa.GenerationType;
 
 /**
  * This TimeStampGenerator return a long type value based on computer's current
- * time
+ * time, value is "currentTimeMillis * 1000000 + count", count is from 1 to
+ * 999999 in each millisecond.
+ * 
+ * Last returned value is kept in an AtomicLong and updated by CAS, values are
+ * always increasing in one JVM: if count of a millisecond exhausted or system
+ * clock goes back, next millisecond (or last used millisecond) is used.
  * 
  * @author Yong Zhu
  * @version 1.0.0
@@ -27,7 +34,14 @@ import com.github.drinkjava2.jdialects.annotation.jpa.GenerationType;
  */
 public class TimeStampIdGenerator implements IdGenerator {
 	public static final TimeStampIdGenerator INSTANCE = new TimeStampIdGenerator();
-	private static long count = 1;
+
+	/** Max count in one millisecond, also max size of nextIds() */
+	public static final int MAX_COUNT = 999999;
+
+	private static final long COUNT_RANGE = 1000000L;
+
+	/** Last returned ID */
+	private static final AtomicLong last = new AtomicLong();
 
 	@Override
 	public GenerationType getGenerationType() {
@@ -44,10 +58,67 @@ public class TimeStampIdGenerator implements IdGenerator {
 		return getNextID();
 	}
 
-	public static synchronized Object getNextID() {
-		if (count > 999999)
-			count = 1;
-		return System.currentTimeMillis() * 1000000 + count++;
+	public static Object getNextID() {
+		return nextId();
+	}
+
+	/** Return next timestamp ID */
+	public static long nextId() {
+		return reserve(1);
+	}
+
+	/**
+	 * Return n increasing timestamp IDs reserved by one CAS operation, all IDs
+	 * are in same millisecond, n should between 1 and MAX_COUNT
+	 */
+	public static long[] nextIds(int n) {
+		long first = reserve(n);
+		long[] ids = new long[n];
+		for (int i = 0; i < n; i++)
+			ids[i] = first + i;
+		return ids;
+	}
+
+	/**
+	 * Get n increasing timestamp IDs, reserved by one CAS operation for each
+	 * MAX_COUNT IDs
+	 */
+	@Override
+	public long[] getNextLongIDs(Connection con, Dialect dialect, Type dataType, int n) {
+		long[] ids = new long[n];
+		int i = 0;
+		while (i < n) {
+			int size = Math.min(n - i, MAX_COUNT);
+			long first = reserve(size);
+			for (int j = 0; j < size; j++)
+				ids[i++] = first + j;
+		}
+		return ids;
+	}
+
+	@Override
+	public Object[] getNextIDs(Connection con, Dialect dialect, Type dataType, int n) {
+		long[] ids = getNextLongIDs(con, dialect, dataType, n);
+		Object[] result = new Object[n];
+		for (int i = 0; i < n; i++)
+			result[i] = ids[i];
+		return result;
+	}
+
+	/** Reserve n IDs in one millisecond, return the first one */
+	private static long reserve(int n) {
+		if (n < 1 || n > MAX_COUNT)
+			throw new DialectException("TimeStamp ID quantity should between 1 and " + MAX_COUNT);
+		long now = System.currentTimeMillis() * COUNT_RANGE + 1;
+		while (true) {
+			long prev = last.get();
+			long first = prev < now ? now : prev + 1;
+			long count = first % COUNT_RANGE;
+			if (count == 0 || count + n - 1 > MAX_COUNT) // not enough in this millisecond
+				first = (first / COUNT_RANGE + 1) * COUNT_RANGE + 1;
+			if (last.compareAndSet(prev, first + n - 1))
+				return first;
+		}
 	}
 
 	@Override
@@ -11,18 +11,15 @@
  */
 package com.github.drinkjava2.jdialects.id;
 
-import java.math.BigInteger;
 import java.sql.Connection;
-import java.util.UUID;
 
 import com.github.drinkjava2.jdialects.Dialect;
-import com.github.drinkjava2.jdialects.StrUtils;
 import com.github.drinkjava2.jdialects.Type;
 import com.github.drinkjava2.jdialects.annotation.jpa.GenerationType;
 
 /**
- * Compress JDK UUID to 26 letters based on radix 36, use 0-9 a-z characters,
- * example: pbicz3grgu0zk3ipe1yur03h7a
+ * Generate a 26 letters random UUID based on radix 36, use 0-9 a-z characters
+ * (more than 128 random bits), example: pbicz3grgu0zk3ipe1yur03h7a
  * 
  * @author Yong Zhu
  * @version 1.0.0
@@ -57,12 +54,7 @@ public class UUID26Generator implements IdGenerator {
 	}
 
 	public static String getUUID26() {
-		String uuidHex = UUID.randomUUID().toString().replace("-", "");
-		BigInteger b = new BigInteger(uuidHex, 16);
-		String s = b.toString(36);
-		while (s.length() < 26)
-			s = s + StrUtils.getRandomChar(); //NOSONAR
-		return s;
+		return UUIDCreator.radix36(26);
 	}
 
 }
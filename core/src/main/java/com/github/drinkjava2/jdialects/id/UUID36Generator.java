@@ -12,14 +12,13 @@
 package com.github.drinkjava2.jdialects.id;
 
 import java.sql.Connection;
-import java.util.UUID;
 
 import com.github.drinkjava2.jdialects.Dialect;
 import com.github.drinkjava2.jdialects.Type;
 import com.github.drinkjava2.jdialects.annotation.jpa.GenerationType;
 
 /**
- * Generate a JDK 36 letters random UUID generated by
+ * Generate a 36 letters random UUID version 4, same format as
  * UUID.randomUUID().toString(), for example:</br>
  * d3ad36c0-c6c2-495c-a414-b9cc4a0a7a93
  * 
@@ -42,7 +41,7 @@ public class UUID36Generator implements IdGenerator {
 
 	@Override
 	public Object getNextID(Connection con, Dialect dialect, Type dataType) {
-		return UUID.randomUUID().toString();
+		return UUIDCreator.uuid36();
 	}
 
 	@Override
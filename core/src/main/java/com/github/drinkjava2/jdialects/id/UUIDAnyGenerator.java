@@ -11,7 +11,6 @@
  */
 package com.github.drinkjava2.jdialects.id;
 
-import java.security.SecureRandom;
 import java.sql.Connection;
 
 import com.github.drinkjava2.jdialects.Dialect;
@@ -29,9 +28,6 @@ import com.github.drinkjava2.jdialects.annotation.jpa.GenerationType;
  */
 public class UUIDAnyGenerator implements IdGenerator {
 
-	private static final SecureRandom random = new SecureRandom();
-	private static final char[] ALPHABET = "0123456789abcdefghijklmnopqrstuvwxyz".toCharArray();
-
 	private String name;
 	private Integer length = 36;
 
@@ -73,11 +69,7 @@ public class UUIDAnyGenerator implements IdGenerator {
 	}
 
 	public static String getAnyLengthRadix36UUID(Integer length) {
-		StringBuilder sb = new StringBuilder();
-		for (int i = 0; i < length; i++) {
-			sb.append(ALPHABET[random.nextInt(32)]);
-		}
-		return sb.toString();
+		return UUIDCreator.radix36(length);
 	}
 
 	// getter & setter
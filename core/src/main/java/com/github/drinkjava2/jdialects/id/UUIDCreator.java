@@ -0,0 +1,163 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS
+ * OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.github.drinkjava2.jdialects.id;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * UUIDCreator generates UUID strings for UUID generators without lock.
+ *
+ * Each thread has its own SecureRandom (SHA1PRNG seeded once from a shared
+ * SecureRandom) and a random bytes buffer, so threads do not contend on one
+ * SecureRandom and do not block on entropy. Characters are encoded by lookup
+ * table directly into a char[].
+ *
+ * timeOrderedUUID() generates UUID version 7 (unix millisecond time stamp,
+ * counter and random bits), its values are increasing in one JVM, good for
+ * B-tree index insert.
+ *
+ * @author Yong Zhu
+ * @since 5.0.13
+ */
+public abstract class UUIDCreator {// NOSONAR
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+	private static final char[] RADIX36 = "0123456789abcdefghijklmnopqrstuvwxyz".toCharArray();
+
+	/** Random bytes not less than this value are skipped in radix 36 encoding */
+	private static final int RADIX36_LIMIT = 256 - 256 % 36;
+
+	private static final int BUFFER_SIZE = 512;
+
+	private static final SecureRandom seeder = new SecureRandom();
+
+	private static final ThreadLocal<RandomBuffer> buffers = new ThreadLocal<RandomBuffer>() {
+		@Override
+		protected RandomBuffer initialValue() {
+			return new RandomBuffer();
+		}
+	};
+
+	/** Last time ordered UUID's "unix millisecond << 12 | counter" */
+	private static final AtomicLong lastTimeOrdered = new AtomicLong();
+
+	/** Per thread SecureRandom and its random bytes buffer */
+	private static final class RandomBuffer {
+		private final SecureRandom random;
+		private final byte[] bytes = new byte[BUFFER_SIZE];
+		private int pos = BUFFER_SIZE;
+
+		RandomBuffer() {
+			SecureRandom r;
+			try {
+				r = SecureRandom.getInstance("SHA1PRNG");
+			} catch (NoSuchAlgorithmException e) {// NOSONAR
+				r = new SecureRandom();
+			}
+			byte[] seed = new byte[32];
+			seeder.nextBytes(seed);
+			r.setSeed(seed);
+			this.random = r;
+		}
+
+		int nextByte() {
+			if (pos == BUFFER_SIZE) {
+				random.nextBytes(bytes);
+				pos = 0;
+			}
+			return bytes[pos++] & 0xFF;
+		}
+
+		long nextLong() {
+			long result = 0;
+			for (int i = 0; i < 8; i++)
+				result = (result << 8) | nextByte();
+			return result;
+		}
+	}
+
+	/** Return a random UUID version 4 in 32 hex letters, no dash */
+	public static String uuid32() {
+		RandomBuffer buf = buffers.get();
+		return hex(randomMsb(buf), randomLsb(buf), false);
+	}
+
+	/** Return a random UUID version 4 in 36 letters, with dash */
+	public static String uuid36() {
+		RandomBuffer buf = buffers.get();
+		return hex(randomMsb(buf), randomLsb(buf), true);
+	}
+
+	/**
+	 * Return a random string of given length, use 0-9 a-z characters, each
+	 * character is uniformly chosen
+	 */
+	public static String radix36(int length) {
+		RandomBuffer buf = buffers.get();
+		char[] chars = new char[length];
+		int i = 0;
+		while (i < length) {
+			int b = buf.nextByte();
+			if (b < RADIX36_LIMIT)
+				chars[i++] = RADIX36[b % 36];
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * Return a time ordered UUID version 7 in 32 hex letters (no dash) or 36
+	 * letters (with dash), values are increasing in one JVM
+	 */
+	public static String timeOrderedUUID(boolean withDash) {
+		return timeOrderedUUID(System.currentTimeMillis(), withDash);
+	}
+
+	/** Return a time ordered UUID of given unix millisecond, for test */
+	static String timeOrderedUUID(long millis, boolean withDash) {
+		long now = millis << 12;
+		long state;
+		while (true) {
+			long prev = lastTimeOrdered.get();
+			state = prev < now ? now : prev + 1; // counter overflow use next millisecond
+			if (lastTimeOrdered.compareAndSet(prev, state))
+				break;
+		}
+		long msb = ((state >>> 12) << 16) | 0x7000L | (state & 0xFFFL);
+		long lsb = (buffers.get().nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+		return hex(msb, lsb, withDash);
+	}
+
+	private static long randomMsb(RandomBuffer buf) {
+		return (buf.nextLong() & 0xFFFFFFFFFFFF0FFFL) | 0x4000L; // version 4
+	}
+
+	private static long randomLsb(RandomBuffer buf) {
+		return (buf.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L; // IETF variant
+	}
+
+	private static String hex(long msb, long lsb, boolean withDash) {
+		char[] chars = new char[withDash ? 36 : 32];
+		int pos = 0;
+		for (int i = 60; i >= 0; i -= 4) {
+			if (withDash && (i == 28 || i == 12))
+				chars[pos++] = '-';
+			chars[pos++] = HEX[(int) (msb >>> i) & 0xF];
+		}
+		for (int i = 60; i >= 0; i -= 4) {
+			if (withDash && (i == 60 || i == 44))
+				chars[pos++] = '-';
+			chars[pos++] = HEX[(int) (lsb >>> i) & 0xF];
+		}
+		return new String(chars);
+	}
+}
@@ -12,7 +12,6 @@
 package com.github.drinkjava2.jdialects.id;
 
 import java.sql.Connection;
-import java.util.UUID;
 
 import com.github.drinkjava2.jdialects.Dialect;
 import com.github.drinkjava2.jdialects.Type;
@@ -45,7 +44,7 @@ public class UUIDGenerator implements IdGenerator {
 	}
 
 	public static String getUUID() {
-		return UUID.randomUUID().toString().replace("-", "");
+		return UUIDCreator.uuid32();
 	}
 
 	@Override
@@ -230,12 +230,16 @@ public class ColumnModel {
 	/** Mark is a shartTable column, for ORM tool use */
 	public ColumnModel shardTable(String... shardTable) {
 		this.shardTable = shardTable;
+		if (tableModel != null)
+			tableModel.clearColumnIndex();
 		return this;
 	}
 
 	/** Mark is a shartDatabase column, for ORM tool use */
 	public ColumnModel shardDatabase(String... shardDatabase) {
 		this.shardDatabase = shardDatabase;
+		if (tableModel != null)
+			tableModel.clearColumnIndex();
 		return this;
 	}
 
@@ -397,6 +401,7 @@ public class ColumnModel {
 		DialectException.assureNotEmpty(entityFieldName, "entityFieldName can not be empty");
 		this.entityField = entityFieldName;
 		if (this.tableModel != null) {
+			this.tableModel.clearColumnIndex();
 			List<ColumnModel> oldColumns = this.tableModel.getColumns();
 			Iterator<ColumnModel> columnIter = oldColumns.iterator();
 			while (columnIter.hasNext()) {
@@ -502,6 +507,8 @@ public class ColumnModel {
 
 	public void setColumnName(String columnName) {
 		this.columnName = columnName;
+		if (tableModel != null)
+			tableModel.clearColumnIndex();
 	}
 
 	public TableModel getTableModel() {
@@ -590,6 +597,8 @@ public class ColumnModel {
 
 	public void setEntityField(String entityField) {
 		this.entityField = entityField;
+		if (tableModel != null)
+			tableModel.clearColumnIndex();
 	}
 
 	public Integer getLength() {
@@ -646,6 +655,8 @@ public class ColumnModel {
 
 	public void setShardTable(String[] shardTable) {
 		this.shardTable = shardTable;
+		if (tableModel != null)
+			tableModel.clearColumnIndex();
 	}
 
 	public String[] getShardDatabase() {
@@ -654,6 +665,8 @@ public class ColumnModel {
 
 	public void setShardDatabase(String[] shardDatabase) {
 		this.shardDatabase = shardDatabase;
+		if (tableModel != null)
+			tableModel.clearColumnIndex();
 	}
 
 	public Object getConverterClassOrName() {
@@ -15,8 +15,11 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+import com.github.drinkjava2.jdialects.CaseInsensitiveIndex;
 import com.github.drinkjava2.jdialects.DebugUtils;
 import com.github.drinkjava2.jdialects.DialectException;
 import com.github.drinkjava2.jdialects.StrUtils;
@@ -28,6 +31,7 @@ import com.github.drinkjava2.jdialects.id.SequenceIdGenerator;
 import com.github.drinkjava2.jdialects.id.SnowflakeGenerator;
 import com.github.drinkjava2.jdialects.id.SortedUUIDGenerator;
 import com.github.drinkjava2.jdialects.id.TableIdGenerator;
+import com.github.drinkjava2.jdialects.id.TimeOrderedUUIDGenerator;
 import com.github.drinkjava2.jdialects.id.TimeStampIdGenerator;
 import com.github.drinkjava2.jdialects.id.UUID25Generator;
 import com.github.drinkjava2.jdialects.id.UUID26Generator;
@@ -35,6 +39,7 @@ import com.github.drinkjava2.jdialects.id.UUID32Generator;
 import com.github.drinkjava2.jdialects.id.UUID36Generator;
 import com.github.drinkjava2.jdialects.id.UUIDAnyGenerator;
 import com.github.drinkjava2.jdialects.id.UUIDGenerator;
+import com.github.drinkjava2.jdialects.shard.ShardRouter;
 
 /**
  * A TableModel definition represents a platform dependent Database Table, from
@@ -91,6 +96,9 @@ public class TableModel {
 
 	private Boolean readOnly = false;
 
+	/** Column indexes for column lookup, built at first use, see getColumnIndex */
+	private ColumnIndex columnIndex;
+
 	public TableModel() {
 		super();
 	}
@@ -149,6 +157,12 @@ public class TableModel {
 		addGenerator(new UUIDAnyGenerator(name, length));
 	}
 
+	/** Add a TimeOrderedUUIDGenerator, length should be 32 or 36 */
+	public void timeOrderedUUID(String name, Integer length) {
+		checkReadOnly();
+		addGenerator(new TimeOrderedUUIDGenerator(name, length));
+	}
+
 	/**
 	 * Add a "create table..." DDL to generate ID, similar like JPA's TableGen
 	 */
@@ -223,6 +237,7 @@ public class TableModel {
 		DialectException.assureNotEmpty(column.getColumnName(), "Column's columnName can not be empty");
 		column.setTableModel(this);
 		columns.add(column);
+		columnIndex = null;
 		return this;
 	}
 
@@ -236,6 +251,9 @@ public class TableModel {
 				return a.getColumnName().compareTo(b.getColumnName());
 			}
 		});
+		for (ColumnModel col : lst)// sorted list may belong to a TableModel
+			if (col != null && col.getTableModel() != null)
+				col.getTableModel().clearColumnIndex();
 	}
 
 	/**
@@ -248,6 +266,7 @@ public class TableModel {
 		while (columnIter.hasNext())
 			if (columnIter.next().getColumnName().equalsIgnoreCase(columnName))
 				columnIter.remove();
+		columnIndex = null;
 		return this;
 	}
 
@@ -269,12 +288,9 @@ public class TableModel {
 	 * with columnName
 	 */
 	public ColumnModel column(String columnName) {// NOSONAR
-		for (ColumnModel columnModel : columns) {
-			if (columnModel.getColumnName() != null && columnModel.getColumnName().equalsIgnoreCase(columnName))
-				return columnModel;
-			if (columnModel.getEntityField() != null && columnModel.getEntityField().equalsIgnoreCase(columnName))
-				return columnModel;
-		}
+		ColumnModel columnModel = getColumn(columnName);
+		if (columnModel != null)
+			return columnModel;
 		return addColumn(columnName);
 	}
 
@@ -287,9 +303,8 @@ public class TableModel {
 	public ColumnModel addColumn(String columnName) {
 		checkReadOnly();
 		DialectException.assureNotEmpty(columnName, "columnName can not be empty");
-		for (ColumnModel columnModel : columns)
-			if (columnName.equalsIgnoreCase(columnModel.getColumnName()))
-				throw new DialectException("ColumnModel name '" + columnName + "' already existed");
+		if (getSyncedColumnIndex().byName.containsKey(columnName, 0, columnName.length()))
+			throw new DialectException("ColumnModel name '" + columnName + "' already existed");
 		ColumnModel column = new ColumnModel(columnName);
 		addColumn(column);
 		return column;
@@ -300,59 +315,120 @@ public class TableModel {
 	 * return null
 	 */
 	public ColumnModel getColumn(String colOrFieldName) {
-		for (ColumnModel columnModel : columns) {
-			if (columnModel.getColumnName() != null && columnModel.getColumnName().equalsIgnoreCase(colOrFieldName))
-				return columnModel;
-			if (columnModel.getEntityField() != null && columnModel.getEntityField().equalsIgnoreCase(colOrFieldName))
-				return columnModel;
-		}
-		return null;
+		return findColumn(ColumnIndex.BY_NAME_OR_FIELD, colOrFieldName);
 	}
 
 	/**
-	 * Get ColumnModel by columnName ignore case, if not found, return null
+	 * Get ColumnModel by columnName ignore case, if not found, return null. Column
+	 * name quoted by ``, "" or [] also can be found by name without quotes
 	 */
 	public ColumnModel getColumnByColName(String colName) {
-		for (ColumnModel columnModel : columns) {
-			if (columnModel.getColumnName() != null && (columnModel.getColumnName().equalsIgnoreCase(colName)
-					|| columnModel.getColumnName().equalsIgnoreCase("`" + colName + "`")
-					|| columnModel.getColumnName().equalsIgnoreCase("\"" + colName + "\"")
-					|| columnModel.getColumnName().equalsIgnoreCase("[" + colName + "]") 
-					) 
-			)
-				return columnModel;
-		}
-		return null;
+		return findColumn(ColumnIndex.BY_NAME_OR_QUOTED_NAME, colName);
 	}
 
 	/**
 	 * Get ColumnModel by entity field name ignore case, if not found, return null
 	 */
 	public ColumnModel getColumnByFieldName(String fieldName) {
-		for (ColumnModel columnModel : columns)
-			if (columnModel.getEntityField() != null && columnModel.getEntityField().equalsIgnoreCase(fieldName))
-				return columnModel;
-		return null;
+		return findColumn(ColumnIndex.BY_FIELD, fieldName);
+	}
+
+	/**
+	 * Find column by column indexes, if found column is not at its position of
+	 * columns list, or not found but columns list be changed directly (for example
+	 * sorted, or getColumns().set(i, newColumn)), rebuild indexes and find again
+	 */
+	private ColumnModel findColumn(int type, String name) {
+		ColumnIndex index = getColumnIndex();
+		Integer pos = index.find(type, name);
+		if (pos != null && columns.get(pos) == index.columns[pos])
+			return index.columns[pos];
+		if (pos == null && index.isSameColumns(columns))
+			return null;
+		index = new ColumnIndex(columns);
+		columnIndex = index;
+		pos = index.find(type, name);
+		return pos == null ? null : index.columns[pos];
+	}
+
+	/**
+	 * Return column indexes, if columns list changed or columns list size changed,
+	 * re-build it
+	 */
+	protected ColumnIndex getColumnIndex() {
+		ColumnIndex index = columnIndex;
+		if (index == null || index.source != columns || index.columns.length != columns.size()) {
+			index = new ColumnIndex(columns);
+			columnIndex = index;
+		}
+		return index;
+	}
+
+	/**
+	 * Return column indexes, re-build it if any column of columns list be replaced
+	 * directly, this is a linear check, only used when a miss is not trusted
+	 */
+	private ColumnIndex getSyncedColumnIndex() {
+		ColumnIndex index = getColumnIndex();
+		if (!index.isSameColumns(columns)) {
+			index = new ColumnIndex(columns);
+			columnIndex = index;
+		}
+		return index;
+	}
+
+	/**
+	 * Called when columns, their names or shard strategies changed, column indexes
+	 * will be rebuilt
+	 */
+	protected void clearColumnIndex() {
+		columnIndex = null;
 	}
 
 	/**
 	 * @return First found ShardTable Column , if not found , return null
 	 */
 	public ColumnModel getShardTableColumn() {
-		for (ColumnModel columnModel : columns)
-			if (columnModel.getShardTable() != null)
-				return columnModel;// return first found only
-		return null;
+		return getShardColumn(true);
 	}
 
 	/**
 	 * @return First found ShardDatabase Column , if not found , return null
 	 */
 	public ColumnModel getShardDatabaseColumn() {
-		for (ColumnModel columnModel : columns)
-			if (columnModel.getShardDatabase() != null)
-				return columnModel;// return first found only
-		return null;
+		return getShardColumn(false);
+	}
+
+	/**
+	 * Find shard column by column indexes, if found column is not at its position
+	 * of columns list or not a shard column any more, rebuild indexes
+	 */
+	private ColumnModel getShardColumn(boolean table) {
+		ColumnIndex index = getColumnIndex();
+		if (!index.isShardValid(columns)) {
+			index = new ColumnIndex(columns);
+			columnIndex = index;
+		}
+		int pos = table ? index.shardTablePos : index.shardDatabasePos;
+		return pos < 0 ? null : index.columns[pos];
+	}
+
+	/**
+	 * Return compiled shard strategies of ShardTable and ShardDatabase columns,
+	 * it's compiled once and re-compiled only if table name or shard columns
+	 * changed
+	 */
+	public ShardRouter getShardRouter() {
+		ColumnModel tableColumn = getShardTableColumn();
+		ColumnModel databaseColumn = getShardDatabaseColumn();
+		ColumnIndex index = columnIndex;
+		ShardRouter router = index == null ? null : index.shardRouter;
+		if (router == null || !router.isCompiledFrom(tableName, tableColumn, databaseColumn)) {
+			router = new ShardRouter(tableName, tableColumn, databaseColumn);
+			if (index != null)
+				index.shardRouter = router;
+		}
+		return router;
 	}
 
 	/**
@@ -608,6 +684,7 @@ public class TableModel {
 	public void setColumns(List<ColumnModel> columns) {
 		checkReadOnly();
 		this.columns = columns;
+		columnIndex = null;
 	}
 
 	public List<FKeyModel> getFkeyConstraints() {
@@ -687,6 +764,112 @@ public class TableModel {
 
 	public void setReadOnly(Boolean readOnly) {
 		this.readOnly = readOnly;
+		if (Boolean.TRUE.equals(readOnly))
+			getColumnIndex();// build indexes once, read only model's columns will not change
+	}
+
+	/**
+	 * Case insensitive indexes of columns, value is column position, if more
+	 * columns have same name, the first one wins, same as a linear search
+	 */
+	protected static class ColumnIndex {
+		static final int BY_NAME_OR_FIELD = 0;
+		static final int BY_NAME_OR_QUOTED_NAME = 1;
+		static final int BY_FIELD = 2;
+
+		private final List<ColumnModel> source;
+		private final ColumnModel[] columns;
+		private final CaseInsensitiveIndex<Integer> byName;
+		private final CaseInsensitiveIndex<Integer> byQuotedName;
+		private final CaseInsensitiveIndex<Integer> byField;
+
+		/** Position of first ShardTable / ShardDatabase column, or -1 */
+		private final int shardTablePos;
+		private final int shardDatabasePos;
+
+		private volatile ShardRouter shardRouter;
+
+		ColumnIndex(List<ColumnModel> source) {
+			this.source = source;
+			this.columns = source.toArray(new ColumnModel[source.size()]);
+			Map<String, Integer> names = new LinkedHashMap<String, Integer>();
+			Map<String, Integer> quotedNames = new LinkedHashMap<String, Integer>();
+			Map<String, Integer> fields = new LinkedHashMap<String, Integer>();
+			for (int i = columns.length - 1; i >= 0; i--) {// first column put at last, so it wins
+				ColumnModel col = columns[i];
+				if (col == null)
+					continue;
+				String name = col.getColumnName();
+				if (name != null) {
+					put(names, name, i);
+					String unquoted = unquote(name);
+					if (unquoted != null)
+						put(quotedNames, unquoted, i);
+				}
+				if (col.getEntityField() != null)
+					put(fields, col.getEntityField(), i);
+			}
+			byName = new CaseInsensitiveIndex<Integer>(names);
+			byQuotedName = new CaseInsensitiveIndex<Integer>(quotedNames);
+			byField = new CaseInsensitiveIndex<Integer>(fields);
+			int tablePos = -1;
+			int databasePos = -1;
+			for (int i = columns.length - 1; i >= 0; i--) {// first found wins
+				if (columns[i] != null && columns[i].getShardTable() != null)
+					tablePos = i;
+				if (columns[i] != null && columns[i].getShardDatabase() != null)
+					databasePos = i;
+			}
+			shardTablePos = tablePos;
+			shardDatabasePos = databasePos;
+		}
+
+		/** Return true if each element of list is the same column this index built from */
+		boolean isSameColumns(List<ColumnModel> list) {
+			if (list != source || list.size() != columns.length)
+				return false;
+			for (int i = 0; i < columns.length; i++)
+				if (list.get(i) != columns[i])
+					return false;
+			return true;
+		}
+
+		/** Return false if shard columns found by this index are not valid */
+		boolean isShardValid(List<ColumnModel> list) {
+			return (shardTablePos < 0 || (list.get(shardTablePos) == columns[shardTablePos]
+					&& columns[shardTablePos].getShardTable() != null))
+					&& (shardDatabasePos < 0 || (list.get(shardDatabasePos) == columns[shardDatabasePos]
+							&& columns[shardDatabasePos].getShardDatabase() != null));
+		}
+
+		private static void put(Map<String, Integer> map, String key, int pos) {
+			map.remove(key);
+			map.put(key, pos);
+		}
+
+		/** If name is quoted by ``, "" or [], return name without quotes, otherwise return null */
+		private static String unquote(String name) {
+			if (name.length() < 2)
+				return null;
+			char first = name.charAt(0);
+			char last = name.charAt(name.length() - 1);
+			if ((first == '`' && last == '`') || (first == '"' && last == '"') || (first == '[' && last == ']'))
+				return name.substring(1, name.length() - 1);
+			return null;
+		}
+
+		/** Return position of first column matched, or null if not found */
+		Integer find(int type, String name) {
+			if (name == null) // same as old linear search, "`" + null + "`" equals "`null`"
+				return type == BY_NAME_OR_QUOTED_NAME ? byQuotedName.get("null") : null;
+			if (type == BY_FIELD)
+				return byField.get(name);
+			Integer pos = byName.get(name);
+			Integer other = type == BY_NAME_OR_FIELD ? byField.get(name) : byQuotedName.get(name);
+			if (pos == null || (other != null && other < pos))
+				return other;
+			return pos;
+		}
 	}
 
 }
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS
+ * OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.github.drinkjava2.jdialects.shard;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rows of a batch which go to same database shard and same table, built by
+ * ShardRouter.partition methods, usually one JDBC batch is executed for each
+ * group
+ *
+ * @author Yong Zhu
+ * @since 5.0.13
+ */
+public class ShardGroup {
+	private final int database;
+	private final int tableShard;
+	private final String table;
+	private final int[] indexes;
+
+	public ShardGroup(int database, int tableShard, String table, int[] indexes) {
+		this.database = database;
+		this.tableShard = tableShard;
+		this.table = table;
+		this.indexes = indexes;
+	}
+
+	/** Return database shard number, or -1 if table has no database shard */
+	public int getDatabase() {
+		return database;
+	}
+
+	/** Return table shard number, or -1 if table has no table shard */
+	public int getTableShard() {
+		return tableShard;
+	}
+
+	/** Return physical table name, or logical table name if no table shard */
+	public String getTable() {
+		return table;
+	}
+
+	/** Return positions of the rows in original batch, in original order */
+	public int[] getIndexes() {
+		return indexes;
+	}
+
+	public int size() {
+		return indexes.length;
+	}
+
+	/** Return rows of this group from original batch */
+	public <T> List<T> pick(List<T> rows) {
+		List<T> result = new ArrayList<T>(indexes.length);
+		for (int i : indexes)
+			result.add(rows.get(i));
+		return result;
+	}
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS
+ * OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.github.drinkjava2.jdialects.shard;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.drinkjava2.jdialects.ClassCacheUtils;
+import com.github.drinkjava2.jdialects.DialectException;
+import com.github.drinkjava2.jdialects.model.ColumnModel;
+
+/**
+ * Compiled shard strategies of a TableModel, get it by
+ * TableModel.getShardRouter(). Route a key to physical table name
+ * (tableName_shardNumber) or database shard number without parsing strategy
+ * Strings, physical table names are cached so routing a numeric key does not
+ * allocate. Partition methods group a batch of keys or entities by database
+ * shard and physical table, so each group can be sent as one JDBC batch.
+ *
+ * @author Yong Zhu
+ * @since 5.0.13
+ */
+public class ShardRouter {
+	/** Max table shard number whose physical table name is cached */
+	private static final int MAX_CACHED_NAMES = 65536;
+
+	private final String tableName;
+	private final ColumnModel tableColumn;
+	private final ColumnModel databaseColumn;
+	private final String[] tableStrategyArray;
+	private final String[] databaseStrategyArray;
+	private final ShardStrategy tableStrategy;
+	private final ShardStrategy databaseStrategy;
+
+	/** Physical table names, index is table shard number */
+	private volatile String[] tableNames;
+
+	/**
+	 * Compile shard strategies of table shard column and database shard column,
+	 * both columns can be null
+	 */
+	public ShardRouter(String tableName, ColumnModel tableColumn, ColumnModel databaseColumn) {
+		this.tableName = tableName;
+		this.tableColumn = tableColumn;
+		this.databaseColumn = databaseColumn;
+		this.tableStrategyArray = tableColumn == null ? null : tableColumn.getShardTable();
+		this.databaseStrategyArray = databaseColumn == null ? null : databaseColumn.getShardDatabase();
+		this.tableStrategy = tableStrategyArray == null ? null : ShardStrategies.compile(tableStrategyArray);
+		this.databaseStrategy = databaseStrategyArray == null ? null : ShardStrategies.compile(databaseStrategyArray);
+		int count = tableStrategy == null ? 0 : tableStrategy.getShardCount();
+		this.tableNames = new String[count < 0 ? 16 : Math.min(count, MAX_CACHED_NAMES)];
+	}
+
+	/**
+	 * Return true if this router compiled from given table name and columns,
+	 * and columns' strategy arrays not changed
+	 */
+	public boolean isCompiledFrom(String tableName, ColumnModel tableColumn, ColumnModel databaseColumn) {
+		return (this.tableName == null ? tableName == null : this.tableName.equals(tableName))
+				&& this.tableColumn == tableColumn && this.databaseColumn == databaseColumn
+				&& (tableColumn == null || tableColumn.getShardTable() == tableStrategyArray)
+				&& (databaseColumn == null || databaseColumn.getShardDatabase() == databaseStrategyArray);
+	}
+
+	public boolean hasTableShard() {
+		return tableStrategy != null;
+	}
+
+	public boolean hasDatabaseShard() {
+		return databaseStrategy != null;
+	}
+
+	/** Return table shard number of a numeric key */
+	public int tableShard(long key) {
+		return checkTableStrategy().shard(key);
+	}
+
+	/** Return table shard number of a key */
+	public int tableShard(Object key) {
+		return checkTableStrategy().shard(key);
+	}
+
+	/** Return physical table name of a numeric key */
+	public String routeTable(long key) {
+		return tableNameOf(tableShard(key));
+	}
+
+	/** Return physical table name of a key */
+	public String routeTable(Object key) {
+		return tableNameOf(tableShard(key));
+	}
+
+	/** Return database shard number of a numeric key */
+	public int routeDatabase(long key) {
+		return checkDatabaseStrategy().shard(key);
+	}
+
+	/** Return database shard number of a key */
+	public int routeDatabase(Object key) {
+		return checkDatabaseStrategy().shard(key);
+	}
+
+	/**
+	 * Partition a batch by shard keys, tableKeys or databaseKeys should be null if
+	 * table has no such shard, otherwise has same length as the batch
+	 */
+	public ShardGroup[] partition(long[] tableKeys, long[] databaseKeys) {
+		int n = batchSize(tableKeys == null ? -1 : tableKeys.length, databaseKeys == null ? -1 : databaseKeys.length);
+		int[] tables = null;
+		if (tableKeys != null) {
+			ShardStrategy strategy = checkTableStrategy();
+			tables = new int[n];
+			for (int i = 0; i < n; i++)
+				tables[i] = strategy.shard(tableKeys[i]);
+		}
+		int[] databases = null;
+		if (databaseKeys != null) {
+			ShardStrategy strategy = checkDatabaseStrategy();
+			databases = new int[n];
+			for (int i = 0; i < n; i++)
+				databases[i] = strategy.shard(databaseKeys[i]);
+		}
+		return group(n, tables, databases);
+	}
+
+	/**
+	 * Partition a batch by shard keys, tableKeys or databaseKeys should be null if
+	 * table has no such shard, otherwise has same length as the batch
+	 */
+	public ShardGroup[] partition(Object[] tableKeys, Object[] databaseKeys) {
+		int n = batchSize(tableKeys == null ? -1 : tableKeys.length, databaseKeys == null ? -1 : databaseKeys.length);
+		int[] tables = null;
+		if (tableKeys != null) {
+			ShardStrategy strategy = checkTableStrategy();
+			tables = new int[n];
+			for (int i = 0; i < n; i++)
+				tables[i] = strategy.shard(tableKeys[i]);
+		}
+		int[] databases = null;
+		if (databaseKeys != null) {
+			ShardStrategy strategy = checkDatabaseStrategy();
+			databases = new int[n];
+			for (int i = 0; i < n; i++)
+				databases[i] = strategy.shard(databaseKeys[i]);
+		}
+		return group(n, tables, databases);
+	}
+
+	/**
+	 * Partition entities by values of their shard table and shard database
+	 * fields
+	 */
+	public ShardGroup[] partitionEntities(List<?> entities) {
+		int n = entities.size();
+		Object[] tableKeys = tableStrategy == null ? null : new Object[n];
+		Object[] databaseKeys = databaseStrategy == null ? null : new Object[n];
+		for (int i = 0; i < n; i++) {
+			Object entity = entities.get(i);
+			if (tableKeys != null)
+				tableKeys[i] = ClassCacheUtils.readValueFromBeanField(entity, fieldOf(tableColumn));
+			if (databaseKeys != null)
+				databaseKeys[i] = ClassCacheUtils.readValueFromBeanField(entity, fieldOf(databaseColumn));
+		}
+		return partition(tableKeys, databaseKeys);
+	}
+
+	private int batchSize(int tableKeys, int databaseKeys) {
+		if (tableKeys < 0 && databaseKeys < 0)
+			throw new DialectException("Shard keys can not be null");
+		if (tableKeys >= 0 && databaseKeys >= 0 && tableKeys != databaseKeys)
+			throw new DialectException("Table shard keys and database shard keys should have same length");
+		return tableKeys >= 0 ? tableKeys : databaseKeys;
+	}
+
+	/** Group rows by (database, table shard), groups and rows keep first seen order */
+	private ShardGroup[] group(int n, int[] tables, int[] databases) {
+		Map<Long, IntList> groups = new LinkedHashMap<Long, IntList>();
+		for (int i = 0; i < n; i++) {
+			int table = tables == null ? -1 : tables[i];
+			int database = databases == null ? -1 : databases[i];
+			Long key = ((long) database << 32) | (table & 0xFFFFFFFFL);
+			IntList list = groups.get(key);
+			if (list == null) {
+				list = new IntList(database, table);
+				groups.put(key, list);
+			}
+			list.add(i);
+		}
+		List<ShardGroup> result = new ArrayList<ShardGroup>(groups.size());
+		for (IntList list : groups.values())
+			result.add(new ShardGroup(list.database, list.table, list.table < 0 ? tableName : tableNameOf(list.table),
+					Arrays.copyOf(list.values, list.size)));
+		return result.toArray(new ShardGroup[result.size()]);
+	}
+
+	/** Return cached physical table name of table shard number */
+	private String tableNameOf(int shard) {
+		String[] names = tableNames;
+		if (shard < names.length) {
+			String name = names[shard];
+			if (name != null)
+				return name;
+		}
+		return cacheTableName(shard);
+	}
+
+	private synchronized String cacheTableName(int shard) {
+		if (shard >= MAX_CACHED_NAMES)
+			return tableName + "_" + shard;
+		String[] names = tableNames;
+		if (shard >= names.length) {
+			names = Arrays.copyOf(names, Math.min(Math.max(shard + 1, names.length * 2), MAX_CACHED_NAMES));
+			tableNames = names;
+		}
+		String name = names[shard];
+		if (name == null) {
+			name = tableName + "_" + shard;
+			names[shard] = name;
+		}
+		return name;
+	}
+
+	private ShardStrategy checkTableStrategy() {
+		if (tableStrategy == null)
+			throw new DialectException("Table '" + tableName + "' has no ShardTable column");
+		return tableStrategy;
+	}
+
+	private ShardStrategy checkDatabaseStrategy() {
+		if (databaseStrategy == null)
+			throw new DialectException("Table '" + tableName + "' has no ShardDatabase column");
+		return databaseStrategy;
+	}
+
+	private static String fieldOf(ColumnModel col) {
+		if (col.getEntityField() == null)
+			throw new DialectException("Shard column '" + col.getColumnName() + "' has no entity field");
+		return col.getEntityField();
+	}
+
+	public String getTableName() {
+		return tableName;
+	}
+
+	public ColumnModel getTableColumn() {
+		return tableColumn;
+	}
+
+	public ColumnModel getDatabaseColumn() {
+		return databaseColumn;
+	}
+
+	public ShardStrategy getTableStrategy() {
+		return tableStrategy;
+	}
+
+	public ShardStrategy getDatabaseStrategy() {
+		return databaseStrategy;
+	}
+
+	/** Growable int array of row positions of one group */
+	private static class IntList {
+		final int database;
+		final int table;
+		int[] values = new int[8];
+		int size;
+
+		IntList(int database, int table) {
+			this.database = database;
+			this.table = table;
+		}
+
+		void add(int value) {
+			if (size == values.length)
+				values = Arrays.copyOf(values, size * 2);
+			values[size++] = value;
+		}
+	}
+}
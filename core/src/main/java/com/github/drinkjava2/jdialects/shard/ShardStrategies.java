@@ -0,0 +1,197 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS
+ * OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.github.drinkjava2.jdialects.shard;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.github.drinkjava2.jdialects.DialectException;
+
+/**
+ * Compile &#064;ShardTable / &#064;ShardDatabase strategy String arrays to
+ * ShardStrategy. Built-in strategies (name is case insensitive):
+ *
+ * <pre>
+ * {"MOD", "8"}          shard = key mod 8
+ * {"RANGE", "100000"}   shard = key / 100000, key should not be negative
+ * {"RANGE", "100000", "10"}   same as above, but shard should less than 10
+ * {"HASH", "8"}         shard = hash(key) mod 8, key can be any object
+ * </pre>
+ *
+ * MOD and RANGE keys should be Number or numeric String. Custom strategies can
+ * be registered by register() method, for example register("DAY", factory)
+ * then use &#064;ShardTable({"DAY", ...}).
+ *
+ * @author Yong Zhu
+ * @since 5.0.13
+ */
+public abstract class ShardStrategies {// NOSONAR
+	public static final String MOD = "MOD";
+	public static final String RANGE = "RANGE";
+	public static final String HASH = "HASH";
+
+	private static final ConcurrentHashMap<String, ShardStrategyFactory> factories = new ConcurrentHashMap<String, ShardStrategyFactory>();
+
+	static {
+		register(MOD, new ShardStrategyFactory() {
+			@Override
+			public ShardStrategy create(String[] strategy) {
+				return new ModStrategy(intParam(strategy, 1, true));
+			}
+		});
+		register(RANGE, new ShardStrategyFactory() {
+			@Override
+			public ShardStrategy create(String[] strategy) {
+				return new RangeStrategy(intParam(strategy, 1, true), intParam(strategy, 2, false));
+			}
+		});
+		register(HASH, new ShardStrategyFactory() {
+			@Override
+			public ShardStrategy create(String[] strategy) {
+				return new HashStrategy(intParam(strategy, 1, true));
+			}
+		});
+	}
+
+	/** Register a custom strategy factory, name is case insensitive */
+	public static void register(String name, ShardStrategyFactory factory) {
+		DialectException.assureNotEmpty(name, "Shard strategy name can not be empty");
+		DialectException.assureNotNull(factory, "Shard strategy factory can not be null");
+		factories.put(name.toUpperCase(Locale.ENGLISH), factory);
+	}
+
+	/** Compile a strategy String array, for example {"MOD", "8"} */
+	public static ShardStrategy compile(String[] strategy) {
+		if (strategy == null || strategy.length == 0 || strategy[0] == null)
+			throw new DialectException("Shard strategy can not be empty");
+		ShardStrategyFactory factory = factories.get(strategy[0].trim().toUpperCase(Locale.ENGLISH));
+		if (factory == null)
+			throw new DialectException("Unknown shard strategy " + Arrays.toString(strategy)
+					+ ", custom strategy should be registered by ShardStrategies.register()");
+		ShardStrategy result = factory.create(strategy);
+		if (result == null)
+			throw new DialectException("Shard strategy factory returned null for " + Arrays.toString(strategy));
+		return result;
+	}
+
+	private static int intParam(String[] strategy, int index, boolean required) {
+		if (strategy.length <= index || strategy[index] == null) {
+			if (required)
+				throw new DialectException("Shard strategy " + Arrays.toString(strategy) + " need parameter " + index);
+			return -1;
+		}
+		int value;
+		try {
+			value = Integer.parseInt(strategy[index].trim());
+		} catch (NumberFormatException e) {
+			throw new DialectException("Shard strategy " + Arrays.toString(strategy) + " parameter " + index
+					+ " should be an integer", e);
+		}
+		if (value < 1)
+			throw new DialectException(
+					"Shard strategy " + Arrays.toString(strategy) + " parameter " + index + " should be greater than 0");
+		return value;
+	}
+
+	/** Convert a Number or numeric String key to long */
+	public static long toLong(Object key) {
+		if (key instanceof Number)
+			return ((Number) key).longValue();
+		if (key instanceof String)
+			try {
+				return Long.parseLong((String) key);
+			} catch (NumberFormatException e) {
+				throw new DialectException("Shard key '" + key + "' is not a number", e);
+			}
+		throw new DialectException("Shard key should be a Number or numeric String, but is " + key);
+	}
+
+	private static class ModStrategy implements ShardStrategy {
+		private final int count;
+
+		ModStrategy(int count) {
+			this.count = count;
+		}
+
+		@Override
+		public int shard(long key) {
+			return (int) Math.floorMod(key, (long) count);
+		}
+
+		@Override
+		public int shard(Object key) {
+			return shard(toLong(key));
+		}
+
+		@Override
+		public int getShardCount() {
+			return count;
+		}
+	}
+
+	private static class RangeStrategy implements ShardStrategy {
+		private final int size;
+		private final int count;
+
+		RangeStrategy(int size, int count) {
+			this.size = size;
+			this.count = count;
+		}
+
+		@Override
+		public int shard(long key) {
+			long shard = key / size;
+			if (key < 0 || shard > Integer.MAX_VALUE || (count > 0 && shard >= count))
+				throw new DialectException("Shard key " + key + " out of range");
+			return (int) shard;
+		}
+
+		@Override
+		public int shard(Object key) {
+			return shard(toLong(key));
+		}
+
+		@Override
+		public int getShardCount() {
+			return count;
+		}
+	}
+
+	private static class HashStrategy implements ShardStrategy {
+		private final int count;
+
+		HashStrategy(int count) {
+			this.count = count;
+		}
+
+		@Override
+		public int shard(long key) {
+			long h = key * 0x9E3779B97F4A7C15L;
+			return Math.floorMod((int) (h ^ (h >>> 32)), count);
+		}
+
+		@Override
+		public int shard(Object key) {
+			if (key == null)
+				throw new DialectException("Shard key can not be null");
+			if (key instanceof Long || key instanceof Integer || key instanceof Short || key instanceof Byte)
+				return shard(((Number) key).longValue());
+			return Math.floorMod(key.hashCode(), count);
+		}
+
+		@Override
+		public int getShardCount() {
+			return count;
+		}
+	}
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS
+ * OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.github.drinkjava2.jdialects.shard;
+
+/**
+ * A compiled shard strategy, calculate shard number of a shard key.
+ * Implementations should be immutable and thread safe, see ShardStrategies for
+ * built-in strategies
+ * 
+ * @author Yong Zhu
+ * @since 5.0.13
+ */
+public interface ShardStrategy {
+
+	/** Return shard number (start from 0) of a numeric key */
+	public int shard(long key);
+
+	/**
+	 * Return shard number (start from 0) of a key, key usually is a Number or a
+	 * String
+	 */
+	public int shard(Object key);
+
+	/** Return shard quantity, or -1 if not limited */
+	public int getShardCount();
+}
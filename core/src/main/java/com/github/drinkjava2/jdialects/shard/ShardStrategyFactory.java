@@ -0,0 +1,30 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS
+ * OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.github.drinkjava2.jdialects.shard;
+
+/**
+ * Create ShardStrategy from strategy parameters of &#064;ShardTable or
+ * &#064;ShardDatabase, register it by ShardStrategies.register()
+ * 
+ * @author Yong Zhu
+ * @since 5.0.13
+ */
+public interface ShardStrategyFactory {
+
+	/**
+	 * Create a ShardStrategy
+	 * 
+	 * @param strategy
+	 *            strategy name and its parameters, for example {"MOD", "8"}
+	 */
+	public ShardStrategy create(String[] strategy);
+}
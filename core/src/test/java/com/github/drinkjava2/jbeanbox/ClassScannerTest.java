@@ -0,0 +1,101 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS
+ * OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.github.drinkjava2.jbeanbox;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.github.drinkjava2.jbeanbox.scanfixture.BaseEntity;
+import com.github.drinkjava2.jbeanbox.scanfixture.OuterSubEntity;
+import com.github.drinkjava2.jbeanbox.scanfixture.PlainEntity;
+import com.github.drinkjava2.jbeanbox.scanfixture.SubEntity;
+import com.github.drinkjava2.jbeanbox.scanfixture.SubSubEntity;
+import com.github.drinkjava2.jdialects.annotation.jpa.Table;
+
+/**
+ * Test ClassScanner finds same classes as loading all classes and checking
+ * their annotations
+ *
+ * @author Yong Zhu
+ * @since 5.0.13
+ */
+public class ClassScannerTest {
+	private static final String FIXTURE = "com.github.drinkjava2.jbeanbox.scanfixture";
+
+	/** Scan by loading all classes, the way before class files are read */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static Set<String> scanByLoading(String[] annotationClassNames, String... packages) throws Exception {
+		Set<String> result = new HashSet<String>();
+		for (Class clz : ClassScanner.scanPackages(packages))
+			for (String name : annotationClassNames) {
+				Class anno;
+				try {
+					anno = Class.forName(name);
+				} catch (ClassNotFoundException e) {
+					continue;
+				}
+				if (clz.getAnnotation(anno) != null)
+					result.add(clz.getName());
+			}
+		return result;
+	}
+
+	@SuppressWarnings("rawtypes")
+	private static Set<String> names(List<Class> classes) {
+		Set<String> result = new HashSet<String>();
+		for (Class clz : classes)
+			result.add(clz.getName());
+		return result;
+	}
+
+	@Test
+	public void testInheritedEntities() {
+		Set<String> expected = new HashSet<String>();
+		expected.add(BaseEntity.class.getName());
+		expected.add(SubEntity.class.getName());
+		expected.add(SubSubEntity.class.getName());
+		expected.add(OuterSubEntity.class.getName());
+		expected.add(PlainEntity.class.getName());
+		Assert.assertEquals(expected, names(ClassScanner.scanEntities(FIXTURE)));
+	}
+
+	@Test
+	public void testScanByInheritedAnno() {
+		Set<String> result = names(ClassScanner.scanByAnno(Table.class, FIXTURE));
+		Assert.assertEquals(4, result.size());
+		Assert.assertTrue(result.contains(OuterSubEntity.class.getName()));
+	}
+
+	@Test
+	public void testSameAsLoading() throws Exception {
+		String[] packages = { "com.github.drinkjava2" };
+		Assert.assertEquals(scanByLoading(ClassScanner.ENTITY_ANNOTATIONS, packages),
+				names(ClassScanner.scanEntities(packages)));
+		String[] anno = { Test.class.getName() };
+		Assert.assertEquals(scanByLoading(anno, packages),
+				new HashSet<String>(ClassScanner.scanClassNamesByAnno(anno, packages)));
+		Assert.assertEquals(new HashSet<String>(ClassScanner.scanClassNames(packages)),
+				names(ClassScanner.scanPackages(packages)));
+	}
+
+	@Test
+	public void testJarIndexCache() throws Exception {
+		String[] runWith = { "org.junit.runner.RunWith" }; // an inherited annotation
+		String[] packages = { "org.junit" }; // scanned from junit jar
+		Set<String> expected = scanByLoading(runWith, packages);
+		ClassScanner.clearJarIndexCache();
+		Assert.assertEquals(expected, new HashSet<String>(ClassScanner.scanClassNamesByAnno(runWith, packages)));
+		Assert.assertEquals(expected, new HashSet<String>(ClassScanner.scanClassNamesByAnno(runWith, packages)));
+	}
+}
@@ -0,0 +1,22 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS
+ * OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.github.drinkjava2.jbeanbox.scanfixture;
+
+import com.github.drinkjava2.jdialects.annotation.jpa.Table;
+
+/**
+ * Entity annotated by inherited @Table, used by ClassScannerTest
+ *
+ * @author Yong Zhu
+ * @since 5.0.13
+ */
+@Table(name = "base_tb")
+public class BaseEntity {
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS
+ * OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.github.drinkjava2.jdialects;
+
+import java.util.Map.Entry;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test DialectFunctionUtils.render (by compiled templates) give same result as
+ * the string replace render before templates be compiled
+ *
+ * @author Yong Zhu
+ * @since 5.0.13
+ */
+public class CompiledFunctionTemplateTest {
+	private static final String[] ARGS = { "a", "b.c", "'x, y'", "12", "fn(1, 2)", "?", "null", "c+1", "d", "e",
+			"f", "g" };
+
+	private static String[] args(int count) {
+		String[] result = new String[count];
+		System.arraycopy(ARGS, 0, result, 0, count);
+		return result;
+	}
+
+	private static String legacy(Dialect d, String functionName, String[] args) {
+		try {
+			return LegacyFunctionTranslator.render(d, functionName, args);
+		} catch (DialectException e) {
+			return "EX:" + e.getMessage();
+		}
+	}
+
+	private static String current(Dialect d, String functionName, String[] args) {
+		try {
+			return DialectFunctionUtils.render(d, functionName, args);
+		} catch (DialectException e) {
+			return "EX:" + e.getMessage();
+		}
+	}
+
+	@Test
+	public void testSameAsLegacyRender() {
+		int star = 0, params = 0, nvl = 0, arity = 0;
+		for (Dialect d : Dialect.dialects)
+			for (Entry<String, String> entry : d.functions.entrySet()) {
+				String template = entry.getValue();
+				if (StrUtils.isEmpty(template))
+					continue;
+				if ("*".equals(template))
+					star++;
+				else if (template.length() > 1 && template.charAt(1) == '=')
+					arity++;
+				else if (template.contains("$NVL_Params"))
+					nvl++;
+				else if (template.contains("$Params"))
+					params++;
+				for (String name : new String[] { entry.getKey(), entry.getKey().toUpperCase() })
+					for (int n = 0; n <= ARGS.length; n++)
+						Assert.assertEquals(d + " " + name + " " + template + " " + n, legacy(d, name, args(n)),
+								current(d, name, args(n)));
+			}
+		Assert.assertTrue(star > 0 && params > 0 && nvl > 0 && arity > 0); // all template kinds are compared
+	}
+
+	@Test
+	public void testChangedFunctionTemplate() {
+		Dialect d = Dialect.H2Dialect;
+		String old = d.functions.get("abs");
+		try {
+			d.functions.put("abs", "1=abs2($P1)|2=abs2($P1, $P2)");
+			DialectFunctionTranslator.instance.clearCache(); // required after templates changed in place
+			Assert.assertEquals(legacy(d, "abs", args(2)), current(d, "abs", args(2)));
+			Assert.assertEquals(legacy(d, "abs", args(3)), current(d, "abs", args(3)));
+		} finally {
+			d.functions.put("abs", old);
+			DialectFunctionTranslator.instance.clearCache();
+		}
+		Assert.assertEquals(legacy(d, "abs", args(1)), current(d, "abs", args(1)));
+	}
+}
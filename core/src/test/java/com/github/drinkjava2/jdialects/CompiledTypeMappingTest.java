@@ -0,0 +1,105 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS
+ * OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.github.drinkjava2.jdialects;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.github.drinkjava2.jdialects.model.ColumnModel;
+
+/**
+ * Test Dialect.translateToDDLType give same result as the translation before
+ * type mapping templates be compiled
+ *
+ * @author Yong Zhu
+ * @since 5.0.13
+ */
+public class CompiledTypeMappingTest {
+	private static final int[] LENGTHS = { 0, 1, 10, 254, 255, 256, 4000, 4001, 8000, 32739, 32740, 65535, 100000 };
+	private static final int[][] PRECISION_SCALES = { { 0, 0 }, { 10, 2 }, { 38, 10 } };
+
+	/** The translation before templates be compiled, return "EX" if type not supported */
+	private static String legacyTranslate(Dialect d, ColumnModel col) {
+		Type type = col.getColumnType();
+		String value = d.typeMappings.get(type);
+		if (StrUtils.isEmpty(value) || "N/A".equals(value) || "n/a".equals(value))
+			return "EX";
+		if (value.contains("|")) {
+			for (String templ : StrUtils.split("|", value)) {
+				if (templ.contains("<")) {
+					String[] limitType = StrUtils.split("<", templ);
+					if (col.getLength() > 0 && col.getLength() <= Integer.parseInt(limitType[1]))
+						return replacePlaceHolders(limitType[0], col);
+				} else
+					return replacePlaceHolders(templ, col);
+			}
+			return "EX";
+		} else if (value.contains("$"))
+			return replacePlaceHolders(value, col);
+		else
+			return value;
+	}
+
+	private static String replacePlaceHolders(String value, ColumnModel col) {
+		String newValue = StrUtils.replace(value, "$l", String.valueOf(col.getLength()));
+		newValue = StrUtils.replace(newValue, "$p", String.valueOf(col.getPrecision()));
+		return StrUtils.replace(newValue, "$s", String.valueOf(col.getScale()));
+	}
+
+	private static String translate(Dialect d, ColumnModel col) {
+		try {
+			return d.translateToDDLType(col);
+		} catch (DialectException e) {
+			return "EX";
+		}
+	}
+
+	private static ColumnModel column(Type type, int length, int precision, int scale) {
+		ColumnModel col = new ColumnModel("col");
+		col.setColumnType(type);
+		col.setLength(length);
+		col.setPrecision(precision);
+		col.setScale(scale);
+		return col;
+	}
+
+	@Test
+	public void testSameAsLegacyTranslate() {
+		for (Dialect d : Dialect.dialects)
+			for (Type type : Type.values())
+				for (int length : LENGTHS)
+					for (int[] ps : PRECISION_SCALES) {
+						ColumnModel col = column(type, length, ps[0], ps[1]);
+						String expected = legacyTranslate(d, col);
+						for (int i = 0; i < 2; i++) // 2nd time use cached result
+							Assert.assertEquals(d + " " + type + " " + length, expected, translate(d, col));
+					}
+	}
+
+	@Test
+	public void testTemplateChangedAtRuntime() {
+		Dialect d = Dialect.H2Dialect;
+		String old = d.typeMappings.get(Type.VARCHAR);
+		ColumnModel col = column(Type.VARCHAR, 300, 0, 0);
+		try {
+			Assert.assertEquals(legacyTranslate(d, col), d.translateToDDLType(col));
+			d.typeMappings.put(Type.VARCHAR, "varchar($l)<255|clob");
+			Assert.assertEquals("clob", d.translateToDDLType(col));
+			Assert.assertEquals("varchar(20)", d.translateToDDLType(column(Type.VARCHAR, 20, 0, 0)));
+			d.typeMappings.put(Type.VARCHAR, "N/A");
+			Assert.assertEquals("EX", translate(d, col));
+		} finally {
+			d.typeMappings.put(Type.VARCHAR, old);
+		}
+		Assert.assertEquals(legacyTranslate(d, col), d.translateToDDLType(col));
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS
+ * OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.github.drinkjava2.jdialects;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.drinkjava2.jdialects.model.IndexModel;
+import com.github.drinkjava2.jdialects.model.TableModel;
+
+/**
+ * Test DDLAlterUtils on tables read back by TableModelUtils.db2Models from H2
+ * memory database
+ *
+ * @author Yong Zhu
+ * @since 5.0.13
+ */
+public class DDLAlterUtilsTest {
+	private JdbcDataSource ds;
+	private Connection con;
+
+	@Before
+	public void init() throws SQLException {
+		ds = new JdbcDataSource();
+		ds.setURL("jdbc:h2:mem:ddlAlter;DB_CLOSE_DELAY=-1");
+		con = ds.getConnection();
+	}
+
+	@After
+	public void close() throws SQLException {
+		JdbcUtil.execute(con, "drop all objects");
+		con.close();
+	}
+
+	private static TableModel[] models() {
+		TableModel master = new TableModel("master_tb");
+		master.column("id").INTEGER().pkey();
+		master.column("code").VARCHAR(20);
+		master.unique("uk_master_code").columns("code");
+
+		TableModel detail = new TableModel("detail_tb");
+		detail.column("id").INTEGER().pkey();
+		detail.column("master_id").INTEGER();
+		detail.column("name").VARCHAR(30);
+		detail.column("price").INTEGER();
+		detail.index("ix_detail_name").columns("name", "price");
+		detail.index().columns("price").unique();
+		detail.unique().columns("name");
+		detail.fkey("fk_detail_master").columns("master_id").refs("master_tb", "id");
+		return new TableModel[] { master, detail };
+	}
+
+	/** Return quantity of indexes and uniques, index created by database for foreign key is not counted */
+	private static int keyCount(TableModel[] tables) {
+		int count = 0;
+		for (TableModel table : tables) {
+			count += table.getUniqueConsts().size();
+			for (IndexModel index : table.getIndexConsts())
+				if (!index.getName().toUpperCase().startsWith("FK_"))
+					count++;
+		}
+		return count;
+	}
+
+	private void createTables() {
+		for (String ddl : Dialect.H2Dialect.toCreateDDL(models()))
+			JdbcUtil.execute(con, ddl);
+	}
+
+	@Test
+	public void testUnchangedSchemaHasNoAlterDDL() {
+		createTables();
+		TableModel[] old = TableModelUtils.db2Models(con, Dialect.H2Dialect, true);
+		Assert.assertEquals(4, keyCount(old)); // no index of primary key, unique constraint or foreign key
+		Assert.assertEquals(0, Dialect.H2Dialect.toAlterDDL(old, models()).length);
+		TableModel[] oldParallel = TableModelUtils.db2Models(ds, Dialect.H2Dialect, 2, true);
+		Assert.assertEquals(0, Dialect.H2Dialect.toAlterDDL(oldParallel, models()).length);
+	}
+
+	@Test
+	public void testChangedIndexAndUnique() {
+		createTables();
+		TableModel[] models = models();
+		models[0].getUniqueConsts().clear();
+		models[1].getIndexConsts().get(0).setColumnList(new String[] { "name" });
+		TableModel[] old = TableModelUtils.db2Models(con, Dialect.H2Dialect, true);
+		String[] ddl = Dialect.H2Dialect.toAlterDDL(old, models);
+		for (String sql : ddl)
+			JdbcUtil.execute(con, sql);
+		Assert.assertEquals(3, ddl.length); // drop unique, drop and re-create index
+		TableModel[] altered = TableModelUtils.db2Models(con, Dialect.H2Dialect, true);
+		Assert.assertEquals(0, Dialect.H2Dialect.toAlterDDL(altered, models).length);
+	}
+
+	@Test
+	public void testIndexesNotLoadedByDefault() {
+		createTables();
+		for (TableModel model : TableModelUtils.db2Models(con, Dialect.H2Dialect)) {
+			Assert.assertTrue(model.getIndexConsts().isEmpty());
+			Assert.assertTrue(model.getUniqueConsts().isEmpty());
+		}
+		for (TableModel model : TableModelUtils.db2Models(ds, Dialect.H2Dialect, 2))
+			Assert.assertTrue(model.getIndexConsts().isEmpty());
+	}
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS
+ * OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.github.drinkjava2.jdialects;
+
+import java.io.StringWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.github.drinkjava2.jdialects.model.TableModel;
+
+/**
+ * Test streaming and parallel create DDL, and streaming drop DDL give same
+ * result as the String array methods
+ *
+ * @author Yong Zhu
+ * @since 5.0.13
+ */
+public class DDLCreateUtilsTest {
+	private static final int TABLES = 20;
+
+	/** Tables use sequences, table generators and an auto ID, all refer to table 0 by foreign key */
+	private static TableModel[] models() {
+		TableModel[] models = new TableModel[TABLES];
+		for (int i = 0; i < TABLES; i++) {
+			TableModel t = new TableModel("ddl_tb" + i);
+			if (i == 0)
+				t.column("id").LONG().pkey();
+			else if (i % 3 == 0)
+				t.column("id").LONG().pkey().sequenceGenerator("seq_gen" + i, "seq" + i, 1, 1);
+			else if (i % 3 == 1)
+				t.column("id").LONG().pkey().tableGenerator("tb_gen" + i, "id_gen_tb", "pk_col", "value_col",
+						"tb" + i, 1, 10);
+			else
+				t.column("id").LONG().pkey().autoId();
+			t.column("name").VARCHAR(30);
+			t.column("master_id").LONG();
+			t.index("ix_ddl_name" + i).columns("name");
+			t.unique("uk_ddl" + i).columns("id", "name");
+			if (i > 0)
+				t.fkey("fk_ddl" + i).columns("master_id").refs("ddl_tb0", "id");
+			models[i] = t;
+		}
+		return models;
+	}
+
+	private static Consumer<String> collector(final List<String> list) {
+		return new Consumer<String>() {
+			@Override
+			public void accept(String ddl) {
+				list.add(ddl);
+			}
+		};
+	}
+
+	private static void assertSameCreateDDL(Dialect d) {
+		TableModel[] models = models(); // sequences are de-duplicated by a HashSet, use same instances
+		String[] expected = DDLCreateUtils.toCreateDDL(d, models);
+		List<String> streamed = new ArrayList<String>();
+		DDLCreateUtils.toCreateDDL(d, collector(streamed), models);
+		Assert.assertArrayEquals(expected, streamed.toArray());
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			List<String> parallel = new ArrayList<String>();
+			DDLCreateUtils.toCreateDDL(d, pool, collector(parallel), models);
+			Assert.assertArrayEquals(expected, parallel.toArray());
+		} finally {
+			pool.shutdown();
+		}
+
+		StringWriter writer = new StringWriter();
+		DDLCreateUtils.toCreateDDL(d, writer, ";\n", models);
+		Assert.assertEquals(StrUtils.arrayToString(expected, ";\n") + ";\n", writer.toString());
+	}
+
+	@Test
+	public void testStreamingAndParallelCreateDDL() {
+		assertSameCreateDDL(Dialect.H2Dialect);
+		assertSameCreateDDL(Dialect.Oracle12cDialect);
+		assertSameCreateDDL(Dialect.PostgreSQL95Dialect);
+	}
+
+	@Test
+	public void testStreamingDropDDL() {
+		for (Dialect d : new Dialect[] { Dialect.H2Dialect, Dialect.Oracle12cDialect }) {
+			TableModel[] models = models();
+			String[] expected = DDLDropUtils.toDropDDL(d, models);
+			List<String> streamed = new ArrayList<String>();
+			DDLDropUtils.toDropDDL(d, collector(streamed), models);
+			Assert.assertArrayEquals(expected, streamed.toArray());
+			for (int i = 0; i < TABLES; i++) // drop tables are last, in table order
+				Assert.assertEquals(d.dropTableDDL("ddl_tb" + i), expected[expected.length - TABLES + i]);
+		}
+	}
+
+	@Test
+	public void testCreateAndDropOnH2() throws SQLException {
+		JdbcDataSource ds = new JdbcDataSource();
+		ds.setURL("jdbc:h2:mem:ddlCreate");
+		Connection con = ds.getConnection();
+		try {
+			for (String ddl : DDLCreateUtils.toCreateDDL(Dialect.H2Dialect, models()))
+				JdbcUtil.execute(con, ddl);
+			JdbcUtil.executeUpdate(con, "insert into ddl_tb0 (id, name) values(1, 'a')");
+			for (String ddl : DDLDropUtils.toDropDDL(Dialect.H2Dialect, models()))
+				JdbcUtil.execute(con, ddl);
+			Assert.assertEquals(0L, ((Number) JdbcUtil.qryOneObject(con,
+					"select count(*) from information_schema.tables where table_schema='PUBLIC'")).longValue());
+		} finally {
+			con.close();
+		}
+	}
+}
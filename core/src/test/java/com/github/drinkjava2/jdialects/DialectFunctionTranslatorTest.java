@@ -0,0 +1,166 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS
+ * OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.github.drinkjava2.jdialects;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test DialectFunctionTranslator give same result as LegacyFunctionTranslator
+ * (the translator before cache and single pass scanner) on a random SQL corpus
+ *
+ * @author Yong Zhu
+ * @since 5.0.13
+ */
+public class DialectFunctionTranslatorTest {
+	private static final Dialect[] DIALECTS = { Dialect.MySQL8Dialect, Dialect.Oracle12cDialect,
+			Dialect.SQLServer2012Dialect, Dialect.PostgreSQL95Dialect, Dialect.H2Dialect, Dialect.DB2Dialect,
+			Dialect.SQLiteDialect, Dialect.InformixDialect };
+	private static final String[] PREFIXES = { null, "#", "fn_" };
+	private static final int SQL_PER_DIALECT = 300;
+
+	private static final String[] HAND_WRITTEN = { "", " ", "select 1 from dual", "select #abs(a) from t",
+			"select fn_abs(a), FN_ABS(b) from t", "select abs(-1), lower('ABC') from t",
+			"select 'abs(1)', \"abs\"(2) from t", "select #locate('a', #lower(b), 2) from t where #mod(c,2)=0",
+			"select count(*), #count(*) from t", "select #concat('a', 'b') from t", "select #abs() from t",
+			"select #unknownfn(a) from t", "select a from t where b in (select #max(c) from t2)",
+			"select #extract(year from d) from t", "select #cast(a as varchar(10)) from t",
+			"select #abs(a) from t where b = ? and c = '#abs(1)'" };
+
+	private final Random random = new Random(42);
+	private List<String> functionNames;
+	private Dialect dialect;
+
+	@After
+	public void resetPrefix() {
+		Dialect.setGlobalSqlFunctionPrefix(null);
+		DialectFunctionTranslator.instance.clearCache();
+	}
+
+	private static String legacy(Dialect d, String sql) {
+		try {
+			return LegacyFunctionTranslator.instance.doTranslate(d, sql);
+		} catch (DialectException e) {
+			return "EX:" + e.getMessage();
+		}
+	}
+
+	private static String current(Dialect d, String sql) {
+		try {
+			return d.trans(sql);
+		} catch (DialectException e) {
+			return "EX:" + e.getMessage();
+		}
+	}
+
+	private static void assertSame(Dialect d, String sql) {
+		String expected = legacy(d, sql);
+		Assert.assertEquals(d + " " + sql, expected, current(d, sql));
+		Assert.assertEquals(d + " " + sql, expected, current(d, sql)); // 2nd time translated by cache
+	}
+
+	@Test
+	public void testHandWrittenSql() {
+		for (String prefix : PREFIXES) {
+			Dialect.setGlobalSqlFunctionPrefix(prefix);
+			for (Dialect d : DIALECTS)
+				for (String sql : HAND_WRITTEN)
+					assertSame(d, sql);
+		}
+		Dialect.setGlobalSqlFunctionPrefix("#");
+		Assert.assertEquals("select abs(a) from t", Dialect.MySQL8Dialect.trans("select #abs(a) from t"));
+	}
+
+	@Test
+	public void testRandomSql() {
+		functionNames = new ArrayList<String>(LegacyFunctionTranslator.instance.getFunctionMap().keySet());
+		Collections.sort(functionNames);
+		for (String prefix : PREFIXES) {
+			Dialect.setGlobalSqlFunctionPrefix(prefix);
+			for (int i = 0; i < SQL_PER_DIALECT; i++)
+				for (Dialect d : DIALECTS) {
+					dialect = d;
+					assertSame(d, randomSql(prefix == null ? "" : prefix));
+				}
+		}
+	}
+
+	private String pick(String... items) {
+		return items[random.nextInt(items.length)];
+	}
+
+	private String randomSql(String prefix) {
+		StringBuilder sb = new StringBuilder("select ");
+		int columns = 1 + random.nextInt(4);
+		for (int i = 0; i < columns; i++) {
+			if (i > 0)
+				sb.append(", ");
+			sb.append(randomExpr(prefix, 0));
+			if (random.nextInt(4) == 0)
+				sb.append(" as x").append(i);
+		}
+		sb.append(" from t where ").append(randomExpr(prefix, 1))
+				.append(pick(" = ?", " > 1", " in (1, 2)", " and (a or b)"));
+		if (random.nextBoolean())
+			sb.append(" order by 1");
+		return sb.toString();
+	}
+
+	private String randomExpr(String prefix, int depth) {
+		switch (random.nextInt(depth > 2 ? 4 : 9)) {
+		case 0:
+			return pick("a", "b.c", "col_1", "12", "3.5", "?", "null", "x+1", "a-b");
+		case 1:
+			return "'" + pick("abc", "it''s", "x(y", "a,b", "sum(1)", "") + "'";
+		case 2:
+			return randomExpr(prefix, depth + 1) + pick(" + ", "*", "||", " , ", " ") + randomExpr(prefix, depth + 1);
+		case 3:
+			return pick("", "", "unknownfn", "foo") + "(" + randomExpr(prefix, depth + 1) + ")";
+		default:
+			return randomFunction(prefix, depth);
+		}
+	}
+
+	/** Build a function call, most of time with an argument count the template of dialect accepts */
+	private String randomFunction(String prefix, int depth) {
+		String name = functionNames.get(random.nextInt(functionNames.size()));
+		String template = dialect.functions.get(name.toLowerCase());
+		if (template == null && random.nextInt(50) > 0)
+			return randomExpr(prefix, depth);
+		int args = random.nextInt(4);
+		boolean argCountTemplate = template != null && template.length() > 1 && template.charAt(1) == '=';
+		if (argCountTemplate && random.nextInt(10) > 0) {
+			List<Integer> counts = new ArrayList<Integer>();
+			for (String part : template.split("\\|"))
+				if (part.length() > 1 && part.charAt(1) == '=')
+					counts.add(part.charAt(0) - '0');
+			args = counts.get(random.nextInt(counts.size()));
+		}
+		if (template != null && !argCountTemplate && args == 0)
+			args = 1;
+		if (random.nextBoolean())
+			name = name.toLowerCase();
+		StringBuilder sb = new StringBuilder(pick(prefix, prefix, prefix, "")).append(name).append("(");
+		for (int i = 0; i < args; i++) {
+			if (i > 0)
+				sb.append(pick(",", ", ", " ,"));
+			sb.append(randomExpr(prefix, depth + 1));
+		}
+		return sb.append(")").toString();
+	}
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS
+ * OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.github.drinkjava2.jdialects;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test Dialect.pagin give same result as the pagination before plans be
+ * compiled and cached
+ *
+ * @author Yong Zhu
+ * @since 5.0.13
+ */
+public class DialectPaginationTest {
+	private static final String[] SQLS = { "select * from users order by id",
+			"  select distinct name, age from users where x=1 ", "select\nname from t",
+			"SELECT DISTINCT a from t order by a", "select $BODY from x", "select a from t where b='$SQL'",
+			"select distinct  x from t", "update t", "select ", "" };
+	private static final int[][] PAGES = { { 1, 10 }, { 2, 10 }, { 3, 7 }, { 1, 1 }, { 100, 25 } };
+
+	@After
+	public void resetTopLimit() {
+		Dialect.setGlobalEnableTopLimitPagin(true);
+	}
+
+	/** The pagination before plans be compiled, return "EX" if pagination not supported */
+	private static String legacyPagin(Dialect d, int pageNumber, int pageSize, String sql) {// NOSONAR
+		String trimedSql = sql.trim();
+		if (trimedSql.length() == 0)
+			return "EX";
+		if (!StrUtils.startsWithIgnoreCase(trimedSql, "select ")
+				&& !StrUtils.startsWithIgnoreCase(trimedSql, "select\n"))
+			return "EX";
+		String body = trimedSql.substring(7).trim();
+		if (body.length() == 0)
+			return "EX";
+
+		int skipRows = (pageNumber - 1) * pageSize;
+		int totalRows = pageNumber * pageSize;
+		String useTemplate;
+		if (Dialect.getGlobalEnableTopLimitPagin() && skipRows == 0) {
+			useTemplate = d.topLimitTemplate;
+			if (Dialect.SQLServer2012Dialect.equals(d) && !StrUtils.containsIgnoreCase(trimedSql, "order by "))
+				useTemplate = Dialect.SQLServer2005Dialect.topLimitTemplate;
+		} else {
+			useTemplate = d.sqlTemplate;
+			if (Dialect.SQLServer2012Dialect.equals(d) && !StrUtils.containsIgnoreCase(trimedSql, "order by "))
+				useTemplate = Dialect.SQLServer2005Dialect.sqlTemplate;
+		}
+		if (Dialect.NOT_SUPPORT.equals(useTemplate))
+			return "EX";
+
+		if (useTemplate.contains("($DISTINCT)")) {
+			if (!StrUtils.startsWithIgnoreCase(body, "distinct "))
+				useTemplate = StrUtils.replace(useTemplate, "($DISTINCT)", "");
+			else {
+				useTemplate = StrUtils.replace(useTemplate, "($DISTINCT)", "distinct");
+				body = body.substring(9);
+			}
+		}
+		String result = StrUtils.replaceIgnoreCase(useTemplate, "$SKIP_ROWS", String.valueOf(skipRows));
+		result = StrUtils.replaceIgnoreCase(result, "$PAGESIZE", String.valueOf(pageSize));
+		result = StrUtils.replaceIgnoreCase(result, "$TOTAL_ROWS", String.valueOf(totalRows));
+		result = StrUtils.replace(result, "$SQL", trimedSql);
+		return StrUtils.replace(result, "$BODY", body);
+	}
+
+	private static String pagin(Dialect d, int pageNumber, int pageSize, String sql) {
+		try {
+			return d.pagin(pageNumber, pageSize, sql);
+		} catch (DialectException e) {
+			return "EX";
+		}
+	}
+
+	/** Fill "?" placeholders of SQL by given parameters */
+	private static String fill(String sql, Object[] params) {
+		StringBuilder sb = new StringBuilder();
+		int index = 0;
+		for (char c : sql.toCharArray())
+			if (c == '?')
+				sb.append(params[index++]);
+			else
+				sb.append(c);
+		Assert.assertEquals(sql, params.length, index);
+		return sb.toString();
+	}
+
+	@Test
+	public void testSameAsLegacyPagin() {
+		for (Boolean topLimit : new Boolean[] { true, false }) {
+			Dialect.setGlobalEnableTopLimitPagin(topLimit);
+			for (Dialect d : Dialect.dialects)
+				for (String sql : SQLS)
+					for (int[] page : PAGES)
+						for (int i = 0; i < 2; i++) // 2nd time use cached plan
+							Assert.assertEquals(d + " " + sql, legacyPagin(d, page[0], page[1], sql),
+									pagin(d, page[0], page[1], sql));
+		}
+	}
+
+	@Test
+	public void testTemplateChangedAtRuntime() {
+		Dialect d = Dialect.H2Dialect;
+		String old = d.sqlTemplate;
+		try {
+			Assert.assertEquals(legacyPagin(d, 2, 10, SQLS[0]), d.pagin(2, 10, SQLS[0]));
+			d.sqlTemplate = "$SQL offset $SKIP_ROWS rows fetch next $PAGESIZE rows only";
+			Assert.assertEquals("select * from users order by id offset 10 rows fetch next 10 rows only",
+					d.pagin(2, 10, SQLS[0]));
+		} finally {
+			d.sqlTemplate = old;
+		}
+		Assert.assertEquals(legacyPagin(d, 2, 10, SQLS[0]), d.pagin(2, 10, SQLS[0]));
+	}
+
+	@Test
+	public void testPaginBindSameAsPagin() {
+		Dialect.setGlobalEnableTopLimitPagin(false); // bind mode never use top limit template
+		String sql = "select distinct name from users where age>? and name like ? order by name";
+		for (Dialect d : Dialect.dialects) {
+			if ("EX".equals(pagin(d, 1, 10, sql)))
+				continue;
+			PaginBindSql bind = d.paginBind(sql);
+			for (int[] page : PAGES) {
+				String expected = fill(d.pagin(page[0], page[1], sql), new Object[] { 18, "'a%'" });
+				Object[] params = bind.getParams(page[0], page[1], 18, "'a%'");
+				Assert.assertEquals(bind.getPaginParamCount() + 2, params.length);
+				Assert.assertEquals(d.toString(), expected, fill(bind.getSql(), params));
+			}
+		}
+	}
+
+	@Test
+	public void testPaginBindOnH2() throws SQLException {
+		JdbcDataSource ds = new JdbcDataSource();
+		ds.setURL("jdbc:h2:mem:paginBind");
+		Connection con = ds.getConnection();
+		try {
+			JdbcUtil.execute(con, "create table users (id int, age int)");
+			for (int i = 1; i <= 25; i++)
+				JdbcUtil.executeUpdate(con, "insert into users values(?,?)", i, i % 2 == 0 ? 20 : 10);
+			PaginBindSql bind = Dialect.H2Dialect.paginBind("select id from users where age>? order by id");
+			PreparedStatement ps = con.prepareStatement(bind.getSql());
+			try {
+				int[] expectedFirstIds = { 2, 10, 18 };
+				for (int page = 1; page <= 3; page++) {
+					bind.bind(ps, page, 4, 15);
+					ResultSet rs = ps.executeQuery();
+					Assert.assertTrue(rs.next());
+					Assert.assertEquals(expectedFirstIds[page - 1], rs.getInt(1));
+					int count = 1;
+					while (rs.next())
+						count++;
+					Assert.assertEquals(4, count);
+					rs.close();
+				}
+			} finally {
+				ps.close();
+			}
+		} finally {
+			con.close();
+		}
+	}
+}
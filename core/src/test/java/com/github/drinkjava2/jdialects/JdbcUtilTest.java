@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS
+ * OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.github.drinkjava2.jdialects;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test JdbcUtil statement cache on H2 memory database
+ *
+ * @author Yong Zhu
+ * @since 5.0.13
+ */
+public class JdbcUtilTest {
+	private JdbcDataSource ds;
+	private Connection con;
+
+	@Before
+	public void init() throws SQLException {
+		ds = new JdbcDataSource();
+		ds.setURL("jdbc:h2:mem:jdbcUtil;DB_CLOSE_DELAY=-1");
+		con = ds.getConnection();
+		JdbcUtil.execute(con, "create table util_tb (id int)");
+		JdbcUtil.clearStatementCache();
+		JdbcUtil.resetStatistics();
+	}
+
+	@After
+	public void close() throws SQLException {
+		JdbcUtil.execute(con, "drop table util_tb");
+		JdbcUtil.clearStatementCache();
+		con.close();
+	}
+
+	@Test
+	public void testNotCachedByDefault() {
+		for (int i = 0; i < 3; i++)
+			JdbcUtil.executeUpdate(con, "insert into util_tb values(?)", i);
+		Assert.assertEquals(3, JdbcUtil.getPrepareCount());
+		Assert.assertEquals(0, JdbcUtil.getStatementCacheHitCount());
+		Assert.assertEquals(0, JdbcUtil.getStatementCacheConnectionCount());
+	}
+
+	@Test
+	public void testStatementCached() {
+		JdbcUtil.setStatementCacheSize(con, 32);
+		for (int i = 0; i < 5; i++)
+			JdbcUtil.executeUpdate(con, "insert into util_tb values(?)", i);
+		Assert.assertEquals(5L, ((Number) JdbcUtil.qryOneObject(con, "select count(*) from util_tb")).longValue());
+		Assert.assertEquals(2, JdbcUtil.getPrepareCount());
+		Assert.assertEquals(4, JdbcUtil.getStatementCacheHitCount());
+	}
+
+	@Test
+	public void testConnectionCacheSize() {
+		JdbcUtil.setStatementCacheSize(con, 1);
+		for (int i = 0; i < 3; i++) {
+			JdbcUtil.qryOneObject(con, "select count(*) from util_tb");
+			JdbcUtil.qryOneObject(con, "select max(id) from util_tb");
+		}
+		Assert.assertEquals(6, JdbcUtil.getPrepareCount()); // 2 SQLs evict each other
+		JdbcUtil.setStatementCacheSize(con, 0);
+		Assert.assertEquals(0, JdbcUtil.getStatementCacheConnectionCount());
+		JdbcUtil.qryOneObject(con, "select count(*) from util_tb");
+		JdbcUtil.qryOneObject(con, "select count(*) from util_tb");
+		Assert.assertEquals(8, JdbcUtil.getPrepareCount());
+	}
+
+	@Test
+	public void testClosedConnectionsReleased() throws SQLException {
+		for (int i = 0; i < 40; i++) { // cleared before close
+			Connection c = ds.getConnection();
+			JdbcUtil.setStatementCacheSize(c, 8);
+			JdbcUtil.qryOneObject(c, "select count(*) from util_tb");
+			JdbcUtil.clearStatementCache(c);
+			c.close();
+		}
+		Assert.assertEquals(0, JdbcUtil.getStatementCacheConnectionCount());
+		for (int i = 0; i < 40; i++) { // not cleared, removed when caches of new connections added
+			Connection c = ds.getConnection();
+			JdbcUtil.setStatementCacheSize(c, 8);
+			JdbcUtil.qryOneObject(c, "select count(*) from util_tb");
+			c.close();
+		}
+		Assert.assertTrue(JdbcUtil.getStatementCacheConnectionCount() < 16);
+		Connection c = ds.getConnection();
+		try {
+			JdbcUtil.setStatementCacheSize(c, 8);
+			JdbcUtil.qryOneObject(c, "select count(*) from util_tb");
+			JdbcUtil.qryOneObject(c, "select count(*) from util_tb");
+			Assert.assertEquals(1, JdbcUtil.getStatementCacheHitCount());
+		} finally {
+			JdbcUtil.clearStatementCache(c);
+			c.close();
+		}
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS
+ * OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.github.drinkjava2.jdialects;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.drinkjava2.jdialects.model.TableModel;
+
+/**
+ * Test TableModelSnapshot write and read back
+ *
+ * @author Yong Zhu
+ * @since 5.0.13
+ */
+public class TableModelSnapshotTest {
+	private static final String FINGERPRINT = "v1";
+	private File file;
+
+	@Before
+	public void init() throws IOException {
+		file = File.createTempFile("snapshot", ".bin");
+	}
+
+	@After
+	public void close() {
+		file.delete(); // NOSONAR
+	}
+
+	private static TableModel model() {
+		TableModel t = new TableModel("snap_tb");
+		t.column("id").INTEGER().pkey();
+		t.column("name").VARCHAR(30);
+		t.index("ix_snap_name").columns("name");
+		t.unique().columns("id", "name");
+		return t;
+	}
+
+	@Test
+	public void testReadBack() {
+		TableModelSnapshot.write(file, FINGERPRINT, model());
+		TableModel[] models = TableModelSnapshot.read(file, FINGERPRINT);
+		Assert.assertEquals(1, models.length);
+		Assert.assertArrayEquals(Dialect.H2Dialect.toCreateDDL(model()), Dialect.H2Dialect.toCreateDDL(models));
+		Assert.assertNull(TableModelSnapshot.read(file, "v2"));
+	}
+
+	@Test
+	public void testCorruptedBodyReturnNull() throws IOException {
+		TableModelSnapshot.write(file, FINGERPRINT, model());
+		byte[] bytes = Files.readAllBytes(file.toPath());
+		int bodyStart = 20 + FINGERPRINT.length();
+		for (int i = bodyStart; i < bytes.length; i++)
+			bytes[i] = (byte) 0xFF; // varints never end
+		CRC32 crc = new CRC32();
+		crc.update(bytes, bodyStart, bytes.length - bodyStart);
+		ByteBuffer.wrap(bytes).putInt(bodyStart - 4, (int) crc.getValue()); // CRC still matches
+		Files.write(file.toPath(), bytes);
+		Assert.assertNull(TableModelSnapshot.read(file, FINGERPRINT));
+	}
+
+	@Test
+	public void testRewriteAfterFingerprintChanged() {
+		TableModelSnapshot.write(file, FINGERPRINT, model());
+		Assert.assertNull(TableModelSnapshot.read(file, "v2")); // body not mapped, so file can be replaced
+		TableModelSnapshot.write(file, "v2", model());
+		Assert.assertEquals(1, TableModelSnapshot.read(file, "v2").length);
+	}
+
+	@Test
+	public void testTruncatedHeaderReturnNull() throws IOException {
+		TableModelSnapshot.write(file, FINGERPRINT, model());
+		byte[] bytes = Files.readAllBytes(file.toPath());
+		Files.write(file.toPath(), Arrays.copyOf(bytes, 14));
+		Assert.assertNull(TableModelSnapshot.read(file, FINGERPRINT));
+		ByteBuffer.wrap(bytes).putInt(8, Integer.MAX_VALUE); // fingerprint length
+		Files.write(file.toPath(), bytes);
+		Assert.assertNull(TableModelSnapshot.read(file, FINGERPRINT));
+	}
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS
+ * OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.github.drinkjava2.jdialects;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.drinkjava2.jdialects.model.ColumnModel;
+import com.github.drinkjava2.jdialects.model.FKeyModel;
+import com.github.drinkjava2.jdialects.model.TableModel;
+
+/**
+ * Test TableModelUtilsOfDb loading columns, primary keys and foreign keys of
+ * all tables at once give same result as table by table meta data calls, on
+ * H2 memory database
+ *
+ * @author Yong Zhu
+ * @since 5.0.13
+ */
+public class TableModelUtilsOfDbTest {
+	private JdbcDataSource ds;
+	private Connection con;
+
+	@Before
+	public void init() throws SQLException {
+		ds = new JdbcDataSource();
+		ds.setURL("jdbc:h2:mem:modelsOfDb;DB_CLOSE_DELAY=-1");
+		con = ds.getConnection();
+		JdbcUtil.execute(con, "create table master_tb (id integer, code varchar(20), primary key (id))");
+		JdbcUtil.execute(con, "create table group_tb (gid integer, seq integer, title varchar(30), primary key (gid, seq))");
+		JdbcUtil.execute(con, "create table detail_tb (id bigint primary key, master_id integer, gid integer, seq integer,"
+				+ " price decimal(10,2), constraint fk_detail_master foreign key (master_id) references master_tb (id),"
+				+ " constraint fk_detail_group foreign key (gid, seq) references group_tb (gid, seq))");
+		JdbcUtil.execute(con, "create table log_tb (msg varchar(100), created timestamp)"); // no primary key
+		for (int i = 0; i < 20; i++) // more tables than connections
+			JdbcUtil.execute(con, "create table extra_tb" + i + " (id integer primary key, master_id integer"
+					+ ", foreign key (master_id) references master_tb (id))");
+	}
+
+	@After
+	public void close() throws SQLException {
+		JdbcUtil.execute(con, "drop all objects");
+		con.close();
+	}
+
+	/** Describe columns, primary keys and foreign keys of models, sorted by table name */
+	private static List<String> describe(TableModel[] models) {
+		List<String> result = new ArrayList<String>();
+		for (TableModel model : models) {
+			StringBuilder sb = new StringBuilder(model.getTableName().toUpperCase()).append(':');
+			for (ColumnModel col : model.getColumns())
+				sb.append(' ').append(col.getColumnName().toUpperCase()).append(' ').append(col.getColumnType())
+						.append(Boolean.TRUE.equals(col.getPkey()) ? " pkey" : "").append(',');
+			List<String> fkeys = new ArrayList<String>();
+			for (FKeyModel fkey : model.getFkeyConstraints())
+				fkeys.add(fkey.getFkeyName().toUpperCase() + fkey.getColumnNames() + "->"
+						+ Arrays.asList(fkey.getRefTableAndColumns()));
+			Collections.sort(fkeys);
+			sb.append(" fkeys ").append(fkeys);
+			result.add(sb.toString());
+		}
+		Collections.sort(result);
+		return result;
+	}
+
+	/** Build models by getColumns, getPrimaryKeys and getImportedKeys calls of each table */
+	private TableModel[] tableByTable() throws SQLException {
+		DatabaseMetaData meta = con.getMetaData();
+		String catalog = con.getCatalog();
+		Map<String, TableModel> tables = new LinkedHashMap<String, TableModel>();
+		ResultSet rs = meta.getTables(catalog, "PUBLIC", null, new String[] { "TABLE" });
+		while (rs.next())
+			tables.put(rs.getString("TABLE_NAME"), new TableModel(rs.getString("TABLE_NAME")));
+		rs.close();
+		for (Map.Entry<String, TableModel> entry : tables.entrySet()) {
+			TableModel model = entry.getValue();
+			rs = meta.getColumns(catalog, "PUBLIC", entry.getKey(), null);
+			while (rs.next())
+				model.column(rs.getString("COLUMN_NAME"))
+						.setColumnType(TypeUtils.javaSqlTypeToDialectType(rs.getInt("DATA_TYPE")));
+			rs.close();
+			rs = meta.getPrimaryKeys(catalog, "PUBLIC", entry.getKey());
+			while (rs.next())
+				model.getColumnByColName(rs.getString("COLUMN_NAME")).setPkey(true);
+			rs.close();
+			rs = meta.getImportedKeys(catalog, "PUBLIC", entry.getKey());
+			while (rs.next()) {
+				String fkName = rs.getString("FK_NAME");
+				FKeyModel fkey = model.getFkey(fkName);
+				if (fkey == null)
+					model.fkey(fkName).columns(rs.getString("FKCOLUMN_NAME")).refs(rs.getString("PKTABLE_NAME"),
+							rs.getString("PKCOLUMN_NAME"));
+				else {
+					fkey.getColumnNames().add(rs.getString("FKCOLUMN_NAME"));
+					fkey.setRefTableAndColumns(
+							ArrayUtils.appendStrArray(fkey.getRefTableAndColumns(), rs.getString("PKCOLUMN_NAME")));
+				}
+			}
+			rs.close();
+		}
+		return tables.values().toArray(new TableModel[tables.size()]);
+	}
+
+	@Test
+	public void testBulkSameAsTableByTable() throws SQLException {
+		List<String> expected = describe(tableByTable());
+		Assert.assertEquals(24, expected.size());
+		Assert.assertTrue(expected.toString().contains("FK_DETAIL_GROUP[GID, SEQ]->[GROUP_TB, GID, SEQ]"));
+
+		Assert.assertEquals(expected, describe(TableModelUtils.db2Models(con, Dialect.H2Dialect)));
+		Assert.assertEquals(expected, describe(TableModelUtils.db2Models(ds, Dialect.H2Dialect, 4)));
+		Assert.assertEquals(expected, describe(TableModelUtils.db2Models(ds, Dialect.H2Dialect, 1)));
+	}
+
+	@Test
+	public void testTableByTableFallback() throws SQLException {
+		// H2 driver refuses null table name and HSQL dialect has no key query, keys are loaded table by table
+		List<String> expected = describe(tableByTable());
+		Assert.assertEquals(expected, describe(TableModelUtils.db2Models(con, Dialect.HSQLDialect)));
+		Assert.assertEquals(expected, describe(TableModelUtils.db2Models(ds, Dialect.HSQLDialect, 4)));
+	}
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS
+ * OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.github.drinkjava2.jdialects.id;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.drinkjava2.jdialects.Dialect;
+import com.github.drinkjava2.jdialects.DialectException;
+import com.github.drinkjava2.jdialects.JdbcUtil;
+import com.github.drinkjava2.jdialects.Type;
+
+/**
+ * Test SequenceIdGenerator pooled mode and batch IDs on H2 memory database
+ *
+ * @author Yong Zhu
+ * @since 5.0.13
+ */
+public class SequenceIdGeneratorTest {
+	private JdbcDataSource ds;
+	private Connection con;
+	private ExecutorService prefetchExecutor;
+
+	@Before
+	public void init() throws SQLException {
+		prefetchExecutor = Executors.newSingleThreadExecutor();
+		ds = new JdbcDataSource();
+		ds.setURL("jdbc:h2:mem:seqIdGen;DB_CLOSE_DELAY=-1");
+		con = ds.getConnection();
+		JdbcUtil.execute(con, "create sequence seq start with 1 increment by 10");
+	}
+
+	@After
+	public void close() throws Exception {
+		prefetchExecutor.shutdown(); // a late prefetch should not take nextval of next test
+		Assert.assertTrue(prefetchExecutor.awaitTermination(10, TimeUnit.SECONDS));
+		JdbcUtil.execute(con, "drop sequence seq");
+		con.close();
+	}
+
+	private static SequenceIdGenerator pooled() {
+		return new SequenceIdGenerator("gen", "seq", 1, 10, true);
+	}
+
+	private SequenceIdGenerator prefetching(DataSource prefetchDataSource) {
+		SequenceIdGenerator gen = pooled();
+		gen.setPrefetchDataSource(prefetchDataSource);
+		gen.setPrefetchExecutor(prefetchExecutor);
+		return gen;
+	}
+
+	/** A DataSource whose getConnection waits until latch released */
+	private DataSource blockedDataSource(final CountDownLatch latch) {
+		return (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(),
+				new Class<?>[] { DataSource.class }, new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						if ("getConnection".equals(method.getName()))
+							latch.await();
+						try {
+							return method.invoke(ds, args);
+						} catch (InvocationTargetException e) {
+							throw e.getCause();
+						}
+					}
+				});
+	}
+
+	@Test
+	public void testPooledIDs() {
+		SequenceIdGenerator gen = pooled();
+		for (long i = 1; i <= 25; i++)
+			Assert.assertEquals(i, gen.getNextID(con, Dialect.H2Dialect, Type.BIGINT));
+		long[] ids = gen.getNextLongIDs(con, Dialect.H2Dialect, Type.BIGINT, 30);
+		for (int i = 0; i < 30; i++)
+			Assert.assertEquals(26L + i, ids[i]);
+	}
+
+	@Test
+	public void testBatchNotPooled() {
+		SequenceIdGenerator gen = new SequenceIdGenerator("gen", "seq", 1, 10);
+		Object[] ids = gen.getNextIDs(con, Dialect.H2Dialect, Type.BIGINT, 3);
+		Assert.assertEquals(3, ids.length);
+		Assert.assertEquals(1L, ((Number) ids[0]).longValue());
+		Assert.assertEquals(21L, ((Number) ids[2]).longValue());
+	}
+
+	@Test(timeout = 10000)
+	public void testNotWaitSlowPrefetch() {
+		CountDownLatch latch = new CountDownLatch(1);
+		SequenceIdGenerator gen = prefetching(blockedDataSource(latch));
+		try {
+			// prefetch started at 9th ID is blocked, next block is fetched on caller's connection
+			for (long i = 1; i <= 15; i++)
+				Assert.assertEquals(i, gen.getNextID(con, Dialect.H2Dialect, Type.BIGINT));
+		} finally {
+			latch.countDown();
+		}
+	}
+
+	@Test
+	public void testPrefetchConcurrent() throws Exception {
+		final SequenceIdGenerator gen = prefetching(ds);
+		final List<Long> ids = new ArrayList<Long>();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < 4; t++)
+			threads.add(new Thread() {
+				@Override
+				public void run() {
+					List<Long> local = new ArrayList<Long>();
+					try (Connection c = ds.getConnection()) {
+						for (int i = 0; i < 300; i++)
+							local.add((Long) gen.getNextID(c, Dialect.H2Dialect, Type.BIGINT));
+					} catch (SQLException e) {
+						throw new DialectException(e);
+					}
+					synchronized (ids) {
+						ids.addAll(local);
+					}
+				}
+			});
+		for (Thread thread : threads)
+			thread.start();
+		for (Thread thread : threads)
+			thread.join();
+		Set<Long> unique = new HashSet<Long>(ids);
+		Assert.assertEquals(1200, ids.size());
+		Assert.assertEquals(1200, unique.size());
+	}
+
+	/** Get IDs by 4 threads, each mixes single and batch calls */
+	private List<Long> mixSingleAndBatchConcurrent(final SequenceIdGenerator gen) throws InterruptedException {
+		final List<Long> ids = new ArrayList<Long>();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < 4; t++)
+			threads.add(new Thread() {
+				@Override
+				public void run() {
+					List<Long> local = new ArrayList<Long>();
+					try (Connection c = ds.getConnection()) {
+						for (int i = 0; i < 100; i++) {
+							local.add((Long) gen.getNextID(c, Dialect.H2Dialect, Type.BIGINT));
+							for (long id : gen.getNextLongIDs(c, Dialect.H2Dialect, Type.BIGINT, 1 + i % 7))
+								local.add(id);
+						}
+					} catch (SQLException e) {
+						throw new DialectException(e);
+					}
+					synchronized (ids) {
+						ids.addAll(local);
+					}
+				}
+			});
+		for (Thread thread : threads)
+			thread.start();
+		for (Thread thread : threads)
+			thread.join();
+		int expected = 0;
+		for (int i = 0; i < 100; i++)
+			expected += 2 + i % 7;
+		Assert.assertEquals(4 * expected, ids.size()); // no thread failed
+		return ids;
+	}
+
+	@Test
+	public void testMixSingleAndBatchConcurrent() throws Exception {
+		List<Long> ids = mixSingleAndBatchConcurrent(pooled());
+		Set<Long> unique = new HashSet<Long>(ids);
+		Assert.assertEquals(ids.size(), unique.size());
+		for (long i = 1; i <= ids.size(); i++)
+			Assert.assertTrue("Missed ID " + i, unique.contains(i)); // no prefetch, pooled IDs are contiguous
+	}
+
+	@Test
+	public void testBlockOfOneIdConcurrent() throws Exception {
+		JdbcUtil.execute(con, "create sequence seq1 start with 1 increment by 1");
+		try {
+			List<Long> ids = mixSingleAndBatchConcurrent(new SequenceIdGenerator("gen", "seq1", 1, 1, true));
+			Set<Long> unique = new HashSet<Long>(ids);
+			Assert.assertEquals(ids.size(), unique.size());
+			for (long i = 1; i <= ids.size(); i++)
+				Assert.assertTrue("Missed ID " + i, unique.contains(i));
+		} finally {
+			JdbcUtil.execute(con, "drop sequence seq1");
+		}
+	}
+
+	@Test
+	public void testMixSingleAndBatchPrefetchConcurrent() throws Exception {
+		// a prefetch still running when needed is dropped, so here only check no duplicates
+		List<Long> ids = mixSingleAndBatchConcurrent(prefetching(ds));
+		Assert.assertEquals(ids.size(), new HashSet<Long>(ids).size());
+	}
+}
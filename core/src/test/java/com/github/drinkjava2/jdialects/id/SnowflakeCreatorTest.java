@@ -0,0 +1,189 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS
+ * OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.github.drinkjava2.jdialects.id;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test SnowflakeCreator on a clock controlled by test
+ *
+ * @author Yong Zhu
+ * @since 5.0.13
+ */
+public class SnowflakeCreatorTest {
+	private static final long START = 1451606400000L + 1000000L; // epoch + 1000 seconds
+
+	/** A SnowflakeCreator whose clock only moves when test sets it, or when it waits next millisecond */
+	private static class FakeClockCreator extends SnowflakeCreator {
+		final AtomicLong now = new AtomicLong(START);
+
+		FakeClockCreator(long maxBorrowMillis) {
+			super(5L, 5L, 3L, 7L, maxBorrowMillis);
+		}
+
+		@Override
+		protected long timestampGen() {
+			return now.get();
+		}
+
+		@Override
+		protected long waitNextMillis(long timestamp) {
+			long next = timestamp + 1;
+			long curr = now.get();
+			while (curr < next && !now.compareAndSet(curr, next))
+				curr = now.get();
+			return super.waitNextMillis(timestamp);
+		}
+	}
+
+	/** Return milliseconds since epoch of id */
+	private static long time(SnowflakeCreator creator, long id) {
+		return creator.parseId(id)[4];
+	}
+
+	private static long sequence(SnowflakeCreator creator, long id) {
+		return creator.parseId(id)[3];
+	}
+
+	@Test
+	public void testIdLayout() {
+		FakeClockCreator creator = new FakeClockCreator(0);
+		long[] parsed = creator.parseId(creator.nextId());
+		Assert.assertEquals(START, parsed[0]);
+		Assert.assertEquals(3L, parsed[1]);
+		Assert.assertEquals(7L, parsed[2]);
+		Assert.assertEquals(0L, parsed[3]);
+	}
+
+	@Test
+	public void testConcurrentUniqueAndMonotonic() throws InterruptedException {
+		final FakeClockCreator creator = new FakeClockCreator(0);
+		final int perThread = 20000;
+		final List<long[]> results = new ArrayList<long[]>();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < 4; t++) {
+			final long[] ids = new long[perThread];
+			results.add(ids);
+			threads.add(new Thread() {
+				@Override
+				public void run() {
+					int i = 0;
+					while (i < perThread)
+						if (i % 100 == 0) { // mix batches of 10 IDs
+							System.arraycopy(creator.nextIds(10), 0, ids, i, 10);
+							i += 10;
+						} else
+							ids[i++] = creator.nextId();
+				}
+			});
+		}
+		for (Thread thread : threads)
+			thread.start();
+		for (Thread thread : threads)
+			thread.join();
+		Set<Long> unique = new HashSet<Long>();
+		for (long[] ids : results)
+			for (int i = 0; i < ids.length; i++) {
+				Assert.assertTrue(unique.add(ids[i]));
+				if (i > 0)
+					Assert.assertTrue(ids[i] > ids[i - 1]); // monotonic in each thread
+			}
+		Assert.assertEquals(4 * perThread, unique.size());
+		Assert.assertTrue(creator.getWaitCount() > 0); // sequence overflowed on the fixed clock
+	}
+
+	@Test
+	public void testSequenceOverflowWaitsWithoutBorrow() {
+		FakeClockCreator creator = new FakeClockCreator(0);
+		long last = 0;
+		for (int i = 0; i < 4096; i++) {
+			last = creator.nextId();
+			Assert.assertEquals(START - creator.getEpoch(), time(creator, last));
+		}
+		Assert.assertEquals(4095L, sequence(creator, last));
+		Assert.assertEquals(0L, creator.getWaitCount());
+		long next = creator.nextId();
+		Assert.assertEquals(1L, creator.getWaitCount());
+		Assert.assertEquals(START + 1, creator.now.get());
+		Assert.assertEquals(START + 1 - creator.getEpoch(), time(creator, next));
+		Assert.assertEquals(0L, sequence(creator, next));
+	}
+
+	@Test
+	public void testSequenceOverflowBorrowsNextMillis() {
+		FakeClockCreator creator = new FakeClockCreator(2);
+		long[] ids = creator.nextIds(4096 * 3); // borrow 2 milliseconds ahead of clock
+		Assert.assertEquals(0L, creator.getWaitCount());
+		Assert.assertEquals(START - creator.getEpoch(), time(creator, ids[0]));
+		Assert.assertEquals(START + 2 - creator.getEpoch(), time(creator, ids[ids.length - 1]));
+		Assert.assertEquals(START, creator.now.get());
+		long next = creator.nextId(); // can not borrow more, wait clock moves 1 millisecond
+		Assert.assertEquals(1L, creator.getWaitCount());
+		Assert.assertEquals(START + 1, creator.now.get());
+		Assert.assertEquals(START + 3 - creator.getEpoch(), time(creator, next));
+		Assert.assertTrue(next > ids[ids.length - 1]);
+	}
+
+	@Test
+	public void testClockBackwardsInsideBound() {
+		FakeClockCreator creator = new FakeClockCreator(5);
+		long first = creator.nextId();
+		creator.now.set(START - 5);
+		long second = creator.nextId();
+		Assert.assertTrue(second > first);
+		Assert.assertEquals(START - creator.getEpoch(), time(creator, second)); // continue from last time stamp
+		Assert.assertEquals(1L, sequence(creator, second));
+	}
+
+	@Test
+	public void testClockBackwardsOutsideBound() {
+		FakeClockCreator creator = new FakeClockCreator(5);
+		creator.nextId();
+		creator.now.set(START - 6);
+		try {
+			creator.nextId();
+			Assert.fail("clock moved backwards more than maxBorrowMillis");
+		} catch (IllegalStateException e) {
+			Assert.assertTrue(e.getMessage().contains("6 milliseconds"));
+		}
+
+		FakeClockCreator notBorrow = new FakeClockCreator(0);
+		notBorrow.nextId();
+		notBorrow.now.set(START - 1);
+		try {
+			notBorrow.nextIds(2);
+			Assert.fail("clock moved backwards and maxBorrowMillis is 0");
+		} catch (IllegalStateException e) {
+			Assert.assertTrue(e.getMessage().contains("1 milliseconds"));
+		}
+	}
+
+	@Test
+	public void testNextIdsMoreThanSequence() {
+		FakeClockCreator creator = new FakeClockCreator(0);
+		long[] ids = creator.nextIds(10000);
+		Assert.assertEquals(10000, ids.length);
+		for (int i = 1; i < ids.length; i++)
+			Assert.assertTrue(ids[i] > ids[i - 1]);
+		Assert.assertEquals(START + 2 - creator.getEpoch(), time(creator, ids[ids.length - 1]));
+		Assert.assertEquals(10000L - 2 * 4096 - 1, sequence(creator, ids[ids.length - 1]));
+		Assert.assertEquals(2L, creator.getWaitCount());
+		Assert.assertEquals(0, creator.nextIds(0).length);
+	}
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS
+ * OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.github.drinkjava2.jdialects.id;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.drinkjava2.jdialects.Dialect;
+import com.github.drinkjava2.jdialects.DialectException;
+import com.github.drinkjava2.jdialects.JdbcUtil;
+import com.github.drinkjava2.jdialects.Type;
+
+/**
+ * Test TableIdGenerator pooled mode on H2 memory database
+ *
+ * @author Yong Zhu
+ * @since 5.0.13
+ */
+public class TableIdGeneratorTest {
+	private JdbcDataSource ds;
+	private Connection keepAlive;
+
+	@Before
+	public void init() throws SQLException {
+		ds = new JdbcDataSource();
+		ds.setURL("jdbc:h2:mem:tableIdGen;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+		keepAlive = ds.getConnection();
+		JdbcUtil.execute(keepAlive, "create table id_tb (pk varchar(50), val bigint)");
+	}
+
+	@After
+	public void close() throws SQLException {
+		JdbcUtil.execute(keepAlive, "drop table id_tb");
+		JdbcUtil.clearStatementCache(keepAlive);
+		keepAlive.close();
+	}
+
+	private static TableIdGenerator pooled(int allocationSize) {
+		return new TableIdGenerator("gen", "id_tb", "pk", "val", "seq", 1, allocationSize, true);
+	}
+
+	private long storedValue() {
+		return ((Number) JdbcUtil.qryOneObject(keepAlive, "select val from id_tb where pk='seq'")).longValue();
+	}
+
+	@Test
+	public void testFirstBlockHasAllocationSize() {
+		TableIdGenerator gen = pooled(10);
+		Assert.assertEquals(1, gen.getNextID(keepAlive, Dialect.H2Dialect, Type.INTEGER));
+		Assert.assertEquals(2, gen.getNextID(keepAlive, Dialect.H2Dialect, Type.INTEGER));
+		Assert.assertEquals(10, storedValue());
+		for (int i = 3; i <= 11; i++)
+			Assert.assertEquals(i, gen.getNextID(keepAlive, Dialect.H2Dialect, Type.INTEGER));
+		Assert.assertEquals(20, storedValue());
+	}
+
+	@Test(expected = DialectException.class)
+	public void testPooledRefusesCallerTransaction() throws SQLException {
+		Connection con = ds.getConnection();
+		try {
+			con.setAutoCommit(false);
+			pooled(10).getNextID(con, Dialect.H2Dialect, Type.INTEGER);
+		} finally {
+			con.close();
+		}
+	}
+
+	@Test
+	public void testBlockSurvivesCallerRollback() throws SQLException {
+		TableIdGenerator gen = pooled(10);
+		gen.setReserveDataSource(ds);
+		Connection con = ds.getConnection();
+		try {
+			con.setAutoCommit(false);
+			Assert.assertEquals(1, gen.getNextID(con, Dialect.H2Dialect, Type.INTEGER));
+			long[] batch = gen.getNextLongIDs(con, Dialect.H2Dialect, Type.INTEGER, 25);
+			Assert.assertEquals(2, batch[0]);
+			Assert.assertEquals(26, batch[24]);
+			con.rollback();
+		} finally {
+			con.close();
+		}
+		// another JVM must not get IDs already handed out
+		TableIdGenerator other = pooled(10);
+		Assert.assertEquals(31, other.getNextID(keepAlive, Dialect.H2Dialect, Type.INTEGER));
+	}
+
+	@Test
+	public void testConcurrentGeneratorsNeverOverlap() throws Exception {
+		// generator table has no unique key, so first record is inserted before threads start
+		JdbcUtil.execute(keepAlive, "insert into id_tb values('seq', 0)");
+		final TableIdGenerator[] gens = { pooled(7), pooled(7) };
+		gens[1].setReserveDataSource(ds);
+		final List<Object> ids = new ArrayList<Object>();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < 4; t++) {
+			final TableIdGenerator gen = gens[t % 2];
+			threads.add(new Thread() {
+				@Override
+				public void run() {
+					List<Object> local = new ArrayList<Object>();
+					try (Connection con = ds.getConnection()) {
+						for (int i = 0; i < 200; i++)
+							if (i % 10 == 0)
+								for (Object id : gen.getNextIDs(con, Dialect.H2Dialect, Type.INTEGER, 3))
+									local.add(id);
+							else
+								local.add(gen.getNextID(con, Dialect.H2Dialect, Type.INTEGER));
+					} catch (SQLException e) {
+						throw new DialectException(e);
+					}
+					synchronized (ids) {
+						ids.addAll(local);
+					}
+				}
+			});
+		}
+		for (Thread thread : threads)
+			thread.start();
+		for (Thread thread : threads)
+			thread.join();
+		Set<Object> unique = new HashSet<Object>(ids);
+		Assert.assertEquals(4 * (180 + 20 * 3), ids.size());
+		Assert.assertEquals(ids.size(), unique.size());
+	}
+
+	@Test
+	public void testNonPooledRunsInCallerTransaction() throws SQLException {
+		TableIdGenerator gen = new TableIdGenerator("gen", "id_tb", "pk", "val", "seq", 1, 10);
+		Assert.assertEquals(1, gen.getNextID(keepAlive, Dialect.H2Dialect, Type.INTEGER));
+		Assert.assertEquals(11, gen.getNextID(keepAlive, Dialect.H2Dialect, Type.INTEGER));
+		Connection con = ds.getConnection();
+		try {
+			con.setAutoCommit(false);
+			Assert.assertEquals(21, gen.getNextID(con, Dialect.H2Dialect, Type.INTEGER));
+			Assert.assertFalse(con.getAutoCommit());
+			con.rollback();
+		} finally {
+			con.close();
+		}
+		Assert.assertEquals(11, storedValue()); // rolled back with caller's transaction
+		Assert.assertTrue(keepAlive.getAutoCommit());
+	}
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS
+ * OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.github.drinkjava2.jdialects.id;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.github.drinkjava2.jdialects.Dialect;
+import com.github.drinkjava2.jdialects.DialectException;
+import com.github.drinkjava2.jdialects.Type;
+
+/**
+ * Test TimeStampIdGenerator uniqueness, millisecond rollover and batch IDs
+ *
+ * @author Yong Zhu
+ * @since 5.0.13
+ */
+public class TimeStampIdGeneratorTest {
+	private static final long COUNT_RANGE = 1000000L;
+
+	private static void assertIncreasing(long[] ids) {
+		for (int i = 1; i < ids.length; i++)
+			Assert.assertTrue(ids[i] > ids[i - 1]);
+	}
+
+	@Test
+	public void testConcurrentUniqueAndIncreasing() throws InterruptedException {
+		final int perThread = 50000;
+		final List<long[]> results = new ArrayList<long[]>();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < 4; t++) {
+			final long[] ids = new long[perThread];
+			results.add(ids);
+			threads.add(new Thread() {
+				@Override
+				public void run() {
+					int i = 0;
+					while (i < perThread)
+						if (i % 1000 == 0) { // mix batches of 100 IDs
+							System.arraycopy(TimeStampIdGenerator.nextIds(100), 0, ids, i, 100);
+							i += 100;
+						} else
+							ids[i++] = TimeStampIdGenerator.nextId();
+				}
+			});
+		}
+		for (Thread thread : threads)
+			thread.start();
+		for (Thread thread : threads)
+			thread.join();
+		Set<Long> unique = new HashSet<Long>();
+		for (long[] ids : results) {
+			assertIncreasing(ids);
+			for (long id : ids) {
+				Assert.assertTrue(unique.add(id));
+				Assert.assertTrue(id % COUNT_RANGE >= 1); // count is 1 to 999999
+			}
+		}
+		Assert.assertEquals(4 * perThread, unique.size());
+	}
+
+	@Test
+	public void testRolloverAfterMaxCount() {
+		long before = System.currentTimeMillis();
+		long[] full = TimeStampIdGenerator.nextIds(TimeStampIdGenerator.MAX_COUNT); // takes a whole millisecond
+		Assert.assertEquals(1L, full[0] % COUNT_RANGE);
+		Assert.assertEquals(999999L, full[full.length - 1] % COUNT_RANGE);
+		Assert.assertEquals(full[0] / COUNT_RANGE, full[full.length - 1] / COUNT_RANGE);
+		Assert.assertTrue(full[0] / COUNT_RANGE >= before);
+		assertIncreasing(full);
+
+		long next = TimeStampIdGenerator.nextId();
+		Assert.assertEquals(1L, next % COUNT_RANGE);
+		Assert.assertTrue(next / COUNT_RANGE > full[0] / COUNT_RANGE);
+
+		long[] small = TimeStampIdGenerator.nextIds(10);
+		long[] rolled = TimeStampIdGenerator.nextIds(TimeStampIdGenerator.MAX_COUNT); // not enough left, next millisecond
+		Assert.assertEquals(1L, rolled[0] % COUNT_RANGE);
+		Assert.assertTrue(rolled[0] / COUNT_RANGE > small[9] / COUNT_RANGE);
+	}
+
+	@Test
+	public void testNextIdsQuantity() {
+		for (int n : new int[] { 0, -1, TimeStampIdGenerator.MAX_COUNT + 1 })
+			try {
+				TimeStampIdGenerator.nextIds(n);
+				Assert.fail("quantity " + n + " should be refused");
+			} catch (DialectException e) {
+				// expected
+			}
+	}
+
+	@Test
+	public void testNextLongIDsMoreThanMaxCount() {
+		TimeStampIdGenerator gen = TimeStampIdGenerator.INSTANCE;
+		int n = TimeStampIdGenerator.MAX_COUNT * 2 + 5000;
+		long[] ids = gen.getNextLongIDs(null, Dialect.H2Dialect, Type.BIGINT, n);
+		Assert.assertEquals(n, ids.length);
+		assertIncreasing(ids);
+		Assert.assertTrue(ids[n - 1] / COUNT_RANGE - ids[0] / COUNT_RANGE >= 2); // needs at least 3 milliseconds
+
+		Object[] objects = gen.getNextIDs(null, Dialect.H2Dialect, Type.BIGINT, TimeStampIdGenerator.MAX_COUNT + 1);
+		Assert.assertEquals(TimeStampIdGenerator.MAX_COUNT + 1, objects.length);
+		Assert.assertTrue((Long) objects[0] > ids[n - 1]);
+		Assert.assertTrue((Long) objects[objects.length - 1] > (Long) objects[0]);
+		Assert.assertEquals(0, gen.getNextLongIDs(null, Dialect.H2Dialect, Type.BIGINT, 0).length);
+	}
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS
+ * OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.github.drinkjava2.jdialects.id;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test UUIDCreator formats, UUID version 7 layout and radix 36 strings
+ *
+ * @author Yong Zhu
+ * @since 5.0.13
+ */
+public class UUIDCreatorTest {
+
+	private static UUID parse32(String uuid32) {
+		Assert.assertEquals(32, uuid32.length());
+		Assert.assertTrue(uuid32, uuid32.matches("[0-9a-f]{32}"));
+		return UUID.fromString(uuid32.substring(0, 8) + "-" + uuid32.substring(8, 12) + "-"
+				+ uuid32.substring(12, 16) + "-" + uuid32.substring(16, 20) + "-" + uuid32.substring(20));
+	}
+
+	private static UUID parse36(String uuid36) {
+		Assert.assertTrue(uuid36, uuid36.matches("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}"));
+		UUID uuid = UUID.fromString(uuid36);
+		Assert.assertEquals(uuid36, uuid.toString());
+		return uuid;
+	}
+
+	/** Return unix millisecond of a UUID version 7 */
+	private static long millis(UUID uuid) {
+		return uuid.getMostSignificantBits() >>> 16;
+	}
+
+	/** Return 12 bits counter of a UUID version 7 */
+	private static long counter(UUID uuid) {
+		return uuid.getMostSignificantBits() & 0xFFFL;
+	}
+
+	@Test
+	public void testRandomUUIDVersionAndVariant() {
+		Set<String> unique = new HashSet<String>();
+		for (int i = 0; i < 1000; i++) {
+			String uuid32 = UUIDCreator.uuid32();
+			UUID uuid = parse32(uuid32);
+			Assert.assertEquals(4, uuid.version());
+			Assert.assertEquals(2, uuid.variant());
+			Assert.assertTrue(unique.add(uuid32));
+
+			uuid = parse36(UUIDCreator.uuid36());
+			Assert.assertEquals(4, uuid.version());
+			Assert.assertEquals(2, uuid.variant());
+			Assert.assertTrue(unique.add(uuid.toString().replace("-", "")));
+		}
+	}
+
+	@Test
+	public void testTimeOrderedLayout() {
+		long before = System.currentTimeMillis();
+		UUID uuid = parse36(UUIDCreator.timeOrderedUUID(true));
+		UUID uuid2 = parse32(UUIDCreator.timeOrderedUUID(false));
+		long after = System.currentTimeMillis();
+		for (UUID u : new UUID[] { uuid, uuid2 }) {
+			Assert.assertEquals(7, u.version());
+			Assert.assertEquals(2, u.variant());
+			Assert.assertTrue(millis(u) >= before);
+			// may be ahead of clock if counter overflowed, or after testTimeOrderedCounterOverflow
+			Assert.assertTrue(millis(u) <= after + 5000);
+		}
+		Assert.assertTrue(uuid2.toString().compareTo(uuid.toString()) > 0);
+	}
+
+	@Test
+	public void testTimeOrderedMonotonicUnderThreads() throws InterruptedException {
+		final int perThread = 20000;
+		final List<List<String>> results = new ArrayList<List<String>>();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < 4; t++) {
+			final List<String> uuids = new ArrayList<String>();
+			results.add(uuids);
+			final boolean withDash = t % 2 == 0;
+			threads.add(new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < perThread; i++)
+						uuids.add(UUIDCreator.timeOrderedUUID(withDash).replace("-", ""));
+				}
+			});
+		}
+		for (Thread thread : threads)
+			thread.start();
+		for (Thread thread : threads)
+			thread.join();
+		Set<String> unique = new HashSet<String>();
+		for (List<String> uuids : results)
+			for (int i = 0; i < uuids.size(); i++) {
+				Assert.assertTrue(unique.add(uuids.get(i)));
+				if (i > 0)
+					Assert.assertTrue(uuids.get(i).compareTo(uuids.get(i - 1)) > 0); // hex strings sort as values
+			}
+		Assert.assertEquals(4 * perThread, unique.size());
+	}
+
+	@Test
+	public void testTimeOrderedCounterOverflow() {
+		long millis = System.currentTimeMillis() + 1000; // after all UUIDs created by other tests
+		UUID first = parse32(UUIDCreator.timeOrderedUUID(millis, false));
+		Assert.assertEquals(millis, millis(first));
+		Assert.assertEquals(0L, counter(first));
+		UUID last = first;
+		for (int i = 1; i < 4096; i++) {
+			UUID uuid = parse32(UUIDCreator.timeOrderedUUID(millis, false));
+			Assert.assertEquals(millis, millis(uuid));
+			Assert.assertEquals(i, counter(uuid));
+			last = uuid;
+		}
+		UUID overflow = parse36(UUIDCreator.timeOrderedUUID(millis, true)); // counter carries into next millisecond
+		Assert.assertEquals(millis + 1, millis(overflow));
+		Assert.assertEquals(0L, counter(overflow));
+		Assert.assertEquals(7, overflow.version());
+		Assert.assertTrue(overflow.toString().compareTo(last.toString()) > 0);
+
+		UUID backwards = parse32(UUIDCreator.timeOrderedUUID(millis - 10, false)); // clock moved backwards
+		Assert.assertEquals(millis + 1, millis(backwards));
+		Assert.assertEquals(1L, counter(backwards));
+	}
+
+	@Test
+	public void testRadix36() {
+		Assert.assertEquals("", UUIDCreator.radix36(0));
+		for (int n : new int[] { 1, 10, 25, 100 }) {
+			String s = UUIDCreator.radix36(n);
+			Assert.assertEquals(n, s.length());
+			Assert.assertTrue(s, s.matches("[0-9a-z]*"));
+		}
+		String s = UUIDCreator.radix36(10000);
+		Set<Character> chars = new HashSet<Character>();
+		for (char c : s.toCharArray())
+			chars.add(c);
+		Assert.assertEquals(36, chars.size()); // all 36 characters are used
+	}
+}
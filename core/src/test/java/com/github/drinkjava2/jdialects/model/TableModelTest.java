@@ -0,0 +1,108 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS
+ * OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.github.drinkjava2.jdialects.model;
+
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.github.drinkjava2.jdialects.DialectException;
+
+/**
+ * Test TableModel column lookup by column indexes, same result as a linear
+ * search when columns or columns list changed
+ *
+ * @author Yong Zhu
+ * @since 5.0.13
+ */
+public class TableModelTest {
+
+	private static TableModel model() {
+		TableModel t = new TableModel("lookup_tb");
+		t.column("id").INTEGER().pkey().entityField("userId");
+		t.column("`order`").INTEGER();
+		t.column("name").VARCHAR(20);
+		return t;
+	}
+
+	@Test
+	public void testLookup() {
+		TableModel t = model();
+		Assert.assertSame(t.getColumns().get(0), t.getColumn("ID"));
+		Assert.assertSame(t.getColumns().get(0), t.getColumn("userid"));
+		Assert.assertSame(t.getColumns().get(0), t.getColumnByFieldName("USERID"));
+		Assert.assertNull(t.getColumnByColName("userId"));
+		Assert.assertSame(t.getColumns().get(1), t.getColumnByColName("ORDER"));
+		Assert.assertNull(t.getColumn("order"));
+		Assert.assertNull(t.getColumn("notExist"));
+		try {
+			t.addColumn("NAME");
+			Assert.fail("column name existed");
+		} catch (DialectException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testColumnRenamed() {
+		TableModel t = model();
+		Assert.assertNotNull(t.getColumn("name"));
+		t.getColumn("name").setColumnName("title");
+		Assert.assertNull(t.getColumn("name"));
+		Assert.assertSame(t.getColumns().get(2), t.getColumn("TITLE"));
+		t.getColumn("id").setEntityField("uid");
+		Assert.assertNull(t.getColumnByFieldName("userId"));
+		Assert.assertSame(t.getColumns().get(0), t.getColumnByFieldName("UID"));
+	}
+
+	@Test
+	public void testColumnsListChangedDirectly() {
+		TableModel t = model();
+		Assert.assertNotNull(t.getColumn("name"));
+		ColumnModel title = new ColumnModel("title").entityField("caption");
+		t.getColumns().set(2, title); // not through TableModel, indexes not cleared
+		Assert.assertNull(t.getColumn("name"));
+		Assert.assertSame(title, t.getColumn("TITLE"));
+		Assert.assertSame(title, t.getColumnByColName("title"));
+		Assert.assertSame(title, t.getColumnByFieldName("caption"));
+
+		ColumnModel other = new ColumnModel("other");
+		t.getColumns().set(1, other);
+		Assert.assertNull(t.getColumnByColName("order")); // miss is not trusted before check columns
+		Assert.assertSame(other, t.column("other"));
+		try {
+			t.getColumns().set(0, new ColumnModel("code"));
+			t.addColumn("code");
+			Assert.fail("replaced column name existed");
+		} catch (DialectException e) {
+			// expected
+		}
+
+		Collections.reverse(t.getColumns());
+		Assert.assertSame(t.getColumns().get(0), t.getColumn("title"));
+		Assert.assertSame(t.getColumns().get(2), t.getColumn("code"));
+	}
+
+	@Test
+	public void testFirstColumnWins() {
+		TableModel t = new TableModel("dup_tb");
+		ColumnModel first = new ColumnModel("name");
+		ColumnModel second = new ColumnModel("NAME");
+		t.addColumn(first);
+		t.addColumn(second);
+		Assert.assertSame(first, t.getColumn("Name"));
+		t.getColumns().remove(0);
+		t.getColumns().add(new ColumnModel("x"));
+		Assert.assertSame(second, t.getColumn("name"));
+	}
+}
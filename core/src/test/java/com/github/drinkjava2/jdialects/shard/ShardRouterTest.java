@@ -0,0 +1,240 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS
+ * OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.github.drinkjava2.jdialects.shard;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.github.drinkjava2.jdialects.DialectException;
+import com.github.drinkjava2.jdialects.model.TableModel;
+
+/**
+ * Test ShardRouter routing, partition and re-compile when shard strategies
+ * changed
+ *
+ * @author Yong Zhu
+ * @since 5.0.13
+ */
+public class ShardRouterTest {
+
+	public static class Order {
+		private Long uid;
+		private Integer dbId;
+		private String name;
+
+		public Order() {
+		}
+
+		Order(long uid, int dbId, String name) {
+			this.uid = uid;
+			this.dbId = dbId;
+			this.name = name;
+		}
+
+		public Long getUid() {
+			return uid;
+		}
+
+		public void setUid(Long uid) {
+			this.uid = uid;
+		}
+
+		public Integer getDbId() {
+			return dbId;
+		}
+
+		public void setDbId(Integer dbId) {
+			this.dbId = dbId;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+	}
+
+	private static TableModel model(String[] tableStrategy, String[] databaseStrategy) {
+		TableModel t = new TableModel("orders");
+		t.column("uid").LONG().pkey().entityField("uid").shardTable(tableStrategy);
+		t.column("db_id").INTEGER().entityField("dbId").shardDatabase(databaseStrategy);
+		t.column("name").VARCHAR(20).entityField("name");
+		return t;
+	}
+
+	@Test
+	public void testModRouting() {
+		ShardRouter router = model(new String[] { "MOD", "4" }, new String[] { "mod", "3" }).getShardRouter();
+		Assert.assertTrue(router.hasTableShard());
+		Assert.assertTrue(router.hasDatabaseShard());
+		for (long key = -10; key <= 10; key++) {
+			int shard = (int) Math.floorMod(key, 4L);
+			Assert.assertEquals(shard, router.tableShard(key));
+			Assert.assertEquals("orders_" + shard, router.routeTable(key));
+			Assert.assertEquals("orders_" + shard, router.routeTable(Long.valueOf(key)));
+			Assert.assertEquals("orders_" + shard, router.routeTable(String.valueOf(key)));
+			Assert.assertEquals((int) Math.floorMod(key, 3L), router.routeDatabase(key));
+			Assert.assertEquals((int) Math.floorMod(key, 3L), router.routeDatabase(Integer.valueOf((int) key)));
+		}
+		Assert.assertSame(router.routeTable(5L), router.routeTable(9L)); // cached physical table name
+		try {
+			router.routeTable("abc");
+			Assert.fail("not a number");
+		} catch (DialectException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testRangeRouting() {
+		ShardRouter router = model(new String[] { "RANGE", "100" }, new String[] { "RANGE", "1000", "2" })
+				.getShardRouter();
+		Assert.assertEquals("orders_0", router.routeTable(0L));
+		Assert.assertEquals("orders_0", router.routeTable(99L));
+		Assert.assertEquals("orders_1", router.routeTable(100L));
+		Assert.assertEquals("orders_1234", router.routeTable(123456L));
+		Assert.assertEquals("orders_70000", router.routeTable(7000000L)); // more than cached names
+		Assert.assertEquals(0, router.routeDatabase(999L));
+		Assert.assertEquals(1, router.routeDatabase(1999L));
+		for (long key : new long[] { -1L, 2000L, 5000L })
+			try {
+				router.routeDatabase(key);
+				Assert.fail("key " + key + " out of range");
+			} catch (DialectException e) {
+				Assert.assertTrue(e.getMessage().contains("out of range"));
+			}
+		try {
+			router.routeTable(-1L);
+			Assert.fail("negative key out of range");
+		} catch (DialectException e) {
+			Assert.assertTrue(e.getMessage().contains("out of range"));
+		}
+	}
+
+	@Test
+	public void testHashRouting() {
+		ShardRouter router = model(new String[] { "HASH", "8" }, null).getShardRouter();
+		Assert.assertFalse(router.hasDatabaseShard());
+		Set<Integer> used = new HashSet<Integer>();
+		for (long key = 0; key < 1000; key++) {
+			int shard = router.tableShard(key);
+			Assert.assertTrue(shard >= 0 && shard < 8);
+			Assert.assertEquals(shard, router.tableShard(Long.valueOf(key))); // boxed keys routed same as long
+			Assert.assertEquals(shard, router.tableShard(Integer.valueOf((int) key)));
+			used.add(shard);
+		}
+		Assert.assertEquals(8, used.size());
+		int shard = router.tableShard("abc");
+		Assert.assertEquals(Math.floorMod("abc".hashCode(), 8), shard);
+		Assert.assertEquals("orders_" + shard, router.routeTable("abc"));
+		try {
+			router.routeDatabase(1L);
+			Assert.fail("no ShardDatabase column");
+		} catch (DialectException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testPartitionKeepsRowOrder() {
+		ShardRouter router = model(new String[] { "MOD", "2" }, new String[] { "MOD", "2" }).getShardRouter();
+		long[] tableKeys = { 0, 1, 2, 3, 4, 5, 6 };
+		long[] databaseKeys = { 0, 0, 1, 1, 0, 0, 1 };
+		ShardGroup[] groups = router.partition(tableKeys, databaseKeys);
+		Assert.assertEquals(4, groups.length); // groups in first seen order
+		assertGroup(groups[0], 0, "orders_0", 0, 4);
+		assertGroup(groups[1], 0, "orders_1", 1, 5);
+		assertGroup(groups[2], 1, "orders_0", 2, 6);
+		assertGroup(groups[3], 1, "orders_1", 3);
+
+		ShardGroup[] boxed = router.partition(new Object[] { 0L, 1, "2", 3L, 4, 5L, "6" },
+				new Object[] { 0, 0L, "1", 1, 0L, 0, 1L });
+		Assert.assertEquals(groups.length, boxed.length);
+		for (int i = 0; i < groups.length; i++) {
+			Assert.assertEquals(groups[i].getTable(), boxed[i].getTable());
+			Assert.assertArrayEquals(groups[i].getIndexes(), boxed[i].getIndexes());
+		}
+
+		ShardGroup[] tableOnly = router.partition(tableKeys, null);
+		Assert.assertEquals(2, tableOnly.length);
+		Assert.assertEquals(-1, tableOnly[0].getDatabase());
+		assertGroup(tableOnly[1], -1, "orders_1", 1, 3, 5);
+		try {
+			router.partition(tableKeys, new long[] { 1, 2 });
+			Assert.fail("keys have different length");
+		} catch (DialectException e) {
+			// expected
+		}
+	}
+
+	private static void assertGroup(ShardGroup group, int database, String table, int... indexes) {
+		Assert.assertEquals(database, group.getDatabase());
+		Assert.assertEquals(table, group.getTable());
+		Assert.assertArrayEquals(indexes, group.getIndexes());
+	}
+
+	@Test
+	public void testPartitionEntities() {
+		ShardRouter router = model(new String[] { "MOD", "3" }, new String[] { "RANGE", "10" }).getShardRouter();
+		List<Order> orders = new ArrayList<Order>();
+		for (int i = 0; i < 20; i++)
+			orders.add(new Order(i, i % 2 == 0 ? 5 : 15, "o" + i));
+		ShardGroup[] groups = router.partitionEntities(orders);
+		Assert.assertEquals(6, groups.length);
+		int total = 0;
+		for (ShardGroup group : groups) {
+			List<Order> picked = group.pick(orders);
+			Assert.assertEquals(group.size(), picked.size());
+			for (int i = 0; i < picked.size(); i++) {
+				Order o = picked.get(i);
+				Assert.assertEquals(router.routeTable(o.getUid()), group.getTable());
+				Assert.assertEquals(router.routeDatabase(o.getDbId()), group.getDatabase());
+				if (i > 0) // rows keep original order
+					Assert.assertTrue(o.getUid() > picked.get(i - 1).getUid());
+			}
+			total += picked.size();
+		}
+		Assert.assertEquals(orders.size(), total);
+		Assert.assertEquals(0, router.partitionEntities(new ArrayList<Order>()).length);
+	}
+
+	@Test
+	public void testRouterInvalidatedWhenStrategyChanged() {
+		TableModel model = model(new String[] { "MOD", "4" }, null);
+		ShardRouter router = model.getShardRouter();
+		Assert.assertSame(router, model.getShardRouter()); // compiled once
+		Assert.assertEquals("orders_1", router.routeTable(5L));
+
+		model.getColumn("uid").setShardTable(new String[] { "MOD", "3" });
+		ShardRouter changed = model.getShardRouter();
+		Assert.assertNotSame(router, changed);
+		Assert.assertEquals("orders_2", changed.routeTable(5L));
+		Assert.assertSame(changed, model.getShardRouter());
+
+		model.getColumn("db_id").setShardDatabase(new String[] { "MOD", "2" });
+		ShardRouter withDatabase = model.getShardRouter();
+		Assert.assertTrue(withDatabase.hasDatabaseShard());
+		Assert.assertEquals(1, withDatabase.routeDatabase(5L));
+
+		model.getColumn("uid").setShardTable(null);
+		Assert.assertFalse(model.getShardRouter().hasTableShard());
+		model.setTableName("orders2");
+		Assert.assertEquals("orders2", model.getShardRouter().getTableName());
+	}
+}
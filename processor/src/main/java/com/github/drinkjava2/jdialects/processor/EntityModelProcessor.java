@@ -0,0 +1,149 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS
+ * OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.github.drinkjava2.jdialects.processor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Annotation processor generates an EntityModelBuilder for each entity class
+ * annotated by &#064;Entity or &#064;Table (jDialects' or javax.persistence's),
+ * generated builders build TableModel by plain method calls, and are
+ * registered in "META-INF/services/com.github.drinkjava2.jdialects.EntityModelBuilder",
+ * so at runtime TableModelUtilsOfEntity use them instead of reading
+ * annotations by reflection.
+ *
+ * If an entity can not be built same as reflection does (for example an
+ * inaccessible class or an ambiguous bean property), no builder is generated
+ * for it and a note is printed, runtime will use reflection for it.
+ *
+ * Usage: add jdialects-processor to compile class path (or
+ * annotationProcessorPaths of maven-compiler-plugin) of entity classes.
+ *
+ * @author Yong Zhu
+ * @since 5.0.13
+ */
+@SupportedAnnotationTypes({ "javax.persistence.Entity", "javax.persistence.Table",
+		"com.github.drinkjava2.jdialects.annotation.jpa.Entity",
+		"com.github.drinkjava2.jdialects.annotation.jpa.Table" })
+public class EntityModelProcessor extends AbstractProcessor {
+	static final String BUILDER_INTERFACE = "com.github.drinkjava2.jdialects.EntityModelBuilder";
+
+	private static final String SERVICE_FILE = "META-INF/services/" + BUILDER_INTERFACE;
+
+	/** Entity classes already processed */
+	private final Set<String> entities = new TreeSet<String>();
+
+	/** Generated builder classes */
+	private final Set<String> builders = new TreeSet<String>();
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		for (TypeElement annotation : annotations)
+			for (Element element : roundEnv.getElementsAnnotatedWith(annotation))
+				if (element.getKind() == ElementKind.CLASS) {
+					TypeElement entity = (TypeElement) element;
+					if (entities.add(entity.getQualifiedName().toString()))
+						generateBuilder(entity);
+				}
+		if (roundEnv.processingOver())
+			writeServiceFile();
+		return false;
+	}
+
+	private void generateBuilder(TypeElement entity) {
+		EntityModelSource source = new EntityModelSource(processingEnv, entity);
+		String code;
+		try {
+			code = source.generate();
+		} catch (EntityModelSource.UnsupportedEntityException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+					"jDialects: no TableModel builder generated, reflection will be used, because " + e.getMessage(),
+					entity);
+			return;
+		}
+		try {
+			JavaFileObject file = processingEnv.getFiler().createSourceFile(source.getBuilderName(), entity);
+			Writer writer = file.openWriter();
+			try {
+				writer.write(code);
+			} finally {
+				writer.close();
+			}
+			builders.add(source.getBuilderName());
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+					"jDialects: can not write TableModel builder " + source.getBuilderName() + ": " + e, entity);
+		}
+	}
+
+	/**
+	 * Write service file of all builders, builders registered by a former
+	 * (incremental) compilation are kept if they still exist
+	 */
+	private void writeServiceFile() {
+		if (builders.isEmpty())
+			return;
+		Set<String> all = new TreeSet<String>(builders);
+		try {
+			FileObject old = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE);
+			BufferedReader reader = new BufferedReader(new InputStreamReader(old.openInputStream(), "UTF-8"));
+			try {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					line = line.trim();
+					if (line.length() > 0 && processingEnv.getElementUtils().getTypeElement(line) != null)
+						all.add(line);
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {// NOSONAR no former service file
+		}
+		try {
+			FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+					SERVICE_FILE);
+			Writer writer = new OutputStreamWriter(file.openOutputStream(), "UTF-8");
+			try {
+				for (String builder : all)
+					writer.write(builder + "\n");
+			} finally {
+				writer.close();
+			}
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+					"jDialects: can not write " + SERVICE_FILE + ": " + e);
+		}
+	}
+}
@@ -0,0 +1,672 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS
+ * OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.github.drinkjava2.jdialects.processor;
+
+import java.lang.annotation.Inherited;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+/**
+ * Generate source code of EntityModelBuilder for one entity class. The
+ * generated code follows TableModelUtilsOfEntity's reflection logic step by
+ * step: bean properties are found by same rules of java.beans.Introspector,
+ * annotations are matched by same names, parts depend on runtime setting
+ * (NamingConversion, Java type to column type mapping) are still calculated at
+ * runtime.
+ *
+ * @author Yong Zhu
+ * @since 5.0.13
+ */
+public class EntityModelSource {// NOSONAR
+	private static final String[] ANNOTATION_PACKAGES = new String[] { "javax.persistence.",
+			"com.github.drinkjava2.jdialects.annotation.jpa.", "com.github.drinkjava2.jdialects.annotation.jdia." };
+
+	private static final String JDIA_PACKAGE = "com.github.drinkjava2.jdialects.annotation.jdia.";
+
+	private static final String TABLE_MODEL_CLASS = "com.github.drinkjava2.jdialects.model.TableModel";
+
+	private final Types types;
+	private final Elements elements;
+	private final TypeElement entity;
+	private final String packageName;
+	private final String builderSimpleName;
+	private final StringBuilder sb = new StringBuilder();
+
+	/** Thrown if entity can not be built same as reflection does */
+	public static class UnsupportedEntityException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		public UnsupportedEntityException(String message) {
+			super(message);
+		}
+	}
+
+	public EntityModelSource(ProcessingEnvironment env, TypeElement entity) {
+		this.types = env.getTypeUtils();
+		this.elements = env.getElementUtils();
+		this.entity = entity;
+		this.packageName = elements.getPackageOf(entity).getQualifiedName().toString();
+		String name = entity.getSimpleName().toString();
+		for (Element e = entity.getEnclosingElement(); e instanceof TypeElement; e = e.getEnclosingElement())
+			name = e.getSimpleName() + "_" + name;
+		this.builderSimpleName = name + "_TableModel";
+	}
+
+	/** Return full class name of generated builder */
+	public String getBuilderName() {
+		return packageName.length() == 0 ? builderSimpleName : packageName + "." + builderSimpleName;
+	}
+
+	/** Return source code of the builder */
+	public String generate() {
+		String entityClass = classLiteral(entity.asType(), "entity class");
+
+		if (packageName.length() > 0)
+			sb.append("package ").append(packageName).append(";\n\n");
+		sb.append("import com.github.drinkjava2.jdialects.EntityModelBuilder;\n");
+		sb.append("import com.github.drinkjava2.jdialects.TableModelUtilsOfEntity;\n");
+		sb.append("import com.github.drinkjava2.jdialects.Type;\n");
+		sb.append("import com.github.drinkjava2.jdialects.TypeUtils;\n");
+		sb.append("import com.github.drinkjava2.jdialects.model.ColumnModel;\n");
+		sb.append("import com.github.drinkjava2.jdialects.model.TableModel;\n\n");
+		sb.append("/**\n * TableModel builder of {@link ").append(entity.getQualifiedName())
+				.append("}, generated by jDialects EntityModelProcessor, do not edit\n */\n");
+		sb.append("@SuppressWarnings(\"all\")\n");
+		sb.append("public final class ").append(builderSimpleName).append(" implements EntityModelBuilder {\n\n");
+		sb.append("\t@Override\n\tpublic Class<?> entityClass() {\n\t\treturn ").append(entityClass)
+				.append(";\n\t}\n\n");
+		sb.append("\t@Override\n\tpublic TableModel build() {\n");
+		appendTable(entityClass);
+		appendColumns();
+		String config = configMethodCall();
+		if (config != null)
+			sb.append("\t\t").append(config).append(";\n");
+		sb.append("\t\treturn model;\n\t}\n}\n");
+		return sb.toString();
+	}
+
+	private void appendTable(String entityClass) {
+		List<AnnotationMirror> annos = classAnnotations(entity);
+		String tableName = null;
+		Map<String, AnnotationValue> entityMap = first(annos, "Entity");
+		if (entityMap != null)
+			tableName = (String) value(entityMap, "name");
+		Map<String, AnnotationValue> tableMap = first(annos, "Table");
+		if (tableMap != null && !isEmpty((String) value(tableMap, "name")))
+			tableName = (String) value(tableMap, "name");
+		sb.append("\t\tTableModel model = new TableModel(TableModelUtilsOfEntity.tableNameOfEntity(")
+				.append(entityClass).append(", ").append(str(tableName)).append("));\n");
+		sb.append("\t\tmodel.setEntityClass(").append(entityClass).append(");\n");
+
+		if (tableMap != null) {
+			for (AnnotationMirror index : annotations(tableMap, "indexes")) {
+				Map<String, AnnotationValue> mp = values(index);
+				String columnListString = (String) value(mp, "columnList");
+				String[] columns;
+				if (columnListString.indexOf(',') >= 0)
+					columns = columnListString.split(",");
+				else
+					columns = new String[] { columnListString };
+				if (columns.length > 0)
+					sb.append("\t\tmodel.index(").append(str((String) value(mp, "name"))).append(").columns(")
+							.append(strs(columns)).append(").setUnique(").append(value(mp, "unique")).append(");\n");
+			}
+			for (AnnotationMirror unique : annotations(tableMap, "uniqueConstraints")) {
+				Map<String, AnnotationValue> mp = values(unique);
+				String[] columnNames = strArray(mp, "columnNames");
+				if (columnNames.length > 0)
+					sb.append("\t\tmodel.unique(").append(str((String) value(mp, "name"))).append(").columns(")
+							.append(strs(columnNames)).append(");\n");
+			}
+		}
+		appendGenerators(annos, "\t\t");
+
+		for (AnnotationMirror fkey : all(annos, "FKey")) {
+			Map<String, AnnotationValue> map = values(fkey);
+			Object ddl = value(map, "ddl");
+			sb.append("\t\tmodel.fkey(").append(str((String) value(map, "name"))).append(").columns(")
+					.append(strs(strArray(map, "columns"))).append(").refs(").append(strs(strArray(map, "refs")))
+					.append(").ddl(").append(ddl == null ? Boolean.TRUE : ddl).append(");\n");
+		}
+	}
+
+	/** Append &#064;SequenceGenerator, &#064;TableGenerator and &#064;UUIDAny */
+	private void appendGenerators(List<AnnotationMirror> annos, String indent) {
+		Map<String, AnnotationValue> map = first(annos, "SequenceGenerator");
+		if (map != null)
+			sb.append(indent).append("model.sequenceGenerator(").append(str((String) value(map, "name"))).append(", ")
+					.append(str((String) value(map, "sequenceName"))).append(", ")
+					.append(value(map, "initialValue")).append(", ").append(value(map, "allocationSize"))
+					.append(");\n");
+		map = first(annos, "TableGenerator");
+		if (map != null)
+			sb.append(indent).append("model.tableGenerator(").append(str((String) value(map, "name"))).append(", ")
+					.append(str((String) value(map, "table"))).append(", ")
+					.append(str((String) value(map, "pkColumnName"))).append(", ")
+					.append(str((String) value(map, "valueColumnName"))).append(", ")
+					.append(str((String) value(map, "pkColumnValue"))).append(", ")
+					.append(value(map, "initialValue")).append(", ").append(value(map, "allocationSize"))
+					.append(");\n");
+		map = first(annos, "UUIDAny");
+		if (map != null)
+			sb.append(indent).append("model.uuidAny(").append(str((String) value(map, "name"))).append(", ")
+					.append(value(map, "length")).append(");\n");
+	}
+
+	private void appendColumns() {
+		boolean declared = false;
+		for (Entry<String, TypeMirror> property : beanProperties().entrySet()) {
+			String fieldName = property.getKey();
+			if ("class".equals(fieldName) || "simpleName".equals(fieldName) || "canonicalName".equals(fieldName))
+				continue;
+			VariableElement field = findField(fieldName);
+			if (field == null)
+				continue;
+			if (property.getValue() == null)
+				throw new UnsupportedEntityException("field '" + fieldName + "' has indexed bean property");
+			String propertyClass = classLiteral(property.getValue(), "type of field '" + fieldName + "'");
+			List<AnnotationMirror> annos = new ArrayList<AnnotationMirror>(field.getAnnotationMirrors());
+
+			String converter = "null";
+			String converterName = null;
+			if (first(annos, "Version") != null) {
+				converterName = "Version";
+				converter = str(converterName);
+			} else {
+				Map<String, AnnotationValue> convertMap = first(annos, "Convert");
+				if (convertMap != null) {
+					TypeMirror convertClass = (TypeMirror) value(convertMap, "value");
+					if (convertClass == null || convertClass.getKind() == TypeKind.VOID)
+						convertClass = (TypeMirror) value(convertMap, "converter");
+					if (convertClass != null && convertClass.getKind() != TypeKind.VOID)
+						converter = classLiteral(convertClass, "converter of field '" + fieldName + "'");
+				}
+				Map<String, AnnotationValue> enumMap = first(annos, "Enumerated");
+				if (enumMap != null) {
+					converterName = "EnumType." + value(enumMap, "value");
+					converter = str(converterName);
+				}
+			}
+
+			sb.append("\n\t\t// ").append(fieldName).append("\n");
+			if (first(annos, "Transient") != null) {
+				sb.append("\t\tTableModelUtilsOfEntity.addTransientColumn(model, ").append(str(fieldName)).append(", ")
+						.append(propertyClass).append(", ").append(converter).append(", true);\n");
+				continue;
+			}
+			if (!declared) {
+				sb.append("\t\tColumnModel col;\n");
+				declared = true;
+			}
+			sb.append("\t\tif (!TableModelUtilsOfEntity.addTransientColumn(model, ").append(str(fieldName))
+					.append(", ").append(propertyClass).append(", ").append(converter).append(", false)) {\n");
+			appendGenerators(annos, "\t\t\t");
+			appendColumn(annos, fieldName, propertyClass, converter, converterName);
+			sb.append("\t\t}\n");
+		}
+	}
+
+	private void appendColumn(List<AnnotationMirror> annos, String fieldName, String propertyClass, // NOSONAR
+			String converter, String converterName) {
+		String in = "\t\t\t";
+		sb.append(in).append("col = new ColumnModel(TableModelUtilsOfEntity.columnNameOfField(").append(str(fieldName))
+				.append("));\n");
+		sb.append(in).append("col.entityField(").append(str(fieldName)).append(");\n");
+		sb.append(in).append("col.setConverterClassOrName(").append(converter).append(");\n");
+
+		Map<String, AnnotationValue> colMap = first(annos, "Column");
+		Map<String, AnnotationValue> enhancedMap = first(annos, "COLUMN");
+		if (colMap == null)
+			colMap = enhancedMap;
+		String javaType = "TypeUtils.javaType2DialectType(" + propertyClass + ")";
+		if (colMap != null) {
+			if (!(Boolean) value(colMap, "nullable"))
+				sb.append(in).append("col.setNullable(false);\n");
+			if (!isEmpty((String) value(colMap, "name")))
+				sb.append(in).append("col.setColumnName(").append(str((String) value(colMap, "name"))).append(");\n");
+			sb.append(in).append("col.setLength(").append(value(colMap, "length")).append(");\n");
+			sb.append(in).append("col.setPrecision(").append(value(colMap, "precision")).append(");\n");
+			sb.append(in).append("col.setScale(").append(value(colMap, "scale")).append(");\n");
+			String colDef = (String) value(colMap, "columnDefinition");
+			if (!isEmpty(colDef)) {
+				sb.append(in).append("col.setColumnDefinition(").append(str(colDef)).append(");\n");
+				colDef = colDef.trim();
+				if (colDef.contains(" "))
+					colDef = colDef.substring(0, colDef.indexOf(' '));
+				sb.append(in).append("col.setColumnType(TypeUtils.colDef2DialectType(").append(str(colDef))
+						.append("));\n");
+			} else
+				sb.append(in).append("col.setColumnType(").append(javaType).append(");\n");
+			sb.append(in).append("col.setInsertable(").append(value(colMap, "insertable")).append(");\n");
+			sb.append(in).append("col.setUpdatable(").append(value(colMap, "updatable")).append(");\n");
+			if (enhancedMap != null) {
+				sb.append(in).append("col.setTail(").append(str((String) value(enhancedMap, "tail"))).append(");\n");
+				sb.append(in).append("col.setComment(").append(str((String) value(enhancedMap, "comment")))
+						.append(");\n");
+				sb.append(in).append("col.setCreateTimestamp(").append(value(enhancedMap, "createTimestamp"))
+						.append(");\n");
+				sb.append(in).append("col.setUpdateTimestamp(").append(value(enhancedMap, "updateTimestamp"))
+						.append(");\n");
+				sb.append(in).append("col.setCreatedBy(").append(value(enhancedMap, "createdBy")).append(");\n");
+				sb.append(in).append("col.setLastModifiedBy(").append(value(enhancedMap, "lastModifiedBy"))
+						.append(");\n");
+			}
+		} else
+			sb.append(in).append("col.setColumnType(").append(javaType).append(");\n");
+
+		if (exist(annos, "CreateTimestamp"))
+			sb.append(in).append("col.setCreateTimestamp(true);\n");
+		if (exist(annos, "UpdateTimestamp"))
+			sb.append(in).append("col.setUpdateTimestamp(true);\n");
+		if (exist(annos, "CreatedBy"))
+			sb.append(in).append("col.setCreatedBy(true);\n");
+		if (exist(annos, "LastModifiedBy"))
+			sb.append(in).append("col.setLastModifiedBy(true);\n");
+
+		if ("EnumType.ORDINAL".equals(converterName))
+			sb.append(in).append("col.setColumnType(Type.INTEGER);\n");
+		else if ("EnumType.STRING".equals(converterName))
+			sb.append(in).append("col.setColumnType(Type.VARCHAR);\n");
+
+		if (first(annos, "Id") != null || first(annos, "PKey") != null)
+			sb.append(in).append("col.pkey();\n");
+
+		Map<String, AnnotationValue> temporalMap = first(annos, "Temporal");
+		if (temporalMap != null) {
+			Object temporalType = value(temporalMap, "value");
+			if ("TIMESTAMP".equals(temporalType) || "DATE".equals(temporalType) || "TIME".equals(temporalType))
+				sb.append(in).append("col.setColumnType(Type.").append(temporalType).append(");\n");
+		}
+
+		Map<String, AnnotationValue> shardMap = first(annos, "ShardTable");
+		if (shardMap != null)
+			sb.append(in).append("col.shardTable(").append(strs(strArray(shardMap, "value"))).append(");\n");
+		shardMap = first(annos, "ShardDatabase");
+		if (shardMap != null)
+			sb.append(in).append("col.shardDatabase(").append(strs(strArray(shardMap, "value"))).append(");\n");
+
+		sb.append(in).append("col.setEntityField(").append(str(fieldName)).append(");\n");
+		sb.append(in).append("col.setTableModel(model);\n");
+		sb.append(in).append("model.addColumn(col);\n");
+
+		String[][] shortcuts = new String[][] { { "AutoId", "autoId" }, { "IdentityId", "identityId" },
+				{ "TimeStampId", "timeStampId" }, { "UUID", "uuid" }, { "UUID25", "uuid25" }, { "UUID26", "uuid26" },
+				{ "UUID32", "uuid32" }, { "UUID36", "uuid36" }, { "Snowflake", "snowflake" } };
+		for (String[] shortcut : shortcuts)
+			if (exist(annos, shortcut[0]))
+				sb.append(in).append("col.").append(shortcut[1]).append("();\n");
+
+		Map<String, AnnotationValue> gvMap = first(annos, "GeneratedValue");
+		if (gvMap != null) {
+			Object strategy = value(gvMap, "strategy");
+			if (strategy != null) {
+				String[][] strategies = new String[][] { { "AUTO", "autoId" }, { "IDENTITY", "identityId" },
+						{ "UUID", "uuid" }, { "UUID25", "uuid25" }, { "UUID26", "uuid26" }, { "UUID32", "uuid32" },
+						{ "UUID36", "uuid36" }, { "TIMESTAMP", "timeStampId" } };
+				String method = null;
+				for (String[] item : strategies)
+					if (item[0].equals(strategy))
+						method = item[1];
+				if (method != null)
+					sb.append(in).append("col.").append(method).append("();\n");
+				else {
+					String generator = (String) value(gvMap, "generator");
+					if (isEmpty(generator))
+						throw new UnsupportedEntityException("GeneratedValue strategy '" + strategy
+								+ "' of field '" + fieldName + "' has no generator");
+					sb.append(in).append("col.idGenerator(").append(str(generator)).append(");\n");
+				}
+			}
+		}
+
+		Map<String, AnnotationValue> refMap = first(annos, "SingleFKey");
+		if (refMap != null) {
+			Object ddl = value(refMap, "ddl");
+			sb.append(in).append("model.fkey(").append(str((String) value(refMap, "name")))
+					.append(").columns(col.getColumnName()).refs(").append(strs(strArray(refMap, "refs")))
+					.append(").ddl(").append(ddl == null ? Boolean.TRUE : ddl).append(");\n");
+		}
+		Map<String, AnnotationValue> idxMap = first(annos, "SingleIndex");
+		if (idxMap != null)
+			sb.append(in).append("model.index(").append(str((String) value(idxMap, "name")))
+					.append(").columns(col.getColumnName());\n");
+		Map<String, AnnotationValue> uniMap = first(annos, "SingleUnique");
+		if (uniMap != null)
+			sb.append(in).append("model.unique(").append(str((String) value(uniMap, "name")))
+					.append(").columns(col.getColumnName());\n");
+	}
+
+	/**
+	 * Return call of public "config(TableModel)" method of entity or its super
+	 * classes, or null if not found
+	 */
+	private String configMethodCall() {
+		for (TypeElement t = entity; t != null; t = superClass(t))
+			for (ExecutableElement method : ElementFilter.methodsIn(t.getEnclosedElements())) {
+				if (!"config".equals(method.getSimpleName().toString()) || method.getParameters().size() != 1
+						|| !method.getModifiers().contains(Modifier.PUBLIC))
+					continue;
+				TypeMirror param = types.erasure(method.getParameters().get(0).asType());
+				if (!TABLE_MODEL_CLASS.equals(param.toString()))
+					continue;
+				if (!method.getModifiers().contains(Modifier.STATIC))
+					throw new UnsupportedEntityException("config(TableModel) method is not static");
+				if (t != entity)
+					classLiteral(t.asType(), "class of config method");
+				return t.getQualifiedName() + ".config(model)";
+			}
+		return null;
+	}
+
+	/**
+	 * Return bean properties and their types same as Introspector, sorted by name,
+	 * type is null if it's an indexed property
+	 */
+	private Map<String, TypeMirror> beanProperties() {// NOSONAR
+		DeclaredType entityType = (DeclaredType) entity.asType();
+		Map<String, ExecutableElement> methods = new LinkedHashMap<String, ExecutableElement>();
+		for (TypeElement t = entity; t != null; t = superClass(t))
+			for (ExecutableElement method : ElementFilter.methodsIn(t.getEnclosedElements())) {
+				if (!method.getModifiers().contains(Modifier.PUBLIC)
+						|| method.getModifiers().contains(Modifier.STATIC))
+					continue;
+				StringBuilder key = new StringBuilder(method.getSimpleName()).append('(');
+				for (VariableElement param : method.getParameters())
+					key.append(types.erasure(param.asType())).append(',');
+				if (!methods.containsKey(key.toString()))// overridden method
+					methods.put(key.toString(), method);
+			}
+
+		Map<String, TypeMirror> getters = new HashMap<String, TypeMirror>();
+		Map<String, TypeMirror> isGetters = new HashMap<String, TypeMirror>();
+		Map<String, List<TypeMirror>> setters = new HashMap<String, List<TypeMirror>>();
+		Map<String, Boolean> indexed = new HashMap<String, Boolean>();
+		for (ExecutableElement method : methods.values()) {
+			String name = method.getSimpleName().toString();
+			ExecutableType type = (ExecutableType) types.asMemberOf(entityType, method);
+			List<? extends TypeMirror> params = type.getParameterTypes();
+			TypeMirror returnType = types.erasure(type.getReturnType());
+			boolean isVoid = returnType.getKind() == TypeKind.VOID;
+			if (name.startsWith("get") && name.length() > 3) {
+				String property = decapitalize(name.substring(3));
+				if (params.isEmpty() && !isVoid)
+					getters.put(property, returnType);
+				else if (params.size() == 1 && params.get(0).getKind() == TypeKind.INT && !isVoid)
+					indexed.put(property, true);
+			} else if (name.startsWith("is") && name.length() > 2) {
+				if (params.isEmpty() && returnType.getKind() == TypeKind.BOOLEAN)
+					isGetters.put(decapitalize(name.substring(2)), returnType);
+			} else if (name.startsWith("set") && name.length() > 3 && isVoid) {
+				String property = decapitalize(name.substring(3));
+				if (params.size() == 1) {
+					if (!setters.containsKey(property))
+						setters.put(property, new ArrayList<TypeMirror>());
+					setters.get(property).add(types.erasure(params.get(0)));
+				} else if (params.size() == 2 && params.get(0).getKind() == TypeKind.INT)
+					indexed.put(property, true);
+			}
+		}
+
+		Map<String, TypeMirror> result = new TreeMap<String, TypeMirror>();
+		for (Entry<String, TypeMirror> e : getters.entrySet())
+			result.put(e.getKey(), e.getValue());
+		for (Entry<String, TypeMirror> e : isGetters.entrySet())
+			result.put(e.getKey(), e.getValue());
+		for (Entry<String, List<TypeMirror>> e : setters.entrySet())
+			if (!result.containsKey(e.getKey())) {
+				if (e.getValue().size() > 1)
+					throw new UnsupportedEntityException("property '" + e.getKey() + "' has overloaded setters");
+				result.put(e.getKey(), e.getValue().get(0));
+			}
+		for (String property : indexed.keySet())
+			if (findField(property) != null)
+				result.put(property, null);
+		return result;
+	}
+
+	/** Same as java.beans.Introspector.decapitalize */
+	private static String decapitalize(String name) {
+		if (name.length() > 1 && Character.isUpperCase(name.charAt(1)) && Character.isUpperCase(name.charAt(0)))
+			return name;
+		char[] chars = name.toCharArray();
+		chars[0] = Character.toLowerCase(chars[0]);
+		return new String(chars);
+	}
+
+	/** Find field by name in entity and its super classes, same as ReflectionUtils.findField */
+	private VariableElement findField(String name) {
+		for (TypeElement t = entity; t != null; t = superClass(t))
+			for (VariableElement field : ElementFilter.fieldsIn(t.getEnclosedElements()))
+				if (name.equals(field.getSimpleName().toString()))
+					return field;
+		return null;
+	}
+
+	/** Return super class, or null if it's java.lang.Object */
+	private TypeElement superClass(TypeElement t) {
+		TypeMirror superType = t.getSuperclass();
+		if (superType.getKind() != TypeKind.DECLARED)
+			return null;
+		TypeElement result = (TypeElement) ((DeclaredType) superType).asElement();
+		return "java.lang.Object".equals(result.getQualifiedName().toString()) ? null : result;
+	}
+
+	/**
+	 * Return annotations of class same as Class.getAnnotations(), inherited
+	 * annotations of super classes are included
+	 */
+	private List<AnnotationMirror> classAnnotations(TypeElement t) {
+		Map<String, AnnotationMirror> result = new LinkedHashMap<String, AnnotationMirror>();
+		TypeElement superClass = superClass(t);
+		if (superClass != null)
+			for (AnnotationMirror anno : classAnnotations(superClass))
+				if (anno.getAnnotationType().asElement().getAnnotation(Inherited.class) != null)
+					result.put(annotationName(anno), anno);
+		for (AnnotationMirror anno : t.getAnnotationMirrors())
+			result.put(annotationName(anno), anno);
+		return new ArrayList<AnnotationMirror>(result.values());
+	}
+
+	private static String annotationName(AnnotationMirror anno) {
+		return ((TypeElement) anno.getAnnotationType().asElement()).getQualifiedName().toString();
+	}
+
+	/** Same as TableModelUtilsOfEntity.matchNameCheck */
+	private static boolean matchName(String annotationName, String name) {
+		for (String pkg : ANNOTATION_PACKAGES)
+			if ((pkg + annotationName).equals(name))
+				return true;
+		for (int i = 0; i <= 9; i++)
+			if ((JDIA_PACKAGE + annotationName + i).equals(name))
+				return true;
+		return false;
+	}
+
+	private List<AnnotationMirror> all(List<AnnotationMirror> annos, String annotationName) {
+		List<AnnotationMirror> result = new ArrayList<AnnotationMirror>();
+		for (AnnotationMirror anno : annos)
+			if (matchName(annotationName, annotationName(anno)))
+				result.add(anno);
+		return result;
+	}
+
+	/** Return values of first matched annotation, or null if not found */
+	private Map<String, AnnotationValue> first(List<AnnotationMirror> annos, String annotationName) {
+		for (AnnotationMirror anno : annos)
+			if (matchName(annotationName, annotationName(anno)))
+				return values(anno);
+		return null;
+	}
+
+	/**
+	 * Same as TableModelUtilsOfEntity.existEntityAnno, first matched annotation
+	 * exists and has no attribute
+	 */
+	private boolean exist(List<AnnotationMirror> annos, String annotationName) {
+		for (AnnotationMirror anno : annos)
+			if (matchName(annotationName, annotationName(anno)))
+				return ElementFilter.methodsIn(anno.getAnnotationType().asElement().getEnclosedElements()).isEmpty();
+		return false;
+	}
+
+	private Map<String, AnnotationValue> values(AnnotationMirror anno) {
+		Map<String, AnnotationValue> result = new HashMap<String, AnnotationValue>();
+		for (Entry<? extends ExecutableElement, ? extends AnnotationValue> e : elements
+				.getElementValuesWithDefaults(anno).entrySet())
+			result.put(e.getKey().getSimpleName().toString(), e.getValue());
+		return result;
+	}
+
+	/** Return value of annotation attribute, enum constant is returned as its name */
+	private static Object value(Map<String, AnnotationValue> map, String name) {
+		AnnotationValue v = map.get(name);
+		if (v == null)
+			return null;
+		Object value = v.getValue();
+		if (value instanceof VariableElement)
+			return ((VariableElement) value).getSimpleName().toString();
+		return value;
+	}
+
+	private static String[] strArray(Map<String, AnnotationValue> map, String name) {
+		AnnotationValue v = map.get(name);
+		if (v == null)
+			return new String[0];
+		List<?> list = (List<?>) v.getValue();
+		String[] result = new String[list.size()];
+		for (int i = 0; i < result.length; i++)
+			result[i] = (String) ((AnnotationValue) list.get(i)).getValue();
+		return result;
+	}
+
+	private static List<AnnotationMirror> annotations(Map<String, AnnotationValue> map, String name) {
+		List<AnnotationMirror> result = new ArrayList<AnnotationMirror>();
+		AnnotationValue v = map.get(name);
+		if (v != null)
+			for (Object item : (List<?>) v.getValue())
+				result.add((AnnotationMirror) ((AnnotationValue) item).getValue());
+		return result;
+	}
+
+	/**
+	 * Return class literal of type, throw UnsupportedEntityException if it can
+	 * not be accessed from generated builder
+	 */
+	private String classLiteral(TypeMirror type, String usage) {
+		switch (type.getKind()) {
+		case BOOLEAN:
+		case BYTE:
+		case SHORT:
+		case INT:
+		case LONG:
+		case CHAR:
+		case FLOAT:
+		case DOUBLE:
+			return type.toString() + ".class";
+		case ARRAY: {
+			String component = classLiteral(((ArrayType) type).getComponentType(), usage);
+			return component.substring(0, component.length() - 6) + "[].class";
+		}
+		case DECLARED: {
+			TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+			for (Element e = element; e instanceof TypeElement; e = e.getEnclosingElement()) {
+				TypeElement t = (TypeElement) e;
+				if (t.getNestingKind() == NestingKind.LOCAL || t.getNestingKind() == NestingKind.ANONYMOUS
+						|| t.getModifiers().contains(Modifier.PRIVATE))
+					throw new UnsupportedEntityException(usage + " " + t + " is not accessible");
+				if (!t.getModifiers().contains(Modifier.PUBLIC) && !samePackage(t))
+					throw new UnsupportedEntityException(usage + " " + t + " is not accessible");
+			}
+			return element.getQualifiedName() + ".class";
+		}
+		default:
+			throw new UnsupportedEntityException(usage + " " + type + " is not supported");
+		}
+	}
+
+	private boolean samePackage(TypeElement t) {
+		PackageElement pkg = elements.getPackageOf(t);
+		return packageName.equals(pkg.getQualifiedName().toString());
+	}
+
+	private static boolean isEmpty(String s) {
+		return s == null || s.length() == 0;
+	}
+
+	/** Return Java String literal */
+	private static String str(String s) {
+		if (s == null)
+			return "null";
+		StringBuilder result = new StringBuilder("\"");
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			switch (c) {
+			case '"':
+				result.append("\\\"");
+				break;
+			case '\\':
+				result.append("\\\\");
+				break;
+			case '\n':
+				result.append("\\n");
+				break;
+			case '\r':
+				result.append("\\r");
+				break;
+			case '\t':
+				result.append("\\t");
+				break;
+			default:
+				if (c < 0x20 || c > 0x7E)
+					result.append(String.format("\\u%04x", (int) c));
+				else
+					result.append(c);
+			}
+		}
+		return result.append('"').toString();
+	}
+
+	/** Return Strings as varargs parameters */
+	private static String strs(String[] strs) {
+		StringBuilder result = new StringBuilder();
+		for (int i = 0; i < strs.length; i++) {
+			if (i > 0)
+				result.append(", ");
+			result.append(str(strs[i]));
+		}
+		return result.toString();
+	}
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS
+ * OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.github.drinkjava2.jdialects.processor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.ServiceLoader;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.drinkjava2.jdialects.EntityModelBuilder;
+import com.github.drinkjava2.jdialects.TableModelSnapshot;
+import com.github.drinkjava2.jdialects.TableModelUtilsOfEntity;
+import com.github.drinkjava2.jdialects.Type;
+import com.github.drinkjava2.jdialects.model.ColumnModel;
+import com.github.drinkjava2.jdialects.model.TableModel;
+
+/**
+ * Compile fixture entities (in test resources "fixture" folder) with
+ * EntityModelProcessor, then check TableModel built by generated builder is same
+ * as built by reflection
+ *
+ * @author Yong Zhu
+ * @since 5.0.13
+ */
+public class EntityModelProcessorTest {
+	private static final String FIXTURE_PACKAGE = "com.github.drinkjava2.jdialects.processor.fixture";
+
+	private File outDir;
+	private URLClassLoader loader;
+
+	@Before
+	public void compileFixture() throws Exception {
+		outDir = Files.createTempDirectory("processor-test").toFile();
+		File fixtureDir = new File(EntityModelProcessorTest.class.getResource("/fixture").toURI());
+		List<File> sources = new ArrayList<File>();
+		for (File file : new File(fixtureDir, FIXTURE_PACKAGE.replace('.', '/')).listFiles())
+			sources.add(file);
+
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+		StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null);
+		try {
+			String classPath = location(TableModel.class) + File.pathSeparator + location(EntityModelProcessor.class);
+			List<String> options = Arrays.asList("-d", outDir.getPath(), "-s", outDir.getPath(), "-classpath",
+					classPath);
+			JavaCompiler.CompilationTask task = compiler.getTask(new StringWriter(), fileManager, diagnostics,
+					options, null, fileManager.getJavaFileObjectsFromFiles(sources));
+			task.setProcessors(Arrays.asList(new EntityModelProcessor()));
+			Assert.assertTrue(diagnostics.getDiagnostics().toString(), task.call());
+		} finally {
+			fileManager.close();
+		}
+		loader = new URLClassLoader(new URL[] { outDir.toURI().toURL() },
+				EntityModelProcessorTest.class.getClassLoader());
+	}
+
+	@After
+	public void cleanUp() throws IOException {
+		loader.close();
+		delete(outDir);
+	}
+
+	private static String location(Class<?> clazz) throws Exception {
+		return new File(clazz.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null)
+			for (File child : children)
+				delete(child);
+		file.delete(); // NOSONAR
+	}
+
+	/** Build model by reflection, same as TableModelUtilsOfEntity does without generated builder */
+	private static TableModel reflectionModel(Class<?> entityClass) throws Exception {
+		Method method = TableModelUtilsOfEntity.class.getDeclaredMethod("entity2ModelIgnoreConfigMethod", Class.class);
+		method.setAccessible(true);
+		TableModel model = (TableModel) method.invoke(null, entityClass);
+		entityClass.getMethod("config", TableModel.class).invoke(null, model);
+		TableModel.sortColumns(model.getColumns());
+		return model;
+	}
+
+	private static EntityModelBuilder generatedBuilder(ClassLoader loader, Class<?> entityClass) {
+		for (EntityModelBuilder builder : ServiceLoader.load(EntityModelBuilder.class, loader))
+			if (builder.entityClass() == entityClass)
+				return builder;
+		return null;
+	}
+
+	/** Return snapshot bytes of model, all saved properties of columns, keys and IdGenerators are compared */
+	private byte[] snapshot(TableModel model, String name) throws IOException {
+		File file = new File(outDir, name);
+		TableModelSnapshot.write(file, "test", model);
+		return Files.readAllBytes(file.toPath());
+	}
+
+	@Test
+	public void testGeneratedBuilderSameAsReflection() throws Exception {
+		Class<?> entityClass = loader.loadClass(FIXTURE_PACKAGE + ".OrderEntity");
+		EntityModelBuilder builder = generatedBuilder(loader, entityClass);
+		Assert.assertNotNull("No builder generated for " + entityClass, builder);
+		TableModel generated = builder.build();
+		TableModel.sortColumns(generated.getColumns());
+		TableModel reflected = reflectionModel(entityClass);
+
+		Assert.assertEquals("orders", generated.getComment()); // config of entity, not of super class
+		ColumnModel id = generated.getColumnByColName("id");
+		Assert.assertTrue(id.getPkey());
+		Assert.assertEquals(Type.BIGINT, id.getColumnType()); // generic ID of super class resolved as Long
+		Assert.assertTrue(generated.getColumnByColName("memo").getTransientable());
+		Assert.assertArrayEquals(snapshot(reflected, "reflected.bin"), snapshot(generated, "generated.bin"));
+	}
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS
+ * OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.github.drinkjava2.jdialects.processor.fixture;
+
+import java.util.Date;
+
+import com.github.drinkjava2.jdialects.annotation.jdia.COLUMN;
+import com.github.drinkjava2.jdialects.annotation.jpa.Id;
+import com.github.drinkjava2.jdialects.model.TableModel;
+
+/**
+ * Generic super class of fixture entity, compiled by EntityModelProcessorTest
+ *
+ * @author Yong Zhu
+ * @since 5.0.13
+ */
+public abstract class BaseEntity<ID> {
+	@Id
+	private ID id;
+
+	@COLUMN(comment = "create time", createTimestamp = true)
+	private Date createdAt;
+
+	public ID getId() {
+		return id;
+	}
+
+	public void setId(ID id) {
+		this.id = id;
+	}
+
+	public Date getCreatedAt() {
+		return createdAt;
+	}
+
+	public void setCreatedAt(Date createdAt) {
+		this.createdAt = createdAt;
+	}
+
+	public static void config(TableModel model) {
+		model.setComment("base");
+	}
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS
+ * OF ANY KIND, either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.github.drinkjava2.jdialects.processor.fixture;
+
+import com.github.drinkjava2.jdialects.annotation.jdia.COLUMN;
+import com.github.drinkjava2.jdialects.annotation.jdia.ShardDatabase;
+import com.github.drinkjava2.jdialects.annotation.jdia.ShardTable;
+import com.github.drinkjava2.jdialects.annotation.jdia.SingleIndex;
+import com.github.drinkjava2.jdialects.annotation.jpa.Column;
+import com.github.drinkjava2.jdialects.annotation.jpa.EnumType;
+import com.github.drinkjava2.jdialects.annotation.jpa.Enumerated;
+import com.github.drinkjava2.jdialects.annotation.jpa.Index;
+import com.github.drinkjava2.jdialects.annotation.jpa.Table;
+import com.github.drinkjava2.jdialects.annotation.jpa.Transient;
+import com.github.drinkjava2.jdialects.annotation.jpa.UniqueConstraint;
+import com.github.drinkjava2.jdialects.model.TableModel;
+
+/**
+ * Fixture entity compiled by EntityModelProcessorTest, its TableModel built by
+ * generated builder should be same as built by reflection
+ *
+ * @author Yong Zhu
+ * @since 5.0.13
+ */
+@Table(name = "order_tb", indexes = { @Index(name = "ix_order_code", columnList = "code,status") }, //
+		uniqueConstraints = { @UniqueConstraint(name = "uk_order_code", columnNames = { "code" }) })
+public class OrderEntity extends BaseEntity<Long> {
+	public enum Status {
+		NEW, DONE
+	}
+
+	@COLUMN(name = "order_name", length = 50, nullable = false, comment = "order name", tail = "")
+	private String name;
+
+	@Column(length = 20)
+	@SingleIndex
+	private String code;
+
+	@Enumerated(EnumType.STRING)
+	private Status status;
+
+	@Enumerated(EnumType.ORDINAL)
+	private Status oldStatus;
+
+	@Transient
+	private String memo;
+
+	@ShardTable({ "MOD", "3" })
+	private Integer shardKey;
+
+	@ShardDatabase({ "MOD", "2" })
+	private Integer dbKey;
+
+	private boolean paid;
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public String getCode() {
+		return code;
+	}
+
+	public void setCode(String code) {
+		this.code = code;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public void setStatus(Status status) {
+		this.status = status;
+	}
+
+	public Status getOldStatus() {
+		return oldStatus;
+	}
+
+	public void setOldStatus(Status oldStatus) {
+		this.oldStatus = oldStatus;
+	}
+
+	public String getMemo() {
+		return memo;
+	}
+
+	public void setMemo(String memo) {
+		this.memo = memo;
+	}
+
+	public Integer getShardKey() {
+		return shardKey;
+	}
+
+	public void setShardKey(Integer shardKey) {
+		this.shardKey = shardKey;
+	}
+
+	public Integer getDbKey() {
+		return dbKey;
+	}
+
+	public void setDbKey(Integer dbKey) {
+		this.dbKey = dbKey;
+	}
+
+	public boolean isPaid() {
+		return paid;
+	}
+
+	public void setPaid(boolean paid) {
+		this.paid = paid;
+	}
+
+	public static void config(TableModel model) {
+		model.setComment("orders");
+		model.column("extra_col").VARCHAR(10);
+	}
+}